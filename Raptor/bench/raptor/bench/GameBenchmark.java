@@ -0,0 +1,128 @@
+/**
+ * New BSD License
+ * http://www.opensource.org/licenses/bsd-license.php
+ * Copyright 2009-2011 RaptorProject (http://code.google.com/p/raptor-chess-interface/)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the RaptorProject nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package raptor.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import raptor.chess.Game;
+import raptor.chess.GameCursor;
+import raptor.chess.GameFactory;
+import raptor.chess.Move;
+import raptor.chess.Variant;
+
+/**
+ * Benchmarks the Game operations the GUI leans on while games are played and
+ * browsed: making SAN moves, generating SAN for the legal moves, creating FEN
+ * and moving a GameCursor around.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class GameBenchmark {
+	/**
+	 * Morphy vs the Duke of Brunswick and Count Isouard, Paris 1858.
+	 */
+	public static final String[] OPERA_GAME = { "e4", "e5", "Nf3", "d6", "d4",
+			"Bg4", "dxe5", "Bxf3", "Qxf3", "dxe5", "Bc4", "Nf6", "Qb3", "Qe7",
+			"Nc3", "c6", "Bg5", "b5", "Nxb5", "cxb5", "Bxb5+", "Nbd7", "O-O-O",
+			"Rd8", "Rxd7", "Rxd7", "Rd1", "Qe6", "Bxd7+", "Nxd7", "Qb8+",
+			"Nxb8", "Rd8#" };
+
+	private GameCursor cursor;
+
+	private boolean isCursorOnFirstQuarter;
+
+	private Game middleGame;
+
+	/**
+	 * Generates the legal moves and the SAN of each one. SAN is set when a
+	 * move is made, so each move is made and rolled back.
+	 */
+	@Benchmark
+	public void legalMovesWithSan(Blackhole blackhole) {
+		for (Move move : middleGame.getLegalMoves()) {
+			middleGame.forceMove(move);
+			blackhole.consume(move.getSan());
+			middleGame.rollback();
+		}
+	}
+
+	@Benchmark
+	public Game makeSanMoves() {
+		Game game = GameFactory.createStartingPosition(Variant.classic);
+		game.addState(Game.UPDATING_SAN_STATE);
+		for (String san : OPERA_GAME) {
+			game.makeSanMove(san);
+		}
+		return game;
+	}
+
+	@Benchmark
+	public Game setCursorFirstThenLast() {
+		cursor.setCursorFirst();
+		cursor.setCursorMasterLast();
+		return cursor;
+	}
+
+	/**
+	 * Moves the cursor across the middle of the game. The cursor navigates
+	 * incrementally, so setting it to the index it is already on would be a
+	 * no-op; each invocation alternates between a quarter and three quarters
+	 * of the way through the game instead.
+	 */
+	@Benchmark
+	public Game setCursorMiddle() {
+		isCursorOnFirstQuarter = !isCursorOnFirstQuarter;
+		cursor.setCursor(isCursorOnFirstQuarter ? OPERA_GAME.length / 4
+				: OPERA_GAME.length * 3 / 4);
+		return cursor;
+	}
+
+	@Setup
+	public void setup() {
+		Game master = GameFactory.createStartingPosition(Variant.classic);
+		master.addState(Game.UPDATING_SAN_STATE);
+		for (String san : OPERA_GAME) {
+			master.makeSanMove(san);
+		}
+		cursor = new GameCursor(master,
+				GameCursor.Mode.MakeMovesOnMasterSetCursorToLast);
+
+		middleGame = GameFactory.createStartingPosition(Variant.classic);
+		middleGame.addState(Game.UPDATING_SAN_STATE);
+		for (int i = 0; i < OPERA_GAME.length / 2; i++) {
+			middleGame.makeSanMove(OPERA_GAME[i]);
+		}
+	}
+
+	@Benchmark
+	public String toFen() {
+		return middleGame.toFen();
+	}
+}
@@ -0,0 +1,135 @@
+/**
+ * New BSD License
+ * http://www.opensource.org/licenses/bsd-license.php
+ * Copyright 2009-2011 RaptorProject (http://code.google.com/p/raptor-chess-interface/)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the RaptorProject nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package raptor.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import raptor.chat.ChatEvent;
+import raptor.connector.ics.IcsParser;
+import raptor.connector.ics.chat.ChatEventParser;
+import raptor.connector.ics.Style12Parser;
+
+/**
+ * Runs the ICS parsers over FICS traffic recorded in fics-traffic.txt and
+ * style12.txt. Messages in fics-traffic.txt are separated by the FICS prompt
+ * just as they are on the wire.
+ * 
+ * IcsParser.parse() needs a connected IcsConnector, which in turn needs a
+ * running Raptor, so the chat traffic is run through the IcsParser's chat
+ * event parsers directly. That is the same cascade parse() runs on whatever
+ * is left after game events are removed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class IcsParsingBenchmark {
+	/**
+	 * Exposes the chat event parsers of an IcsParser without a connector.
+	 */
+	protected static class ChatEventParsers extends IcsParser {
+		public ChatEventParsers() {
+			super(false);
+		}
+
+		public ChatEvent parseChatEvent(String message) {
+			for (ChatEventParser parser : nonGameEventParsers) {
+				ChatEvent event = parser.parse(message);
+				if (event != null) {
+					return event;
+				}
+			}
+			return null;
+		}
+	}
+
+	public static final String PROMPT = "fics% ";
+
+	private ChatEventParsers chatEventParsers;
+
+	private String[] messages;
+
+	private String[] style12Messages;
+
+	private Style12Parser style12Parser;
+
+	protected static String readResource(String name) throws IOException {
+		InputStream in = IcsParsingBenchmark.class.getResourceAsStream(name);
+		if (in == null) {
+			throw new IOException("Could not find resource " + name);
+		}
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				out.write(buffer, 0, read);
+			}
+			return new String(out.toByteArray(), StandardCharsets.ISO_8859_1);
+		} finally {
+			in.close();
+		}
+	}
+
+	@Benchmark
+	public void chatEventParsers(Blackhole blackhole) {
+		for (String message : messages) {
+			blackhole.consume(chatEventParsers.parseChatEvent(message));
+		}
+	}
+
+	@Setup
+	public void setup() throws IOException {
+		chatEventParsers = new ChatEventParsers();
+		style12Parser = new Style12Parser();
+
+		List<String> trafficMessages = new ArrayList<String>();
+		for (String message : readResource("fics-traffic.txt").split(
+				"\n" + PROMPT)) {
+			message = message.trim();
+			if (message.length() > 0) {
+				trafficMessages.add(message);
+			}
+		}
+		messages = trafficMessages.toArray(new String[trafficMessages.size()]);
+		style12Messages = readResource("style12.txt").split("\n");
+	}
+
+	@Benchmark
+	public void style12Parser(Blackhole blackhole) {
+		for (String message : style12Messages) {
+			blackhole.consume(style12Parser.parse(message));
+		}
+	}
+}
@@ -0,0 +1,85 @@
+/**
+ * New BSD License
+ * http://www.opensource.org/licenses/bsd-license.php
+ * Copyright 2009-2011 RaptorProject (http://code.google.com/p/raptor-chess-interface/)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the RaptorProject nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package raptor.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import raptor.chess.Game;
+import raptor.chess.pgn.ListMaintainingPgnParserListener;
+import raptor.chess.pgn.SimplePgnParser;
+import raptor.chess.pgn.chesspresso.ChesspressoPgnListener;
+import raptor.chess.pgn.chesspresso.ChesspressoPgnParser;
+
+/**
+ * Parses the PGN files in test/pgn with both PGN parsers. The files are read
+ * into memory during setup so disk speed isn't measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PgnParsingBenchmark {
+	@Param( { "test/pgn/50orsogames.pgn", "test/pgn/Alekhine4Pawns.pgn",
+			"test/pgn/crazyhouseGames.pgn", "test/pgn/wildFrGames.pgn" })
+	public String file;
+
+	private byte[] pgnBytes;
+
+	private String pgn;
+
+	@Benchmark
+	public List<chesspresso.game.Game> chesspressoPgnParser() {
+		ChesspressoPgnParser parser = new ChesspressoPgnParser(
+				new ByteArrayInputStream(pgnBytes));
+		ChesspressoPgnListener listener = new ChesspressoPgnListener();
+		parser.addPgnParserListener(listener);
+		parser.parse();
+		return listener.getGames();
+	}
+
+	@Setup
+	public void setup() throws IOException {
+		pgnBytes = Files.readAllBytes(Paths.get(file));
+		pgn = new String(pgnBytes, StandardCharsets.ISO_8859_1);
+	}
+
+	@Benchmark
+	public List<Game> simplePgnParser() {
+		SimplePgnParser parser = new SimplePgnParser(pgn);
+		ListMaintainingPgnParserListener listener = new ListMaintainingPgnParserListener();
+		parser.addPgnParserListener(listener);
+		parser.parse();
+		return listener.getGames();
+	}
+}
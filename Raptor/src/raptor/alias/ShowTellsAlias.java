@@ -22,6 +22,7 @@ import org.apache.commons.lang.math.NumberUtils;
 import raptor.Raptor;
 import raptor.chat.ChatEvent;
 import raptor.chat.ChatType;
+import raptor.chat.ChatLogger;
 import raptor.chat.ChatLogger.ChatEventParseListener;
 import raptor.service.ThreadService;
 import raptor.swt.chat.ChatConsoleController;
@@ -58,6 +59,7 @@ public class ShowTellsAlias extends RaptorAlias {
 						final StringBuilder builder = new StringBuilder(5000);
 						controller.getConnector().getChatService()
 								.getChatLogger().parseFile(
+										new ChatLogger.Query().add(ChatType.TELL),
 										new ChatEventParseListener() {
 											public boolean onNewEventParsed(
 													ChatEvent event) {
@@ -104,6 +106,9 @@ public class ShowTellsAlias extends RaptorAlias {
 						final StringBuilder builder = new StringBuilder(5000);
 						controller.getConnector().getChatService()
 								.getChatLogger().parseFile(
+										new ChatLogger.Query().add(
+												ChatType.CHANNEL_TELL, whatsLeft,
+												null, null),
 										new ChatEventParseListener() {
 											public boolean onNewEventParsed(
 													ChatEvent event) {
@@ -153,6 +158,7 @@ public class ShowTellsAlias extends RaptorAlias {
 						final StringBuilder builder = new StringBuilder(5000);
 						controller.getConnector().getChatService()
 								.getChatLogger().parseFile(
+										new ChatLogger.Query().add(ChatType.TELL),
 										new ChatEventParseListener() {
 											public boolean onNewEventParsed(
 													ChatEvent event) {
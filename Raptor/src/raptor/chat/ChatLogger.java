@@ -13,13 +13,29 @@
  */
 package raptor.chat;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.Charset;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.StringTokenizer;
 
 import raptor.Raptor;
@@ -29,7 +45,6 @@ import raptor.connector.fics.FicsConnector;
 import raptor.pref.PreferenceKeys;
 import raptor.service.ThreadService;
 import raptor.util.Logger;
-import raptor.util.RaptorRunnable;
 
 /**
  * Logs chat messages to a file and provides, and allows a
@@ -37,6 +52,14 @@ import raptor.util.RaptorRunnable;
  * 
  * This is being used to add old tells to a newly created Channel or Person tab.
  * 
+ * Writes are queued and appended in batches by a single background flush
+ * through streams which stay open, either FLUSH_DELAY milliseconds after the
+ * first queued event or as soon as MAX_PENDING_EVENTS are queued. Next to the
+ * file a sidecar index holds a fixed size record per event with its offset,
+ * time, type, channel, source and game, so parseFile with a Query only reads
+ * and deserializes the events it asks for. When the file grows past
+ * maxFileBytes it is rotated to a single previous segment. The user's console,
+ * channel and person logs are kept open too and rotated by date and size.
  */
 public class ChatLogger {
 	public static interface ChatEventParseListener {
@@ -50,13 +73,119 @@ public class ChatLogger {
 		public void onParseCompleted();
 	}
 
-	private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat(
-			"yyyy-MM-dd HH:mm");
+	/**
+	 * Selects the events parseFile reads. An event is selected if it is not
+	 * older than the since time and any clause matches it. A query without
+	 * clauses selects every event type. Channel, source and game are compared
+	 * ignoring case through hashes stored in the index, so a query can select
+	 * a few events it did not ask for and listeners should still check the
+	 * events they receive.
+	 */
+	public static class Query {
+		protected List<int[]> clauses = new ArrayList<int[]>(4);
+		protected long since = Long.MIN_VALUE;
+
+		/**
+		 * Selects events of the type.
+		 */
+		public Query add(ChatType type) {
+			return add(type, null, null, null);
+		}
+
+		/**
+		 * Selects events matching all of the non null arguments.
+		 */
+		public Query add(ChatType type, String channel, String source,
+				String gameId) {
+			clauses.add(new int[] { type == null ? ANY : type.ordinal(),
+					channel == null ? ANY : hash(channel),
+					source == null ? ANY : hash(source),
+					gameId == null ? ANY : hash(gameId) });
+			return this;
+		}
+
+		/**
+		 * Selects only events which occurred at or after time.
+		 */
+		public Query setSince(long time) {
+			since = time;
+			return this;
+		}
+
+		protected boolean matches(long time, int type, int channelHash,
+				int sourceHash, int gameIdHash) {
+			if (time < since) {
+				return false;
+			}
+			if (clauses.isEmpty()) {
+				return true;
+			}
+			for (int[] clause : clauses) {
+				if (matches(clause[0], type) && matches(clause[1], channelHash)
+						&& matches(clause[2], sourceHash)
+						&& matches(clause[3], gameIdHash)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		protected static boolean matches(int clauseValue, int value) {
+			return clauseValue == ANY || clauseValue == value;
+		}
+	}
+
+	/**
+	 * A user log file which is kept open.
+	 */
+	protected static class LogFile {
+		protected String day;
+		protected File file;
+		protected Writer writer;
+	}
+
+	public static final long DEFAULT_MAX_FILE_BYTES = 8L * 1024 * 1024;
+	public static final long FLUSH_DELAY = 500;
+	public static final int MAX_PENDING_EVENTS = 500;
+	public static final long MAX_LOG_FILE_BYTES = 10L * 1024 * 1024;
+	public static final int MAX_OPEN_LOG_FILES = 16;
+
+	protected static final int ANY = Integer.MIN_VALUE;
+	protected static final Charset CHARSET = Charset.defaultCharset();
+	protected static final int INDEX_HEADER_SIZE = 12;
+	protected static final int INDEX_MAGIC = 0x52434c49;
+	protected static final int INDEX_RECORD_SIZE = 36;
+	protected static final int INDEX_VERSION = 1;
 
 	private static final Logger LOG = Logger.getLogger(ChatLogger.class);
 
+	private final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat(
+			"yyyy-MM-dd HH:mm");
+	private final SimpleDateFormat DAY_FORMAT = new SimpleDateFormat(
+			"yyyy-MM-dd");
+
 	protected String pathToFile;
 	protected Connector connector;
+	protected DataOutputStream indexOut;
+	protected boolean isFlushScheduled;
+	protected long logLength;
+	protected OutputStream logOut;
+	protected Map<String, LogFile> logFiles = new LinkedHashMap<String, LogFile>(
+			MAX_OPEN_LOG_FILES, 0.75f, true);
+	protected long maxFileBytes = DEFAULT_MAX_FILE_BYTES;
+	protected List<ChatEvent> pending = new ArrayList<ChatEvent>();
+	protected final Object pendingLock = new Object();
+
+	protected Runnable flushRunnable = new Runnable() {
+		public void run() {
+			flush();
+		}
+
+		@Override
+		public String toString() {
+			return "ChatLogger.flush " + pathToFile;
+		}
+	};
 
 	/**
 	 * Constructs a ChatLogger which writes to the specified file. Deletes the
@@ -90,7 +219,7 @@ public class ChatLogger {
 	}
 
 	/**
-	 * Creates a read only chat logger.
+	 * Creates a read only chat logger. It is never rotated.
 	 * 
 	 * @param pathToFile
 	 *            Path to log file.
@@ -100,17 +229,113 @@ public class ChatLogger {
 	 */
 	public ChatLogger(String pathToFile, boolean isDeleting) {
 		this.pathToFile = pathToFile;
+		maxFileBytes = 0;
 		if (isDeleting) {
 			delete();
 		}
 	}
 
 	/**
-	 * Deletes the backing file.
+	 * Returns the hash the index stores for a channel, source or game id.
+	 */
+	protected static int hash(String value) {
+		if (value == null || value.length() == 0) {
+			return 0;
+		}
+		int result = value.toLowerCase().hashCode();
+		return result == 0 || result == ANY ? 1 : result;
+	}
+
+	/**
+	 * Writes queued events and flushes the open files, then closes them.
+	 */
+	public void close() {
+		synchronized (this) {
+			flush();
+			closeStreams();
+			for (LogFile logFile : logFiles.values()) {
+				closeQuietly(logFile.writer);
+			}
+			logFiles.clear();
+		}
+	}
+
+	/**
+	 * Deletes the backing file, its previous segment and their indexes.
+	 * Queued events are discarded.
 	 */
 	public void delete() {
-		File file = new File(pathToFile);
-		file.delete();
+		synchronized (this) {
+			synchronized (pendingLock) {
+				pending.clear();
+			}
+			closeStreams();
+			for (File file : getSegments()) {
+				file.delete();
+				getIndexFile(file).delete();
+			}
+		}
+	}
+
+	/**
+	 * Writes all queued events and flushes the open files. This is invoked in
+	 * the background after a write, it only needs to be called to make writes
+	 * visible to other readers right away.
+	 */
+	public void flush() {
+		synchronized (this) {
+			List<ChatEvent> events;
+			synchronized (pendingLock) {
+				events = pending;
+				pending = new ArrayList<ChatEvent>();
+				isFlushScheduled = false;
+			}
+			if (events.isEmpty()) {
+				return;
+			}
+
+			for (ChatEvent event : events) {
+				try {
+					writeToLogFiles(event);
+				} catch (Throwable t) {
+					LOG.error("Error writing chat event to the user logs: "
+							+ event, t);
+				}
+				if (event.getMessage().length() < 1500) {
+					try {
+						append(event);
+					} catch (IOException e) {
+						LOG.warn("IOException occured writing chat event: ", e);
+						closeStreams();
+					}
+				}
+			}
+
+			try {
+				if (logOut != null) {
+					logOut.flush();
+					indexOut.flush();
+				}
+			} catch (IOException e) {
+				LOG.warn("IOException occured flushing chat events: ", e);
+				closeStreams();
+			}
+			for (LogFile logFile : logFiles.values()) {
+				try {
+					logFile.writer.flush();
+				} catch (IOException ioe) {
+					LOG.warn("Error flushing " + logFile.file, ioe);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the size in bytes after which the file is rotated, 0 if it is
+	 * never rotated.
+	 */
+	public long getMaxFileBytes() {
+		return maxFileBytes;
 	}
 
 	/**
@@ -118,22 +343,23 @@ public class ChatLogger {
 	 * encountered.
 	 */
 	public void parseFile(ChatEventParseListener listener) {
+		parseFile(null, listener);
+	}
+
+	/**
+	 * Invokes the listener on each chat event selected by the query, all of
+	 * them if query is null, in the order they were written. Only the index
+	 * and the selected events are read.
+	 */
+	public void parseFile(Query query, ChatEventParseListener listener) {
 		synchronized (this) {
-			//long startTime = System.currentTimeMillis();
-			try (BufferedReader reader = new BufferedReader(new FileReader(pathToFile))) {
-				String currentLine = reader.readLine();
-				while (currentLine != null) {
-					try {
-						ChatEvent event = ChatEventUtils
-								.deserializeChatEvent(currentLine);
-						if (!listener.onNewEventParsed(event)) {
-							break;
-						}
-					} catch (Throwable t) {
-						LOG.warn("Error reading chat event line " + currentLine
-								+ " skipping ChatEvent", t);
+			flush();
+			try {
+				boolean isContinuing = true;
+				for (File segment : getSegments()) {
+					if (isContinuing && segment.exists()) {
+						isContinuing = parseSegment(segment, query, listener);
 					}
-					currentLine = reader.readLine();
 				}
 				listener.onParseCompleted();
 			} catch (IOException ioe) {
@@ -142,6 +368,14 @@ public class ChatLogger {
 		}
 	}
 
+	/**
+	 * Sets the size in bytes after which the file is rotated, 0 to never
+	 * rotate it.
+	 */
+	public void setMaxFileBytes(long maxFileBytes) {
+		this.maxFileBytes = maxFileBytes;
+	}
+
 	protected boolean vetoWrite(ChatEvent event) {
 		return event.getType() == ChatType.GAMES
 				|| event.getType() == ChatType.BUGWHO_ALL
@@ -153,24 +387,26 @@ public class ChatLogger {
 
 	/**
 	 * Writes a chat even to this chat logger. Also appends the chat event to
-	 * the configured loggers in the users preferences.
+	 * the configured loggers in the users preferences. The event is queued and
+	 * written in the background.
 	 */
 	public void write(ChatEvent event) {
 		if (vetoWrite(event)) {
 			return;
 		}
-		synchronized (this) {
-			writeToLogFiles(event);
-			if (event.getMessage().length() < 1500) {
-				//long startTime = System.currentTimeMillis();
-				try (FileWriter writer = new FileWriter(pathToFile, true)) {
-					writer.write(ChatEventUtils.serializeChatEvent(event) + '\n');
-					writer.flush();
-				} catch (IOException e) {
-					LOG.warn("IOException occured writing chat event: ", e);
-				}
+		long delay = -1;
+		synchronized (pendingLock) {
+			pending.add(event);
+			if (pending.size() == MAX_PENDING_EVENTS) {
+				delay = 0;
+			} else if (!isFlushScheduled) {
+				isFlushScheduled = true;
+				delay = FLUSH_DELAY;
 			}
 		}
+		if (delay != -1) {
+			scheduleFlush(delay);
+		}
 	}
 
 	/**
@@ -190,6 +426,256 @@ public class ChatLogger {
 		}
 	}
 
+	/**
+	 * Appends the serialized event to the file and its record to the index,
+	 * opening and rotating them as needed. The caller must hold this
+	 * logger's monitor.
+	 */
+	protected void append(ChatEvent event) throws IOException {
+		if (logOut == null) {
+			openStreams();
+		} else if (maxFileBytes > 0 && logLength >= maxFileBytes) {
+			rotate();
+			openStreams();
+		}
+		byte[] bytes = (ChatEventUtils.serializeChatEvent(event) + '\n')
+				.getBytes(CHARSET);
+		logOut.write(bytes);
+		writeIndexRecord(indexOut, logLength, bytes.length, event);
+		logLength += bytes.length;
+	}
+
+	protected void closeStreams() {
+		closeQuietly(logOut);
+		closeQuietly(indexOut);
+		logOut = null;
+		indexOut = null;
+	}
+
+	protected static void closeQuietly(Closeable closeable) {
+		if (closeable != null) {
+			try {
+				closeable.close();
+			} catch (IOException ioe) {
+				LOG.warn("Error closing " + closeable, ioe);
+			}
+		}
+	}
+
+	protected static File getIndexFile(File segment) {
+		return new File(segment.getPath() + ".idx");
+	}
+
+	/**
+	 * Returns the previous segment followed by the current file.
+	 */
+	protected File[] getSegments() {
+		return new File[] { new File(pathToFile + ".1"), new File(pathToFile) };
+	}
+
+	/**
+	 * Returns true if the index exists and describes every byte of the
+	 * segment.
+	 */
+	protected static boolean isIndexValid(File segment, File index)
+			throws IOException {
+		if (!index.exists()) {
+			return false;
+		}
+		long indexLength = index.length();
+		if (indexLength < INDEX_HEADER_SIZE
+				|| (indexLength - INDEX_HEADER_SIZE) % INDEX_RECORD_SIZE != 0) {
+			return false;
+		}
+		try (RandomAccessFile file = new RandomAccessFile(index, "r")) {
+			if (file.readInt() != INDEX_MAGIC
+					|| file.readInt() != INDEX_VERSION
+					|| file.readInt() != ChatType.values().length) {
+				return false;
+			}
+			if (indexLength == INDEX_HEADER_SIZE) {
+				return segment.length() == 0;
+			}
+			file.seek(indexLength - INDEX_RECORD_SIZE);
+			long offset = file.readLong();
+			file.readLong();
+			int length = file.readInt();
+			return offset + length == segment.length();
+		}
+	}
+
+	/**
+	 * Opens the current file and its index for appending, rebuilding the
+	 * index first if it does not match the file.
+	 */
+	protected void openStreams() throws IOException {
+		File log = new File(pathToFile);
+		File index = getIndexFile(log);
+		if (log.getParentFile() != null) {
+			log.getParentFile().mkdirs();
+		}
+		if (!isIndexValid(log, index)) {
+			rebuildIndex(log, index);
+		}
+		logLength = log.length();
+		logOut = new BufferedOutputStream(new FileOutputStream(log, true),
+				64 * 1024);
+		indexOut = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(index, true), 16 * 1024));
+	}
+
+	/**
+	 * Reads the selected events of one segment through its index. Returns
+	 * false if the listener asked to stop.
+	 */
+	protected boolean parseSegment(File segment, Query query,
+			ChatEventParseListener listener) throws IOException {
+		File index = getIndexFile(segment);
+		if (!isIndexValid(segment, index)) {
+			rebuildIndex(segment, index);
+		}
+
+		try (DataInputStream indexIn = new DataInputStream(
+				new BufferedInputStream(new FileInputStream(index), 64 * 1024));
+				RandomAccessFile log = new RandomAccessFile(segment, "r")) {
+			indexIn.skipBytes(INDEX_HEADER_SIZE);
+			byte[] buffer = new byte[1024];
+			while (true) {
+				long offset;
+				try {
+					offset = indexIn.readLong();
+				} catch (EOFException eof) {
+					return true;
+				}
+				long time = indexIn.readLong();
+				int length = indexIn.readInt();
+				int type = indexIn.readInt();
+				int channelHash = indexIn.readInt();
+				int sourceHash = indexIn.readInt();
+				int gameIdHash = indexIn.readInt();
+				if (query != null
+						&& !query.matches(time, type, channelHash,
+								sourceHash, gameIdHash)) {
+					continue;
+				}
+
+				if (buffer.length < length) {
+					buffer = new byte[length];
+				}
+				log.seek(offset);
+				log.readFully(buffer, 0, length);
+				String line = new String(buffer, 0, length, CHARSET);
+				if (line.endsWith("\n")) {
+					line = line.substring(0, line.length() - 1);
+				}
+				try {
+					ChatEvent event = ChatEventUtils.deserializeChatEvent(line);
+					if (!listener.onNewEventParsed(event)) {
+						return false;
+					}
+				} catch (Throwable t) {
+					LOG.warn("Error reading chat event line " + line
+							+ " skipping ChatEvent", t);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes a new index for the segment by scanning it. Lines which can not
+	 * be deserialized are left out of the index.
+	 */
+	protected static void rebuildIndex(File segment, File index)
+			throws IOException {
+		long startTime = System.currentTimeMillis();
+		int count = 0;
+		try (DataOutputStream indexOut = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(index), 16 * 1024))) {
+			indexOut.writeInt(INDEX_MAGIC);
+			indexOut.writeInt(INDEX_VERSION);
+			indexOut.writeInt(ChatType.values().length);
+			if (!segment.exists()) {
+				return;
+			}
+
+			try (BufferedInputStream in = new BufferedInputStream(
+					new FileInputStream(segment), 64 * 1024)) {
+				ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+				long offset = 0;
+				int b;
+				while (true) {
+					b = in.read();
+					if (b != -1) {
+						line.write(b);
+					}
+					if ((b == '\n' || b == -1) && line.size() > 0) {
+						String text = new String(line.toByteArray(), CHARSET);
+						if (text.endsWith("\n")) {
+							text = text.substring(0, text.length() - 1);
+						}
+						try {
+							writeIndexRecord(indexOut, offset, line.size(),
+									ChatEventUtils.deserializeChatEvent(text));
+							count++;
+						} catch (Throwable t) {
+							LOG.warn("Error indexing chat event line " + text
+									+ " skipping ChatEvent", t);
+						}
+						offset += line.size();
+						line.reset();
+					}
+					if (b == -1) {
+						break;
+					}
+				}
+			}
+		}
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("Indexed " + count + " chat events in " + segment
+					+ " in " + (System.currentTimeMillis() - startTime) + "ms");
+		}
+	}
+
+	/**
+	 * Closes the current file and makes it the previous segment, replacing
+	 * the existing one.
+	 */
+	protected void rotate() {
+		closeStreams();
+		File[] segments = getSegments();
+		segments[0].delete();
+		getIndexFile(segments[0]).delete();
+		if (!segments[1].renameTo(segments[0])
+				|| !getIndexFile(segments[1]).renameTo(
+						getIndexFile(segments[0]))) {
+			LOG.warn("Could not rotate " + pathToFile + ", truncating it.");
+			segments[1].delete();
+			getIndexFile(segments[1]).delete();
+		}
+	}
+
+	/**
+	 * Schedules flush to run in the background after delay milliseconds.
+	 */
+	protected void scheduleFlush(long delay) {
+		if (delay == 0) {
+			ThreadService.getInstance().run(flushRunnable);
+		} else {
+			ThreadService.getInstance().scheduleOneShot(delay, flushRunnable);
+		}
+	}
+
+	protected static void writeIndexRecord(DataOutputStream out, long offset,
+			int length, ChatEvent event) throws IOException {
+		out.writeLong(offset);
+		out.writeLong(event.getTime());
+		out.writeInt(length);
+		out.writeInt(event.getType() == null ? -1 : event.getType().ordinal());
+		out.writeInt(hash(event.getChannel()));
+		out.writeInt(hash(event.getSource()));
+		out.writeInt(hash(event.getGameId()));
+	}
+
 	/**
 	 * Writes the chat event to all log files specified in the Preferences.
 	 * 
@@ -197,57 +683,52 @@ public class ChatLogger {
 	 *            The event to log.
 	 */
 	protected void writeToLogFiles(final ChatEvent event) {
-		ThreadService.getInstance().run(new RaptorRunnable() {
-			@Override
-			public void execute() {
-				if (Raptor.getInstance().getPreferences().getBoolean(
-						PreferenceKeys.APP_IS_LOGGING_CONSOLE)
-						&& !vetoLogging(event.getSource())) {
-					appendToFile(Raptor.USER_RAPTOR_HOME_PATH
-							+ "/logs/console/" + getConnectorType()
-							+ "-console.txt", event);
-				}
-				if (Raptor.getInstance().getPreferences().getBoolean(
-						PreferenceKeys.APP_IS_LOGGING_CHANNEL_TELLS)
-						&& event.getType() == ChatType.CHANNEL_TELL) {
-					appendToFile(Raptor.USER_RAPTOR_HOME_PATH
-							+ "/logs/console/" + getConnectorType() + "-"
-							+ event.getChannel() + ".txt", event);
-				}
-				if (Raptor.getInstance().getPreferences().getBoolean(
-						PreferenceKeys.APP_IS_LOGGING_PERSON_TELLS)
-						&& event.getType() == ChatType.TELL
-						&& !vetoLogging(event.getSource())) {
-					appendToFile(Raptor.USER_RAPTOR_HOME_PATH
-							+ "/logs/console/" + getConnectorType() + "-"
-							+ event.getSource().toLowerCase() + ".txt", event);
-				}
-				if (Raptor.getInstance().getPreferences().getBoolean(
-						PreferenceKeys.APP_IS_LOGGING_PERSON_TELLS)
-						&& event.getType() == ChatType.OUTBOUND) {
-
-					StringTokenizer tok = new StringTokenizer(event
-							.getMessage(), " ", false);
-
-					String firstWord = tok.nextToken();
-					String secondWord = tok.nextToken();
-
-					if (firstWord != null && secondWord != null) {
-						if ("tell".startsWith(firstWord.toLowerCase())
-								&& !vetoLogging(secondWord)) {
-							try {
-								Short.parseShort(secondWord);
-							} catch (NumberFormatException nfe) {
-								appendToFile(Raptor.USER_RAPTOR_HOME_PATH
-										+ "/logs/" + getConnectorType() + "-"
-										+ secondWord.toLowerCase() + ".txt",
-										event);
-							}
-						}
+		if (Raptor.getInstance().getPreferences().getBoolean(
+				PreferenceKeys.APP_IS_LOGGING_CONSOLE)
+				&& !vetoLogging(event.getSource())) {
+			appendToFile(Raptor.USER_RAPTOR_HOME_PATH
+					+ "/logs/console/" + getConnectorType()
+					+ "-console.txt", event);
+		}
+		if (Raptor.getInstance().getPreferences().getBoolean(
+				PreferenceKeys.APP_IS_LOGGING_CHANNEL_TELLS)
+				&& event.getType() == ChatType.CHANNEL_TELL) {
+			appendToFile(Raptor.USER_RAPTOR_HOME_PATH
+					+ "/logs/console/" + getConnectorType() + "-"
+					+ event.getChannel() + ".txt", event);
+		}
+		if (Raptor.getInstance().getPreferences().getBoolean(
+				PreferenceKeys.APP_IS_LOGGING_PERSON_TELLS)
+				&& event.getType() == ChatType.TELL
+				&& !vetoLogging(event.getSource())) {
+			appendToFile(Raptor.USER_RAPTOR_HOME_PATH
+					+ "/logs/console/" + getConnectorType() + "-"
+					+ event.getSource().toLowerCase() + ".txt", event);
+		}
+		if (Raptor.getInstance().getPreferences().getBoolean(
+				PreferenceKeys.APP_IS_LOGGING_PERSON_TELLS)
+				&& event.getType() == ChatType.OUTBOUND) {
+
+			StringTokenizer tok = new StringTokenizer(event
+					.getMessage(), " ", false);
+
+			String firstWord = tok.hasMoreTokens() ? tok.nextToken() : null;
+			String secondWord = tok.hasMoreTokens() ? tok.nextToken() : null;
+
+			if (firstWord != null && secondWord != null) {
+				if ("tell".startsWith(firstWord.toLowerCase())
+						&& !vetoLogging(secondWord)) {
+					try {
+						Short.parseShort(secondWord);
+					} catch (NumberFormatException nfe) {
+						appendToFile(Raptor.USER_RAPTOR_HOME_PATH
+								+ "/logs/" + getConnectorType() + "-"
+								+ secondWord.toLowerCase() + ".txt",
+								event);
 					}
 				}
 			}
-		});
+		}
 	}
 
 	/**
@@ -266,7 +747,9 @@ public class ChatLogger {
 	}
 
 	/**
-	 * Appends the chat event to the specified file.
+	 * Appends the chat event to the specified file. The file stays open until
+	 * MAX_OPEN_LOG_FILES other files have been written to more recently. It is
+	 * rotated when the day changes or it grows past MAX_LOG_FILE_BYTES.
 	 * 
 	 * @param fileName
 	 *            The file name.
@@ -274,12 +757,63 @@ public class ChatLogger {
 	 *            The chat event.
 	 */
 	protected void appendToFile(String fileName, ChatEvent event) {
-		try (FileWriter fileWriter = new FileWriter(fileName, true)) {
-            		fileWriter.append("[").append(DATE_FORMAT.format(new Date(event.time))).append("] ").append(event.getMessage()).append("\n");
-			fileWriter.flush();
+		try {
+			String today = DAY_FORMAT.format(new Date());
+			LogFile logFile = logFiles.get(fileName);
+			if (logFile != null
+					&& (!today.equals(logFile.day) || logFile.file.length() > MAX_LOG_FILE_BYTES)) {
+				closeQuietly(logFile.writer);
+				logFiles.remove(fileName);
+				logFile = null;
+			}
+			if (logFile == null) {
+				logFile = new LogFile();
+				logFile.file = new File(fileName);
+				logFile.day = today;
+				rotateLogFile(logFile.file, today);
+				logFile.writer = new OutputStreamWriter(new FileOutputStream(
+						logFile.file, true), CHARSET);
+				logFiles.put(fileName, logFile);
+				if (logFiles.size() > MAX_OPEN_LOG_FILES) {
+					Iterator<LogFile> eldest = logFiles.values().iterator();
+					closeQuietly(eldest.next().writer);
+					eldest.remove();
+				}
+			}
+			logFile.writer.append("[")
+					.append(DATE_FORMAT.format(new Date(event.getTime())))
+					.append("] ").append(event.getMessage()).append("\n");
 		} catch (IOException ioe) {
 			Raptor.getInstance().onError(
 					"Error occured writing to file: " + fileName, ioe);
 		}
 	}
+
+	/**
+	 * Renames the log file to name-yyyy-MM-dd.txt, using the day it was last
+	 * modified, if it was last modified before today or is larger than
+	 * MAX_LOG_FILE_BYTES.
+	 */
+	protected void rotateLogFile(File file, String today) {
+		if (!file.exists() || file.length() == 0) {
+			return;
+		}
+		String day = DAY_FORMAT.format(new Date(file.lastModified()));
+		if (day.equals(today) && file.length() <= MAX_LOG_FILE_BYTES) {
+			return;
+		}
+		String name = file.getName();
+		int dotIndex = name.lastIndexOf('.');
+		String base = dotIndex == -1 ? name : name.substring(0, dotIndex);
+		String extension = dotIndex == -1 ? "" : name.substring(dotIndex);
+		File rotated = new File(file.getParentFile(), base + "-" + day
+				+ extension);
+		for (int i = 1; rotated.exists(); i++) {
+			rotated = new File(file.getParentFile(), base + "-" + day + "-"
+					+ i + extension);
+		}
+		if (!file.renameTo(rotated)) {
+			LOG.warn("Could not rotate " + file + " to " + rotated);
+		}
+	}
 }
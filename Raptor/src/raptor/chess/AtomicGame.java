@@ -79,18 +79,45 @@ public class AtomicGame extends ClassicGame {
 	}
 
 	/**
-	 * Adds the atomic move including the explosion info if its a capture.
+	 * Creates the atomic move including the explosion info if its a capture.
 	 * {@inheritDoc}
 	 */
 	@Override
-	protected void addMove(Move move, PriorityMoveList moves) {
-		if (move.isCapture()) {
-			move = new AtomicMove(move);
-			((AtomicMove)move).setAtomicExplosionInfo(getAtomicExplosionInfo(move.getTo(),
-					move.getFrom(), getPiece(move.getFrom()),
+	public Move createMove(int move) {
+		Move result = super.createMove(move);
+		if (result.isCapture()) {
+			result = new AtomicMove(result);
+			((AtomicMove) result).setAtomicExplosionInfo(getAtomicExplosionInfo(
+					result.getTo(), result.getFrom(), getPiece(result.getFrom()),
 					getColorToMove()));
 		}
-		super.addMove(move, moves);
+		return result;
+	}
+
+	/**
+	 * Explosions can remove pinned pieces and kings, so the pin and check
+	 * masks don't apply. Each move is made to test its legality instead.
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void filterLegalMoves(MoveBuffer moves) {
+		filterLegalMovesByMakingThem(moves);
+	}
+
+	/**
+	 * Makes the moves until one leaves a legal position, for the same reason
+	 * filterLegalMoves does.
+	 * 
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected boolean hasLegalMove(MoveBuffer pseudoLegalMoves) {
+		for (int i = 0; i < pseudoLegalMoves.getSize(); i++) {
+			if (isLegalByMakingIt(pseudoLegalMoves.get(i))) {
+				return true;
+			}
+		}
+		return false;
 	}
 
 	/**
@@ -233,10 +260,7 @@ public class AtomicGame extends ClassicGame {
 		}
 
 		if (move.isPromotion() && !move.isCapture()) {
-			if (move.isCapture()) {
-				xor(move.getColor(), move.getPiece().type, fromBB);
-			}
-
+			xor(move.getColor(), move.getPiece().type, fromBB);
 			xor(move.getColor(), move.getPiecePromotedTo(), toBB);
 
 			setPiece(move.getTo(), GameUtils.getColoredPiece(move.getPiecePromotedTo(), move.getColor()).getPromotedPiece());
@@ -378,7 +402,9 @@ public class AtomicGame extends ClassicGame {
 			updateZobristPONoCapture(move, oppositeColor);
 		}
 
-		if (move.isPromotion()) {
+		// A capturing pawn explodes before it can promote, so only non
+		// captures need the promotion undone.
+		if (move.isPromotion() && !move.isCapture()) {
 			xor(move.getColor(), move.getPiece().type, fromBB);
 			xor(move.getColor(), move.getPiecePromotedTo(), toBB);
 
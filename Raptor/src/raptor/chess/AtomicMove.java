@@ -28,6 +28,14 @@ public class AtomicMove extends Move {
 			move.piecePromotedTo, move.epSquare, move.moveCharacteristic);
 	}
 
+	@Override
+	protected Move copy() {
+		AtomicMove result = new AtomicMove(this);
+		copyTo(result);
+		result.atomicExplosionInfo = atomicExplosionInfo;
+		return result;
+	}
+
 	public Map<GameConstants.Square, GameConstants.Piece> getAtomicExplosionInfo() {
 		return atomicExplosionInfo;
 	}
@@ -13,6 +13,7 @@
  */
 package raptor.chess;
 
+import static raptor.chess.util.GameUtils.betweenBB;
 import static raptor.chess.util.GameUtils.bitscanClear;
 import static raptor.chess.util.GameUtils.bitscanForward;
 import static raptor.chess.util.GameUtils.diagonalMove;
@@ -21,12 +22,14 @@ import static raptor.chess.util.GameUtils.getOppositeColor;
 import static raptor.chess.util.GameUtils.getString;
 import static raptor.chess.util.GameUtils.kingMove;
 import static raptor.chess.util.GameUtils.knightMove;
+import static raptor.chess.util.GameUtils.lineBB;
 import static raptor.chess.util.GameUtils.moveOne;
 import static raptor.chess.util.GameUtils.orthogonalMove;
 import static raptor.chess.util.GameUtils.pawnCapture;
 import static raptor.chess.util.GameUtils.pawnDoublePush;
 import static raptor.chess.util.GameUtils.pawnEpCapture;
 import static raptor.chess.util.GameUtils.pawnSinglePush;
+import static raptor.chess.util.GameUtils.pieceAttacksTo;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -74,6 +77,7 @@ public class ClassicGame implements Game {
 	protected Map<PgnHeader, String> pgnHeaderMap = new EnumMap<PgnHeader, String>(PgnHeader.class);
 	protected long[][] pieceBB = new long[2][7];
 	protected byte[][] pieceCounts = new byte[2][7];
+	protected MoveBuffer scratchMoves;
 	protected int state;
 	protected long zobristGameHash;
 	protected long zobristPositionHash;
@@ -158,6 +162,24 @@ public class ClassicGame implements Game {
 		setState(this.state & ~state);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public Move createMove(int move) {
+		Square from = EncodedMove.getFrom(move);
+		Square to = EncodedMove.getTo(move);
+		Piece piece = EncodedMove.getPiece(move);
+		int moveCharacteristic = EncodedMove.getMoveCharacteristic(move);
+
+		if ((moveCharacteristic & Move.DROP_CHARACTERISTIC) != 0) {
+			return new Move(to, piece);
+		}
+		return new Move(from, to, piece, piece.color, EncodedMove
+				.getCapture(move), EncodedMove.getPiecePromotedTo(move),
+				(moveCharacteristic & Move.DOUBLE_PAWN_PUSH_CHARACTERISTIC) != 0 ? SQUARES[(from.ordinal() + to.ordinal()) / 2]
+						: Square.EMPTY, moveCharacteristic);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -211,8 +233,6 @@ public class ClassicGame implements Game {
 		//setNotColorToMoveBB(~getColorBB(colorToMove));
 		setHalfMoveCount((short)(halfMoveCount + 1));
 
-		moves.append(move);
-
 		updateZobristHash();
 		incrementRepCount();
 		
@@ -222,6 +242,32 @@ public class ClassicGame implements Game {
 		if (move.getFullMoveCount() < 19) {
 			updateEcoHeaders(move);
 		}
+
+		// Appended last, the move list packs the move when it is appended.
+		moves.append(move);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int generateLegalMoves(MoveBuffer moves) {
+		generatePseudoLegalMoves(moves);
+		filterLegalMoves(moves);
+		return moves.getSize();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int generatePseudoLegalMoves(MoveBuffer moves) {
+		moves.clear();
+		generatePseudoQueenMoves(moves);
+		generatePseudoKnightMoves(moves);
+		generatePseudoBishopMoves(moves);
+		generatePseudoRookMoves(moves);
+		generatePseudoPawnMoves(moves);
+		generatePseudoKingMoves(moves);
+		return moves.getSize();
 	}
 
 	/**
@@ -362,25 +408,15 @@ public class ClassicGame implements Game {
 	 * {@inheritDoc}
 	 */
 	public PriorityMoveList<Move> getLegalMoves() {
-		PriorityMoveList<Move> result = new PriorityMoveList<Move>();
-		PriorityMoveList<Move> pseudoLegals = getPseudoLegalMoves();
+		MoveBuffer legals = new MoveBuffer();
+		generateLegalMoves(legals);
 
-		for (Move move : pseudoLegals.getHighPriorityMoves()) {
-			forceMove(move);
-			if (isLegalPosition()) {
-				result.appendHighPriority(move);
-			}
-			rollback();
-		}
-
-		for (Move move : pseudoLegals.getLowPriorityMoves()) {
-			forceMove(move);
-			if (isLegalPosition()) {
-				result.appendLowPriority(move);
-			}
-			rollback();
+		PriorityMoveList<Move> result = new PriorityMoveList<Move>();
+		for (int i = 0; i < legals.getSize(); i++) {
+			Move move = createMove(legals.get(i));
+			setSan(move);
+			addMove(move, result);
 		}
-
 		return result;
 	}
 
@@ -483,13 +519,13 @@ public class ClassicGame implements Game {
 	 * {@inheritDoc}
 	 */
 	public PriorityMoveList<Move> getPseudoLegalMoves() {
+		MoveBuffer pseudoLegals = new MoveBuffer();
+		generatePseudoLegalMoves(pseudoLegals);
+
 		PriorityMoveList<Move> result = new PriorityMoveList<Move>();
-		generatePseudoQueenMoves(result);
-		generatePseudoKnightMoves(result);
-		generatePseudoBishopMoves(result);
-		generatePseudoRookMoves(result);
-		generatePseudoPawnMoves(result);
-		generatePseudoKingMoves(result);
+		for (int i = 0; i < pseudoLegals.getSize(); i++) {
+			addMove(createMove(pseudoLegals.get(i)), result);
+		}
 		return result;
 	}
 
@@ -562,7 +598,7 @@ public class ClassicGame implements Game {
 	 * {@inheritDoc}
 	 */
 	public boolean isCheckmate() {
-		return isCheckmate(getLegalMoves());
+		return isInCheck(colorToMove) && !hasLegalMove();
 	}
 
 	/**
@@ -637,7 +673,7 @@ public class ClassicGame implements Game {
 	 * {@inheritDoc}
 	 */
 	public boolean isStalemate() {
-		return isStalemate(getLegalMoves());
+		return !isInCheck(colorToMove) && !hasLegalMove();
 	}
 
 	/**
@@ -668,11 +704,12 @@ public class ClassicGame implements Game {
 	public Move makeLanMove(String lan) throws IllegalArgumentException {
 		Move move = null;
 
-		PriorityMoveList<Move> legals = getLegalMoves();
+		MoveBuffer legals = new MoveBuffer();
+		generateLegalMoves(legals);
 
-		for (Move candidate : legals) {
-			if (candidate.getLan().equals(lan)) {
-				move = candidate;
+		for (int i = 0; i < legals.getSize(); i++) {
+			if (EncodedMove.toLan(legals.get(i)).equals(lan)) {
+				move = createMove(legals.get(i));
 			}
 		}
 
@@ -701,20 +738,14 @@ public class ClassicGame implements Game {
 			throws IllegalArgumentException {
 		Move move = null;
 
-		for (Move pseudoLegal : getPseudoLegalMoves()) {
-			if (pseudoLegal.getFrom() == startSquare
-					&& pseudoLegal.getTo() == endSquare) {
-				try {
-					forceMove(pseudoLegal);
-					if (!isLegalPosition()) {
-						throw new IllegalArgumentException("Invalid move (Illegal position): "
-							+ GameUtils.getSan(startSquare) + " " + GameUtils.getSan(endSquare) + " \n"
-							+ toString());
-					}
-					move = pseudoLegal;
-				} finally {
-					rollback();
-				}
+		MoveBuffer legals = new MoveBuffer();
+		generateLegalMoves(legals);
+
+		for (int i = 0; i < legals.getSize(); i++) {
+			int legal = legals.get(i);
+			if (EncodedMove.getFrom(legal) == startSquare
+					&& EncodedMove.getTo(legal) == endSquare) {
+				move = createMove(legal);
 			}
 		}
 
@@ -748,19 +779,16 @@ public class ClassicGame implements Game {
 			throws IllegalArgumentException {
 		Move move = null;
 
-		for (Move pseudoLegal : getPseudoLegalMoves()) {
-			if (pseudoLegal.getFrom() == startSquare
-					&& pseudoLegal.getTo() == endSquare
-					&& pseudoLegal.getPiecePromotedTo() == promotePiece) {
-				try {
-					forceMove(pseudoLegal);
-					if (isLegalPosition()) {
-						move = pseudoLegal;
-						break;
-					}
-				} finally {
-					rollback();
-				}
+		MoveBuffer legals = new MoveBuffer();
+		generateLegalMoves(legals);
+
+		for (int i = 0; i < legals.getSize(); i++) {
+			int legal = legals.get(i);
+			if (EncodedMove.getFrom(legal) == startSquare
+					&& EncodedMove.getTo(legal) == endSquare
+					&& EncodedMove.getPiecePromotedTo(legal) == promotePiece) {
+				move = createMove(legal);
+				break;
 			}
 		}
 
@@ -778,203 +806,55 @@ public class ClassicGame implements Game {
 
 	/**
 	 * {@inheritDoc}
+	 * 
+	 * The SAN is decoded without regular expressions and only the moves of
+	 * the piece type moving are generated. Knights, bishops, rooks and queens
+	 * that can reach the destination are found from the attacks to it.
 	 */
 	public Move makeSanMove(String shortAlgebraic)
 			throws IllegalArgumentException {
-		SanUtils.SanValidations validations = SanUtils.getValidations(shortAlgebraic);
-		List<Move> pseudoLegals = new ArrayList<Move>(getPseudoLegalMoves().asList());
-		
-		Move result = makeSanMoveOverride(shortAlgebraic, validations, pseudoLegals);
-		if (result == null) {
-			// Examples:
-			// e4 (a pawn move to e4).
-			// e8=Q (a pawn promotion without a capture).
-			// de=Q (a pawn promotion from a capture).
-			// ed (e pawn captures d pawn).
-			// Ne3 (a Knight moving to e3).
-			// N5e3 (disambiguity for two knights which can move to e3, the 5th
-			// rank
-			// knight is the one that should move).
-			// Nfe3 (disambiguity for two knights which can move to e3, the
-			// knight
-			// on the f file is the one that should move).
-			// Nf1e3 (disambiguity for three knights which cam move to e3, the
-			// f1
-			// knight is the one that should move).
-			if (!validations.isValidStrict()) {
-				throw new IllegalArgumentException("Invalid short algebraic: "
-						+ shortAlgebraic);
-			}
-
-			PieceType candidatePromotedPiece = PieceType.EMPTY;
-
-			if (validations.isCastleKSideStrict()) {
-				for (Move move : pseudoLegals) {
-					if (move != null
-							&& (move.getMoveCharacteristic() & Move.SHORT_CASTLING_CHARACTERISTIC) != 0) {
-						result = move;
-						break;
-					}
-				}
-			} else if (validations.isCastleQSideStrict()) {
-				for (Move move : pseudoLegals) {
-					if (move != null
-							&& (move.getMoveCharacteristic() & Move.LONG_CASTLING_CHARACTERISTIC) != 0) {
-						result = move;
-						break;
-					}
-				}
-			} else {
-				MoveList matches = new MoveList(10);
-				if (validations.isPromotion()) {
-					char pieceChar = validations.getStrictSan().charAt(
-							validations.getStrictSan().length() - 1);
-					candidatePromotedPiece = SanUtils.sanToPiece(pieceChar);
-				}
-
-				if (validations.isPawnMove()) {
-					PieceType candidatePieceMoving = PieceType.PAWN;
-					if (validations.isEpOrAmbigPxStrict()
-							|| validations.isAmbigPxPromotionStrict()) {
-
-						Square end = Square.getSquare((byte)GameConstants.RANK_FROM_SAN
-								.indexOf(validations.getStrictSan().charAt(2)),
-								(byte)GameConstants.FILE_FROM_SAN.indexOf(validations
-										.getStrictSan().charAt(1)));
-
-						byte startRank = (byte)(end.rank
-								+ (colorToMove == PieceColor.WHITE ? -1 : +1));
-
-						if (startRank > 7 || startRank < 0) {
-							throw new IllegalArgumentException(
-									"Invalid short algebraic: "
-											+ shortAlgebraic);
-						}
-
-						Square start = Square.getSquare(startRank,
-								(byte)GameConstants.FILE_FROM_SAN.indexOf(validations
-										.getStrictSan().charAt(0)));
-
-						for (Move move : pseudoLegals) {
-							if (move != null
-									&& move.getPiece().type == candidatePieceMoving
-									&& move.isCapture()
-									&& move.getFrom() == start
-									&& move.getTo() == end
-									&& move.getPiecePromotedTo() == candidatePromotedPiece) {
-								matches.append(move);
-							}
-						}
-					} else {
-						// handle captures
-						if (validations.isPxStrict()
-								|| validations.isPxPPromotionStrict()) {
-							byte startFile = (byte)GameConstants.FILE_FROM_SAN
-									.indexOf(validations.getStrictSan().charAt(
-											0));
-							byte endFile = (byte)GameConstants.FILE_FROM_SAN
-									.indexOf(validations.getStrictSan().charAt(
-											1));
-
-							for (Move move : pseudoLegals) {
-								if (move != null
-										&& move.getPiece().type == candidatePieceMoving
-										&& move.getFrom().file == startFile
-										&& move.getTo().file == endFile
-										&& move.isCapture()
-										&& move.getPiecePromotedTo() == candidatePromotedPiece) {
-									matches.append(move);
-								}
-							}
-						}
-						// handle non captures.
-						else {
-							Square end = Square.getSquare((byte)GameConstants.RANK_FROM_SAN
-									.indexOf(validations.getStrictSan().charAt(
-											1)), (byte)GameConstants.FILE_FROM_SAN
-									.indexOf(validations.getStrictSan().charAt(
-											0)));
-
-							for (Move move : pseudoLegals) {
-								if (move != null
-										&& move.getPiece().type == candidatePieceMoving
-										&& !move.isCapture()
-										&& move.getTo() == end
-										&& move.getPiecePromotedTo() == candidatePromotedPiece) {
-									matches.append(move);
-								}
-							}
-						}
-					}
-				} else {
-					PieceType candidatePieceMoving = SanUtils.sanToPiece(validations
-							.getStrictSan().charAt(0));
-					Square end = Square.getSquare((byte)GameConstants.RANK_FROM_SAN
-							.indexOf(validations.getStrictSan().charAt(
-									validations.getStrictSan().length() - 1)),
-							(byte)GameConstants.FILE_FROM_SAN
-									.indexOf(validations.getStrictSan()
-											.charAt(
-													validations.getStrictSan()
-															.length() - 2)));
-
-					if (validations.isDisambigPieceRankStrict()) {
-						byte startRank = (byte)RANK_FROM_SAN.indexOf(validations
-								.getStrictSan().charAt(1));
-						for (Move move : pseudoLegals) {
-							if (move != null
-									&& move.getPiece().type == candidatePieceMoving
-									&& move.getTo() == end
-									&& move.getFrom().rank == startRank) {
-								matches.append(move);
-							}
-						}
-					} else if (validations.isDisambigPieceFileStrict()) {
-						byte startFile = (byte)FILE_FROM_SAN.indexOf(validations
-								.getStrictSan().charAt(1));
-						for (Move move : pseudoLegals) {
-							if (move != null
-									&& move.getPiece().type == candidatePieceMoving
-									&& move.getTo() == end
-									&& move.getFrom().file == startFile) {
-								matches.append(move);
-							}
-						}
-					} else if (validations.isDisambigPieceRankFileStrict()) {
-						Square startSquare = Square.getSquare((byte)GameConstants.RANK_FROM_SAN
-								.indexOf(validations.getStrictSan().charAt(2)),
-								(byte)GameConstants.FILE_FROM_SAN.indexOf(validations
-										.getStrictSan().charAt(1)));
-						FILE_FROM_SAN.indexOf(validations.getStrictSan()
-								.charAt(1));
-						for (Move move : pseudoLegals) {
-							if (move != null
-									&& move.getPiece().type == candidatePieceMoving
-									&& move.getTo() == end
-									&& move.getFrom() == startSquare) {
-								matches.append(move);
-							}
-						}
-					} else {
-						for (Move move : pseudoLegals) {
-							if (move != null
-									&& move.getPiece().type == candidatePieceMoving
-									&& move.getTo() == end) {
-								matches.append(move);
-							}
-						}
-					}
-				}
-				result = testForSanDisambiguationFromCheck(shortAlgebraic,
-						matches);
+		// Examples:
+		// e4 (a pawn move to e4).
+		// e8=Q (a pawn promotion without a capture).
+		// de=Q (a pawn promotion from a capture).
+		// ed (e pawn captures d pawn).
+		// Ne3 (a Knight moving to e3).
+		// N5e3 (disambiguity for two knights which can move to e3, the 5th
+		// rank knight is the one that should move).
+		// Nfe3 (disambiguity for two knights which can move to e3, the
+		// knight on the f file is the one that should move).
+		// Nf1e3 (disambiguity for three knights which cam move to e3, the
+		// f1 knight is the one that should move).
+		SanUtils.SanMove san = SanUtils.parseSan(shortAlgebraic);
+		if (san == null) {
+			throw new IllegalArgumentException("Invalid short algebraic: "
+					+ shortAlgebraic);
+		}
+
+		MoveBuffer matches = getScratchMoves();
+		getSanMatches(san, matches);
+		if (matches.isEmpty() && san.isDrop()) {
+			// A drop of a piece which is not in hand, e.g. in a FEN without
+			// holdings, has always been made as a move of that piece.
+			SanUtils.SanMove pieceSan = SanUtils.parseSan(StringUtils.remove(
+					shortAlgebraic, '@'));
+			if (pieceSan != null) {
+				getSanMatches(pieceSan, matches);
 			}
 		}
 
-		if (result == null) {
-			throw new IllegalArgumentException("Illegal move " + shortAlgebraic
-					+ "\n " + toString());
+		int match;
+		if (san.isCastleShort() || san.isCastleLong()) {
+			if (matches.isEmpty()) {
+				throw new IllegalArgumentException("Illegal move "
+						+ shortAlgebraic + "\n " + toString());
+			}
+			match = matches.get(0);
+		} else {
+			match = testForSanDisambiguationFromCheck(shortAlgebraic, matches);
 		}
 
+		Move result = createMove(match);
 		result.setSan(shortAlgebraic);
 		if (!move(result)) {
 			throw new IllegalArgumentException("Illegal move: " + result);
@@ -1464,46 +1344,221 @@ public class ClassicGame implements Game {
 	}
 
 	/**
-	 * Generates all of the pseudo legal bishop moves in the position and adds
-	 * them to the specified move list.
+	 * Appends a promotion for every piece a pawn can promote to. Variants with
+	 * other promotion rules override this.
+	 */
+	protected void addPromotions(Square fromSquare, Square toSquare,
+			Piece piece, Piece capture, MoveBuffer moves) {
+		moves.append(EncodedMove.encode(fromSquare, toSquare, piece, capture,
+				PieceType.KNIGHT, Move.PROMOTION_CHARACTERISTIC));
+		moves.append(EncodedMove.encode(fromSquare, toSquare, piece, capture,
+				PieceType.BISHOP, Move.PROMOTION_CHARACTERISTIC));
+		moves.append(EncodedMove.encode(fromSquare, toSquare, piece, capture,
+				PieceType.QUEEN, Move.PROMOTION_CHARACTERISTIC));
+		moves.append(EncodedMove.encode(fromSquare, toSquare, piece, capture,
+				PieceType.ROOK, Move.PROMOTION_CHARACTERISTIC));
+	}
+
+	/**
+	 * Appends a move from fromSquare to every square in toBB.
+	 */
+	protected void addMoves(Square fromSquare, Piece piece, long toBB,
+			MoveBuffer moves) {
+		while (toBB != 0) {
+			Square toSquare = bitscanForward(toBB);
+			moves.append(EncodedMove.encode(fromSquare, toSquare, piece,
+					board[toSquare.ordinal()]));
+			toBB = bitscanClear(toBB);
+		}
+	}
+
+	/**
+	 * Removes all of the illegal moves from the pseudo legal moves in the
+	 * buffer. Checks, pins and en-passant discoveries are resolved with
+	 * bitboard masks so no moves are made. Castling moves are rare and are
+	 * verified by making them. Variants with different legality rules should
+	 * override this method.
 	 * 
 	 * @param moves
-	 *            A move list.
+	 *            A buffer of pseudo legal moves for the color to move.
 	 */
-	protected void generatePseudoBishopMoves(PriorityMoveList<Move> moves) {
-		long fromBB = getPieceBB(colorToMove, PieceType.BISHOP);
+	protected void filterLegalMoves(MoveBuffer moves) {
+		filterLegalMovesByMasks(moves, Integer.MAX_VALUE);
+	}
 
-		while (fromBB != 0) {
-			Square fromSquare = bitscanForward(fromBB);
+	/**
+	 * Removes the illegal moves from the buffer using the check and pin masks,
+	 * which are computed once for the position. Once maxLegalMoves legal
+	 * moves have been kept the remaining moves are dropped without being
+	 * tested.
+	 */
+	protected void filterLegalMovesByMasks(MoveBuffer moves, int maxLegalMoves) {
+		PieceColor oppositeColor = getOppositeColor(colorToMove);
+		long kingBB = getPieceBB(colorToMove, PieceType.KING);
 
-			long toBB = diagonalMove(fromSquare, emptyBB, occupiedBB)
-					& getNotColorToMoveBB();
+		if (kingBB == 0L || getPieceBB(oppositeColor, PieceType.KING) == 0L) {
+			moves.clear();
+			return;
+		}
 
-			while (toBB != 0) {
-				Square toSquare = bitscanForward(toBB);
+		Square kingSquare = bitscanForward(kingBB);
+		long checkersBB = getAttackersBB(kingSquare, oppositeColor, occupiedBB);
+		long pinnedBB = getPinnedBB(kingSquare, oppositeColor);
+		int numCheckers = GameUtils.populationCount(checkersBB);
+		long checkMaskBB = numCheckers == 0 ? -1L
+				: numCheckers == 1 ? checkersBB
+						| betweenBB(kingSquare, bitscanForward(checkersBB)) : 0L;
+
+		int legalCount = 0;
+		for (int i = 0; i < moves.getSize() && legalCount < maxLegalMoves; i++) {
+			int move = moves.get(i);
+			Square from = EncodedMove.getFrom(move);
+			long toBB = EncodedMove.getTo(move).bit;
+			boolean isLegal;
+
+			if (EncodedMove.getCapture(move).type == PieceType.KING) {
+				isLegal = false;
+			} else if (EncodedMove.isCastle(move)) {
+				isLegal = isLegalByMakingIt(move);
+			} else if (from == kingSquare) {
+				isLegal = getAttackersBB(EncodedMove.getTo(move), oppositeColor,
+						occupiedBB ^ kingBB) == 0L;
+			} else if (EncodedMove.isEnPassant(move)) {
+				long captureBB = colorToMove == PieceColor.WHITE ? moveOne(
+						SOUTH, toBB) : moveOne(NORTH, toBB);
+				long occupiedAfterBB = occupiedBB ^ from.bit ^ toBB ^ captureBB;
+				isLegal = (getAttackersBB(kingSquare, oppositeColor,
+						occupiedAfterBB) & ~captureBB) == 0L;
+			} else {
+				isLegal = (toBB & checkMaskBB) != 0L
+						&& ((pinnedBB & from.bit) == 0L || (lineBB(kingSquare,
+								from) & toBB) != 0L);
+			}
 
-				Piece capture = getPiece(toSquare);
+			if (isLegal) {
+				moves.set(legalCount++, move);
+			}
+		}
+		moves.truncate(legalCount);
+	}
 
-				addMove(new Move(fromSquare, toSquare,
-						getPiece(fromSquare), colorToMove,
-						capture), moves);
-				toBB = bitscanClear(toBB);
+	/**
+	 * Removes all of the illegal moves from the buffer by making each move and
+	 * testing isLegalPosition. This is slower than the masks used in
+	 * filterLegalMoves but works with any rules, so variants whose legality
+	 * can't be expressed with pins and checks can delegate to it.
+	 */
+	protected void filterLegalMovesByMakingThem(MoveBuffer moves) {
+		int legalCount = 0;
+		for (int i = 0; i < moves.getSize(); i++) {
+			int move = moves.get(i);
+			if (isLegalByMakingIt(move)) {
+				moves.set(legalCount++, move);
 			}
+		}
+		moves.truncate(legalCount);
+	}
+
+	/**
+	 * Returns a bitboard of the pieces of the color opposite attackerColor
+	 * which are pinned to the king on kingSquare by attackerColor's sliders.
+	 */
+	protected long getPinnedBB(Square kingSquare, PieceColor attackerColor) {
+		long queensBB = getPieceBB(attackerColor, PieceType.QUEEN);
+		long defendersBB = getColorBB(getOppositeColor(attackerColor));
+		long snipersBB = orthogonalMove(kingSquare, -1L, 0L)
+				& (getPieceBB(attackerColor, PieceType.ROOK) | queensBB)
+				| diagonalMove(kingSquare, -1L, 0L)
+				& (getPieceBB(attackerColor, PieceType.BISHOP) | queensBB);
+
+		long result = 0L;
+		while (snipersBB != 0) {
+			long blockersBB = betweenBB(kingSquare, bitscanForward(snipersBB))
+					& occupiedBB;
+			if (blockersBB != 0L && bitscanClear(blockersBB) == 0L
+					&& (blockersBB & defendersBB) != 0L) {
+				result |= blockersBB;
+			}
+			snipersBB = bitscanClear(snipersBB);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns true if the encoded move is one of the moves san describes.
+	 * Disambiguation from check is left to
+	 * testForSanDisambiguationFromCheck.
+	 */
+	protected boolean isSanMatch(SanUtils.SanMove san, int move) {
+		int moveCharacteristic = EncodedMove.getMoveCharacteristic(move);
+		if (san.isCastleShort()) {
+			return (moveCharacteristic & Move.SHORT_CASTLING_CHARACTERISTIC) != 0;
+		} else if (san.isCastleLong()) {
+			return (moveCharacteristic & Move.LONG_CASTLING_CHARACTERISTIC) != 0;
+		} else if (san.isDrop() != EncodedMove.isDrop(move)
+				|| EncodedMove.getPiece(move).type != san.getPiece()) {
+			return false;
+		}
+
+		Square from = EncodedMove.getFrom(move);
+		Square to = EncodedMove.getTo(move);
+		if (to.file != san.getToFile() || san.getToRank() != -1
+				&& to.rank != san.getToRank() || san.getFromFile() != -1
+				&& from.file != san.getFromFile() || san.getFromRank() != -1
+				&& from.rank != san.getFromRank()) {
+			return false;
+		}
+
+		if (san.getPiece() == PieceType.PAWN) {
+			return EncodedMove.isCapture(move) == san.isPawnCapture()
+					&& EncodedMove.getPiecePromotedTo(move) == san
+							.getPiecePromotedTo();
+		}
+		return true;
+	}
+
+	/**
+	 * Returns true if the encoded move leaves the position legal. The move is
+	 * made and rolled back to find out.
+	 */
+	protected boolean isLegalByMakingIt(int move) {
+		forceMove(createMove(move));
+		boolean result = isLegalPosition();
+		rollback();
+		return result;
+	}
+
+	/**
+	 * Generates all of the pseudo legal bishop moves in the position and adds
+	 * them to the specified move buffer.
+	 * 
+	 * @param moves
+	 *            A move buffer.
+	 */
+	protected void generatePseudoBishopMoves(MoveBuffer moves) {
+		long fromBB = getPieceBB(colorToMove, PieceType.BISHOP);
+		long notColorToMoveBB = getNotColorToMoveBB();
+
+		while (fromBB != 0) {
+			Square fromSquare = bitscanForward(fromBB);
+			addMoves(fromSquare, board[fromSquare.ordinal()], diagonalMove(
+					fromSquare, emptyBB, occupiedBB)
+					& notColorToMoveBB, moves);
 			fromBB = bitscanClear(fromBB);
 		}
 	}
 
 	/**
 	 * Generates all of the pseudo legal king castling moves in the position and
-	 * adds them to the specified move list.
+	 * adds them to the specified move buffer.
 	 * 
 	 * @param moves
-	 *            A move list.
+	 *            A move buffer.
 	 */
 	protected void generatePseudoKingCastlingMoves(long fromBB,
-			PriorityMoveList<Move> moves) {
+			MoveBuffer moves) {
 		// The king destination square isnt checked, its checked when legal
-		// getMoves() are checked.
+		// moves are filtered.
 
 		if (colorToMove == PieceColor.WHITE
 				&& (getCastling(colorToMove) & CASTLE_SHORT) != 0
@@ -1511,10 +1566,9 @@ public class ClassicGame implements Game {
 				&& GameUtils.isWhitePiece(this, Square.H1)
 				&& getPiece(Square.H1).type == PieceType.ROOK && getPiece(Square.F1) == Piece.EMPTY
 				&& !isInCheck(PieceColor.WHITE, Square.E1.bit) && !isInCheck(PieceColor.WHITE, Square.F1.bit)) {
-			moves
-					.appendLowPriority(new Move(Square.E1, Square.G1, Piece.WK,
-                            colorToMove, Piece.EMPTY,
-							Move.SHORT_CASTLING_CHARACTERISTIC));
+			moves.append(EncodedMove.encode(Square.E1, Square.G1, Piece.WK,
+					Piece.EMPTY, PieceType.EMPTY,
+					Move.SHORT_CASTLING_CHARACTERISTIC));
 		}
 
 		if (colorToMove == PieceColor.WHITE
@@ -1523,10 +1577,9 @@ public class ClassicGame implements Game {
 				&& getPiece(Square.A1).type == PieceType.ROOK && getPiece(Square.D1) == Piece.EMPTY
 				&& getPiece(Square.C1) == Piece.EMPTY && getPiece(Square.B1) == Piece.EMPTY
 				&& !isInCheck(PieceColor.WHITE, Square.E1.bit) && !isInCheck(PieceColor.WHITE, Square.D1.bit)) {
-			moves
-					.appendLowPriority(new Move(Square.E1, Square.C1, Piece.WK,
-                            colorToMove, Piece.EMPTY,
-							Move.LONG_CASTLING_CHARACTERISTIC));
+			moves.append(EncodedMove.encode(Square.E1, Square.C1, Piece.WK,
+					Piece.EMPTY, PieceType.EMPTY,
+					Move.LONG_CASTLING_CHARACTERISTIC));
 		}
 
 		if (colorToMove == PieceColor.BLACK
@@ -1535,11 +1588,9 @@ public class ClassicGame implements Game {
 				&& getPiece(Square.H8).type == PieceType.ROOK && getPiece(Square.G8) == Piece.EMPTY
 				&& getPiece(Square.F8) == Piece.EMPTY && !isInCheck(PieceColor.BLACK, Square.E8.bit)
 				&& !isInCheck(PieceColor.BLACK, Square.F8.bit)) {
-			moves
-					.appendLowPriority(new Move(Square.E8, Square.G8, Piece.BK,
-                            colorToMove, Piece.EMPTY,
-							Move.SHORT_CASTLING_CHARACTERISTIC));
-
+			moves.append(EncodedMove.encode(Square.E8, Square.G8, Piece.BK,
+					Piece.EMPTY, PieceType.EMPTY,
+					Move.SHORT_CASTLING_CHARACTERISTIC));
 		}
 
 		if (colorToMove == PieceColor.BLACK
@@ -1549,102 +1600,71 @@ public class ClassicGame implements Game {
 				&& getPiece(Square.D8) == Piece.EMPTY && getPiece(Square.C8) == Piece.EMPTY
 				&& getPiece(Square.B8) == Piece.EMPTY && !isInCheck(PieceColor.BLACK, Square.E8.bit)
 				&& !isInCheck(PieceColor.BLACK, Square.D8.bit)) {
-			moves
-					.appendLowPriority(new Move(Square.E8, Square.C8, Piece.BK,
-                            colorToMove, Piece.EMPTY,
-							Move.LONG_CASTLING_CHARACTERISTIC));
+			moves.append(EncodedMove.encode(Square.E8, Square.C8, Piece.BK,
+					Piece.EMPTY, PieceType.EMPTY,
+					Move.LONG_CASTLING_CHARACTERISTIC));
 		}
 	}
 
 	/**
 	 * Generates all of the pseudo legal king moves in the position and adds
-	 * them to the specified move list.
+	 * them to the specified move buffer.
 	 * 
 	 * @param moves
-	 *            A move list.
+	 *            A move buffer.
 	 */
-	protected void generatePseudoKingMoves(PriorityMoveList<Move> moves) {
+	protected void generatePseudoKingMoves(MoveBuffer moves) {
 		long fromBB = getPieceBB(colorToMove, PieceType.KING);
+		if (fromBB == 0L) {
+			return;
+		}
 		Square fromSquare = bitscanForward(fromBB);
-		long toBB = kingMove(fromSquare) & getNotColorToMoveBB();
 
 		generatePseudoKingCastlingMoves(fromBB, moves);
 
-		while (toBB != 0) {
-			Square toSquare = bitscanForward(toBB);
-
-			Piece piece = isWhitesMove() ? Piece.WK : Piece.BK;
-			Piece capture = getPiece(toSquare);
-
-			addMove(new Move(fromSquare, toSquare, piece, colorToMove,
-					capture), moves);
-			toBB = bitscanClear(toBB);
-			toSquare = bitscanForward(toBB);
-		}
+		addMoves(fromSquare, isWhitesMove() ? Piece.WK : Piece.BK,
+				kingMove(fromSquare) & getNotColorToMoveBB(), moves);
 	}
 
 	/**
 	 * Generates all of the pseudo legal knight moves in the position and adds
-	 * them to the specified move list.
+	 * them to the specified move buffer.
 	 * 
 	 * @param moves
-	 *            A move list.
+	 *            A move buffer.
 	 */
-	protected void generatePseudoKnightMoves(PriorityMoveList<Move> moves) {
-
+	protected void generatePseudoKnightMoves(MoveBuffer moves) {
 		long fromBB = getPieceBB(colorToMove, PieceType.KNIGHT);
+		long notColorToMoveBB = getNotColorToMoveBB();
 
 		while (fromBB != 0) {
 			Square fromSquare = bitscanForward(fromBB);
-
-			long toBB = knightMove(fromSquare) & getNotColorToMoveBB();
-
-			while (toBB != 0) {
-				Square toSquare = bitscanForward(toBB);
-				Piece capture = getPiece(toSquare);
-
-				addMove(new Move(fromSquare, toSquare,
-						getPiece(fromSquare), colorToMove,
-						capture), moves);
-
-				toBB = bitscanClear(toBB);
-				toSquare = bitscanForward(toBB);
-			}
-
+			addMoves(fromSquare, board[fromSquare.ordinal()],
+					knightMove(fromSquare) & notColorToMoveBB, moves);
 			fromBB = bitscanClear(fromBB);
 		}
 	}
 
 	/**
 	 * Generates all of the pseudo legal pawn captures in the position and adds
-	 * them to the specified move list.
+	 * them to the specified move buffer.
 	 * 
 	 * @param moves
-	 *            A move list.
+	 *            A move buffer.
 	 */
-	protected void generatePseudoPawnCaptures(Square fromSquare, long fromBB, PieceColor oppositeColor, PriorityMoveList<Move> moves) {
-
+	protected void generatePseudoPawnCaptures(Square fromSquare, long fromBB,
+			PieceColor oppositeColor, MoveBuffer moves) {
 		Piece piece = isWhitesMove() ? Piece.WP : Piece.BP;
 		long toBB = pawnCapture(colorToMove, fromBB, getColorBB(oppositeColor));
 
 		while (toBB != 0L) {
 			Square toSquare = bitscanForward(toBB);
-			if ((toBB & RANK8_OR_RANK1) != 0L) {
-				addMove(new Move(fromSquare, toSquare, piece, colorToMove,
-						getPiece(toSquare), PieceType.KNIGHT,
-						Square.EMPTY, Move.PROMOTION_CHARACTERISTIC), moves);
-				addMove(new Move(fromSquare, toSquare, piece, colorToMove,
-						getPiece(toSquare), PieceType.BISHOP,
-						Square.EMPTY, Move.PROMOTION_CHARACTERISTIC), moves);
-				addMove(new Move(fromSquare, toSquare, piece, colorToMove,
-						getPiece(toSquare), PieceType.QUEEN, Square.EMPTY,
-						Move.PROMOTION_CHARACTERISTIC), moves);
-				addMove(new Move(fromSquare, toSquare, piece, colorToMove,
-						getPiece(toSquare), PieceType.ROOK, Square.EMPTY,
-						Move.PROMOTION_CHARACTERISTIC), moves);
+			if ((toSquare.bit & RANK8_OR_RANK1) != 0L) {
+				addPromotions(fromSquare, toSquare, piece,
+						board[toSquare.ordinal()], moves);
 			} else {
-				addMove(new Move(fromSquare, toSquare, piece, colorToMove,
-						getPiece(toSquare)), moves);
+				moves.append(EncodedMove.encode(fromSquare, toSquare, piece,
+						board[toSquare.ordinal()]));
 			}
 			toBB = bitscanClear(toBB);
 		}
@@ -1652,80 +1672,64 @@ public class ClassicGame implements Game {
 
 	/**
 	 * Generates all of the pseudo legal double pawn pushes in the position and
-	 * adds them to the specified move list.
+	 * adds them to the specified move buffer.
 	 * 
 	 * @param moves
-	 *            A move list.
+	 *            A move buffer.
 	 */
 	protected void generatePseudoPawnDoublePush(Square fromSquare, long fromBB,
-			PieceColor oppositeColor, int epModifier, PriorityMoveList<Move> moves) {
-
-		Piece piece = isWhitesMove() ? Piece.WP : Piece.BP;
+			PieceColor oppositeColor, MoveBuffer moves) {
 		long toBB = pawnDoublePush(colorToMove, fromBB, emptyBB);
 
-		while (toBB != 0) {
-			Square toSquare = bitscanForward(toBB);
-			addMove(new Move(fromSquare, toSquare, piece, colorToMove,
-					Piece.EMPTY, PieceType.EMPTY, SQUARES[toSquare.index + epModifier],
-					Move.DOUBLE_PAWN_PUSH_CHARACTERISTIC), moves);
-			toBB = bitscanClear(toBB);
+		if (toBB != 0) {
+			moves.append(EncodedMove.encode(fromSquare, bitscanForward(toBB),
+					isWhitesMove() ? Piece.WP : Piece.BP, Piece.EMPTY,
+					PieceType.EMPTY, Move.DOUBLE_PAWN_PUSH_CHARACTERISTIC));
 		}
-
 	}
 
 	/**
 	 * Generates all of the pseudo En-Passant moves in the position and adds
-	 * them to the specified move list.
+	 * them to the specified move buffer.
 	 * 
 	 * @param moves
-	 *            A move list.
+	 *            A move buffer.
 	 */
 	protected void generatePseudoPawnEPCaptures(Square fromSquare, long fromBB,
-			PieceColor oppositeColor, PriorityMoveList<Move> moves) {
+			PieceColor oppositeColor, MoveBuffer moves) {
 		if (epSquare != Square.EMPTY) {
-
-			Piece piece = isWhitesMove() ? Piece.WP : Piece.BP;
 			long toBB = pawnEpCapture(colorToMove, fromBB, getPieceBB(
 					oppositeColor, PieceType.PAWN), getBitboard(epSquare));
 
 			if (toBB != 0) {
-				Square toSquare = bitscanForward(toBB);
-
-				addMove(new Move(fromSquare, toSquare, piece, colorToMove,
-						piece, PieceType.EMPTY, Square.EMPTY,
-						Move.EN_PASSANT_CHARACTERISTIC), moves);
+				moves.append(EncodedMove.encode(fromSquare,
+						bitscanForward(toBB), isWhitesMove() ? Piece.WP
+								: Piece.BP, isWhitesMove() ? Piece.BP
+								: Piece.WP, PieceType.EMPTY,
+						Move.EN_PASSANT_CHARACTERISTIC));
 			}
 		}
 	}
 
 	/**
 	 * Generates all of the pseudo legal pawn moves in the position and adds
-	 * them to the specified move list.
+	 * them to the specified move buffer.
 	 * 
 	 * @param moves
-	 *            A move list.
+	 *            A move buffer.
 	 */
-	protected void generatePseudoPawnMoves(PriorityMoveList<Move> moves) {
+	protected void generatePseudoPawnMoves(MoveBuffer moves) {
 		long pawnsBB = getPieceBB(colorToMove, PieceType.PAWN);
-		PieceColor oppositeColor;
-		int epModifier;
-
-		if (colorToMove == PieceColor.WHITE) {
-			oppositeColor = PieceColor.BLACK;
-			epModifier = -8;
-		} else {
-			oppositeColor = PieceColor.WHITE;
-			epModifier = +8;
-		}
+		PieceColor oppositeColor = getOppositeColor(colorToMove);
 
 		while (pawnsBB != 0) {
 			Square fromSquare = bitscanForward(pawnsBB);
-			long fromBB = getBitboard(fromSquare);
+			long fromBB = fromSquare.bit;
 
 			generatePseudoPawnEPCaptures(fromSquare, fromBB, oppositeColor, moves);
 			generatePseudoPawnCaptures(fromSquare, fromBB, oppositeColor, moves);
 			generatePseudoPawnSinglePush(fromSquare, fromBB, oppositeColor, moves);
-			generatePseudoPawnDoublePush(fromSquare, fromBB, oppositeColor, epModifier, moves);
+			generatePseudoPawnDoublePush(fromSquare, fromBB, oppositeColor, moves);
 
 			pawnsBB = bitscanClear(pawnsBB);
 		}
@@ -1733,102 +1737,165 @@ public class ClassicGame implements Game {
 
 	/**
 	 * Generates all of the pseudo legal single push pawn moves in the position
-	 * and adds them to the specified move list.
+	 * and adds them to the specified move buffer.
 	 * 
 	 * @param moves
-	 *            A move list.
+	 *            A move buffer.
 	 */
 	protected void generatePseudoPawnSinglePush(Square fromSquare, long fromBB,
-			PieceColor oppositeColor, PriorityMoveList<Move> moves) {
-
-		Piece piece = isWhitesMove() ? Piece.WP : Piece.BP;
+			PieceColor oppositeColor, MoveBuffer moves) {
 		long toBB = pawnSinglePush(colorToMove, fromBB, emptyBB);
 
-		while (toBB != 0) {
+		if (toBB != 0) {
+			Piece piece = isWhitesMove() ? Piece.WP : Piece.BP;
 			Square toSquare = bitscanForward(toBB);
 
 			if ((toBB & RANK8_OR_RANK1) != 0L) {
-				addMove(new Move(fromSquare, toSquare, piece, colorToMove,
-						Piece.EMPTY, PieceType.KNIGHT, Square.EMPTY,
-						Move.PROMOTION_CHARACTERISTIC), moves);
-				addMove(new Move(fromSquare, toSquare, piece, colorToMove,
-						Piece.EMPTY, PieceType.BISHOP, Square.EMPTY,
-						Move.PROMOTION_CHARACTERISTIC), moves);
-				addMove(new Move(fromSquare, toSquare, piece, colorToMove,
-						Piece.EMPTY, PieceType.QUEEN, Square.EMPTY,
-						Move.PROMOTION_CHARACTERISTIC), moves);
-				addMove(new Move(fromSquare, toSquare, piece, colorToMove,
-						Piece.EMPTY, PieceType.ROOK, Square.EMPTY,
-						Move.PROMOTION_CHARACTERISTIC), moves);
+				addPromotions(fromSquare, toSquare, piece, Piece.EMPTY, moves);
 			} else {
-				addMove(new Move(fromSquare, toSquare, piece, colorToMove,
-						Piece.EMPTY), moves);
+				moves.append(EncodedMove.encode(fromSquare, toSquare, piece,
+						Piece.EMPTY));
 			}
-
-			toBB = bitscanClear(toBB);
 		}
 	}
 
 	/**
 	 * Generates all of the pseudo legal queen moves in the position and adds
-	 * them to the specified move list.
+	 * them to the specified move buffer.
 	 * 
 	 * @param moves
-	 *            A move list.
+	 *            A move buffer.
 	 */
-	protected void generatePseudoQueenMoves(PriorityMoveList<Move> moves) {
+	protected void generatePseudoQueenMoves(MoveBuffer moves) {
 		long fromBB = getPieceBB(colorToMove, PieceType.QUEEN);
+		long notColorToMoveBB = getNotColorToMoveBB();
 
 		while (fromBB != 0) {
 			Square fromSquare = bitscanForward(fromBB);
-
-			long toBB = (orthogonalMove(fromSquare, emptyBB,
-                    occupiedBB) | diagonalMove(fromSquare, emptyBB,
-                    occupiedBB))
-					& getNotColorToMoveBB();
-
-			while (toBB != 0) {
-				Square toSquare = bitscanForward(toBB);
-
-				Piece capture = getPiece(toSquare);
-				addMove(new Move(fromSquare, toSquare,
-						getPiece(fromSquare), colorToMove,
-						capture), moves);
-				toBB = bitscanClear(toBB);
-			}
-
+			addMoves(fromSquare, board[fromSquare.ordinal()], (orthogonalMove(
+					fromSquare, emptyBB, occupiedBB) | diagonalMove(
+					fromSquare, emptyBB, occupiedBB))
+					& notColorToMoveBB, moves);
 			fromBB = bitscanClear(fromBB);
 		}
 	}
 
 	/**
 	 * Generates all of the pseudo legal rook moves in the position and adds
-	 * them to the specified move list.
+	 * them to the specified move buffer.
 	 * 
 	 * @param moves
-	 *            A move list.
+	 *            A move buffer.
 	 */
-	protected void generatePseudoRookMoves(PriorityMoveList<Move> moves) {
+	protected void generatePseudoRookMoves(MoveBuffer moves) {
 		long fromBB = getPieceBB(colorToMove, PieceType.ROOK);
+		long notColorToMoveBB = getNotColorToMoveBB();
 
 		while (fromBB != 0) {
 			Square fromSquare = bitscanForward(fromBB);
+			addMoves(fromSquare, board[fromSquare.ordinal()], orthogonalMove(
+					fromSquare, emptyBB, occupiedBB)
+					& notColorToMoveBB, moves);
+			fromBB = bitscanClear(fromBB);
+		}
+	}
 
-			long toBB = orthogonalMove(fromSquare, emptyBB, occupiedBB)
-					& getNotColorToMoveBB();
-
-			while (toBB != 0) {
-				Square toSquare = bitscanForward(toBB);
+	/**
+	 * Generates the pseudo legal moves which could match san. Knight, bishop,
+	 * rook and queen moves are only generated for the pieces attacking the
+	 * destination square. Pawn and king moves are generated with the regular
+	 * generators so variant rules (promotions, castling) are kept. Subclasses
+	 * supporting drops should override this to generate them.
+	 * 
+	 * @param san
+	 *            The decoded SAN.
+	 * @param moves
+	 *            A move buffer.
+	 */
+	protected void generatePseudoSanMoves(SanUtils.SanMove san,
+			MoveBuffer moves) {
+		if (san.isDrop()) {
+			return;
+		} else if (san.isCastleShort() || san.isCastleLong()) {
+			generatePseudoKingMoves(moves);
+			return;
+		}
 
-				Piece capture = getPiece(toSquare);
-				addMove(new Move(fromSquare, toSquare,
-						getPiece(fromSquare), colorToMove,
-						capture), moves);
-				toBB = bitscanClear(toBB);
+		switch (san.getPiece()) {
+		case PAWN:
+			generatePseudoPawnMoves(moves);
+			break;
+		case KING:
+			generatePseudoKingMoves(moves);
+			break;
+		default:
+			Square toSquare = san.getToSquare();
+			long toBB = toSquare.bit & getNotColorToMoveBB();
+			if (toBB != 0) {
+				long fromBB = getPieceBB(colorToMove, san.getPiece())
+						& pieceAttacksTo(san.getPiece(), toSquare, emptyBB,
+								occupiedBB);
+				while (fromBB != 0) {
+					Square fromSquare = bitscanForward(fromBB);
+					addMoves(fromSquare, board[fromSquare.ordinal()], toBB, moves);
+					fromBB = bitscanClear(fromBB);
+				}
 			}
+			break;
+		}
+	}
 
-			fromBB = bitscanClear(fromBB);
+	/**
+	 * Returns a bitboard of all the pieces of attackerColor attacking the
+	 * specified square if the board were occupied by occupied. Pass in a
+	 * modified occupied bitboard to see through pieces which are about to
+	 * move.
+	 */
+	protected long getAttackersBB(Square square, PieceColor attackerColor,
+			long occupied) {
+		long emptySquares = ~occupied;
+		long queensBB = getPieceBB(attackerColor, PieceType.QUEEN);
+		return pawnCapture(getOppositeColor(attackerColor), square.bit,
+				getPieceBB(attackerColor, PieceType.PAWN))
+				| knightMove(square)
+				& getPieceBB(attackerColor, PieceType.KNIGHT)
+				| kingMove(square) & getPieceBB(attackerColor, PieceType.KING)
+				| orthogonalMove(square, emptySquares, occupied)
+				& (getPieceBB(attackerColor, PieceType.ROOK) | queensBB)
+				& occupied
+				| diagonalMove(square, emptySquares, occupied)
+				& (getPieceBB(attackerColor, PieceType.BISHOP) | queensBB)
+				& occupied;
+	}
+
+	/**
+	 * Returns the move buffer the game reuses to resolve SAN and to look for a
+	 * legal move. It is created on first use, so games which never parse SAN
+	 * or test for mate, e.g. the ones only held in lists, don't keep one.
+	 */
+	protected MoveBuffer getScratchMoves() {
+		if (scratchMoves == null) {
+			scratchMoves = new MoveBuffer();
 		}
+		return scratchMoves;
+	}
+
+	/**
+	 * Replaces the contents of matches with the pseudo legal moves matching
+	 * san.
+	 */
+	protected void getSanMatches(SanUtils.SanMove san, MoveBuffer matches) {
+		matches.clear();
+		generatePseudoSanMoves(san, matches);
+
+		int matchCount = 0;
+		for (int i = 0; i < matches.getSize(); i++) {
+			int move = matches.get(i);
+			if (isSanMatch(san, move)) {
+				matches.set(matchCount++, move);
+			}
+		}
+		matches.truncate(matchCount);
 	}
 
 	protected String getDropCountsString() {
@@ -1861,6 +1928,29 @@ public class ClassicGame implements Game {
 				+ getPieceCount(PieceColor.BLACK, PieceType.KING) + "]";
 	}
 
+	/**
+	 * Returns true if the color to move has at least one legal move. The
+	 * pseudo legal moves are generated into the scratch buffer and handed to
+	 * hasLegalMove(MoveBuffer).
+	 */
+	protected boolean hasLegalMove() {
+		MoveBuffer moves = getScratchMoves();
+		generatePseudoLegalMoves(moves);
+		return hasLegalMove(moves);
+	}
+
+	/**
+	 * Returns true if at least one of the pseudo legal moves is legal. The
+	 * masks are computed once and the moves are tested until the first legal
+	 * one. Variants which override filterLegalMoves to change which moves are
+	 * legal, rather than only narrowing the legal moves, must override this
+	 * method too. The buffer may be modified.
+	 */
+	protected boolean hasLegalMove(MoveBuffer pseudoLegalMoves) {
+		filterLegalMovesByMasks(pseudoLegalMoves, 1);
+		return !pseudoLegalMoves.isEmpty();
+	}
+
 	/**
 	 * Returns true if the specified color has at least one drop piece.
 	 * 
@@ -2059,18 +2149,6 @@ public class ClassicGame implements Game {
 		setEpSquare(move.getEpSquare());
 	}
 
-	/**
-	 * A method that makeSanMove invokes with the SanValidations it created. If
-	 * a move can be made it should be returned. This method is provided so
-	 * subclasses can enhance utilize the SanValidations without having to
-	 * override makeSanMove and run the SAN validations again.
-	 * 
-	 * This method may also set certain pseudoLegals to ignore to null.
-	 */
-	protected Move makeSanMoveOverride(String shortAlgebraic, SanUtils.SanValidations validations, List<Move> pseudoLegals) {
-		return null;
-	}
-
 	protected void rollbackCastlingMove(Move move) {
 		Piece king, rook;
 		long kingFromBB, kingToBB, rookFromBB, rookToBB;
@@ -2275,24 +2353,17 @@ public class ClassicGame implements Game {
 			// can be
 			// ambiguous)
 			{
+				// Count the pawns which can capture onto the destination file by
+				// looking back from each target on that file.
 				PieceColor oppositeColorToMove = GameUtils.getOppositeColor(colorToMove);
-				long fromBB = getPieceBB(colorToMove, PieceType.PAWN);
+				long pawnsBB = getPieceBB(colorToMove, PieceType.PAWN);
+				long targetsBB = getColorBB(oppositeColorToMove)
+						& AFILE << move.getTo().file;
 				int movesFound = 0;
-				while (fromBB != 0) {
-					Square fromSquare = bitscanForward(fromBB);
-
-					long allPawnCapturesBB = pawnCapture(colorToMove,
-							getBitboard(fromSquare),
-							getColorBB(oppositeColorToMove));
-
-					while (allPawnCapturesBB != 0) {
-						Square toSquare = bitscanForward(allPawnCapturesBB);
-						if (toSquare.file == move.getTo().file) {
-							movesFound++;
-						}
-						allPawnCapturesBB = bitscanClear(allPawnCapturesBB);
-					}
-					fromBB = bitscanClear(fromBB);
+				while (targetsBB != 0) {
+					movesFound += GameUtils.populationCount(pawnCapture(
+							oppositeColorToMove, bitscanForward(targetsBB).bit, pawnsBB));
+					targetsBB = bitscanClear(targetsBB);
 				}
 
 				if (movesFound > 1) {
@@ -2316,59 +2387,18 @@ public class ClassicGame implements Game {
 						+ (move.isPromotion() ? "="
 								+ move.getPiecePromotedTo().ch : "");
 			} else {
-				long fromBB = getPieceBB(colorToMove, move.getPiece().type);
-				long toBB = getBitboard(move.getTo());
-
-				int sameFilesFound = 0;
-				int sameRanksFound = 0;
-				int matchesFound = 0;
-
-				if (move.getPiece().type != PieceType.KING) {
-					while (fromBB != 0) {
-						Square fromSquare = bitscanForward(fromBB);
-						long resultBB = 0;
-
-						switch (move.getPiece().type) {
-						case KNIGHT:
-							resultBB = knightMove(fromSquare) & toBB;
-							break;
-						case BISHOP:
-							resultBB = diagonalMove(fromSquare, emptyBB,
-                                    occupiedBB)
-									& getNotColorToMoveBB() & toBB;
-							break;
-						case ROOK:
-							resultBB = orthogonalMove(fromSquare, emptyBB,
-                                    occupiedBB)
-									& getNotColorToMoveBB() & toBB;
-							break;
-						case QUEEN:
-							resultBB = orthogonalMove(fromSquare, emptyBB,
-                                    occupiedBB)
-									& getNotColorToMoveBB()
-									& toBB
-									| diagonalMove(fromSquare, emptyBB,
-                                    occupiedBB)
-									& getNotColorToMoveBB() & toBB;
-							break;
-						}
-
-						if (resultBB != 0) {
-							Square toSquare = bitscanForward(resultBB);
-
-							if (toSquare == move.getTo()) {
-								matchesFound++;
-								if (fromSquare.file == move.getFrom().file) {
-									sameFilesFound++;
-								}
-								if (fromSquare.rank == move.getFrom().rank) {
-									sameRanksFound++;
-								}
-							}
-						}
-						fromBB = bitscanClear(fromBB);
-					}
-				}
+				// Attacks are symmetric, so the pieces of this type which can
+				// reach the destination are found by looking back from it.
+				PieceType type = move.getPiece().type;
+				long candidatesBB = type == PieceType.KING ? 0L : getPieceBB(
+						colorToMove, type)
+						& pieceAttacksTo(type, move.getTo(), emptyBB, occupiedBB);
+
+				int matchesFound = GameUtils.populationCount(candidatesBB);
+				int sameFilesFound = GameUtils.populationCount(candidatesBB
+						& AFILE << move.getFrom().file);
+				int sameRanksFound = GameUtils.populationCount(candidatesBB
+						& RANK1 << 8 * move.getFrom().rank);
 
 				shortAlgebraic = String.valueOf(move.getPiece().type.ch);
 				boolean hasHandledAmbiguity = false;
@@ -2399,67 +2429,42 @@ public class ClassicGame implements Game {
 	/**
 	 * If the match list contains no ambiguity after taking disambiguity by
 	 * check into consideration the move is returned. Otherwise an
-	 * IllegalArgumentException is raised
+	 * IllegalArgumentException is raised. Illegal matches are removed with
+	 * filterLegalMoves, so the pin and check masks are used instead of making
+	 * the moves.
+	 * 
+	 * @param matches
+	 *            The encoded pseudo legal moves matching shortAlgebraic. Illegal
+	 *            moves are removed from it.
 	 */
-	protected Move testForSanDisambiguationFromCheck(String shortAlgebraic,
-			MoveList matches) throws IllegalArgumentException {
-		Move result = null;
+	protected int testForSanDisambiguationFromCheck(String shortAlgebraic,
+			MoveBuffer matches) throws IllegalArgumentException {
 		if (matches.getSize() == 0) {
 			throw new IllegalArgumentException("Invalid move " + shortAlgebraic
 					+ "\n" + toString());
 		} else if (matches.getSize() == 1) {
-			result = matches.get(0);
-		} else {
-			// now do legality checking on whats left.
-			Square kingSquare = bitscanForward(getPieceBB(colorToMove, PieceType.KING));
-			PieceColor cachedColorToMove = colorToMove;
-			int matchesCount = 0;
-
-			if (kingSquare != Square.EMPTY) { // Now trim illegals
-				for (int i = 0; i < matches.getSize(); i++) {
-					Move current = matches.get(i);
-
-					// Needed for FR.
-					if (current.isCastleLong() || current.isCastleShort()) {
-						continue;
-					}
-					synchronized (this) {
-						try {
-							forceMove(current);
-							if (current.getPiece().type == PieceType.KING) {
-								Square newKingCoordinates = GameUtils
-										.bitscanForward(getPieceBB(
-												cachedColorToMove, PieceType.KING));
-								if (!isInCheck(cachedColorToMove, GameUtils
-										.getBitboard(newKingCoordinates))) {
-									result = current;
-									matchesCount++;
-								} else {
-								}
-							} else {
-								if (!isInCheck(cachedColorToMove,
-										getBitboard(kingSquare))) {
-									result = current;
-									matchesCount++;
-								} else {
-								}
-							}
-							rollback();
-						} catch (IllegalArgumentException ie) {
-						}
-					}
-				}
-			}
+			return matches.get(0);
+		}
 
-			if (matchesCount == 0) {
-				throw new IllegalArgumentException("Invalid move "
-						+ shortAlgebraic + "\n" + toString());
-			} else if (matchesCount > 1) {
-				throw new IllegalArgumentException("Ambiguous move "
-						+ shortAlgebraic + "\n" + toString());
+		// Needed for FR, where a king move can also be a castle.
+		int matchCount = 0;
+		for (int i = 0; i < matches.getSize(); i++) {
+			int move = matches.get(i);
+			if (!EncodedMove.isCastle(move)) {
+				matches.set(matchCount++, move);
 			}
 		}
-		return result;
+		matches.truncate(matchCount);
+
+		filterLegalMoves(matches);
+		if (matches.getSize() == 0) {
+			throw new IllegalArgumentException("Invalid move "
+					+ shortAlgebraic + "\n" + toString());
+		} else if (matches.getSize() > 1) {
+			throw new IllegalArgumentException("Ambiguous move "
+					+ shortAlgebraic + "\n" + toString());
+		}
+		return matches.get(0);
 	}
 
 	/**
@@ -13,7 +13,6 @@
  */
 package raptor.chess;
 
-import java.util.List;
 import static raptor.chess.util.GameUtils.bitscanClear;
 import static raptor.chess.util.GameUtils.bitscanForward;
 import raptor.chess.pgn.PgnHeader;
@@ -43,16 +42,16 @@ public class CrazyhouseGame extends ClassicGame {
 	}
 
 	/**
-	 * Overridden to invoke genDropMoves as well as super.getPseudoLegalMoves.
-	 * 
+	 * Overridden to invoke generatePseudoDropMoves as well as
+	 * super.generatePseudoLegalMoves.
 	 * 
 	 * {@inheritDoc}
 	 */
 	@Override
-	public PriorityMoveList<Move> getPseudoLegalMoves() {
-		PriorityMoveList<Move> result = super.getPseudoLegalMoves();
-		generatePseudoDropMoves(result);
-		return result;
+	public int generatePseudoLegalMoves(MoveBuffer moves) {
+		super.generatePseudoLegalMoves(moves);
+		generatePseudoDropMoves(moves);
+		return moves.getSize();
 	}
 
 	/**
@@ -65,19 +64,19 @@ public class CrazyhouseGame extends ClassicGame {
 
 	/**
 	 * Generates all of the pseudo legal drop moves in the position and adds
-	 * them to the specified move list.
+	 * them to the specified move buffer.
 	 * 
 	 * @param moves
-	 *            A move list.
+	 *            A move buffer.
 	 */
-	protected void generatePseudoDropMoves(PriorityMoveList<Move> moves) {
+	protected void generatePseudoDropMoves(MoveBuffer moves) {
 
 		if (getDropCount(getColorToMove(), PieceType.PAWN) > 0) {
 			Piece piece = isWhitesMove() ? Piece.WP : Piece.BP;
 			long emptyBB = getEmptyBB() & ~RANK8_OR_RANK1;
 			while (emptyBB != 0) {
 				Square toSquare = bitscanForward(emptyBB);
-				addMove(new Move(toSquare, piece), moves);
+				moves.append(EncodedMove.encodeDrop(toSquare, piece));
 				emptyBB = bitscanClear(emptyBB);
 			}
 		}
@@ -87,7 +86,7 @@ public class CrazyhouseGame extends ClassicGame {
 			long emptyBB = getEmptyBB();
 			while (emptyBB != 0) {
 				Square toSquare = bitscanForward(emptyBB);
-				addMove(new Move(toSquare, piece), moves);
+				moves.append(EncodedMove.encodeDrop(toSquare, piece));
 				emptyBB = bitscanClear(emptyBB);
 			}
 		}
@@ -97,7 +96,7 @@ public class CrazyhouseGame extends ClassicGame {
 			long emptyBB = getEmptyBB();
 			while (emptyBB != 0) {
 				Square toSquare = bitscanForward(emptyBB);
-				addMove(new Move(toSquare, piece), moves);
+				moves.append(EncodedMove.encodeDrop(toSquare, piece));
 				emptyBB = bitscanClear(emptyBB);
 			}
 		}
@@ -107,7 +106,7 @@ public class CrazyhouseGame extends ClassicGame {
 			long emptyBB = getEmptyBB();
 			while (emptyBB != 0) {
 				Square toSquare = bitscanForward(emptyBB);
-				addMove(new Move(toSquare, piece), moves);
+				moves.append(EncodedMove.encodeDrop(toSquare, piece));
 				emptyBB = bitscanClear(emptyBB);
 			}
 		}
@@ -117,7 +116,7 @@ public class CrazyhouseGame extends ClassicGame {
 			long emptyBB = getEmptyBB();
 			while (emptyBB != 0) {
 				Square toSquare = bitscanForward(emptyBB);
-				addMove(new Move(toSquare, piece), moves);
+				moves.append(EncodedMove.encodeDrop(toSquare, piece));
 				emptyBB = bitscanClear(emptyBB);
 			}
 		}
@@ -133,23 +132,15 @@ public class CrazyhouseGame extends ClassicGame {
 //		return new Move(destination, piece);
 		Move move = null;
 
-		PriorityMoveList<Move> moves = new PriorityMoveList<Move>();
-		generatePseudoDropMoves(moves);
-		for (Move pseudoLegal : moves) {
-			if (pseudoLegal.isDrop()
-					&& pseudoLegal.getPiece() == piece
-					&& pseudoLegal.getTo() == endSquare) {
-				try {
-					forceMove(pseudoLegal);
-					if (!isLegalPosition()) {
-						throw new IllegalArgumentException("Invalid move (Illegal position): "
-							+ piece.ch + "@" + GameUtils.getSan(endSquare) + " \n"
-							+ toString());
-					}
-					move = pseudoLegal;
-				} finally {
-					rollback();
-				}
+		MoveBuffer legals = new MoveBuffer();
+		generateLegalMoves(legals);
+		for (int i = 0; i < legals.getSize(); i++) {
+			int legal = legals.get(i);
+			if (EncodedMove.isDrop(legal)
+					&& EncodedMove.getPiece(legal) == piece
+					&& EncodedMove.getTo(legal) == endSquare) {
+				move = createMove(legal);
+				break;
 			}
 		}
 
@@ -165,35 +156,18 @@ public class CrazyhouseGame extends ClassicGame {
 	}
 
 	/**
-	 * Overridden to add in drops and remove all drop moves from pseudoLegals.
+	 * Overridden to generate drops for drop SAN.
 	 * 
 	 * {@inheritDoc}
 	 */
 	@Override
-	protected Move makeSanMoveOverride(String shortAlgebraic, SanUtils.SanValidations validations, List<Move> pseudoLegals) {
-		Move result = null;
-		if (SanUtils.isValidDropStrict(validations.getStrictSan())) {
-			for (Move move : getPseudoLegalMoves()) {
-				if ((move.getMoveCharacteristic() & Move.DROP_CHARACTERISTIC) != 0
-						&& move.getPiece().type == SanUtils.sanToPiece(validations
-								.getStrictSan().charAt(0))
-						&& move.getTo() == Square.getSquare((byte)RANK_FROM_SAN
-								.indexOf(validations.getStrictSan().charAt(3)),
-								(byte)FILE_FROM_SAN.indexOf(validations
-										.getStrictSan().charAt(2)))) {
-					result = move;
-					move.setSan(shortAlgebraic);
-					break;
-				}
-			}
+	protected void generatePseudoSanMoves(SanUtils.SanMove san,
+			MoveBuffer moves) {
+		if (san.isDrop()) {
+			generatePseudoDropMoves(moves);
 		} else {
-			for (Move move : pseudoLegals) {
-				if (move.isDrop()) {
-					pseudoLegals.set(pseudoLegals.indexOf(move), null);
-				}
-			}
+			super.generatePseudoSanMoves(san, moves);
 		}
-		return result;
 	}
 
 }
@@ -0,0 +1,148 @@
+/**
+ * New BSD License
+ * http://www.opensource.org/licenses/bsd-license.php
+ * Copyright 2009-2011 RaptorProject (http://code.google.com/p/raptor-chess-interface/)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the RaptorProject nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package raptor.chess;
+
+import raptor.chess.util.GameUtils;
+
+/**
+ * Static helpers for moves packed into an int. Encoded moves are what the
+ * allocation free move generators in {@link Game} write into a
+ * {@link MoveBuffer}. Use {@link Game#createMove(int)} to turn one into a
+ * {@link Move} that can be made on the game.
+ * 
+ * <pre>
+ * bits  0-5   to square index
+ * bits  6-12  from square index (drop squares are above 63)
+ * bits 13-17  piece ordinal (with promote mask)
+ * bits 18-22  capture ordinal (with promote mask)
+ * bits 23-25  piece type promoted to ordinal
+ * bits 26-31  move characteristic (see Move.*_CHARACTERISTIC)
+ * </pre>
+ */
+public final class EncodedMove implements GameConstants {
+	private static final int TO_SHIFT = 0;
+	private static final int FROM_SHIFT = 6;
+	private static final int PIECE_SHIFT = 13;
+	private static final int CAPTURE_SHIFT = 18;
+	private static final int PROMOTION_SHIFT = 23;
+	private static final int CHARACTERISTIC_SHIFT = 26;
+
+	private static final int TO_MASK = 0x3f;
+	private static final int FROM_MASK = 0x7f;
+	private static final int PIECE_MASK = 0x1f;
+	private static final int PROMOTION_MASK = 0x7;
+
+	private EncodedMove() {
+	}
+
+	public static int encode(Square from, Square to, Piece piece, Piece capture) {
+		return to.ordinal() << TO_SHIFT | from.ordinal() << FROM_SHIFT
+				| piece.ordinal() << PIECE_SHIFT
+				| capture.ordinal() << CAPTURE_SHIFT;
+	}
+
+	public static int encode(Square from, Square to, Piece piece,
+			Piece capture, PieceType piecePromotedTo, int moveCharacteristic) {
+		return to.ordinal() << TO_SHIFT | from.ordinal() << FROM_SHIFT
+				| piece.ordinal() << PIECE_SHIFT
+				| capture.ordinal() << CAPTURE_SHIFT
+				| piecePromotedTo.ordinal() << PROMOTION_SHIFT
+				| moveCharacteristic << CHARACTERISTIC_SHIFT;
+	}
+
+	/**
+	 * Encodes a drop of the specified piece on the specified square.
+	 */
+	public static int encodeDrop(Square to, Piece piece) {
+		return encode(GameUtils.getDropSquareFromColoredPiece(piece), to,
+				piece, Piece.EMPTY, PieceType.EMPTY,
+				Move.DROP_CHARACTERISTIC);
+	}
+
+	/**
+	 * Encodes the passed in move. The annotations, san, and rollback
+	 * information are not encoded.
+	 */
+	public static int encode(Move move) {
+		return encode(move.getFrom(), move.getTo(), move.getPiece(), move
+				.getCaptureWithPromoteMask(), move.getPiecePromotedTo(), move
+				.getMoveCharacteristic());
+	}
+
+	public static Piece getCapture(int move) {
+		return PIECES[move >>> CAPTURE_SHIFT & PIECE_MASK];
+	}
+
+	public static PieceColor getColor(int move) {
+		return getPiece(move).color;
+	}
+
+	public static Square getFrom(int move) {
+		return SQUARES[move >>> FROM_SHIFT & FROM_MASK];
+	}
+
+	public static int getMoveCharacteristic(int move) {
+		return move >>> CHARACTERISTIC_SHIFT;
+	}
+
+	public static Piece getPiece(int move) {
+		return PIECES[move >>> PIECE_SHIFT & PIECE_MASK];
+	}
+
+	public static PieceType getPiecePromotedTo(int move) {
+		return PIECE_TYPES[move >>> PROMOTION_SHIFT & PROMOTION_MASK];
+	}
+
+	public static Square getTo(int move) {
+		return SQUARES[move >>> TO_SHIFT & TO_MASK];
+	}
+
+	public static boolean isCapture(int move) {
+		return (move >>> CAPTURE_SHIFT & PIECE_MASK) != 0;
+	}
+
+	public static boolean isCastle(int move) {
+		return (getMoveCharacteristic(move) & (Move.SHORT_CASTLING_CHARACTERISTIC | Move.LONG_CASTLING_CHARACTERISTIC)) != 0;
+	}
+
+	public static boolean isDrop(int move) {
+		return (getMoveCharacteristic(move) & Move.DROP_CHARACTERISTIC) != 0;
+	}
+
+	public static boolean isEnPassant(int move) {
+		return (getMoveCharacteristic(move) & Move.EN_PASSANT_CHARACTERISTIC) != 0;
+	}
+
+	public static boolean isPromotion(int move) {
+		return (move >>> PROMOTION_SHIFT & PROMOTION_MASK) != 0;
+	}
+
+	/**
+	 * Returns the long algebraic form of the move, the same format as
+	 * {@link Move#getLan()}.
+	 */
+	public static String toLan(int move) {
+		int characteristic = getMoveCharacteristic(move);
+		if ((characteristic & Move.SHORT_CASTLING_CHARACTERISTIC) != 0) {
+			return "O-O";
+		} else if ((characteristic & Move.LONG_CASTLING_CHARACTERISTIC) != 0) {
+			return "O-O-O";
+		} else if ((characteristic & Move.DROP_CHARACTERISTIC) != 0) {
+			return getPiece(move).type.ch + "@" + getTo(move).san;
+		} else {
+			return getFrom(move).san + "-" + getTo(move).san
+					+ (isPromotion(move) ? "=" + getPiecePromotedTo(move).ch : "");
+		}
+	}
+}
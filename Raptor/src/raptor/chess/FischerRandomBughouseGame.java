@@ -72,7 +72,7 @@ public class FischerRandomBughouseGame extends BughouseGame {
 	 */
 	@Override
 	protected void generatePseudoKingCastlingMoves(long fromBB,
-			PriorityMoveList moves) {
+			MoveBuffer moves) {
 		FischerRandomUtils.generatePseudoKingCastlingMoves(this, fromBB, moves,
 				initialKingFile, initialShortRookFile, initialLongRookFile);
 	}
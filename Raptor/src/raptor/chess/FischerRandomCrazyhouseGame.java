@@ -70,7 +70,7 @@ public class FischerRandomCrazyhouseGame extends CrazyhouseGame {
 	 */
 	@Override
 	protected void generatePseudoKingCastlingMoves(long fromBB,
-			PriorityMoveList moves) {
+			MoveBuffer moves) {
 		FischerRandomUtils.generatePseudoKingCastlingMoves(this, fromBB, moves,
 				initialKingFile, initialShortRookFile, initialLongRookFile);
 	}
@@ -83,7 +83,7 @@ public class FischerRandomGame extends ClassicGame {
 	 */
 	@Override
 	protected void generatePseudoKingCastlingMoves(long fromBB,
-			PriorityMoveList moves) {
+			MoveBuffer moves) {
 		FischerRandomUtils.generatePseudoKingCastlingMoves(this, fromBB, moves,
 				initialKingFile, initialShortRookFile, initialLongRookFile);
 	}
@@ -105,13 +105,15 @@ public class FischerRandomGame extends ClassicGame {
 		throws IllegalArgumentException {
 		Move move = null;
 
-		PriorityMoveList<Move> legals = getLegalMoves();
+		MoveBuffer legals = new MoveBuffer();
+		generateLegalMoves(legals);
 
-		for (Move candidate : legals) {
-			if (candidate.getFrom() == startSquare
-					&& candidate.getTo() == endSquare && 
-					!(candidate.isCastleLong() || candidate.isCastleShort())) {
-				move = candidate;
+		for (int i = 0; i < legals.getSize(); i++) {
+			int candidate = legals.get(i);
+			if (EncodedMove.getFrom(candidate) == startSquare
+					&& EncodedMove.getTo(candidate) == endSquare
+					&& !EncodedMove.isCastle(candidate)) {
+				move = createMove(candidate);
 			}
 		}
 
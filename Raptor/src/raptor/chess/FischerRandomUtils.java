@@ -48,7 +48,7 @@ public class FischerRandomUtils implements GameConstants {
 	 * Overridden to handle special FR castling rules.
 	 */
 	public static void generatePseudoKingCastlingMoves(ClassicGame game,
-			long fromBB, PriorityMoveList moves, byte initialKingFile,
+			long fromBB, MoveBuffer moves, byte initialKingFile,
 			byte initialShortRookFile, byte initialLongRookFile) {
 		Square kingSquare = game.getColorToMove() == PieceColor.WHITE ? Square.getSquare((byte)0,
 				initialKingFile) : Square.getSquare((byte)7, initialKingFile);
@@ -57,6 +57,7 @@ public class FischerRandomUtils implements GameConstants {
 		if (game.getColorToMove() == PieceColor.WHITE
 				&& (game.getCastling(game.getColorToMove()) & CASTLE_SHORT) != 0
 				&& fromBB == kingSquareBB
+				&& isRookOn(game, (byte)0, initialShortRookFile, PieceColor.WHITE)
 				&& emptyBetweenFiles(game, (byte)0, initialKingFile,
 						initialShortRookFile)
 				&& isKingEmptyOrRook(game, Square.F1, PieceColor.WHITE,
@@ -65,13 +66,14 @@ public class FischerRandomUtils implements GameConstants {
 						initialShortRookFile)
 				&& !isCastlePathInCheck(game, kingSquare, Square.G1, PieceColor.WHITE)) {
 
-			moves.appendLowPriority(new Move(kingSquare, Square.G1, Piece.WK,
-					PieceColor.WHITE, Piece.EMPTY, Move.SHORT_CASTLING_CHARACTERISTIC));
+			moves.append(EncodedMove.encode(kingSquare, Square.G1, Piece.WK,
+					Piece.EMPTY, PieceType.EMPTY, Move.SHORT_CASTLING_CHARACTERISTIC));
 		}
 
 		if (game.getColorToMove() == PieceColor.BLACK
 				&& (game.getCastling(game.getColorToMove()) & CASTLE_SHORT) != 0
 				&& fromBB == kingSquareBB
+				&& isRookOn(game, (byte)7, initialShortRookFile, PieceColor.BLACK)
 				&& emptyBetweenFiles(game, (byte)7, initialKingFile,
 						initialShortRookFile)
 				&& isKingEmptyOrRook(game, Square.F8, PieceColor.BLACK,
@@ -80,13 +82,14 @@ public class FischerRandomUtils implements GameConstants {
 						initialShortRookFile)
 				&& !isCastlePathInCheck(game, kingSquare, Square.G8, PieceColor.BLACK)) {
 
-			moves.appendLowPriority(new Move(kingSquare, Square.G8, Piece.BK,
-					PieceColor.BLACK, Piece.EMPTY, Move.SHORT_CASTLING_CHARACTERISTIC));
+			moves.append(EncodedMove.encode(kingSquare, Square.G8, Piece.BK,
+					Piece.EMPTY, PieceType.EMPTY, Move.SHORT_CASTLING_CHARACTERISTIC));
 		}
 
 		if (game.getColorToMove() == PieceColor.WHITE
 				&& (game.getCastling(game.getColorToMove()) & CASTLE_LONG) != 0
 				&& fromBB == kingSquareBB
+				&& isRookOn(game, (byte)0, initialLongRookFile, PieceColor.WHITE)
 				&& emptyBetweenFiles(game, (byte)0, initialLongRookFile,
 						initialKingFile)
 				&& isKingEmptyOrRook(game, Square.D1, PieceColor.WHITE,
@@ -94,13 +97,14 @@ public class FischerRandomUtils implements GameConstants {
 				&& isKingEmptyOrRook(game, Square.C1, PieceColor.WHITE,
 						initialLongRookFile)
 				&& !isCastlePathInCheck(game, kingSquare, Square.C1, PieceColor.WHITE)) {
-			moves.appendLowPriority(new Move(kingSquare, Square.C1, Piece.WK,
-					PieceColor.WHITE, Piece.EMPTY, Move.LONG_CASTLING_CHARACTERISTIC));
+			moves.append(EncodedMove.encode(kingSquare, Square.C1, Piece.WK,
+					Piece.EMPTY, PieceType.EMPTY, Move.LONG_CASTLING_CHARACTERISTIC));
 		}
 
 		if (game.getColorToMove() == PieceColor.BLACK
 				&& (game.getCastling(game.getColorToMove()) & CASTLE_LONG) != 0
 				&& fromBB == kingSquareBB
+				&& isRookOn(game, (byte)7, initialLongRookFile, PieceColor.BLACK)
 				&& emptyBetweenFiles(game, (byte)7, initialLongRookFile,
 						initialKingFile)
 				&& isKingEmptyOrRook(game, Square.D8, PieceColor.BLACK,
@@ -108,11 +112,22 @@ public class FischerRandomUtils implements GameConstants {
 				&& isKingEmptyOrRook(game, Square.C8, PieceColor.BLACK,
 						initialLongRookFile)
 				&& !isCastlePathInCheck(game, kingSquare, Square.C8, PieceColor.BLACK)) {
-			moves.appendLowPriority(new Move(kingSquare, Square.C8, Piece.BK,
-					PieceColor.BLACK, Piece.EMPTY, Move.LONG_CASTLING_CHARACTERISTIC));
+			moves.append(EncodedMove.encode(kingSquare, Square.C8, Piece.BK,
+					Piece.EMPTY, PieceType.EMPTY, Move.LONG_CASTLING_CHARACTERISTIC));
 		}
 	}
 
+	/**
+	 * Returns true if the castling rook of the specified color is on its
+	 * initial square. Castling rights can outlive the rook, for instance when
+	 * it is captured, and castling without it corrupts the board.
+	 */
+	public static boolean isRookOn(Game game, byte rank, byte file,
+			PieceColor color) {
+		Piece piece = game.getPiece(Square.getSquare(rank, file));
+		return piece.type == PieceType.ROOK && piece.color == color;
+	}
+
 	/**
 	 * Returns true if any of the squares between king startSquare and
 	 * kingEndSquare are in check (including the start/end squares).
@@ -129,6 +129,13 @@ public interface Game extends GameConstants {
 	 */
 	public void clearState(int state);
 
+	/**
+	 * Returns a Move object for the specified move encoded by
+	 * {@link EncodedMove} in the games current position. The SAN of the
+	 * returned move is not set.
+	 */
+	public Move createMove(int move);
+
 	/**
 	 * @param ignoreHashes
 	 *            Whether to include copying hash tables.
@@ -141,6 +148,23 @@ public interface Game extends GameConstants {
 	 */
 	public void forceMove(Move move);
 
+	/**
+	 * Clears the buffer and fills it with all legal moves in the games current
+	 * position encoded by {@link EncodedMove}. No objects are allocated.
+	 * 
+	 * @return The number of legal moves generated.
+	 */
+	public int generateLegalMoves(MoveBuffer moves);
+
+	/**
+	 * Clears the buffer and fills it with all pseudo legal moves in the games
+	 * current position encoded by {@link EncodedMove}. No objects are
+	 * allocated.
+	 * 
+	 * @return The number of pseudo legal moves generated.
+	 */
+	public int generatePseudoLegalMoves(MoveBuffer moves);
+
 	/**
 	 * Returns an array of all of the pgn headers set for this game.
 	 */
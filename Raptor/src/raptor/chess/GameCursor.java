@@ -13,6 +13,9 @@
  */
 package raptor.chess;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import raptor.chess.pgn.PgnHeader;
 import raptor.util.Logger;
 
@@ -37,6 +40,13 @@ import raptor.util.Logger;
  * <p>
  * Cursor position 1 is the position after the first move is made.
  * </p>
+ * <p>
+ * Moving the cursor doesn't copy the master game. The cursor keeps a private
+ * copy of the master which is moved forward with forceMove and back with
+ * rollback from its current position, so stepping through a game costs the
+ * same at any move. Copies of the private game are also kept every
+ * snapshotInterval half moves so random jumps only replay a few moves.
+ * </p>
  */
 public class GameCursor implements Game {
 
@@ -65,6 +75,11 @@ public class GameCursor implements Game {
 
 	static final Logger LOG = Logger.getLogger(GameCursor.class);
 
+	/**
+	 * The default number of half moves between snapshots.
+	 */
+	public static final int DEFAULT_SNAPSHOT_INTERVAL = 32;
+
 	protected Game cursor;
 	protected int cursorPosition;
 	protected int cursorPositionBeforeCursorMoves;
@@ -73,6 +88,23 @@ public class GameCursor implements Game {
 	protected Game masterBackup;
 	protected Mode mode;
 
+	/**
+	 * The private copy of the master the cursor navigates with. It is never
+	 * the master itself.
+	 */
+	protected Game navigator;
+
+	/**
+	 * The id of the first move in the masters move list when navigator and
+	 * the snapshots were copied from it. If it changes (e.g. moves were
+	 * prepended) they no longer follow the master and are discarded.
+	 */
+	protected int navigationFirstMoveId;
+
+	protected int snapshotInterval = DEFAULT_SNAPSHOT_INTERVAL;
+
+	protected Map<Integer, Game> snapshots = new HashMap<Integer, Game>();
+
 	public GameCursor(Game master, Mode mode) {
 		this.master = master;
 		setMode(mode);
@@ -136,12 +168,17 @@ public class GameCursor implements Game {
 						"This operation is not supported in mode " + mode);
 			case MakeMovesOnCursor:
 				master = cursor;
+				resetNavigation();
 				setCursorMasterLast();
 				break;
 			}
 		}
 	}
 
+	public Move createMove(int move) {
+		return cursor.createMove(move);
+	}
+
 	public Game deepCopy(boolean ignoreHashes) {
 		return cursor.deepCopy(ignoreHashes);
 	}
@@ -238,6 +275,14 @@ public class GameCursor implements Game {
 		return cursor.getLastMove();
 	}
 
+	public int generateLegalMoves(MoveBuffer moves) {
+		return cursor.generateLegalMoves(moves);
+	}
+
+	public int generatePseudoLegalMoves(MoveBuffer moves) {
+		return cursor.generatePseudoLegalMoves(moves);
+	}
+
 	public PriorityMoveList getLegalMoves() {
 		return cursor.getLegalMoves();
 	}
@@ -515,6 +560,7 @@ public class GameCursor implements Game {
 				master = masterBackup;
 				masterBackup = null;
 				isInCursorSubline = false;
+				resetNavigation();
 				setCursor(cursorPositionBeforeCursorMoves);
 				break;
 			}
@@ -583,11 +629,20 @@ public class GameCursor implements Game {
 			halfMoveIndex = getMoveList().getSize();
 		}
 
-		if (cursorPosition != halfMoveIndex) {
-			cursor = master.deepCopy(true);
-			while (cursor.getMoveList().getSize() > halfMoveIndex) {
-				cursor.rollback();
+		if (cursorPosition != halfMoveIndex || cursor != master
+				&& !isOnMasterLine(cursor)) {
+			Game game = getNavigator(halfMoveIndex);
+			MoveList masterMoves = master.getMoveList();
+			while (game.getMoveList().getSize() > halfMoveIndex) {
+				game.rollback();
+				takeSnapshot(game);
+			}
+			while (game.getMoveList().getSize() < halfMoveIndex) {
+				game.forceMove(masterMoves.get(game.getMoveList().getSize()));
+				takeSnapshot(game);
 			}
+			navigator = game;
+			cursor = game;
 		}
 		cursorPosition = halfMoveIndex;
 
@@ -673,6 +728,15 @@ public class GameCursor implements Game {
 		this.mode = mode;
 	}
 
+	/**
+	 * Sets the number of half moves between the snapshots kept for random
+	 * jumps. 0 turns snapshots off.
+	 */
+	public void setSnapshotInterval(int snapshotInterval) {
+		this.snapshotInterval = snapshotInterval;
+		snapshots.clear();
+	}
+
 //	public void setNotColorToMoveBB(long notColorToMoveBB) {
 //		throw new UnsupportedOperationException(
 //				"This operation is not supported in GameCursor");
@@ -728,8 +792,108 @@ public class GameCursor implements Game {
 			masterBackup = master;
 			master = cursor;
 			cursorPositionBeforeCursorMoves = cursorPosition;
+			resetNavigation();
 		}
 		cursorPosition = cursor.getMoveList().getSize();
 		isInCursorSubline = true;
 	}
+
+	/**
+	 * Returns false if the position can't be reached by replaying the masters
+	 * moves. Bughouse drop counts come from the partners board, not the moves,
+	 * so they can only be trusted on a fresh copy of the master.
+	 */
+	protected boolean canNavigateIncrementally() {
+		Variant variant = master.getVariant();
+		return variant != Variant.bughouse
+				&& variant != Variant.fischerRandomBughouse;
+	}
+
+	/**
+	 * Returns the game to move to halfMoveIndex from. This is the navigator,
+	 * a copy of a snapshot, or a copy of the master, whichever is the fewest
+	 * moves away from halfMoveIndex.
+	 */
+	protected Game getNavigator(int halfMoveIndex) {
+		if (!canNavigateIncrementally()) {
+			return master.deepCopy(true);
+		}
+
+		MoveList masterMoves = master.getMoveList();
+		int firstMoveId = masterMoves.isEmpty() ? 0 : masterMoves.getMoveId(0);
+		if (navigationFirstMoveId != 0 && navigationFirstMoveId != firstMoveId) {
+			resetNavigation();
+		}
+
+		Game result = null;
+		int distance = masterMoves.getSize() - halfMoveIndex;
+		if (navigator != null && isOnMasterLine(navigator)) {
+			int navigatorDistance = Math.abs(navigator.getMoveList().getSize()
+					- halfMoveIndex);
+			if (navigatorDistance <= distance) {
+				result = navigator;
+				distance = navigatorDistance;
+			}
+		}
+
+		if (snapshotInterval > 0) {
+			int below = halfMoveIndex / snapshotInterval * snapshotInterval;
+			Game snapshot = null;
+			for (int index = below; index <= below + snapshotInterval; index += snapshotInterval) {
+				Game candidate = snapshots.get(index);
+				if (candidate != null
+						&& Math.abs(index - halfMoveIndex) < distance
+						&& isOnMasterLine(candidate)) {
+					snapshot = candidate;
+					distance = Math.abs(index - halfMoveIndex);
+				}
+			}
+			if (snapshot != null) {
+				result = snapshot.deepCopy(true);
+			}
+		}
+
+		if (result == null) {
+			result = master.deepCopy(true);
+			navigationFirstMoveId = firstMoveId;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns true if the moves in the games move list are the first moves in
+	 * the masters move list.
+	 */
+	protected boolean isOnMasterLine(Game game) {
+		int size = game.getMoveList().getSize();
+		MoveList masterMoves = master.getMoveList();
+		return size <= masterMoves.getSize()
+				&& (size == 0 || game.getMoveList().getMoveId(size - 1) == masterMoves
+						.getMoveId(size - 1));
+	}
+
+	/**
+	 * Discards the navigator and snapshots. Invoked when the master is
+	 * replaced.
+	 */
+	protected void resetNavigation() {
+		navigator = null;
+		navigationFirstMoveId = 0;
+		snapshots.clear();
+	}
+
+	/**
+	 * Stores a copy of game if its at a snapshot position that doesn't have
+	 * one yet.
+	 */
+	protected void takeSnapshot(Game game) {
+		int size = game.getMoveList().getSize();
+		if (snapshotInterval > 0 && size > 0 && size % snapshotInterval == 0
+				&& canNavigateIncrementally()) {
+			Game snapshot = snapshots.get(size);
+			if (snapshot == null || !isOnMasterLine(snapshot)) {
+				snapshots.put(size, game.deepCopy(true));
+			}
+		}
+	}
 }
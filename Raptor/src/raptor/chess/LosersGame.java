@@ -39,26 +39,30 @@ public class LosersGame extends ClassicGame {
 
 	/**
 	 * In losers you must make a capture if its possible. This method narrows
-	 * down the list to only captures if there is one possible.
-	 * 
+	 * down the legal moves to only captures if there is one possible.
 	 * 
 	 * {@inheritDoc}
-	 * 
 	 */
 	@Override
-	public PriorityMoveList getLegalMoves() {
-		PriorityMoveList<Move> result = getPseudoLegalMoves();
-		PriorityMoveList<Move> onlyCaptures = new PriorityMoveList<Move>();
-		for (Move move : result.getHighPriorityMoves()) {
-			if (move.isCapture()) {
-				onlyCaptures.appendHighPriority(move);
+	protected void filterLegalMoves(MoveBuffer moves) {
+		super.filterLegalMoves(moves);
+		keepOnlyCapturesIfAny(moves);
+	}
+
+	/**
+	 * Removes all of the non captures from the buffer if it contains at least
+	 * one capture. Otherwise the buffer is left unchanged.
+	 */
+	protected void keepOnlyCapturesIfAny(MoveBuffer moves) {
+		int captureCount = 0;
+		for (int i = 0; i < moves.getSize(); i++) {
+			int move = moves.get(i);
+			if (EncodedMove.isCapture(move)) {
+				moves.set(captureCount++, move);
 			}
 		}
-		for (Move move : result.getLowPriorityMoves()) {
-			if (move.isCapture()) {
-				onlyCaptures.appendLowPriority(move);
-			}
+		if (captureCount > 0) {
+			moves.truncate(captureCount);
 		}
-		return onlyCaptures.isEmpty() ? onlyCaptures : result;
 	}
 }
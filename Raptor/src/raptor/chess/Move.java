@@ -54,6 +54,18 @@ public class Move implements GameConstants, Comparable<Move> {
 	protected int halfMoveCount = 0;
 	protected byte lastWhiteCastlingState = CASTLE_NONE;
 	protected byte lastBlackCastlingState = CASTLE_NONE;
+	/**
+	 * The move list this move was last appended to or materialized from. While
+	 * that list still holds this move at listIndex, the san, eco headers and
+	 * annotations are read from and written through to the lists side tables.
+	 */
+	MoveList list;
+	/**
+	 * The id of the move list entry this move belongs to. See
+	 * {@link MoveList#getMoveId(int)}.
+	 */
+	int listId;
+	int listIndex;
 	protected byte moveCharacteristic = 0;
 	protected Piece piece = Piece.EMPTY;
 
@@ -122,13 +134,11 @@ public class Move implements GameConstants, Comparable<Move> {
 	}
 
 	public void addAnnotation(MoveAnnotation annotation) {
-		if (annotations == null) {
-			annotations = new ArrayList<MoveAnnotation>(5);
-		}
-		annotations.add(annotation);
+		getAnnotationList(true).add(annotation);
 	}
 
 	public MoveAnnotation[] getAnnotations() {
+		ArrayList<MoveAnnotation> annotations = getAnnotationList(false);
 		if (annotations == null) {
 			return new MoveAnnotation[0];
 		}
@@ -137,6 +147,7 @@ public class Move implements GameConstants, Comparable<Move> {
 	}
 
 	public Arrow[] getArrows() {
+		ArrayList<MoveAnnotation> annotations = getAnnotationList(false);
 		if (annotations == null) {
 			return new Arrow[0];
 		}
@@ -173,6 +184,7 @@ public class Move implements GameConstants, Comparable<Move> {
 	}
 
 	public Comment[] getComments() {
+		ArrayList<MoveAnnotation> annotations = getAnnotationList(false);
 		if (annotations == null) {
 			return new Comment[0];
 		}
@@ -203,6 +215,7 @@ public class Move implements GameConstants, Comparable<Move> {
 	}
 
 	public Highlight[] getHighlights() {
+		ArrayList<MoveAnnotation> annotations = getAnnotationList(false);
 		if (annotations == null) {
 			return new Highlight[0];
 		}
@@ -240,6 +253,7 @@ public class Move implements GameConstants, Comparable<Move> {
 	}
 
 	public Nag[] getNags() {
+		ArrayList<MoveAnnotation> annotations = getAnnotationList(false);
 		if (annotations == null) {
 			return new Nag[0];
 		}
@@ -254,13 +268,13 @@ public class Move implements GameConstants, Comparable<Move> {
 	}
 
 	public int getNumAnnotations() {
-		return annotations.size();
+		return getAnnotationList(false).size();
 	}
 
 	public int getNumAnnotationsExcludingSublines() {
 		int result = 0;
 
-		for (MoveAnnotation annotation : annotations) {
+		for (MoveAnnotation annotation : getAnnotationList(false)) {
 			if (!(annotation instanceof SublineNode)) {
 				result++;
 			}
@@ -291,7 +305,8 @@ public class Move implements GameConstants, Comparable<Move> {
 	 * @param previousOpeningHeader
 	 */
 	public String getPreviousEcoHeader() {
-		return previousEcoHeader;
+		return isAttached() ? list.getPreviousEcoHeader(listIndex)
+				: previousEcoHeader;
 	}
 
 	/**
@@ -300,14 +315,16 @@ public class Move implements GameConstants, Comparable<Move> {
 	 * @param previousOpeningHeader
 	 */
 	public String getPreviousOpeningHeader() {
-		return previousOpeningHeader;
+		return isAttached() ? list.getPreviousOpeningHeader(listIndex)
+				: previousOpeningHeader;
 	}
 
 	public String getSan() {
-		return san;
+		return isAttached() ? list.getSan(listIndex) : san;
 	}
 
 	public SublineNode[] getSublines() {
+		ArrayList<MoveAnnotation> annotations = getAnnotationList(false);
 		if (annotations == null) {
 			return new SublineNode[0];
 		}
@@ -322,6 +339,7 @@ public class Move implements GameConstants, Comparable<Move> {
 	}
 
 	public TimeTakenForMove[] getTimeTakenForMove() {
+		ArrayList<MoveAnnotation> annotations = getAnnotationList(false);
 		if (annotations == null) {
 			return new TimeTakenForMove[0];
 		}
@@ -340,6 +358,7 @@ public class Move implements GameConstants, Comparable<Move> {
 	}
 
 	public boolean hasNag() {
+		ArrayList<MoveAnnotation> annotations = getAnnotationList(false);
 		if (annotations == null) {
 			return false;
 		}
@@ -355,6 +374,7 @@ public class Move implements GameConstants, Comparable<Move> {
 	}
 
 	public boolean hasSubline() {
+		ArrayList<MoveAnnotation> annotations = getAnnotationList(false);
 		if (annotations == null) {
 			return false;
 		}
@@ -398,6 +418,7 @@ public class Move implements GameConstants, Comparable<Move> {
 	}
 
 	public void removeAnnotation(MoveAnnotation annotation) {
+		ArrayList<MoveAnnotation> annotations = getAnnotationList(false);
 		if (annotations == null) {
 			return;
 		}
@@ -459,6 +480,9 @@ public class Move implements GameConstants, Comparable<Move> {
 	 */
 	public void setPreviousEcoHeader(String previousEcoHeader) {
 		this.previousEcoHeader = previousEcoHeader;
+		if (isAttached()) {
+			list.setPreviousEcoHeader(listIndex, previousEcoHeader);
+		}
 	}
 
 	/**
@@ -468,10 +492,16 @@ public class Move implements GameConstants, Comparable<Move> {
 	 */
 	public void setPreviousOpeningHeader(String previousOpeningHeader) {
 		this.previousOpeningHeader = previousOpeningHeader;
+		if (isAttached()) {
+			list.setPreviousOpeningHeader(listIndex, previousOpeningHeader);
+		}
 	}
 
 	public void setSan(String san) {
 		this.san = san;
+		if (isAttached()) {
+			list.setSan(listIndex, san);
+		}
 	}
 
 	public void setTo(Square to) {
@@ -480,6 +510,7 @@ public class Move implements GameConstants, Comparable<Move> {
 
 	@Override
 	public String toString() {
+		String san = getSan();
 		return san != null ? san : getLan();
 	}
 
@@ -487,4 +518,69 @@ public class Move implements GameConstants, Comparable<Move> {
 	public int compareTo(Move o) {
 		return hashCode() - o.hashCode();
 	}
+
+	/**
+	 * Returns a copy of this move which is not attached to a move list.
+	 * Subclasses with state of their own override this.
+	 */
+	protected Move copy() {
+		Move result = new Move(from, to, piece, color, capture,
+				piecePromotedTo, epSquare, moveCharacteristic);
+		copyTo(result);
+		return result;
+	}
+
+	/**
+	 * Copies everything but the squares, pieces and move characteristic,
+	 * which copy() passes to the constructor, into result.
+	 */
+	protected void copyTo(Move result) {
+		result.castlingType = castlingType;
+		result.fullMoveCount = fullMoveCount;
+		result.halfMoveCount = halfMoveCount;
+		result.lastWhiteCastlingState = lastWhiteCastlingState;
+		result.lastBlackCastlingState = lastBlackCastlingState;
+		result.previous50MoveCount = previous50MoveCount;
+		result.san = getSan();
+		result.previousEcoHeader = getPreviousEcoHeader();
+		result.previousOpeningHeader = getPreviousOpeningHeader();
+		ArrayList<MoveAnnotation> annotations = getAnnotationList(false);
+		result.annotations = annotations == null ? null
+				: new ArrayList<MoveAnnotation>(annotations);
+	}
+
+	/**
+	 * Copies the san, eco headers and annotations out of the move list this
+	 * move is attached to and detaches it. Invoked when the list removes the
+	 * move.
+	 */
+	void detach() {
+		if (isAttached()) {
+			san = list.getSan(listIndex);
+			previousEcoHeader = list.getPreviousEcoHeader(listIndex);
+			previousOpeningHeader = list.getPreviousOpeningHeader(listIndex);
+			annotations = list.getAnnotationList(listIndex, false);
+		}
+		list = null;
+	}
+
+	/**
+	 * Returns the annotations of this move, creating the list if create is
+	 * true. Returns null if there are none and create is false.
+	 */
+	protected ArrayList<MoveAnnotation> getAnnotationList(boolean create) {
+		if (isAttached()) {
+			annotations = list.getAnnotationList(listIndex, create);
+		} else if (create && annotations == null) {
+			annotations = new ArrayList<MoveAnnotation>(5);
+		}
+		return annotations;
+	}
+
+	/**
+	 * Returns true if the move list this move was appended to still holds it.
+	 */
+	protected boolean isAttached() {
+		return list != null && list.holds(listIndex, listId);
+	}
 }
@@ -0,0 +1,91 @@
+/**
+ * New BSD License
+ * http://www.opensource.org/licenses/bsd-license.php
+ * Copyright 2009-2011 RaptorProject (http://code.google.com/p/raptor-chess-interface/)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the RaptorProject nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package raptor.chess;
+
+/**
+ * A reusable, fixed capacity buffer of encoded moves (see {@link EncodedMove}).
+ * Move generators append into a caller supplied buffer so no objects are
+ * allocated while generating. A buffer is not thread safe, each thread should
+ * use its own.
+ */
+public final class MoveBuffer implements GameConstants {
+	private int[] moves;
+	private int size = 0;
+
+	public MoveBuffer() {
+		this(MAX_LEGAL_MOVES);
+	}
+
+	public MoveBuffer(int capacity) {
+		moves = new int[capacity];
+	}
+
+	public void append(int move) {
+		moves[size++] = move;
+	}
+
+	public int[] asArray() {
+		int[] result = new int[size];
+		System.arraycopy(moves, 0, result, 0, size);
+		return result;
+	}
+
+	public void clear() {
+		size = 0;
+	}
+
+	public int get(int index) {
+		return moves[index];
+	}
+
+	public int getCapacity() {
+		return moves.length;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Replaces the move at the specified index.
+	 */
+	public void set(int index, int move) {
+		moves[index] = move;
+	}
+
+	/**
+	 * Drops all moves at or after the specified index. Used by legality
+	 * filters which compact the buffer in place.
+	 */
+	public void truncate(int newSize) {
+		size = newSize;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder result = new StringBuilder(size * 7 + 2);
+		result.append('[');
+		for (int i = 0; i < size; i++) {
+			if (i > 0) {
+				result.append(", ");
+			}
+			result.append(EncodedMove.toLan(moves[i]));
+		}
+		return result.append(']').toString();
+	}
+}
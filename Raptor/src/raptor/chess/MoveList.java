@@ -15,55 +15,179 @@ package raptor.chess;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import raptor.chess.pgn.MoveAnnotation;
+
+/**
+ * The moves made in a game. Moves are stored packed into a growable long
+ * array instead of as {@link Move} objects, which keeps large PGN collections
+ * and observed games small. The san, eco headers and annotations live in side
+ * tables which are only allocated once one of them is set.
+ * 
+ * <pre>
+ * bits  0-31  the move encoded by EncodedMove.encode(Move)
+ * bits 32-38  en passant square index
+ * bits 39-40  last white castling state
+ * bits 41-42  last black castling state
+ * bits 43-51  previous 50 move count
+ * bits 52-63  half move count
+ * </pre>
+ * 
+ * Moves which don't fit, i.e. subclasses such as {@link AtomicMove}, are kept
+ * as objects. A list never keeps a move object another list holds, those are
+ * copied.
+ * 
+ * {@link #get(int)} materializes a new view of a move each time it is called,
+ * nothing is cached. A view stays attached to the list until the move is
+ * removed, so changes made to a views san, eco headers or annotations are
+ * written to the list. A move appended to the list is attached the same way,
+ * unless it is still attached to the list it came from.
+ */
 public final class MoveList implements GameConstants {
-	private int maxSize;
-	private Move[] moves;
+	private static final int DEFAULT_CAPACITY = 32;
+
+	private static final int EP_SQUARE_SHIFT = 32;
+	private static final int WHITE_CASTLING_SHIFT = 39;
+	private static final int BLACK_CASTLING_SHIFT = 41;
+	private static final int PREVIOUS_50_MOVE_COUNT_SHIFT = 43;
+	private static final int HALF_MOVE_COUNT_SHIFT = 52;
+
+	private static final int SQUARE_MASK = 0x7f;
+	private static final int CASTLING_MASK = 0x3;
+	private static final int PREVIOUS_50_MOVE_COUNT_MASK = 0x1ff;
+	private static final int HALF_MOVE_COUNT_MASK = 0xfff;
+
+	private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+	private ArrayList<ArrayList<MoveAnnotation>> annotations;
+	private int[] ids;
+	private long[] moves;
+	private String[] previousEcoHeaders;
+	private String[] previousOpeningHeaders;
+	private String[] sans;
 	private int size = 0;
+	private Move[] unpacked;
 
 	public MoveList() {
-		this(MAX_HALF_MOVES_IN_GAME);
+		this(DEFAULT_CAPACITY);
 	}
 
-	public MoveList(int maxSize) {
-		moves = new Move[maxSize];
-		this.maxSize = maxSize;
+	/**
+	 * Creates a move list with room for initialCapacity moves. The list grows
+	 * as needed.
+	 */
+	public MoveList(int initialCapacity) {
+		moves = new long[Math.max(initialCapacity, 1)];
+		ids = new int[moves.length];
 	}
 
 	public void append(Move move) {
-		moves[size++] = move;
+		ensureCapacity(size + 1);
+		set(size, move);
+		size++;
 	}
 
 	public Move[] asArray() {
 		Move[] result = new Move[size];
-		System.arraycopy(moves, 0, result, 0, size);
+		for (int i = 0; i < size; i++) {
+			result[i] = get(i);
+		}
 		return result;
 	}
 
 	public List<Move> asList() {
 		List<Move> result = new ArrayList<Move>(size);
-        result.addAll(Arrays.asList(moves).subList(0, size));
+		for (int i = 0; i < size; i++) {
+			result.add(get(i));
+		}
 		return result;
 	}
 
 	public void clear() {
+		for (int i = 0; i < size; i++) {
+			clearSideTables(i);
+			ids[i] = 0;
+		}
 		size = 0;
 	}
 
+	/**
+	 * Returns a copy of this list with the same move ids. Moves kept as
+	 * objects are copied and each annotation list is copied, so nothing
+	 * changed through one list shows up in the other. The annotations in the
+	 * lists are shared, the same as when a move is appended to another list.
+	 */
 	public MoveList deepCopy() {
-		MoveList result = new MoveList();
-        System.arraycopy(moves, 0, result.moves, 0, moves.length);
+		MoveList result = new MoveList(Math.max(size, DEFAULT_CAPACITY));
+		System.arraycopy(moves, 0, result.moves, 0, size);
+		System.arraycopy(ids, 0, result.ids, 0, size);
+		if (annotations != null) {
+			int count = Math.min(size, annotations.size());
+			result.annotations = new ArrayList<ArrayList<MoveAnnotation>>(
+					count);
+			for (int i = 0; i < count; i++) {
+				ArrayList<MoveAnnotation> list = annotations.get(i);
+				result.annotations.add(list == null ? null
+						: new ArrayList<MoveAnnotation>(list));
+			}
+		}
+		result.previousEcoHeaders = copy(previousEcoHeaders,
+				result.moves.length);
+		result.previousOpeningHeaders = copy(previousOpeningHeaders,
+				result.moves.length);
+		result.sans = copy(sans, result.moves.length);
+		if (unpacked != null) {
+			result.unpacked = new Move[result.moves.length];
+			for (int i = 0; i < size; i++) {
+				if (unpacked[i] != null) {
+					Move move = unpacked[i].copy();
+					move.list = result;
+					move.listIndex = i;
+					move.listId = ids[i];
+					result.unpacked[i] = move;
+				}
+			}
+		}
 		result.size = size;
 		return result;
 	}
 
+	/**
+	 * Returns the move at the specified index. Packed moves are materialized
+	 * into a new view on every call, so callers which iterate the list do not
+	 * leave a Move behind for every ply.
+	 */
 	public Move get(int index) {
-		return moves[index];
+		if (unpacked != null && unpacked[index] != null) {
+			return unpacked[index];
+		}
+		return createView(index);
 	}
 
 	public Move getLast() {
-		return moves[size - 1];
+		return get(size - 1);
+	}
+
+	/**
+	 * Returns the id of the move at the specified index. Ids are assigned when
+	 * a move is appended for the first time and are kept by copies of the list
+	 * and by lists the move is appended to later. Two lists with the same id
+	 * at an index contain the same move, the same way they would if they
+	 * shared the Move object.
+	 */
+	public int getMoveId(int index) {
+		return ids[index];
+	}
+
+	/**
+	 * Returns the san of the move at the specified index, or null if it has
+	 * not been set.
+	 */
+	public String getSan(int index) {
+		return sans == null ? null : sans[index];
 	}
 
 	public int getSize() {
@@ -78,28 +202,301 @@ public final class MoveList implements GameConstants {
 	 * Prepends the moves to the beginning of this list.
 	 */
 	public void prepend(Move[] movesToPrepend) {
-		Move[] newMoves = new Move[maxSize];
-
-		// Add all of the moves to prepend.
-        System.arraycopy(movesToPrepend, 0, newMoves, 0, movesToPrepend.length);
+		int count = movesToPrepend.length;
+		ensureCapacity(size + count);
 
 		/**
 		 * If a move is appended while this is going on the move list will be
 		 * disrupted. Lets gamble and take that chance so we don't have to add
 		 * slow synchronized code
 		 */
-        System.arraycopy(moves, 0, newMoves, movesToPrepend.length, size);
+		System.arraycopy(moves, 0, moves, count, size);
+		System.arraycopy(ids, 0, ids, count, size);
+		if (annotations != null) {
+			annotations.addAll(0, Collections
+					.<ArrayList<MoveAnnotation>> nCopies(count, null));
+		}
+		shift(previousEcoHeaders, count);
+		shift(previousOpeningHeaders, count);
+		shift(sans, count);
+		shift(unpacked, count);
+		size += count;
+		if (unpacked != null) {
+			for (int i = count; i < size; i++) {
+				if (unpacked[i] != null && unpacked[i].list == this) {
+					unpacked[i].listIndex = i;
+				}
+			}
+		}
 
-		moves = newMoves;
-        size += movesToPrepend.length;
+		for (int i = 0; i < count; i++) {
+			set(i, movesToPrepend[i]);
+		}
 	}
 
 	public Move removeLast() {
-		return moves[--size];
+		int index = size - 1;
+		Move result = get(index);
+		result.detach();
+
+		moves[index] = 0;
+		ids[index] = 0;
+		clearSideTables(index);
+		size--;
+		return result;
+	}
+
+	/**
+	 * Sets the san of the move at the specified index.
+	 */
+	public void setSan(int index, String san) {
+		if (sans == null) {
+			if (san == null) {
+				return;
+			}
+			sans = new String[moves.length];
+		}
+		sans[index] = san;
 	}
 
 	@Override
 	public String toString() {
 		return asList().toString();
 	}
+
+	ArrayList<MoveAnnotation> getAnnotationList(int index, boolean create) {
+		ArrayList<MoveAnnotation> result = annotations == null
+				|| index >= annotations.size() ? null : annotations.get(index);
+		if (result == null && create) {
+			result = new ArrayList<MoveAnnotation>(5);
+			setAnnotationList(index, result);
+		}
+		return result;
+	}
+
+	String getPreviousEcoHeader(int index) {
+		return previousEcoHeaders == null ? null : previousEcoHeaders[index];
+	}
+
+	String getPreviousOpeningHeader(int index) {
+		return previousOpeningHeaders == null ? null
+				: previousOpeningHeaders[index];
+	}
+
+	/**
+	 * Returns true if this list holds the packed move with the specified id
+	 * at the specified index.
+	 */
+	boolean holds(int index, int id) {
+		return index < size && ids[index] == id
+				&& (unpacked == null || unpacked[index] == null);
+	}
+
+	/**
+	 * Returns true if this list keeps the specified move object at the
+	 * specified index.
+	 */
+	boolean keeps(int index, Move move) {
+		return index < size && unpacked != null && unpacked[index] == move;
+	}
+
+	void setAnnotationList(int index, ArrayList<MoveAnnotation> list) {
+		if (annotations == null) {
+			if (list == null) {
+				return;
+			}
+			annotations = new ArrayList<ArrayList<MoveAnnotation>>(size + 1);
+		}
+		while (annotations.size() <= index) {
+			annotations.add(null);
+		}
+		annotations.set(index, list);
+	}
+
+	void setPreviousEcoHeader(int index, String header) {
+		if (previousEcoHeaders == null) {
+			if (header == null) {
+				return;
+			}
+			previousEcoHeaders = new String[moves.length];
+		}
+		previousEcoHeaders[index] = header;
+	}
+
+	void setPreviousOpeningHeader(int index, String header) {
+		if (previousOpeningHeaders == null) {
+			if (header == null) {
+				return;
+			}
+			previousOpeningHeaders = new String[moves.length];
+		}
+		previousOpeningHeaders[index] = header;
+	}
+
+	private void clearSideTables(int index) {
+		if (annotations != null && index < annotations.size()) {
+			annotations.set(index, null);
+		}
+		if (previousEcoHeaders != null) {
+			previousEcoHeaders[index] = null;
+		}
+		if (previousOpeningHeaders != null) {
+			previousOpeningHeaders[index] = null;
+		}
+		if (sans != null) {
+			sans[index] = null;
+		}
+		if (unpacked != null) {
+			unpacked[index] = null;
+		}
+	}
+
+	private <T> T[] copy(T[] source, int length) {
+		if (source == null) {
+			return null;
+		}
+		T[] result = Arrays.copyOf(source, length);
+		for (int i = size; i < length; i++) {
+			result[i] = null;
+		}
+		return result;
+	}
+
+	private Move createView(int index) {
+		long packed = moves[index];
+		int encoded = (int) packed;
+		Piece piece = EncodedMove.getPiece(encoded);
+
+		Move result = new Move(EncodedMove.getFrom(encoded), EncodedMove
+				.getTo(encoded), piece, piece.color, EncodedMove
+				.getCapture(encoded), EncodedMove.getPiecePromotedTo(encoded),
+				SQUARES[(int) (packed >>> EP_SQUARE_SHIFT) & SQUARE_MASK],
+				EncodedMove.getMoveCharacteristic(encoded));
+		result.lastWhiteCastlingState = (byte) ((packed >>> WHITE_CASTLING_SHIFT) & CASTLING_MASK);
+		result.lastBlackCastlingState = (byte) ((packed >>> BLACK_CASTLING_SHIFT) & CASTLING_MASK);
+		result.previous50MoveCount = (short) ((packed >>> PREVIOUS_50_MOVE_COUNT_SHIFT) & PREVIOUS_50_MOVE_COUNT_MASK);
+		result.halfMoveCount = (int) (packed >>> HALF_MOVE_COUNT_SHIFT)
+				& HALF_MOVE_COUNT_MASK;
+		result.fullMoveCount = getFullMoveCount(result.halfMoveCount);
+
+		result.san = getSan(index);
+		result.previousEcoHeader = getPreviousEcoHeader(index);
+		result.previousOpeningHeader = getPreviousOpeningHeader(index);
+		result.annotations = getAnnotationList(index, false);
+
+		result.list = this;
+		result.listIndex = index;
+		result.listId = ids[index];
+		return result;
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity > moves.length) {
+			int length = Math.max(capacity, moves.length * 2);
+			moves = Arrays.copyOf(moves, length);
+			ids = Arrays.copyOf(ids, length);
+			previousEcoHeaders = grow(previousEcoHeaders, length);
+			previousOpeningHeaders = grow(previousOpeningHeaders, length);
+			sans = grow(sans, length);
+			unpacked = grow(unpacked, length);
+		}
+	}
+
+	/**
+	 * Returns the full move count ClassicGame.forceMove sets for the half move
+	 * count.
+	 */
+	private static int getFullMoveCount(int halfMoveCount) {
+		return halfMoveCount == 0 ? 0 : (halfMoveCount - 1) / 2 + 1;
+	}
+
+	private static <T> T[] grow(T[] array, int length) {
+		return array == null ? null : Arrays.copyOf(array, length);
+	}
+
+	/**
+	 * Returns true if all of the moves fields can be stored in a long.
+	 */
+	private static boolean isPackable(Move move) {
+		return move.getClass() == Move.class && move.to.ordinal() < 64
+				&& move.piece.color == move.color
+				&& move.castlingType == CASTLE_NONE
+				&& move.moveCharacteristic >= 0 && move.moveCharacteristic < 64
+				&& (move.lastWhiteCastlingState & ~CASTLING_MASK) == 0
+				&& (move.lastBlackCastlingState & ~CASTLING_MASK) == 0
+				&& (move.previous50MoveCount & ~PREVIOUS_50_MOVE_COUNT_MASK) == 0
+				&& (move.halfMoveCount & ~HALF_MOVE_COUNT_MASK) == 0
+				&& move.fullMoveCount == getFullMoveCount(move.halfMoveCount);
+	}
+
+	private static long pack(Move move) {
+		return (EncodedMove.encode(move) & 0xffffffffL)
+				| (long) move.epSquare.ordinal() << EP_SQUARE_SHIFT
+				| (long) move.lastWhiteCastlingState << WHITE_CASTLING_SHIFT
+				| (long) move.lastBlackCastlingState << BLACK_CASTLING_SHIFT
+				| (long) move.previous50MoveCount << PREVIOUS_50_MOVE_COUNT_SHIFT
+				| (long) move.halfMoveCount << HALF_MOVE_COUNT_SHIFT;
+	}
+
+	/**
+	 * Stores move at index, which must be less than the capacity. A packable
+	 * move is encoded, and attached to this list unless another list still
+	 * holds it. Any other move is kept as is, or copied if another list keeps
+	 * it, so two lists never share a mutable Move.
+	 */
+	private void set(int index, Move move) {
+		int id = move.listId;
+		if (id == 0) {
+			id = NEXT_ID.incrementAndGet();
+			if (id == 0) {
+				id = NEXT_ID.incrementAndGet();
+			}
+		}
+		String san = move.getSan();
+		String previousEcoHeader = move.getPreviousEcoHeader();
+		String previousOpeningHeader = move.getPreviousOpeningHeader();
+		ArrayList<MoveAnnotation> moveAnnotations = move.getAnnotationList(false);
+
+		boolean isHeldElsewhere = move.list != null && move.list != this
+				&& (move.isAttached() || move.list.keeps(move.listIndex, move));
+
+		ids[index] = id;
+		clearSideTables(index);
+
+		if (isPackable(move)) {
+			moves[index] = pack(move);
+			setSan(index, san);
+			setPreviousEcoHeader(index, previousEcoHeader);
+			setPreviousOpeningHeader(index, previousOpeningHeader);
+			setAnnotationList(index, isHeldElsewhere && moveAnnotations != null
+					? new ArrayList<MoveAnnotation>(moveAnnotations)
+					: moveAnnotations);
+			if (!isHeldElsewhere) {
+				move.list = this;
+				move.listIndex = index;
+				move.listId = id;
+			}
+		} else {
+			if (isHeldElsewhere) {
+				move = move.copy();
+			} else {
+				move.detach();
+			}
+			moves[index] = 0;
+			if (unpacked == null) {
+				unpacked = new Move[moves.length];
+			}
+			unpacked[index] = move;
+			move.list = this;
+			move.listIndex = index;
+			move.listId = id;
+		}
+	}
+
+	private static <T> void shift(T[] array, int count) {
+		if (array != null) {
+			System.arraycopy(array, 0, array, count, array.length - count);
+			Arrays.fill(array, 0, count, null);
+		}
+	}
 }
@@ -31,6 +31,31 @@ public class SetupGame extends ClassicGame {
 		return result;
 	}
 
+	/**
+	 * Overridden to keep every pseudo legal move while the game is being set
+	 * up.
+	 * 
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void filterLegalMoves(MoveBuffer moves) {
+		if (!isInState(Game.SETUP_STATE)) {
+			super.filterLegalMoves(moves);
+		}
+	}
+
+	/**
+	 * Overridden to accept any pseudo legal move while the game is being set
+	 * up.
+	 * 
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected boolean hasLegalMove(MoveBuffer pseudoLegalMoves) {
+		return isInState(Game.SETUP_STATE) ? !pseudoLegalMoves.isEmpty()
+				: super.hasLegalMove(pseudoLegalMoves);
+	}
+
 	/**
 	 * Overridden to always return true.
 	 * 
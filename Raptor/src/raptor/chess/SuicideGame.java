@@ -13,10 +13,8 @@
  */
 package raptor.chess;
 
-import java.util.List;
 import raptor.chess.pgn.PgnHeader;
 import raptor.chess.util.GameUtils;
-import raptor.chess.util.SanUtils;
 import raptor.util.Logger;
 
 /**
@@ -47,145 +45,41 @@ public class SuicideGame extends LosersGame {
 	 * {@inheritDoc}
 	 */
 	@Override
-	protected void generatePseudoPawnCaptures(Square fromSquare, long fromBB, PieceColor oppositeColor, PriorityMoveList moves) {
-		Piece piece = isWhitesMove() ? Piece.WP : Piece.BP;
-		long toBB = GameUtils.pawnCapture(getColorToMove(), fromBB, getColorBB(oppositeColor));
-
-		while (toBB != 0L) {
-			Square toSquare = GameUtils.bitscanForward(toBB);
-			if ((toBB & RANK8_OR_RANK1) != 0L) {
-				addMove(new Move(fromSquare, toSquare, piece, getColorToMove(),
-						getPiece(toSquare), PieceType.KNIGHT,
-						Square.EMPTY, Move.PROMOTION_CHARACTERISTIC), moves);
-				addMove(new Move(fromSquare, toSquare, piece, getColorToMove(),
-						getPiece(toSquare), PieceType.BISHOP,
-						Square.EMPTY, Move.PROMOTION_CHARACTERISTIC), moves);
-				addMove(new Move(fromSquare, toSquare, piece, getColorToMove(),
-						getPiece(toSquare), PieceType.QUEEN, Square.EMPTY,
-						Move.PROMOTION_CHARACTERISTIC), moves);
-				addMove(new Move(fromSquare, toSquare, piece, getColorToMove(),
-						getPiece(toSquare), PieceType.ROOK, Square.EMPTY,
-						Move.PROMOTION_CHARACTERISTIC), moves);
-				addMove(new Move(fromSquare, toSquare, piece, getColorToMove(),
-						getPiece(toSquare), PieceType.KING, Square.EMPTY,
-						Move.PROMOTION_CHARACTERISTIC), moves);
-			} else {
-				addMove(new Move(fromSquare, toSquare, piece, getColorToMove(),
-						getPiece(toSquare)), moves);
-			}
-			toBB = GameUtils.bitscanClear(toBB);
-		}
+	protected void addPromotions(Square fromSquare, Square toSquare,
+			Piece piece, Piece capture, MoveBuffer moves) {
+		super.addPromotions(fromSquare, toSquare, piece, capture, moves);
+		moves.append(EncodedMove.encode(fromSquare, toSquare, piece, capture,
+				PieceType.KING, Move.PROMOTION_CHARACTERISTIC));
 	}
 
 	/**
-	 * Pawns can promote to a king in suicide. This method is overridden to
-	 * supply that functionality.
+	 * All pseudo legal moves are legal in suicide, but captures are forced.
 	 * 
 	 * {@inheritDoc}
 	 */
 	@Override
-	public void generatePseudoPawnSinglePush(Square fromSquare, long fromBB,
-			PieceColor oppositeColor, PriorityMoveList moves) {
-		Piece piece = isWhitesMove() ? Piece.WP : Piece.BP;
-		long toBB = GameUtils.pawnSinglePush(getColorToMove(), fromBB, getEmptyBB());
-
-		while (toBB != 0) {
-			Square toSquare = GameUtils.bitscanForward(toBB);
-
-			if ((toBB & RANK8_OR_RANK1) != 0L) {
-				addMove(new Move(fromSquare, toSquare, piece, getColorToMove(),
-						Piece.EMPTY, PieceType.KNIGHT, Square.EMPTY,
-						Move.PROMOTION_CHARACTERISTIC), moves);
-				addMove(new Move(fromSquare, toSquare, piece, getColorToMove(),
-						Piece.EMPTY, PieceType.BISHOP, Square.EMPTY,
-						Move.PROMOTION_CHARACTERISTIC), moves);
-				addMove(new Move(fromSquare, toSquare, piece, getColorToMove(),
-						Piece.EMPTY, PieceType.QUEEN, Square.EMPTY,
-						Move.PROMOTION_CHARACTERISTIC), moves);
-				addMove(new Move(fromSquare, toSquare, piece, getColorToMove(),
-						Piece.EMPTY, PieceType.ROOK, Square.EMPTY,
-						Move.PROMOTION_CHARACTERISTIC), moves);
-				addMove(new Move(fromSquare, toSquare, piece, getColorToMove(),
-						Piece.EMPTY, PieceType.KING, Square.EMPTY,
-						Move.PROMOTION_CHARACTERISTIC), moves);
-
-			} else {
-				addMove(new Move(fromSquare, toSquare, piece, getColorToMove(),
-						Piece.EMPTY), moves);
-			}
-			toBB = GameUtils.bitscanClear(toBB);
-		}
+	protected void filterLegalMoves(MoveBuffer moves) {
+		keepOnlyCapturesIfAny(moves);
 	}
 
 	/**
-	 * All positions reachable by pseudo-legal moves are legal in suicide.
+	 * All pseudo legal moves are legal in suicide.
 	 * 
 	 * {@inheritDoc}
 	 */
 	@Override
-	public boolean isLegalPosition() {
-		return true;
+	protected boolean hasLegalMove(MoveBuffer pseudoLegalMoves) {
+		return !pseudoLegalMoves.isEmpty();
 	}
 
 	/**
-	 * Needs to be overridden to support promotions to king.
+	 * All positions reachable by pseudo-legal moves are legal in suicide.
 	 * 
 	 * {@inheritDoc}
 	 */
 	@Override
-	protected Move makeSanMoveOverride(String shortAlgebraic, SanUtils.SanValidations validations, List<Move> pseudoLegals) {
-		String san = validations.getStrictSan();
-
-		Move result = null;
-
-		if (san.charAt(san.length() - 1) == PieceType.KING.ch) {
-			MoveList matches = new MoveList(10);
-
-			if (SanUtils.isValidSuicidePPromotionStrict(san)) {
-				Square toSquare = Square.getSquare((byte)RANK_FROM_SAN.indexOf(san
-						.charAt(1)), (byte)FILE_FROM_SAN.indexOf(san.charAt(0)));
-
-				for (Move move : pseudoLegals) {
-					if (move.getTo() == toSquare
-							&& move.getPiece().type == PieceType.PAWN
-							&& move.isPromotion()
-							&& move.getPiecePromotedTo() == PieceType.KING) {
-						matches.append(move);
-					}
-				}
-			} else if (SanUtils.isValidSuicidePxPromotionStrict(san)) {
-				int fromFile = FILE_FROM_SAN.indexOf(san.charAt(0));
-				int toFile = FILE_FROM_SAN.indexOf(san.charAt(1));
-
-				for (Move move : pseudoLegals) {
-					if (move.getTo().file == toFile
-							&& move.getFrom().file == fromFile
-							&& move.getPiece().type == PieceType.PAWN && move.isPromotion()
-							&& move.getPiecePromotedTo() == PieceType.KING) {
-						matches.append(move);
-					}
-				}
-			} else if (SanUtils.isValidSuicideAmbigPxPromotion(san)) {
-				int fromFile = FILE_FROM_SAN.indexOf(san.charAt(0));
-				Square toSquare = Square.getSquare((byte)RANK_FROM_SAN.indexOf(san
-						.charAt(2)), (byte)FILE_FROM_SAN.indexOf(san.charAt(1)));
-				for (Move move : pseudoLegals) {
-					if (move.getTo() == toSquare
-							&& move.getFrom().file == fromFile
-							&& move.getPiece().type == PieceType.PAWN && move.isPromotion()
-							&& move.getPiecePromotedTo() == PieceType.KING) {
-						matches.append(move);
-					}
-				}
-			}
-			result = testForSanDisambiguationFromCheck(shortAlgebraic, matches);
-			if (result == null) {
-				throw new IllegalArgumentException("Illegal move: " + shortAlgebraic);
-			} else {
-				result.setSan(shortAlgebraic);
-			}
-		}
-		return result;
+	public boolean isLegalPosition() {
+		return true;
 	}
 
 //	/**
@@ -206,25 +100,16 @@ public class SuicideGame extends LosersGame {
 	 * {@inheritDoc}
 	 */
 	@Override
-	protected void generatePseudoKingMoves(PriorityMoveList moves) {
+	protected void generatePseudoKingMoves(MoveBuffer moves) {
 		Piece piece = isWhitesMove() ? Piece.WK : Piece.BK;
 		long fromBB = getPieceBB(getColorToMove(), PieceType.KING);
 		while (fromBB != 0) {
 			Square fromSquare = GameUtils.bitscanForward(fromBB);
-			long toBB = GameUtils.kingMove(fromSquare) & getNotColorToMoveBB();
 
-			generatePseudoKingCastlingMoves(fromBB, moves);
+			generatePseudoKingCastlingMoves(fromSquare.bit, moves);
 
-			while (toBB != 0) {
-				Square toSquare = GameUtils.bitscanForward(toBB);
-
-				Piece capture = getPiece(toSquare);
-
-				addMove(new Move(fromSquare, toSquare, piece, getColorToMove(),
-						capture), moves);
-				toBB = GameUtils.bitscanClear(toBB);
-				toSquare = GameUtils.bitscanForward(toBB);
-			}
+			addMoves(fromSquare, piece, GameUtils.kingMove(fromSquare)
+					& getNotColorToMoveBB(), moves);
 			fromBB = GameUtils.bitscanClear(fromBB);
 		}
 	}
@@ -236,18 +121,15 @@ public class SuicideGame extends LosersGame {
 	 *{@inheritDoc}
 	 */
 	@Override
-	protected Move testForSanDisambiguationFromCheck(String shortAlgebraic,
-			MoveList matches) throws IllegalArgumentException {
-		Move result = null;
+	protected int testForSanDisambiguationFromCheck(String shortAlgebraic,
+			MoveBuffer matches) throws IllegalArgumentException {
 		if (matches.isEmpty()) {
 			throw new IllegalArgumentException("Invalid move " + shortAlgebraic
 					+ "\n" + toString());
-		} else if (matches.getSize() == 1) {
-			result = matches.get(0);
-		} else {
+		} else if (matches.getSize() > 1) {
 			throw new IllegalArgumentException("Ambiguous move "
 					+ shortAlgebraic + "\n" + toString());
 		}
-		return result;
+		return matches.get(0);
 	}
 }
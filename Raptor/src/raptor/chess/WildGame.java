@@ -67,7 +67,7 @@ public class WildGame extends ClassicGame {
 	}
 	
 	protected void generatePseudoKingCastlingMoves(long fromBB,
-			PriorityMoveList moves) {
+			MoveBuffer moves) {
 		
 		Square kingSquare = getColorToMove() == PieceColor.WHITE ? Square.getSquare((byte)0,
 				whiteKingFile) : Square.getSquare((byte)7, blackKingFile);
@@ -86,8 +86,8 @@ public class WildGame extends ClassicGame {
 							whiteShortRookFile)
 					&& !FischerRandomUtils.isCastlePathInCheck(this, kingSquare,
 							Square.G1, PieceColor.WHITE)) {
-				moves.appendLowPriority(new Move(kingSquare, Square.G1, Piece.WK,
-						PieceColor.WHITE, Piece.EMPTY, Move.SHORT_CASTLING_CHARACTERISTIC));
+				moves.append(EncodedMove.encode(kingSquare, Square.G1, Piece.WK,
+						Piece.EMPTY, PieceType.EMPTY, Move.SHORT_CASTLING_CHARACTERISTIC));
 				
 			}
 			else if (FischerRandomUtils.emptyBetweenFiles(this, (byte)0, whiteShortRookFile,
@@ -98,8 +98,8 @@ public class WildGame extends ClassicGame {
 							whiteShortRookFile)
 					&& !FischerRandomUtils.isCastlePathInCheck(this, kingSquare,
 							Square.C1, PieceColor.WHITE)) {
-				moves.appendLowPriority(new Move(kingSquare, Square.B1, Piece.WK,
-						PieceColor.WHITE, Piece.EMPTY, Move.SHORT_CASTLING_CHARACTERISTIC));
+				moves.append(EncodedMove.encode(kingSquare, Square.B1, Piece.WK,
+						Piece.EMPTY, PieceType.EMPTY, Move.SHORT_CASTLING_CHARACTERISTIC));
 			}
 			
 		}
@@ -117,8 +117,8 @@ public class WildGame extends ClassicGame {
 							whiteLongRookFile)
 					&& !FischerRandomUtils.isCastlePathInCheck(this, kingSquare,
 							Square.C1, PieceColor.WHITE)) {
-				moves.appendLowPriority(new Move(kingSquare, Square.C1, Piece.WK,
-						PieceColor.WHITE, Piece.EMPTY, Move.LONG_CASTLING_CHARACTERISTIC));
+				moves.append(EncodedMove.encode(kingSquare, Square.C1, Piece.WK,
+						Piece.EMPTY, PieceType.EMPTY, Move.LONG_CASTLING_CHARACTERISTIC));
 				
 			}
 			else if (FischerRandomUtils.emptyBetweenFiles(this, (byte)0, whiteKingFile,
@@ -129,8 +129,8 @@ public class WildGame extends ClassicGame {
 							whiteLongRookFile)
 					&& !FischerRandomUtils.isCastlePathInCheck(this, kingSquare,
 							Square.F1, PieceColor.WHITE)) {
-				moves.appendLowPriority(new Move(kingSquare, Square.F1, Piece.WK,
-						PieceColor.WHITE, Piece.EMPTY, Move.LONG_CASTLING_CHARACTERISTIC));
+				moves.append(EncodedMove.encode(kingSquare, Square.F1, Piece.WK,
+						Piece.EMPTY, PieceType.EMPTY, Move.LONG_CASTLING_CHARACTERISTIC));
 			}
 		}	
 		
@@ -147,8 +147,8 @@ public class WildGame extends ClassicGame {
 							PieceColor.BLACK, blackShortRookFile)
 					&& !FischerRandomUtils.isCastlePathInCheck(this,
 							kingSquare, Square.G8, PieceColor.BLACK)) {
-				moves.appendLowPriority(new Move(kingSquare, Square.G8, Piece.BK,
-						PieceColor.BLACK, Piece.EMPTY, Move.SHORT_CASTLING_CHARACTERISTIC));
+				moves.append(EncodedMove.encode(kingSquare, Square.G8, Piece.BK,
+						Piece.EMPTY, PieceType.EMPTY, Move.SHORT_CASTLING_CHARACTERISTIC));
 				
 			}
 			else if (FischerRandomUtils.emptyBetweenFiles(this, (byte)7,
@@ -159,8 +159,8 @@ public class WildGame extends ClassicGame {
 							PieceColor.BLACK, blackShortRookFile)
 					&& !FischerRandomUtils.isCastlePathInCheck(this,
 							kingSquare, Square.B8, PieceColor.BLACK)) {
-				moves.appendLowPriority(new Move(kingSquare, Square.B8, Piece.BK,
-						PieceColor.BLACK, Piece.EMPTY, Move.SHORT_CASTLING_CHARACTERISTIC));
+				moves.append(EncodedMove.encode(kingSquare, Square.B8, Piece.BK,
+						Piece.EMPTY, PieceType.EMPTY, Move.SHORT_CASTLING_CHARACTERISTIC));
 			}
 		}
 		if (getColorToMove() == PieceColor.BLACK
@@ -176,8 +176,8 @@ public class WildGame extends ClassicGame {
 							PieceColor.BLACK, blackLongRookFile)
 					&& !FischerRandomUtils.isCastlePathInCheck(this,
 							kingSquare, Square.C8, PieceColor.BLACK)) {
-				moves.appendLowPriority(new Move(kingSquare, Square.C8, Piece.BK,
-						PieceColor.BLACK, Piece.EMPTY, Move.LONG_CASTLING_CHARACTERISTIC));
+				moves.append(EncodedMove.encode(kingSquare, Square.C8, Piece.BK,
+						Piece.EMPTY, PieceType.EMPTY, Move.LONG_CASTLING_CHARACTERISTIC));
 			}
 			else if (FischerRandomUtils.emptyBetweenFiles(this, (byte)7,
 					        blackKingFile, blackLongRookFile)
@@ -187,8 +187,8 @@ public class WildGame extends ClassicGame {
 							PieceColor.BLACK, blackLongRookFile)
 					&& !FischerRandomUtils.isCastlePathInCheck(this,
 							kingSquare, Square.F8, PieceColor.BLACK)) {
-				moves.appendLowPriority(new Move(kingSquare, Square.F8, Piece.BK,
-						PieceColor.BLACK, Piece.EMPTY, Move.LONG_CASTLING_CHARACTERISTIC));
+				moves.append(EncodedMove.encode(kingSquare, Square.F8, Piece.BK,
+						Piece.EMPTY, PieceType.EMPTY, Move.LONG_CASTLING_CHARACTERISTIC));
 			}
 		}
 		
@@ -0,0 +1,836 @@
+/**
+ * New BSD License
+ * http://www.opensource.org/licenses/bsd-license.php
+ * Copyright 2009-2011 RaptorProject (http://code.google.com/p/raptor-chess-interface/)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the RaptorProject nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package raptor.chess.pgn;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import raptor.chess.EncodedMove;
+import raptor.chess.Game;
+import raptor.chess.GameFactory;
+import raptor.chess.Move;
+import raptor.chess.MoveList;
+import raptor.chess.Result;
+import raptor.chess.Variant;
+import raptor.util.Logger;
+
+/**
+ * A compact binary store of games with an index of the positions reached in
+ * them. A database is written once from any PgnParser, or from games already
+ * parsed, and is memory mapped when it is opened. Loading a game replays its
+ * encoded moves, no SAN is parsed, and the position index answers which games
+ * reach a position without loading any of them.
+ * 
+ * Moves, headers, and results are stored. Games with comments, NAGs or
+ * sub-lines also keep their PGN, they are parsed from it when loaded so none
+ * of it is lost. Positions are keyed by {@link Game#getZobristPositionHash()},
+ * which is stable across runs.
+ * 
+ * <pre>
+ * file layout (big endian)
+ * header: int magic, int version, long pgn length, long pgn last modified,
+ *   int game count, int dictionary size, long dictionary offset,
+ *   long game table offset, long positions offset, int position count,
+ *   int game count per result*
+ * games: byte variant, byte result, short header count,
+ *   (int name id, int value id)*, int move count, int encoded move*,
+ *   int pgn length, byte pgn* (UTF-8, empty if the game has no annotations)
+ * dictionary: int string offset*, UTF string*
+ * game table: long game offset*
+ * positions: long position hash* (sorted), int game index*
+ * </pre>
+ * 
+ * Databases are limited to 2GB so they can be mapped with one buffer.
+ */
+public class GameDatabase implements PgnGameCollection {
+
+	/**
+	 * Writes a GameDatabase. Games are written as they are added. Positions
+	 * are sorted in memory in runs which are merged when the database is
+	 * finished, so memory use is bounded however many games are added.
+	 */
+	public static class DatabaseWriter {
+		private int dictionaryBytes;
+		private final Map<String, Integer> dictionaryIds = new HashMap<String, Integer>();
+		private final List<String> dictionary = new ArrayList<String>();
+		private final File file;
+		private int gameCount;
+		private int maxPositionsInMemory = MAX_RUN_SIZE;
+		private long[] gameOffsets = new long[1024];
+		private final DataOutputStream out;
+		private final File pgnFile;
+		private long position;
+		private int positionCount;
+		private long[] runHashes = new long[1024];
+		private int[] runGames = new int[1024];
+		private int runSize;
+		private final List<File> runs = new ArrayList<File>();
+		private final int[] resultCounts = new int[Result.values().length];
+		private int skippedGames;
+
+		/**
+		 * Creates a writer for the database of pgnFile. pgnFile may be null if
+		 * the games did not come from a file.
+		 */
+		public DatabaseWriter(File file, File pgnFile) throws IOException {
+			this.file = file;
+			this.pgnFile = pgnFile;
+			if (file.getParentFile() != null) {
+				file.getParentFile().mkdirs();
+			}
+			out = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(file), 64 * 1024));
+			// The header is written by finish.
+			out.write(new byte[HEADER_SIZE]);
+			position = HEADER_SIZE;
+		}
+
+		/**
+		 * Closes and deletes the partially written database.
+		 */
+		public void abort() {
+			try {
+				out.close();
+			} catch (IOException ioe) {
+			}
+			deleteRuns();
+			file.delete();
+		}
+
+		/**
+		 * Adds the game to the database. Returns false if the game could not
+		 * be replayed from its encoded moves and was skipped.
+		 */
+		public boolean add(Game game) throws IOException {
+			return add(game, null);
+		}
+
+		/**
+		 * Adds the game to the database with the PGN it was parsed from, which
+		 * is stored and parsed again when the game is loaded. If pgn is null
+		 * the PGN of the game is stored when it has annotations. Returns false
+		 * if the game could not be replayed from its encoded moves and was
+		 * skipped.
+		 */
+		public boolean add(Game game, String pgn) throws IOException {
+			MoveList moves = game.getMoveList();
+			int[] encodedMoves = new int[moves.getSize()];
+			long[] hashes = new long[encodedMoves.length + 1];
+			Game replay;
+			try {
+				replay = createInitialGame(game.getVariant(), game
+						.getHeader(PgnHeader.FEN));
+				hashes[0] = replay.getZobristPositionHash();
+				for (int i = 0; i < encodedMoves.length; i++) {
+					encodedMoves[i] = EncodedMove.encode(moves.get(i));
+					replay.forceMove(replay.createMove(encodedMoves[i]));
+					hashes[i + 1] = replay.getZobristPositionHash();
+				}
+			} catch (RuntimeException re) {
+				LOG.warn("Skipping game which could not be replayed "
+						+ game.getHeader(PgnHeader.White) + " vs "
+						+ game.getHeader(PgnHeader.Black), re);
+				skippedGames++;
+				return false;
+			}
+			if (replay.getZobristPositionHash() != game
+					.getZobristPositionHash()) {
+				LOG.warn("Skipping game whose replay does not match "
+						+ game.getHeader(PgnHeader.White) + " vs "
+						+ game.getHeader(PgnHeader.Black));
+				skippedGames++;
+				return false;
+			}
+
+			if (pgn == null && hasAnnotations(moves)) {
+				pgn = game.toPgn();
+			}
+			byte[] pgnBytes = pgn == null ? new byte[0] : pgn.getBytes(UTF_8);
+
+			if (gameCount == gameOffsets.length) {
+				gameOffsets = Arrays.copyOf(gameOffsets, gameCount * 2);
+			}
+			gameOffsets[gameCount] = position;
+
+			PgnHeader[] headers = game.getAllHeaders();
+			Result result = game.getResult();
+			if (result == null) {
+				result = Result.UNDETERMINED;
+			}
+			out.writeByte(game.getVariant().ordinal());
+			out.writeByte(result.ordinal());
+			out.writeShort(headers.length);
+			for (PgnHeader header : headers) {
+				out.writeInt(intern(header.name()));
+				out.writeInt(intern(game.getHeader(header)));
+			}
+			out.writeInt(encodedMoves.length);
+			for (int encodedMove : encodedMoves) {
+				out.writeInt(encodedMove);
+			}
+			out.writeInt(pgnBytes.length);
+			out.write(pgnBytes);
+			position += 12 + headers.length * 8 + encodedMoves.length * 4
+					+ pgnBytes.length;
+
+			addPositions(hashes, gameCount);
+			gameCount++;
+			resultCounts[result.ordinal()]++;
+
+			// Fail as soon as the database can't be mapped rather than after
+			// every game has been written.
+			if (position + positionCount * 12L > Integer.MAX_VALUE) {
+				throw new IOException("Game database " + file
+						+ " is larger than 2GB.");
+			}
+			return true;
+		}
+
+		/**
+		 * Writes the dictionary, game table, position index and header and
+		 * closes the database.
+		 */
+		public void finish() throws IOException {
+			boolean isFinished = false;
+			try {
+				long dictionaryOffset = position;
+				int stringOffset = 0;
+				for (String string : dictionary) {
+					out.writeInt(stringOffset);
+					stringOffset += utfLength(string);
+				}
+				for (String string : dictionary) {
+					out.writeUTF(string);
+				}
+				position += dictionary.size() * 4L + dictionaryBytes;
+
+				long gameTableOffset = position;
+				for (int i = 0; i < gameCount; i++) {
+					out.writeLong(gameOffsets[i]);
+				}
+				position += gameCount * 8L;
+
+				long positionsOffset = position;
+				writePositions();
+				position += positionCount * 12L;
+				out.close();
+
+				if (position > Integer.MAX_VALUE) {
+					throw new IOException("Game database " + file
+							+ " is larger than 2GB.");
+				}
+
+				try (RandomAccessFile header = new RandomAccessFile(file, "rw")) {
+					header.writeInt(MAGIC);
+					header.writeInt(VERSION);
+					header.writeLong(pgnFile == null ? 0L : pgnFile.length());
+					header.writeLong(pgnFile == null ? 0L : pgnFile
+							.lastModified());
+					header.writeInt(gameCount);
+					header.writeInt(dictionary.size());
+					header.writeLong(dictionaryOffset);
+					header.writeLong(gameTableOffset);
+					header.writeLong(positionsOffset);
+					header.writeInt(positionCount);
+					for (int resultCount : resultCounts) {
+						header.writeInt(resultCount);
+					}
+				}
+				isFinished = true;
+			} finally {
+				deleteRuns();
+				if (!isFinished) {
+					abort();
+				}
+			}
+
+			if (LOG.isInfoEnabled()) {
+				LOG.info("Wrote " + gameCount + " games " + positionCount
+						+ " positions to " + file.getAbsolutePath()
+						+ (skippedGames > 0 ? " skipped " + skippedGames : ""));
+			}
+		}
+
+		public int getGameCount() {
+			return gameCount;
+		}
+
+		/**
+		 * Sets how many positions are held in memory before a sorted run is
+		 * written to a temporary file.
+		 */
+		public void setMaxPositionsInMemory(int maxPositionsInMemory) {
+			this.maxPositionsInMemory = maxPositionsInMemory;
+		}
+
+		private void addPositions(long[] hashes, int game) throws IOException {
+			// A game can reach a position more than once, it is indexed once.
+			Arrays.sort(hashes);
+			for (int i = 0; i < hashes.length; i++) {
+				if (i > 0 && hashes[i] == hashes[i - 1]) {
+					continue;
+				}
+				if (runSize == runHashes.length) {
+					runHashes = Arrays.copyOf(runHashes, runSize * 2);
+					runGames = Arrays.copyOf(runGames, runSize * 2);
+				}
+				runHashes[runSize] = hashes[i];
+				runGames[runSize] = game;
+				runSize++;
+				positionCount++;
+			}
+			if (runSize >= maxPositionsInMemory) {
+				spillRun();
+			}
+		}
+
+		private void deleteRuns() {
+			for (File run : runs) {
+				run.delete();
+			}
+			runs.clear();
+		}
+
+		private int intern(String string) {
+			if (string == null) {
+				string = "";
+			} else if (string.length() > MAX_STRING_LENGTH) {
+				string = string.substring(0, MAX_STRING_LENGTH);
+			}
+			Integer id = dictionaryIds.get(string);
+			if (id == null) {
+				id = dictionary.size();
+				dictionary.add(string);
+				dictionaryIds.put(string, id);
+				dictionaryBytes += utfLength(string);
+			}
+			return id;
+		}
+
+		private void spillRun() throws IOException {
+			sort(runHashes, runGames, 0, runSize - 1);
+			File run = File.createTempFile("raptor", ".pos", file
+					.getParentFile());
+			runs.add(run);
+			try (DataOutputStream runOut = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(run),
+							64 * 1024))) {
+				for (int i = 0; i < runSize; i++) {
+					runOut.writeLong(runHashes[i]);
+					runOut.writeInt(runGames[i]);
+				}
+			}
+			runSize = 0;
+		}
+
+		/**
+		 * Writes the sorted hashes to the database and the matching game
+		 * indexes after them. Runs on disk are merged with the run in memory.
+		 */
+		private void writePositions() throws IOException {
+			if (runs.isEmpty()) {
+				sort(runHashes, runGames, 0, runSize - 1);
+				for (int i = 0; i < runSize; i++) {
+					out.writeLong(runHashes[i]);
+				}
+				for (int i = 0; i < runSize; i++) {
+					out.writeInt(runGames[i]);
+				}
+				return;
+			}
+
+			if (runSize > 0) {
+				spillRun();
+			}
+			File gamesFile = File.createTempFile("raptor", ".pos", file
+					.getParentFile());
+			runs.add(gamesFile);
+
+			List<RunReader> readers = new ArrayList<RunReader>(runs.size());
+			try (DataOutputStream gamesOut = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(gamesFile),
+							64 * 1024))) {
+				PriorityQueue<RunReader> queue = new PriorityQueue<RunReader>();
+				for (File run : runs.subList(0, runs.size() - 1)) {
+					RunReader reader = new RunReader(run);
+					readers.add(reader);
+					if (reader.next()) {
+						queue.add(reader);
+					}
+				}
+				while (!queue.isEmpty()) {
+					RunReader reader = queue.poll();
+					out.writeLong(reader.hash);
+					gamesOut.writeInt(reader.game);
+					if (reader.next()) {
+						queue.add(reader);
+					}
+				}
+			} finally {
+				for (RunReader reader : readers) {
+					reader.close();
+				}
+			}
+
+			try (FileInputStream gamesIn = new FileInputStream(gamesFile)) {
+				byte[] buffer = new byte[64 * 1024];
+				int read;
+				while ((read = gamesIn.read(buffer)) != -1) {
+					out.write(buffer, 0, read);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads a sorted run of positions while merging.
+	 */
+	private static class RunReader implements Comparable<RunReader> {
+		int game;
+		long hash;
+		final DataInputStream in;
+
+		public RunReader(File run) throws IOException {
+			in = new DataInputStream(new BufferedInputStream(
+					new FileInputStream(run), 64 * 1024));
+		}
+
+		public void close() {
+			try {
+				in.close();
+			} catch (IOException ioe) {
+			}
+		}
+
+		public int compareTo(RunReader other) {
+			return compare(hash, game, other.hash, other.game);
+		}
+
+		public boolean next() throws IOException {
+			try {
+				hash = in.readLong();
+				game = in.readInt();
+				return true;
+			} catch (EOFException eofe) {
+				return false;
+			}
+		}
+	}
+
+	private static final Logger LOG = Logger.getLogger(GameDatabase.class);
+
+	private static final int HEADER_SIZE = 60 + 4 * Result.values().length;
+	private static final int MAGIC = 0x52474442;
+	private static final int MAX_RUN_SIZE = 1 << 22;
+	private static final int MAX_STRING_LENGTH = 8192;
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final int VERSION = 3;
+
+	private final ByteBuffer buffer;
+	private final FileChannel channel;
+	private final String[] dictionary;
+	private final int dictionaryOffset;
+	private final int gameCount;
+	private final int gameTableOffset;
+	private final int positionCount;
+	private final int positionsOffset;
+	private final int[] resultCounts = new int[Result.values().length];
+	private final int stringsOffset;
+
+	/**
+	 * Opens and memory maps a database written by a DatabaseWriter.
+	 */
+	public static GameDatabase open(File file) throws IOException {
+		return new GameDatabase(file);
+	}
+
+	/**
+	 * Returns true if databaseFile is a complete database written from
+	 * pgnFile as it is now.
+	 */
+	public static boolean isUpToDate(File pgnFile, File databaseFile) {
+		if (!databaseFile.isFile() || databaseFile.length() < HEADER_SIZE) {
+			return false;
+		}
+		try (DataInputStream in = new DataInputStream(new FileInputStream(
+				databaseFile))) {
+			return in.readInt() == MAGIC && in.readInt() == VERSION
+					&& in.readLong() == pgnFile.length()
+					&& in.readLong() == pgnFile.lastModified();
+		} catch (IOException ioe) {
+			return false;
+		}
+	}
+
+	/**
+	 * Parses the PGN with parser and writes the games to databaseFile.
+	 * pgnFile is recorded so {@link #isUpToDate(File, File)} can tell when
+	 * the database needs to be written again, it may be null. Returns the
+	 * number of games written.
+	 */
+	public static int write(File databaseFile, File pgnFile, PgnParser parser)
+			throws IOException {
+		final DatabaseWriter writer = new DatabaseWriter(databaseFile, pgnFile);
+		boolean isWritten = false;
+		try {
+			parser.addPgnParserListener(new LenientPgnParserListener() {
+				@Override
+				public void errorEncountered(PgnParserError error) {
+				}
+
+				@Override
+				public void gameParsed(Game game, int lineNumber) {
+					try {
+						writer.add(game);
+					} catch (IOException ioe) {
+						throw new RuntimeException(ioe);
+					}
+				}
+			});
+			parser.parse();
+			writer.finish();
+			isWritten = true;
+			return writer.getGameCount();
+		} catch (RuntimeException re) {
+			if (re.getCause() instanceof IOException) {
+				throw (IOException) re.getCause();
+			}
+			throw re;
+		} finally {
+			if (!isWritten) {
+				writer.abort();
+			}
+		}
+	}
+
+	protected GameDatabase(File file) throws IOException {
+		if (file.length() > Integer.MAX_VALUE) {
+			throw new IOException("Game database " + file
+					+ " is larger than 2GB.");
+		}
+		channel = new FileInputStream(file).getChannel();
+		try {
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel
+					.size());
+			if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+				throw new IOException(file + " is not a game database.");
+			}
+			gameCount = buffer.getInt(24);
+			dictionary = new String[buffer.getInt(28)];
+			dictionaryOffset = (int) buffer.getLong(32);
+			gameTableOffset = (int) buffer.getLong(40);
+			positionsOffset = (int) buffer.getLong(48);
+			positionCount = buffer.getInt(56);
+			for (int i = 0; i < resultCounts.length; i++) {
+				resultCounts[i] = buffer.getInt(60 + i * 4);
+			}
+			stringsOffset = dictionaryOffset + dictionary.length * 4;
+		} catch (IOException ioe) {
+			channel.close();
+			throw ioe;
+		}
+	}
+
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * Returns the indexes of the games which reach the position of the
+	 * specified game, in ascending order.
+	 */
+	public int[] findGames(Game position) {
+		return findGames(position.getZobristPositionHash());
+	}
+
+	/**
+	 * Returns the indexes of the games which reach the position with the
+	 * specified {@link Game#getZobristPositionHash()}, in ascending order.
+	 */
+	public int[] findGames(long positionHash) {
+		int low = 0;
+		int high = positionCount;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (getPositionHash(middle) < positionHash) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+
+		int end = low;
+		while (end < positionCount && getPositionHash(end) == positionHash) {
+			end++;
+		}
+
+		int gamesOffset = positionsOffset + positionCount * 8;
+		int[] result = new int[end - low];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = buffer.getInt(gamesOffset + (low + i) * 4);
+		}
+		return result;
+	}
+
+	public int getGameCount() {
+		return gameCount;
+	}
+
+	public String getHeader(int index, PgnHeader header) {
+		return getHeaders(index).get(header.name());
+	}
+
+	public Map<String, String> getHeaders(int index) {
+		int offset = getGameOffset(index);
+		int headerCount = buffer.getShort(offset + 2);
+		Map<String, String> result = new LinkedHashMap<String, String>(
+				headerCount * 2);
+		offset += 4;
+		for (int i = 0; i < headerCount; i++, offset += 8) {
+			result.put(getString(buffer.getInt(offset)), getString(buffer
+					.getInt(offset + 4)));
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the PGN of the game at the specified index. The stored PGN is
+	 * returned for games which have one, the PGN of the loaded game for the
+	 * rest.
+	 */
+	public String getPgn(int index) {
+		String result = getStoredPgn(index);
+		return result != null ? result : loadGame(index).toPgn();
+	}
+
+	public int getResultCount(Result result) {
+		return resultCounts[result.ordinal()];
+	}
+
+	public Result getResult(int index) {
+		return Result.values()[buffer.get(getGameOffset(index) + 1)];
+	}
+
+	public Variant getVariant(int index) {
+		return Variant.values()[buffer.get(getGameOffset(index))];
+	}
+
+	/**
+	 * Returns the game at the specified index with all of its moves made.
+	 * Games with a stored PGN are parsed from it so they keep their
+	 * annotations, the rest are replayed from their encoded moves.
+	 */
+	public Game loadGame(int index) {
+		String pgn = getStoredPgn(index);
+		if (pgn != null) {
+			ListMaintainingPgnParserListener listener = new ListMaintainingPgnParserListener();
+			SimplePgnParser parser = new SimplePgnParser(pgn);
+			parser.addPgnParserListener(listener);
+			parser.parse();
+			if (!listener.getGames().isEmpty()) {
+				return listener.getGames().get(0);
+			}
+			LOG.warn("Stored PGN of game " + index
+					+ " could not be parsed, replaying its moves.");
+		}
+
+		Map<String, String> headers = getHeaders(index);
+		int offset = getGameOffset(index);
+		offset += 4 + headers.size() * 8;
+
+		Game result = createInitialGame(getVariant(index), headers
+				.get(PgnHeader.FEN.name()));
+		result.addState(Game.UPDATING_SAN_STATE);
+		result.addState(Game.UPDATING_ECO_HEADERS_STATE);
+		for (Map.Entry<String, String> header : headers.entrySet()) {
+			result.setHeader(PgnHeader.valueOf(header.getKey()), header
+					.getValue());
+		}
+
+		// SAN is generated as the moves are made, the check and mate suffixes
+		// aren't so they are added here.
+		boolean hasCheck = result.getVariant() != Variant.suicide;
+		int moveCount = buffer.getInt(offset);
+		offset += 4;
+		for (int i = 0; i < moveCount; i++, offset += 4) {
+			Move move = result.createMove(buffer.getInt(offset));
+			result.forceMove(move);
+			if (hasCheck && result.isInCheck()) {
+				move.setSan(move.getSan() + (result.isCheckmate() ? "#" : "+"));
+			}
+		}
+		result.addState(Game.INACTIVE_STATE);
+		return result;
+	}
+
+	protected int getGameOffset(int index) {
+		if (index < 0 || index >= gameCount) {
+			throw new IndexOutOfBoundsException("Invalid game index " + index
+					+ " game count " + gameCount);
+		}
+		return (int) buffer.getLong(gameTableOffset + index * 8);
+	}
+
+	protected long getPositionHash(int index) {
+		return buffer.getLong(positionsOffset + index * 8);
+	}
+
+	/**
+	 * Returns the PGN stored with the game at the specified index, null if
+	 * it has none.
+	 */
+	protected String getStoredPgn(int index) {
+		int offset = getGameOffset(index);
+		int headerCount = buffer.getShort(offset + 2);
+		offset += 4 + headerCount * 8;
+		offset += 4 + buffer.getInt(offset) * 4;
+		int length = buffer.getInt(offset);
+		if (length == 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		ByteBuffer duplicate = buffer.duplicate();
+		duplicate.position(offset + 4);
+		duplicate.get(bytes);
+		return new String(bytes, UTF_8);
+	}
+
+	/**
+	 * Returns the dictionary string with the specified id. Strings are
+	 * decoded the first time they are asked for.
+	 */
+	protected String getString(int id) {
+		String result = dictionary[id];
+		if (result == null) {
+			int offset = stringsOffset + buffer.getInt(dictionaryOffset + id * 4);
+			int length = buffer.getShort(offset) & 0xffff;
+			byte[] bytes = new byte[length + 2];
+			ByteBuffer duplicate = buffer.duplicate();
+			duplicate.position(offset);
+			duplicate.get(bytes);
+			try {
+				result = new DataInputStream(new ByteArrayInputStream(bytes))
+						.readUTF();
+			} catch (IOException ioe) {
+				throw new IllegalStateException("Corrupt string " + id, ioe);
+			}
+			// Strings are immutable so racing threads decoding the same
+			// string is harmless.
+			dictionary[id] = result;
+		}
+		return result;
+	}
+
+	private static int compare(long hash1, int game1, long hash2, int game2) {
+		if (hash1 != hash2) {
+			return hash1 < hash2 ? -1 : 1;
+		}
+		return game1 < game2 ? -1 : game1 == game2 ? 0 : 1;
+	}
+
+	/**
+	 * Returns the game a game with the specified variant and FEN header
+	 * starts from.
+	 */
+	private static Game createInitialGame(Variant variant, String fen) {
+		return fen != null ? GameFactory.createFromFen(fen, variant)
+				: GameFactory.createStartingPosition(variant);
+	}
+
+	/**
+	 * Returns true if any of the moves has a comment, NAG, sub-line or other
+	 * annotation.
+	 */
+	private static boolean hasAnnotations(MoveList moves) {
+		for (int i = 0; i < moves.getSize(); i++) {
+			if (moves.get(i).getAnnotations().length > 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Sorts the pairs by hash then game index.
+	 */
+	private static void sort(long[] hashes, int[] games, int low, int high) {
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			long pivotHash = hashes[middle];
+			int pivotGame = games[middle];
+			int i = low;
+			int j = high;
+			while (i <= j) {
+				while (compare(hashes[i], games[i], pivotHash, pivotGame) < 0) {
+					i++;
+				}
+				while (compare(hashes[j], games[j], pivotHash, pivotGame) > 0) {
+					j--;
+				}
+				if (i <= j) {
+					long hash = hashes[i];
+					hashes[i] = hashes[j];
+					hashes[j] = hash;
+					int game = games[i];
+					games[i] = games[j];
+					games[j] = game;
+					i++;
+					j--;
+				}
+			}
+			// Recurse into the smaller half to bound the stack depth.
+			if (j - low < high - i) {
+				sort(hashes, games, low, j);
+				low = i;
+			} else {
+				sort(hashes, games, i, high);
+				high = j;
+			}
+		}
+	}
+
+	private static int utfLength(String string) {
+		int result = 2;
+		for (int i = 0; i < string.length(); i++) {
+			char c = string.charAt(i);
+			if (c >= 0x0001 && c <= 0x007F) {
+				result++;
+			} else if (c > 0x07FF) {
+				result += 3;
+			} else {
+				result += 2;
+			}
+		}
+		return result;
+	}
+}
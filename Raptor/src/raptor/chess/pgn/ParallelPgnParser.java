@@ -0,0 +1,502 @@
+/**
+ * New BSD License
+ * http://www.opensource.org/licenses/bsd-license.php
+ * Copyright 2009-2011 RaptorProject (http://code.google.com/p/raptor-chess-interface/)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the RaptorProject nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package raptor.chess.pgn;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import raptor.chess.Game;
+import raptor.chess.Result;
+import raptor.util.Logger;
+
+/**
+ * A PgnParser which parses games on multiple threads.
+ * 
+ * A splitter thread reads the PGN and cuts it into chunks of whole games at
+ * lines starting with {@link SimplePgnParser#GAME_START_WORD}. A pool of
+ * workers parses the chunks, and for LenientPgnParserListeners also builds
+ * and validates the games. Results are delivered on the thread calling
+ * {@link #parse()} in the order they appear in the PGN, with the same line
+ * numbers StreamingPgnParser reports.
+ * 
+ * LenientPgnParserListeners receive only
+ * {@link LenientPgnParserListener#gameParsed(Game, int)} and
+ * {@link LenientPgnParserListener#errorEncountered(PgnParserError)}, their
+ * event methods are run by the workers on a private listener. All other
+ * listeners receive every parser event.
+ */
+public class ParallelPgnParser extends AbstractPgnParser {
+	/**
+	 * The games and errors a chunk produced, or the events it fired.
+	 */
+	protected static class ChunkResult {
+		List<Event> events;
+		int lastLineNumber;
+		List<Object> results;
+	}
+
+	/**
+	 * Parses one chunk of lines. Line numbers continue from the line before
+	 * the chunk.
+	 */
+	protected static class ChunkPgnParser extends SimplePgnParser {
+		private int index;
+		private final List<String> lines;
+
+		public ChunkPgnParser(List<String> lines, int firstLineNumber) {
+			super("garbage");
+			this.lines = lines;
+			lineNumber = firstLineNumber - 1;
+		}
+
+		@Override
+		protected void readNextLine() {
+			currentLine = index < lines.size() ? lines.get(index++) : null;
+			if (currentLine != null) {
+				lineNumber++;
+			}
+		}
+	}
+
+	/**
+	 * Builds the games of a chunk on a worker thread. Every game start resets
+	 * the listener, so a chunk starting at a game start parses the same as it
+	 * would sequentially.
+	 */
+	protected static class ChunkPgnParserListener extends
+			LenientPgnParserListener {
+		protected List<Object> results = new ArrayList<Object>();
+
+		@Override
+		public void errorEncountered(PgnParserError error) {
+			results.add(error);
+		}
+
+		@Override
+		public void gameParsed(Game game, int lineNumber) {
+			results.add(new ParsedGame(game, lineNumber));
+		}
+	}
+
+	/**
+	 * A recorded parser event.
+	 */
+	protected static class Event {
+		Object arg1;
+		Object arg2;
+		int lineNumber;
+		int type;
+
+		public Event(int type, int lineNumber, Object arg1, Object arg2) {
+			this.type = type;
+			this.lineNumber = lineNumber;
+			this.arg1 = arg1;
+			this.arg2 = arg2;
+		}
+	}
+
+	/**
+	 * Records the events fired while parsing a chunk.
+	 */
+	protected static class EventRecordingListener implements
+			PgnParserListener {
+		protected List<Event> events = new ArrayList<Event>();
+
+		public void onAnnotation(PgnParser parser, String annotation) {
+			record(ANNOTATION, parser, annotation, null);
+		}
+
+		public void onGameEnd(PgnParser parser, Result result) {
+			record(GAME_END, parser, result, null);
+		}
+
+		public void onGameStart(PgnParser parser) {
+			record(GAME_START, parser, null, null);
+		}
+
+		public void onHeader(PgnParser parser, String headerName,
+				String headerValue) {
+			record(HEADER, parser, headerName, headerValue);
+		}
+
+		public void onMoveNag(PgnParser parser, Nag nag) {
+			record(MOVE_NAG, parser, nag, null);
+		}
+
+		public void onMoveNumber(PgnParser parser, int moveNumber) {
+			record(MOVE_NUMBER, parser, moveNumber, null);
+		}
+
+		public void onMoveSublineEnd(PgnParser parser) {
+			record(SUBLINE_END, parser, null, null);
+		}
+
+		public void onMoveSublineStart(PgnParser parser) {
+			record(SUBLINE_START, parser, null, null);
+		}
+
+		public void onMoveWord(PgnParser parser, String word) {
+			record(MOVE_WORD, parser, word, null);
+		}
+
+		public void onUnknown(PgnParser parser, String unknown) {
+			record(UNKNOWN, parser, unknown, null);
+		}
+
+		protected void record(int type, PgnParser parser, Object arg1,
+				Object arg2) {
+			events.add(new Event(type, parser.getLineNumber(), arg1, arg2));
+		}
+	}
+
+	protected static class ParsedGame {
+		Game game;
+		int lineNumber;
+
+		public ParsedGame(Game game, int lineNumber) {
+			this.game = game;
+			this.lineNumber = lineNumber;
+		}
+	}
+
+	public static final int DEFAULT_GAMES_PER_CHUNK = 64;
+
+	private static final int ANNOTATION = 0;
+	private static final int GAME_END = 1;
+	private static final int GAME_START = 2;
+	private static final int HEADER = 3;
+	private static final int MOVE_NAG = 4;
+	private static final int MOVE_NUMBER = 5;
+	private static final int MOVE_WORD = 6;
+	private static final int SUBLINE_END = 7;
+	private static final int SUBLINE_START = 8;
+	private static final int UNKNOWN = 9;
+
+	private static final Logger LOG = Logger.getLogger(ParallelPgnParser.class);
+
+	/**
+	 * Bounds the lines held by a chunk when a file has very long games.
+	 */
+	private static final int MAX_LINES_PER_CHUNK = 50000;
+
+	private static final AtomicInteger parserCount = new AtomicInteger();
+
+	protected int gamesPerChunk = DEFAULT_GAMES_PER_CHUNK;
+	protected int lineNumber;
+	protected final BufferedReader reader;
+	protected final int threads;
+
+	public ParallelPgnParser(File file) throws IOException {
+		this(new FileInputStream(file), Runtime.getRuntime()
+				.availableProcessors());
+	}
+
+	public ParallelPgnParser(InputStream inputStream, int threads) {
+		this(new InputStreamReader(inputStream), threads);
+	}
+
+	public ParallelPgnParser(Reader reader, int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("threads must be at least 1.");
+		}
+		this.reader = new BufferedReader(reader, 64 * 1024);
+		this.threads = threads;
+	}
+
+	/**
+	 * Returns the line number of the event or game being delivered.
+	 */
+	public int getLineNumber() {
+		return lineNumber;
+	}
+
+	/**
+	 * Parses the PGN and closes the reader. Listener callbacks are made on
+	 * the calling thread. If a listener throws the workers are stopped and
+	 * the exception is rethrown.
+	 */
+	public void parse() {
+		final List<LenientPgnParserListener> lenientListeners = new ArrayList<LenientPgnParserListener>();
+		final List<PgnParserListener> eventListeners = new ArrayList<PgnParserListener>();
+		for (PgnParserListener listener : listeners) {
+			if (listener instanceof LenientPgnParserListener) {
+				lenientListeners.add((LenientPgnParserListener) listener);
+			} else {
+				eventListeners.add(listener);
+			}
+		}
+
+		final int id = parserCount.incrementAndGet();
+		final ExecutorService workers = Executors.newFixedThreadPool(threads,
+				new ThreadFactory() {
+					private int count;
+
+					public synchronized Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable, "PgnParser-" + id
+								+ "-" + ++count);
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		// Bounded so the splitter can't get far ahead of the listeners.
+		final BlockingQueue<Future<ChunkResult>> chunks = new ArrayBlockingQueue<Future<ChunkResult>>(
+				threads * 2);
+
+		Thread splitter = new Thread(new Runnable() {
+			public void run() {
+				try {
+					split(workers, chunks, !lenientListeners.isEmpty(),
+							!eventListeners.isEmpty());
+				} catch (InterruptedException ie) {
+				}
+			}
+		}, "PgnSplitter-" + id);
+		splitter.setDaemon(true);
+
+		long startTime = System.currentTimeMillis();
+		try {
+			splitter.start();
+			while (true) {
+				ChunkResult chunk = chunks.take().get();
+				if (chunk == null) {
+					break;
+				}
+				deliver(chunk, lenientListeners, eventListeners);
+			}
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while parsing pgn", ie);
+		} catch (ExecutionException ee) {
+			if (ee.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) ee.getCause();
+			}
+			throw new RuntimeException(ee.getCause());
+		} finally {
+			splitter.interrupt();
+			workers.shutdownNow();
+			try {
+				reader.close();
+			} catch (IOException ioe) {
+			}
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("Parsed pgn on " + threads + " threads in "
+					+ (System.currentTimeMillis() - startTime) + "ms");
+		}
+	}
+
+	public void setGamesPerChunk(int gamesPerChunk) {
+		this.gamesPerChunk = gamesPerChunk;
+	}
+
+	/**
+	 * Delivers the results of a chunk to the listeners.
+	 */
+	protected void deliver(ChunkResult chunk,
+			List<LenientPgnParserListener> lenientListeners,
+			List<PgnParserListener> eventListeners) {
+		if (!lenientListeners.isEmpty()) {
+			for (Object result : chunk.results) {
+				if (result instanceof ParsedGame) {
+					ParsedGame parsedGame = (ParsedGame) result;
+					lineNumber = parsedGame.lineNumber;
+					for (LenientPgnParserListener listener : lenientListeners) {
+						listener.gameParsed(parsedGame.game, lineNumber);
+					}
+				} else {
+					PgnParserError error = (PgnParserError) result;
+					lineNumber = error.getLineNumber();
+					for (LenientPgnParserListener listener : lenientListeners) {
+						listener.errorEncountered(error);
+					}
+				}
+			}
+		}
+
+		if (!eventListeners.isEmpty()) {
+			for (Event event : chunk.events) {
+				lineNumber = event.lineNumber;
+				for (PgnParserListener listener : eventListeners) {
+					fire(listener, event);
+				}
+			}
+		}
+		lineNumber = chunk.lastLineNumber;
+	}
+
+	protected void fire(PgnParserListener listener, Event event) {
+		switch (event.type) {
+		case ANNOTATION:
+			listener.onAnnotation(this, (String) event.arg1);
+			break;
+		case GAME_END:
+			listener.onGameEnd(this, (Result) event.arg1);
+			break;
+		case GAME_START:
+			listener.onGameStart(this);
+			break;
+		case HEADER:
+			listener.onHeader(this, (String) event.arg1, (String) event.arg2);
+			break;
+		case MOVE_NAG:
+			listener.onMoveNag(this, (Nag) event.arg1);
+			break;
+		case MOVE_NUMBER:
+			listener.onMoveNumber(this, (Integer) event.arg1);
+			break;
+		case MOVE_WORD:
+			listener.onMoveWord(this, (String) event.arg1);
+			break;
+		case SUBLINE_END:
+			listener.onMoveSublineEnd(this);
+			break;
+		case SUBLINE_START:
+			listener.onMoveSublineStart(this);
+			break;
+		case UNKNOWN:
+			listener.onUnknown(this, (String) event.arg1);
+			break;
+		}
+	}
+
+	/**
+	 * Runs on the splitter thread. Reads the PGN, submits each chunk to the
+	 * workers and queues its future in order. A null result marks the end.
+	 */
+	protected void split(ExecutorService workers,
+			BlockingQueue<Future<ChunkResult>> chunks,
+			final boolean buildGames, final boolean recordEvents)
+			throws InterruptedException {
+		try {
+			List<String> lines = new ArrayList<String>();
+			int firstLineNumber = 1;
+			int currentLineNumber = 0;
+			int gamesInChunk = 0;
+			boolean isInComment = false;
+
+			String line;
+			while ((line = reader.readLine()) != null) {
+				currentLineNumber++;
+				if (!isInComment
+						&& line.startsWith(SimplePgnParser.GAME_START_WORD)) {
+					if (gamesInChunk >= gamesPerChunk
+							|| lines.size() >= MAX_LINES_PER_CHUNK) {
+						chunks.put(workers.submit(createChunkTask(lines,
+								firstLineNumber, buildGames, recordEvents)));
+						lines = new ArrayList<String>();
+						firstLineNumber = currentLineNumber;
+						gamesInChunk = 0;
+					}
+					gamesInChunk++;
+				}
+				lines.add(line);
+				isInComment = isInComment(line, isInComment);
+
+				if (Thread.interrupted()) {
+					throw new InterruptedException();
+				}
+			}
+			if (!lines.isEmpty()) {
+				chunks.put(workers.submit(createChunkTask(lines,
+						firstLineNumber, buildGames, recordEvents)));
+			}
+			chunks.put(completed(null, null));
+		} catch (IOException ioe) {
+			chunks.put(completed(null, ioe));
+		} catch (RuntimeException re) {
+			chunks.put(completed(null, re));
+		}
+	}
+
+	private Future<ChunkResult> completed(final ChunkResult result,
+			final Exception exception) {
+		FutureTask<ChunkResult> future = new FutureTask<ChunkResult>(
+				new Callable<ChunkResult>() {
+					public ChunkResult call() throws Exception {
+						if (exception != null) {
+							throw exception;
+						}
+						return result;
+					}
+				});
+		future.run();
+		return future;
+	}
+
+	private Callable<ChunkResult> createChunkTask(final List<String> lines,
+			final int firstLineNumber, final boolean buildGames,
+			final boolean recordEvents) {
+		return new Callable<ChunkResult>() {
+			public ChunkResult call() {
+				ChunkPgnParser parser = new ChunkPgnParser(lines,
+						firstLineNumber);
+				ChunkPgnParserListener gameListener = null;
+				EventRecordingListener eventListener = null;
+				if (buildGames) {
+					parser.addPgnParserListener(gameListener = new ChunkPgnParserListener());
+				}
+				if (recordEvents) {
+					parser.addPgnParserListener(eventListener = new EventRecordingListener());
+				}
+				parser.parse();
+
+				ChunkResult result = new ChunkResult();
+				result.lastLineNumber = firstLineNumber + lines.size() - 1;
+				if (gameListener != null) {
+					result.results = gameListener.results;
+				}
+				if (eventListener != null) {
+					result.events = eventListener.events;
+				}
+				return result;
+			}
+		};
+	}
+
+	/**
+	 * Returns true if line leaves a {} comment open. Tag lines never do.
+	 */
+	private boolean isInComment(String line, boolean isInComment) {
+		if (!isInComment && line.startsWith("[")) {
+			return false;
+		}
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (c == '{') {
+				isInComment = true;
+			} else if (c == '}') {
+				isInComment = false;
+			}
+		}
+		return isInComment;
+	}
+}
@@ -0,0 +1,462 @@
+/**
+ * New BSD License
+ * http://www.opensource.org/licenses/bsd-license.php
+ * Copyright 2009-2011 RaptorProject (http://code.google.com/p/raptor-chess-interface/)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the RaptorProject nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package raptor.chess.pgn;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import raptor.chess.Game;
+import raptor.chess.Result;
+import raptor.util.Logger;
+
+/**
+ * An on disk index of the games in a PGN file. The file is scanned once
+ * through a FileChannel, recording the byte offset, length, and headers of
+ * every game into the index file. Afterwards headers and game text are read
+ * back from disk on request and a game is only parsed when it is loaded, so
+ * memory use stays flat no matter how large the PGN file is.
+ * 
+ * An existing index file is reused if it was built from a PGN file with the
+ * same length and modification time.
+ * 
+ * <pre>
+ * index file layout (big endian)
+ * int  magic, int version, long pgn length, long pgn last modified,
+ * long table offset, int game count, int game count per result*
+ * per game header records: short tag count, (UTF name, UTF value)*
+ * table: per game long offset, int length, long record offset, int record length
+ * </pre>
+ * 
+ * Reads use positional channel reads and are safe from multiple threads.
+ */
+public class PgnFileIndex implements PgnGameCollection {
+	/**
+	 * Notified while a PGN file is being indexed. Throw a RuntimeException to
+	 * cancel indexing.
+	 */
+	public static interface IndexingListener {
+		public void gamesIndexed(int gameCount, long bytesScanned);
+	}
+
+	private static final Logger LOG = Logger.getLogger(PgnFileIndex.class);
+
+	private static final int BUFFER_SIZE = 1024 * 1024;
+	private static final int FILE_HEADER_SIZE = 36 + 4 * Result.values().length;
+	private static final int MAGIC = 0x52504749;
+	private static final int MAX_TAG_LINE_LENGTH = 4096;
+	private static final int NOTIFY_EVERY_GAMES = 500;
+	private static final int TABLE_ENTRY_SIZE = 24;
+	private static final int TABLE_OFFSET_POSITION = 24;
+	private static final int VERSION = 2;
+
+	private final Charset charset;
+	private final int gameCount;
+	private final int[] resultCounts = new int[Result.values().length];
+	private final FileChannel indexChannel;
+	private final FileChannel pgnChannel;
+	private final long tableOffset;
+
+	/**
+	 * Opens the index of pgnFile stored in indexFile, building it first if
+	 * indexFile does not exist or is out of date. PGN text is decoded with the
+	 * platform charset, the same as StreamingPgnParser.
+	 */
+	public static PgnFileIndex open(File pgnFile, File indexFile,
+			IndexingListener listener) throws IOException {
+		if (!isUpToDate(pgnFile, indexFile)) {
+			build(pgnFile, indexFile, listener);
+		}
+		return new PgnFileIndex(pgnFile, indexFile, Charset.defaultCharset());
+	}
+
+	protected PgnFileIndex(File pgnFile, File indexFile, Charset charset)
+			throws IOException {
+		this.charset = charset;
+		pgnChannel = new FileInputStream(pgnFile).getChannel();
+		indexChannel = new FileInputStream(indexFile).getChannel();
+
+		ByteBuffer header = read(indexChannel, 0, FILE_HEADER_SIZE);
+		header.position(TABLE_OFFSET_POSITION);
+		tableOffset = header.getLong();
+		gameCount = header.getInt();
+		for (int i = 0; i < resultCounts.length; i++) {
+			resultCounts[i] = header.getInt();
+		}
+	}
+
+	public void close() throws IOException {
+		try {
+			pgnChannel.close();
+		} finally {
+			indexChannel.close();
+		}
+	}
+
+	public int getGameCount() {
+		return gameCount;
+	}
+
+	/**
+	 * Returns the number of games whose Result tag is the specified result.
+	 */
+	public int getResultCount(Result result) {
+		return resultCounts[result.ordinal()];
+	}
+
+	/**
+	 * Returns the PGN text of the game at the specified index as it appears
+	 * in the file.
+	 */
+	public String getPgn(int index) throws IOException {
+		ByteBuffer entry = readTableEntry(index);
+		long offset = entry.getLong();
+		int length = entry.getInt();
+		ByteBuffer text = read(pgnChannel, offset, length);
+		return new String(text.array(), 0, length, charset);
+	}
+
+	/**
+	 * Returns the value of the header for the game at the specified index,
+	 * null if the game doesn't have it.
+	 */
+	public String getHeader(int index, PgnHeader header) throws IOException {
+		return getHeaders(index).get(header.name());
+	}
+
+	/**
+	 * Returns the headers of the game at the specified index in the order
+	 * they appear in the PGN file.
+	 */
+	public Map<String, String> getHeaders(int index) throws IOException {
+		ByteBuffer entry = readTableEntry(index);
+		entry.position(12);
+		long recordOffset = entry.getLong();
+		int recordLength = entry.getInt();
+
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+				read(indexChannel, recordOffset, recordLength).array(), 0,
+				recordLength));
+		int tagCount = in.readShort();
+		Map<String, String> result = new LinkedHashMap<String, String>(
+				tagCount * 2);
+		for (int i = 0; i < tagCount; i++) {
+			result.put(in.readUTF(), in.readUTF());
+		}
+		return result;
+	}
+
+	/**
+	 * Parses and returns the game at the specified index, null if it could
+	 * not be parsed.
+	 */
+	public Game loadGame(int index) throws IOException {
+		String text = getPgn(index);
+		if (text.trim().length() == 0) {
+			return null;
+		}
+		ListMaintainingPgnParserListener listener = new ListMaintainingPgnParserListener();
+		SimplePgnParser parser = new SimplePgnParser(text);
+		parser.addPgnParserListener(listener);
+		parser.parse();
+		return listener.getGames().isEmpty() ? null : listener.getGames()
+				.get(0);
+	}
+
+	protected ByteBuffer readTableEntry(int index) throws IOException {
+		if (index < 0 || index >= gameCount) {
+			throw new IndexOutOfBoundsException("Invalid game index " + index
+					+ " game count " + gameCount);
+		}
+		return read(indexChannel, tableOffset + (long) index
+				* TABLE_ENTRY_SIZE, TABLE_ENTRY_SIZE);
+	}
+
+	/**
+	 * Scans pgnFile and writes its index to indexFile.
+	 */
+	protected static void build(File pgnFile, File indexFile,
+			IndexingListener listener) throws IOException {
+		long startTime = System.currentTimeMillis();
+		File tableFile = new File(indexFile.getPath() + ".tmp");
+		if (indexFile.getParentFile() != null) {
+			indexFile.getParentFile().mkdirs();
+		}
+
+		Scanner scanner = new Scanner(indexFile, tableFile, Charset
+				.defaultCharset(), listener);
+		try (FileInputStream in = new FileInputStream(pgnFile)) {
+			FileChannel channel = in.getChannel();
+			scanner.writeFileHeader(pgnFile);
+
+			ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+			long position = 0;
+			while (channel.read(buffer) != -1) {
+				buffer.flip();
+				while (buffer.hasRemaining()) {
+					scanner.scan(buffer.get(), position++);
+				}
+				buffer.clear();
+			}
+			scanner.finish(position);
+		} finally {
+			scanner.close();
+			tableFile.delete();
+		}
+
+		if (LOG.isInfoEnabled()) {
+			LOG.info("Indexed " + scanner.gameCount + " games in "
+					+ pgnFile.getAbsolutePath() + " in "
+					+ (System.currentTimeMillis() - startTime) + "ms");
+		}
+	}
+
+	/**
+	 * Returns true if indexFile is a complete index of pgnFile as it is now.
+	 */
+	protected static boolean isUpToDate(File pgnFile, File indexFile) {
+		if (!indexFile.isFile()
+				|| indexFile.length() < FILE_HEADER_SIZE) {
+			return false;
+		}
+		try (DataInputStream in = new DataInputStream(new FileInputStream(
+				indexFile))) {
+			return in.readInt() == MAGIC && in.readInt() == VERSION
+					&& in.readLong() == pgnFile.length()
+					&& in.readLong() == pgnFile.lastModified()
+					&& in.readLong() != 0L;
+		} catch (IOException ioe) {
+			return false;
+		}
+	}
+
+	private static ByteBuffer read(FileChannel channel, long position,
+			int length) throws IOException {
+		ByteBuffer result = ByteBuffer.allocate(length);
+		while (result.hasRemaining()) {
+			if (channel.read(result, position + result.position()) == -1) {
+				throw new EOFException("Unexpected end of file at "
+						+ (position + result.position()));
+			}
+		}
+		result.flip();
+		return result;
+	}
+
+	/**
+	 * The state machine which finds the games in a PGN file one byte at a
+	 * time. A game starts at a tag line ("[") which follows movetext, or at
+	 * the first non blank line of the file. Tag like lines inside {}
+	 * comments are ignored.
+	 */
+	private static class Scanner {
+		private final Charset charset;
+		private long gameOffset = -1;
+		private int gameCount;
+		private boolean inComment;
+		private boolean inTags;
+		private final File indexFile;
+		private long indexPosition;
+		private final DataOutputStream indexOut;
+		private boolean isLineStart = true;
+		private final IndexingListener listener;
+		private final int[] resultCounts = new int[Result.values().length];
+		private final ByteArrayOutputStream record = new ByteArrayOutputStream();
+		private final DataOutputStream recordOut = new DataOutputStream(record);
+		private final DataOutputStream tableOut;
+		private final ByteArrayOutputStream tagLine = new ByteArrayOutputStream();
+		private boolean inTagLine;
+		private final Map<String, String> tags = new LinkedHashMap<String, String>();
+
+		public Scanner(File indexFile, File tableFile, Charset charset,
+				IndexingListener listener) throws IOException {
+			this.indexFile = indexFile;
+			this.charset = charset;
+			this.listener = listener;
+			indexOut = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(indexFile), 64 * 1024));
+			tableOut = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(tableFile), 64 * 1024));
+		}
+
+		public void close() {
+			try {
+				indexOut.close();
+			} catch (IOException ioe) {
+			}
+			try {
+				tableOut.close();
+			} catch (IOException ioe) {
+			}
+		}
+
+		/**
+		 * Ends the last game, appends the table to the index and fills in the
+		 * table offset, game count and result counts.
+		 */
+		public void finish(long length) throws IOException {
+			if (inTagLine) {
+				endTagLine();
+			}
+			endGame(length);
+			tableOut.close();
+			indexOut.flush();
+
+			File tableFile = new File(indexFile.getPath() + ".tmp");
+			try (FileInputStream table = new FileInputStream(tableFile)) {
+				byte[] buffer = new byte[64 * 1024];
+				int read;
+				while ((read = table.read(buffer)) != -1) {
+					indexOut.write(buffer, 0, read);
+				}
+			}
+			indexOut.close();
+
+			try (RandomAccessFile file = new RandomAccessFile(indexFile, "rw")) {
+				file.seek(TABLE_OFFSET_POSITION);
+				file.writeLong(indexPosition);
+				file.writeInt(gameCount);
+				for (int resultCount : resultCounts) {
+					file.writeInt(resultCount);
+				}
+			}
+		}
+
+		public void scan(byte b, long position) throws IOException {
+			if (inTagLine) {
+				if (b == '\n') {
+					endTagLine();
+					isLineStart = true;
+				} else if (b != '\r'
+						&& tagLine.size() < MAX_TAG_LINE_LENGTH) {
+					tagLine.write(b);
+				}
+			} else if (inComment) {
+				if (b == '}') {
+					inComment = false;
+				}
+				isLineStart = b == '\n';
+			} else if (isLineStart) {
+				if (b == '[') {
+					if (!inTags) {
+						endGame(position);
+						gameOffset = position;
+						inTags = true;
+					}
+					inTagLine = true;
+					isLineStart = false;
+				} else if (b != '\n' && b != '\r' && b != ' ' && b != '\t') {
+					if (gameOffset == -1) {
+						gameOffset = position;
+					}
+					inTags = false;
+					inComment = b == '{';
+					isLineStart = false;
+				}
+			} else if (b == '\n') {
+				isLineStart = true;
+			} else if (b == '{') {
+				inComment = true;
+			}
+		}
+
+		public void writeFileHeader(File pgnFile) throws IOException {
+			indexOut.writeInt(MAGIC);
+			indexOut.writeInt(VERSION);
+			indexOut.writeLong(pgnFile.length());
+			indexOut.writeLong(pgnFile.lastModified());
+			// The table offset and counts are filled in by finish.
+			indexOut.writeLong(0L);
+			indexOut.writeInt(0);
+			for (int i = 0; i < resultCounts.length; i++) {
+				indexOut.writeInt(0);
+			}
+			indexPosition = FILE_HEADER_SIZE;
+		}
+
+		private void endGame(long position) throws IOException {
+			if (gameOffset == -1) {
+				return;
+			}
+
+			record.reset();
+			recordOut.writeShort(tags.size());
+			for (Map.Entry<String, String> tag : tags.entrySet()) {
+				recordOut.writeUTF(tag.getKey());
+				recordOut.writeUTF(tag.getValue());
+			}
+			recordOut.flush();
+			record.writeTo(indexOut);
+
+			tableOut.writeLong(gameOffset);
+			tableOut.writeInt((int) Math.min(position - gameOffset,
+					Integer.MAX_VALUE));
+			tableOut.writeLong(indexPosition);
+			tableOut.writeInt(record.size());
+
+			indexPosition += record.size();
+			gameCount++;
+			Result result = Result.get(tags.get(PgnHeader.Result.name()));
+			if (result != null) {
+				resultCounts[result.ordinal()]++;
+			}
+			gameOffset = -1;
+			tags.clear();
+
+			if (listener != null && gameCount % NOTIFY_EVERY_GAMES == 0) {
+				listener.gamesIndexed(gameCount, position);
+			}
+		}
+
+		/**
+		 * Parses a tag line of the form [Name "Value"], the leading [ is not
+		 * included.
+		 */
+		private void endTagLine() {
+			String line = new String(tagLine.toByteArray(), charset);
+			tagLine.reset();
+			inTagLine = false;
+
+			int nameEnd = line.indexOf(' ');
+			int valueStart = line.indexOf('"');
+			int valueEnd = line.lastIndexOf('"');
+			if (nameEnd > 0 && valueStart > nameEnd && valueEnd > valueStart
+					&& tags.size() < Short.MAX_VALUE) {
+				String value = line.substring(valueStart + 1, valueEnd)
+						.replace("\\\"", "\"").replace("\\\\", "\\");
+				tags.put(line.substring(0, nameEnd), truncate(value));
+			}
+		}
+
+		/**
+		 * Keeps values within what DataOutputStream.writeUTF can write.
+		 */
+		private String truncate(String value) {
+			return value.length() > 8192 ? value.substring(0, 8192) : value;
+		}
+	}
+}
@@ -0,0 +1,53 @@
+/**
+ * New BSD License
+ * http://www.opensource.org/licenses/bsd-license.php
+ * Copyright 2009-2011 RaptorProject (http://code.google.com/p/raptor-chess-interface/)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the RaptorProject nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package raptor.chess.pgn;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+
+import raptor.chess.Game;
+import raptor.chess.Result;
+
+/**
+ * A collection of games kept on disk which are only loaded when asked for.
+ * Implementations are safe to read from multiple threads.
+ */
+public interface PgnGameCollection extends Closeable {
+
+	public int getGameCount();
+
+	/**
+	 * Returns the headers of the game at the specified index keyed by header
+	 * name.
+	 */
+	public Map<String, String> getHeaders(int index) throws IOException;
+
+	/**
+	 * Returns the number of games with the specified result. The counts are
+	 * taken when the collection is written, so no game is read.
+	 */
+	public int getResultCount(Result result);
+
+	/**
+	 * Returns the PGN of the game at the specified index.
+	 */
+	public String getPgn(int index) throws IOException;
+
+	/**
+	 * Returns the game at the specified index, null if it could not be
+	 * loaded.
+	 */
+	public Game loadGame(int index) throws IOException;
+}
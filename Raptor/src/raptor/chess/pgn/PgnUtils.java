@@ -18,6 +18,7 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 import java.math.BigDecimal;
 import java.text.DateFormat;
 import java.text.ParseException;
@@ -135,6 +136,18 @@ public class PgnUtils {
 		return result;
 	}
 
+	/**
+	 * Writes the games at the specified indexes of the collection to the
+	 * writer, each followed by a blank line.
+	 */
+	public static void writePgn(Writer writer, PgnGameCollection collection,
+			int[] indexes) throws IOException {
+		for (int index : indexes) {
+			writer.write(collection.getPgn(index).trim() + "\n\n");
+		}
+		writer.flush();
+	}
+
 	/**
 	 * Returns the PgnHeader line for the specified header name and value.
 	 */
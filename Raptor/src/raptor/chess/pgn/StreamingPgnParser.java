@@ -21,15 +21,22 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 
 public class StreamingPgnParser extends SimplePgnParser {
-	private int charsParsed = 0;
-	private final int maxChars;
+	private long charsParsed = 0;
+	private final long maxChars;
 	private final BufferedReader reader;
 
-	public StreamingPgnParser(File file, int maxChars) throws IOException {
+	/**
+	 * Creates a parser which reads the whole file.
+	 */
+	public StreamingPgnParser(File file) throws IOException {
+		this(new FileInputStream(file), Long.MAX_VALUE);
+	}
+
+	public StreamingPgnParser(File file, long maxChars) throws IOException {
 		this(new FileInputStream(file), maxChars);
 	}
 
-	public StreamingPgnParser(InputStream reader, int maxChars) throws IOException {
+	public StreamingPgnParser(InputStream reader, long maxChars) throws IOException {
 		super("garbage");
 		this.reader = new BufferedReader(new InputStreamReader(reader), 5000);
 		this.maxChars = maxChars;
@@ -5,10 +5,12 @@ import chesspresso.game.Game;
 import chesspresso.move.Move;
 import chesspresso.pgn.PGNReader;
 import chesspresso.pgn.PGNSyntaxError;
+import chesspresso.pgn.PGNWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
+import java.io.StringWriter;
 
 import raptor.chess.GameFactory;
 import raptor.chess.Variant;
@@ -113,6 +115,16 @@ public class ChesspressoPgnParser extends AbstractPgnParser {
 		return raptorGame;
 	}
 
+	/**
+	 * Returns the PGN of a Chesspresso game including its comments, NAGs and
+	 * variations.
+	 */
+	public static String toPgn(Game game) {
+		StringWriter result = new StringWriter(2500);
+		new PGNWriter(result).write(game.getModel());
+		return result.toString();
+	}
+
 	
 
 }
@@ -39,6 +39,12 @@ public class GameUtils implements GameConstants {
 	private static long[] KING_ATTACKS = new long[64];
 	private static long[] KNIGHT_ATTACKS = new long[64];
 
+	// Squares strictly between two aligned squares, and the full line
+	// through them. Both are 0 if the squares do not share a rank, file or
+	// diagonal.
+	private static long[][] BETWEEN = new long[64][64];
+	private static long[][] LINE = new long[64][64];
+
 	public static final Logger LOG = Logger.getLogger(GameUtils.class);
 
 	private static final PieceColor[] OPPOSITE_COLOR = { PieceColor.BLACK, PieceColor.WHITE };
@@ -46,6 +52,16 @@ public class GameUtils implements GameConstants {
 	static {
 		initKingAttacks();
 		initKnightAttacks();
+		initBetweenAndLines();
+	}
+
+	/**
+	 * Returns a bitboard of the squares strictly between the two specified
+	 * squares. Returns 0 if the squares are not on the same rank, file or
+	 * diagonal.
+	 */
+	public static final long betweenBB(Square square1, Square square2) {
+		return BETWEEN[square1.ordinal()][square2.ordinal()];
 	}
 
 	/**
@@ -634,6 +650,14 @@ public class GameUtils implements GameConstants {
 		return PieceColor.WHITE.equals(coloredPiece.color);
 	}
 
+	/**
+	 * Returns a bitboard of the entire rank, file or diagonal running through
+	 * both specified squares. Returns 0 if the squares are not aligned.
+	 */
+	public static final long lineBB(Square square1, Square square2) {
+		return LINE[square1.ordinal()][square2.ordinal()];
+	}
+
 	public static final long kingMove(Square square) {
 		return KING_ATTACKS[square.index];
 	}
@@ -709,6 +733,32 @@ public class GameUtils implements GameConstants {
 		return moveOne(direction, toMovePawns) & empty;
 	}
 
+	/**
+	 * Returns the squares a piece of the specified type could attack square
+	 * from, given the empty and occupied squares. Since these attacks are
+	 * symmetric, and-ing the result with a side's pieces of that type gives
+	 * the pieces which can move to square. Pawns are not supported.
+	 */
+	public static final long pieceAttacksTo(PieceType pieceType,
+			Square square, long emptySquares, long occupied) {
+		switch (pieceType) {
+		case KNIGHT:
+			return knightMove(square);
+		case BISHOP:
+			return diagonalMove(square, emptySquares, occupied);
+		case ROOK:
+			return orthogonalMove(square, emptySquares, occupied);
+		case QUEEN:
+			return diagonalMove(square, emptySquares, occupied)
+					| orthogonalMove(square, emptySquares, occupied);
+		case KING:
+			return kingMove(square);
+		default:
+			throw new IllegalArgumentException("Unsupported piece type: "
+					+ pieceType);
+		}
+	}
+
 	public static final int populationCount(long bitboard) {
 		return Long.bitCount(bitboard);
 	}
@@ -860,6 +910,42 @@ public class GameUtils implements GameConstants {
 		return northOne(whitePawns) & empty;
 	}
 
+	private static final void initBetweenAndLines() {
+		byte[][] directions = { { 0, 1 }, { 1, 0 }, { 1, 1 }, { 1, -1 } };
+		for (byte rank = 0; rank < 8; rank++) {
+			for (byte file = 0; file < 8; file++) {
+				Square from = Square.getSquare(rank, file);
+				for (byte[] direction : directions) {
+					// The whole line through from in this direction.
+					long lineBB = from.bit;
+					for (int sign = -1; sign <= 1; sign += 2) {
+						byte r = (byte) (rank + sign * direction[0]);
+						byte f = (byte) (file + sign * direction[1]);
+						while (isInBounds(r, f)) {
+							lineBB |= Square.getSquare(r, f).bit;
+							r += sign * direction[0];
+							f += sign * direction[1];
+						}
+					}
+
+					for (int sign = -1; sign <= 1; sign += 2) {
+						long betweenBB = 0L;
+						byte r = (byte) (rank + sign * direction[0]);
+						byte f = (byte) (file + sign * direction[1]);
+						while (isInBounds(r, f)) {
+							Square to = Square.getSquare(r, f);
+							BETWEEN[from.ordinal()][to.ordinal()] = betweenBB;
+							LINE[from.ordinal()][to.ordinal()] = lineBB;
+							betweenBB |= to.bit;
+							r += sign * direction[0];
+							f += sign * direction[1];
+						}
+					}
+				}
+			}
+		}
+	}
+
 	private static final void initKingAttacks() {
 		for (byte rank = 0; rank < 8; rank++) {
 			for (byte file = 0; file < 8; file++) {
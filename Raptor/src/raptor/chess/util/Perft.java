@@ -0,0 +1,340 @@
+/**
+ * New BSD License
+ * http://www.opensource.org/licenses/bsd-license.php
+ * Copyright 2009-2011 RaptorProject (http://code.google.com/p/raptor-chess-interface/)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the RaptorProject nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package raptor.chess.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import raptor.chess.EncodedMove;
+import raptor.chess.Game;
+import raptor.chess.GameConstants;
+import raptor.chess.GameFactory;
+import raptor.chess.MoveBuffer;
+import raptor.chess.Variant;
+
+/**
+ * Counts the leaf nodes of the legal move tree below a position (perft), or
+ * the leaf nodes below each legal move (divide). Used to validate and measure
+ * the move generators of all the variants.
+ * 
+ * <p>
+ * The root moves are split across a ForkJoinPool. Each root move is searched
+ * on its own deepCopy of the game so the game passed in is never modified. An
+ * optional transposition table keyed by the Zobrist hash of the position
+ * shares subtree counts between all of the threads.
+ * </p>
+ * 
+ * Usage from the command line:
+ * 
+ * <pre>
+ * java raptor.chess.util.Perft [-divide] [-threads n] [-tt entries] variant depth [fen]
+ * </pre>
+ */
+public class Perft implements GameConstants {
+
+	/**
+	 * A lockless transposition table of leaf node counts. Each entry stores
+	 * the key xored with the count so a torn write from another thread is
+	 * detected as a miss instead of returning a bad count.
+	 */
+	public static final class TranspositionTable {
+		private final long[] counts;
+		private final long[] keys;
+		private final int mask;
+
+		public TranspositionTable(int size) {
+			int capacity = Integer.highestOneBit(Math.max(size, 2));
+			keys = new long[capacity];
+			counts = new long[capacity];
+			mask = capacity - 1;
+		}
+
+		/**
+		 * Returns the count stored for key, or -1 if there isn't one.
+		 */
+		public long get(long key) {
+			int index = (int) (key ^ key >>> 32) & mask;
+			long count = counts[index];
+			return (keys[index] ^ count) == key ? count : -1L;
+		}
+
+		public void put(long key, long count) {
+			int index = (int) (key ^ key >>> 32) & mask;
+			counts[index] = count;
+			keys[index] = key ^ count;
+		}
+	}
+
+	/**
+	 * Searches the subtree below a single root move on a copy of the game.
+	 */
+	protected static class RootMoveTask extends RecursiveTask<Long> {
+		private static final long serialVersionUID = 1L;
+
+		private final int depth;
+		private final Game game;
+		private final int move;
+		private final TranspositionTable table;
+
+		public RootMoveTask(Game game, int move, int depth,
+				TranspositionTable table) {
+			this.game = game;
+			this.move = move;
+			this.depth = depth;
+			this.table = table;
+		}
+
+		@Override
+		protected Long compute() {
+			Game copy = copyForSearch(game);
+			copy.forceMove(copy.createMove(move));
+			return perft(copy, depth - 1, createBuffers(depth), table);
+		}
+	}
+
+	public static final String STARTING_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+	private static final long DEPTH_KEY = 0x9E3779B97F4A7C15L;
+
+	private static final long DROP_COUNT_KEY = 0xC2B2AE3D27D4EB4FL;
+
+	private static final PieceType[] DROP_PIECE_TYPES = { PieceType.PAWN,
+			PieceType.KNIGHT, PieceType.BISHOP, PieceType.ROOK,
+			PieceType.QUEEN };
+
+	protected ForkJoinPool pool;
+
+	protected TranspositionTable table;
+
+	/**
+	 * Creates a Perft which uses all of the available processors and no
+	 * transposition table.
+	 */
+	public Perft() {
+		this(Runtime.getRuntime().availableProcessors(), 0);
+	}
+
+	/**
+	 * @param parallelism
+	 *            The number of threads to search with.
+	 * @param transpositionTableSize
+	 *            The number of entries in the transposition table. It is
+	 *            rounded down to a power of 2. 0 disables the table.
+	 */
+	public Perft(int parallelism, int transpositionTableSize) {
+		pool = new ForkJoinPool(parallelism);
+		if (transpositionTableSize > 0) {
+			table = new TranspositionTable(transpositionTableSize);
+		}
+	}
+
+	/**
+	 * Returns a deep copy of game which doesn't update SAN or ECO headers as
+	 * moves are made, since neither matter to perft.
+	 */
+	protected static Game copyForSearch(Game game) {
+		Game result = game.deepCopy(true);
+		result.clearState(Game.UPDATING_SAN_STATE);
+		result.clearState(Game.UPDATING_ECO_HEADERS_STATE);
+		return result;
+	}
+
+	/**
+	 * Returns one MoveBuffer for each ply of a search depth plies deep.
+	 */
+	public static MoveBuffer[] createBuffers(int depth) {
+		MoveBuffer[] result = new MoveBuffer[Math.max(depth, 1)];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = new MoveBuffer();
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the transposition table key for the position in game searched
+	 * depth plies deep. The drop counts are mixed in for games with drops
+	 * since the Zobrist hashes don't include them.
+	 */
+	protected static long getKey(Game game, int depth) {
+		long result = game.getZobristGameHash() ^ depth * DEPTH_KEY;
+		if (game.isInState(Game.DROPPABLE_STATE)) {
+			long dropCounts = 0L;
+			for (PieceType type : DROP_PIECE_TYPES) {
+				dropCounts = dropCounts << 6
+						| game.getDropCount(PieceColor.WHITE, type);
+				dropCounts = dropCounts << 6
+						| game.getDropCount(PieceColor.BLACK, type);
+			}
+			result ^= (dropCounts + 1) * DROP_COUNT_KEY;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the number of leaf nodes depth plies below the current position
+	 * of game. game is left in the position it started in. buffers must hold
+	 * a MoveBuffer for each ply, table can be null.
+	 */
+	public static long perft(Game game, int depth, MoveBuffer[] buffers,
+			TranspositionTable table) {
+		if (depth == 0) {
+			return 1L;
+		}
+
+		long key = 0L;
+		if (table != null && depth > 1) {
+			key = getKey(game, depth);
+			long count = table.get(key);
+			if (count >= 0L) {
+				return count;
+			}
+		}
+
+		MoveBuffer moves = buffers[depth - 1];
+		game.generateLegalMoves(moves);
+
+		long result;
+		if (depth == 1) {
+			result = moves.getSize();
+		} else {
+			result = 0L;
+			for (int i = 0; i < moves.getSize(); i++) {
+				game.forceMove(game.createMove(moves.get(i)));
+				result += perft(game, depth - 1, buffers, table);
+				game.rollback();
+			}
+			if (table != null) {
+				table.put(key, result);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the number of leaf nodes depth plies below the current position
+	 * of game on the calling thread without a transposition table.
+	 */
+	public static long perftSingleThreaded(Game game, int depth) {
+		return perft(copyForSearch(game), depth, createBuffers(depth), null);
+	}
+
+	/**
+	 * Returns the number of leaf nodes depth plies below each legal move in
+	 * the current position of game, keyed by the moves LAN in the order they
+	 * were generated.
+	 */
+	public Map<String, Long> divide(Game game, int depth) {
+		Map<String, Long> result = new LinkedHashMap<String, Long>();
+		if (depth < 1) {
+			return result;
+		}
+
+		MoveBuffer moves = new MoveBuffer();
+		game.generateLegalMoves(moves);
+
+		List<RootMoveTask> tasks = new ArrayList<RootMoveTask>(moves
+				.getSize());
+		for (int i = 0; i < moves.getSize(); i++) {
+			RootMoveTask task = new RootMoveTask(game, moves.get(i), depth,
+					table);
+			pool.execute(task);
+			tasks.add(task);
+		}
+		for (int i = 0; i < moves.getSize(); i++) {
+			result.put(EncodedMove.toLan(moves.get(i)), tasks.get(i).join());
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the number of leaf nodes depth plies below the current position
+	 * of game. game is not modified.
+	 */
+	public long perft(Game game, int depth) {
+		if (depth == 0) {
+			return 1L;
+		}
+		long result = 0L;
+		for (long count : divide(game, depth).values()) {
+			result += count;
+		}
+		return result;
+	}
+
+	/**
+	 * Shuts down the threads used by this Perft.
+	 */
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	public static void main(String args[]) {
+		boolean isDividing = false;
+		int threads = Runtime.getRuntime().availableProcessors();
+		int tableSize = 0;
+		List<String> arguments = new ArrayList<String>();
+
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-divide")) {
+				isDividing = true;
+			} else if (args[i].equals("-threads") && i + 1 < args.length) {
+				threads = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-tt") && i + 1 < args.length) {
+				tableSize = Integer.parseInt(args[++i]);
+			} else {
+				arguments.add(args[i]);
+			}
+		}
+
+		if (arguments.size() < 2) {
+			System.err
+					.println("Usage: Perft [-divide] [-threads n] [-tt entries] variant depth [fen]");
+			System.exit(1);
+		}
+
+		Variant variant = Variant.valueOf(arguments.get(0));
+		int depth = Integer.parseInt(arguments.get(1));
+		StringBuilder fen = new StringBuilder();
+		for (int i = 2; i < arguments.size(); i++) {
+			fen.append(fen.length() == 0 ? "" : " ").append(arguments.get(i));
+		}
+		Game game = GameFactory.createFromFen(fen.length() == 0 ? STARTING_FEN
+				: fen.toString(), variant);
+
+		Perft perft = new Perft(threads, tableSize);
+		try {
+			long startTime = System.nanoTime();
+			long nodes = 0L;
+			if (isDividing) {
+				for (Map.Entry<String, Long> entry : perft.divide(game, depth)
+						.entrySet()) {
+					System.out.println(entry.getKey() + " " + entry.getValue());
+					nodes += entry.getValue();
+				}
+			} else {
+				nodes = perft.perft(game, depth);
+			}
+			long millis = Math.max(1L,
+					(System.nanoTime() - startTime) / 1000000L);
+			System.out.println("Nodes: " + nodes + " Time: " + millis
+					+ "ms NPS: " + nodes * 1000L / millis);
+		} finally {
+			perft.shutdown();
+		}
+	}
+}
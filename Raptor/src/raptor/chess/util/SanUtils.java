@@ -13,7 +13,6 @@
  */
 package raptor.chess.util;
 
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.apache.commons.lang.StringUtils;
 
@@ -23,6 +22,90 @@ import raptor.chess.GameConstants;
  * A class containing validation methods for Short Algebraic Notation (SAN).
  */
 public class SanUtils {
+	/**
+	 * A SAN move decoded by {@link SanUtils#parseSan(String)}. Squares which
+	 * are not specified in the SAN are -1.
+	 */
+	public static class SanMove {
+		GameConstants.PieceType piece = GameConstants.PieceType.EMPTY;
+
+		GameConstants.PieceType piecePromotedTo = GameConstants.PieceType.EMPTY;
+
+		int fromFile = -1;
+
+		int fromRank = -1;
+
+		int toFile = -1;
+
+		int toRank = -1;
+
+		boolean isCastleLong;
+
+		boolean isCastleShort;
+
+		boolean isDrop;
+
+		boolean isPawnCapture;
+
+		public int getFromFile() {
+			return fromFile;
+		}
+
+		public int getFromRank() {
+			return fromRank;
+		}
+
+		/**
+		 * Returns the piece type moving or being dropped. This is EMPTY for
+		 * castling moves.
+		 */
+		public GameConstants.PieceType getPiece() {
+			return piece;
+		}
+
+		public GameConstants.PieceType getPiecePromotedTo() {
+			return piecePromotedTo;
+		}
+
+		public int getToFile() {
+			return toFile;
+		}
+
+		/**
+		 * Returns the destination square, or Square.EMPTY if the SAN only
+		 * specifies its file (e.g. ed).
+		 */
+		public GameConstants.Square getToSquare() {
+			return toRank == -1 ? GameConstants.Square.EMPTY
+					: GameConstants.Square.getSquare((byte) toRank,
+							(byte) toFile);
+		}
+
+		public int getToRank() {
+			return toRank;
+		}
+
+		public boolean isCastleLong() {
+			return isCastleLong;
+		}
+
+		public boolean isCastleShort() {
+			return isCastleShort;
+		}
+
+		public boolean isDrop() {
+			return isDrop;
+		}
+
+		/**
+		 * Returns true if this is a pawn capture. Pawn captures are always
+		 * written with the from file, e.g. ed, exd5, or exd8=Q.
+		 */
+		public boolean isPawnCapture() {
+			return isPawnCapture;
+		}
+	}
+
 	public static class SanValidations {
 		boolean isAmbigPxPromotionStrict;
 
@@ -216,44 +299,47 @@ public class SanUtils {
 	 * "(([a-h]([x]?)[a-h][1-8](([=]?)[BNQR]?)([+#]?))|([a-h][1-8]((([=]?)[BNQR])?)([+#]?))|([a-h]([x:]?)[a-h]((([=]?)[BNQR])?)([+#]?))|(([BKNQR])([a-h]?)([1-8]?)([x:]?)([a-h][1-8])([+#:]?))|([O][-][O][+#]?)|([O][-][O][-][O][+#]?))"
 	 * ;
 	 */
-	protected static final Matcher VALID_EP_OR_AMBIG_P_CAPTURE_REGEX =
-		Pattern.compile("^[a-h][a-h][1-8]$").matcher("");
 
-	protected static final Matcher VALID_EP_OR_AMBIG_P_CAPTURE_PROMOTION_REGEX =
-		Pattern.compile("^[a-h][a-h][18][BNQR]$").matcher("");
+	// Matchers are created per call, a shared Matcher is not thread safe and
+	// games are parsed on several threads by ParallelPgnParser.
+	protected static final Pattern VALID_EP_OR_AMBIG_P_CAPTURE_REGEX =
+		Pattern.compile("^[a-h][a-h][1-8]$");
+
+	protected static final Pattern VALID_EP_OR_AMBIG_P_CAPTURE_PROMOTION_REGEX =
+		Pattern.compile("^[a-h][a-h][18][BNQR]$");
 
-	protected static final Matcher VALID_UNAMBIG_REGEX =
-		Pattern.compile("^[BKNQR][a-h][1-8]$").matcher("");
+	protected static final Pattern VALID_UNAMBIG_REGEX =
+		Pattern.compile("^[BKNQR][a-h][1-8]$");
 
-	protected static final Matcher VALID_DISAMBIG_RANK_REGEX =
-		Pattern.compile("^[BKNQR][1-8][a-h][1-8]$").matcher("");
+	protected static final Pattern VALID_DISAMBIG_RANK_REGEX =
+		Pattern.compile("^[BKNQR][1-8][a-h][1-8]$");
 
-	protected static final Matcher VALID_DISAMBIG_FILE_REGEX =
-		Pattern.compile("^[BKNQR][a-h][a-h][1-8]$").matcher("");
+	protected static final Pattern VALID_DISAMBIG_FILE_REGEX =
+		Pattern.compile("^[BKNQR][a-h][a-h][1-8]$");
 
-	protected static final Matcher VALID_DISAMBIG_RANK_FILE_REGEX =
-		Pattern.compile("^[BKNQR][a-h][1-8][a-h][1-8]$").matcher("");
+	protected static final Pattern VALID_DISAMBIG_RANK_FILE_REGEX =
+		Pattern.compile("^[BKNQR][a-h][1-8][a-h][1-8]$");
 
-	protected static final Matcher VALID_P_X_REGEX =
-		Pattern.compile("^[a-h][a-h]$").matcher("");
+	protected static final Pattern VALID_P_X_REGEX =
+		Pattern.compile("^[a-h][a-h]$");
 
-	protected static final Matcher VALID_P_MOVE_REGEX =
-		Pattern.compile("^[a-h][1-8]$").matcher("");
+	protected static final Pattern VALID_P_MOVE_REGEX =
+		Pattern.compile("^[a-h][1-8]$");
 
-	protected static final Matcher VALID_PXP_PROMOTION_REGEX =
-		Pattern.compile("^[a-h][a-h][BNQR]$").matcher("");
+	protected static final Pattern VALID_PXP_PROMOTION_REGEX =
+		Pattern.compile("^[a-h][a-h][BNQR]$");
 
-	protected static final Matcher VALID_P_PROMOTION_REGEX =
-		Pattern.compile("^[a-h][18][BNQR]$").matcher("");
+	protected static final Pattern VALID_P_PROMOTION_REGEX =
+		Pattern.compile("^[a-h][18][BNQR]$");
 
-	protected static final Matcher VALID_CASTLE_KSIDE_REGEX =
-		Pattern.compile("^[O][-][O]$").matcher("");
+	protected static final Pattern VALID_CASTLE_KSIDE_REGEX =
+		Pattern.compile("^[O][-][O]$");
 
-	protected static final Matcher VALID_CASTLE_QSIDE_REGEX =
-		Pattern.compile("^[O][-][O][-][O]$").matcher("");
+	protected static final Pattern VALID_CASTLE_QSIDE_REGEX =
+		Pattern.compile("^[O][-][O][-][O]$");
 
-	protected static final Matcher VALID_PIECE_DROP_REGEX =
-		Pattern.compile("^[PBNQR]@[a-h][1-8]$").matcher("");
+	protected static final Pattern VALID_PIECE_DROP_REGEX =
+		Pattern.compile("^[PBNQR]@[a-h][1-8]$");
 
 
 	public static SanValidations getValidations(String unstrictShortAlg) {
@@ -304,7 +390,7 @@ public class SanUtils {
 	 */
 	public static boolean isValidAmbigPxPromotionStrict(String san) {
 		if (san.length() == 4) {
-			return VALID_EP_OR_AMBIG_P_CAPTURE_PROMOTION_REGEX.reset(san).matches();
+			return VALID_EP_OR_AMBIG_P_CAPTURE_PROMOTION_REGEX.matcher(san).matches();
 //			return FILES.indexOf(san.charAt(0)) != -1
 //					&& FILES.indexOf(san.charAt(1)) != -1
 //					&& RANKS.indexOf(san.charAt(2)) != -1
@@ -319,7 +405,7 @@ public class SanUtils {
 	 */
 	public static boolean isValidDisambigFileStrict(String san) {
 		if (san.length() == 4) {
-			return VALID_DISAMBIG_FILE_REGEX.reset(san).matches();
+			return VALID_DISAMBIG_FILE_REGEX.matcher(san).matches();
 //			return PIECES.indexOf(san.charAt(0)) != -1
 //					&& FILES.indexOf(san.charAt(1)) != -1
 //					&& FILES.indexOf(san.charAt(2)) != -1
@@ -334,7 +420,7 @@ public class SanUtils {
 	 */
 	public static boolean isValidDisambigRankFileStrict(String san) {
 		if (san.length() == 5) {
-			return VALID_DISAMBIG_RANK_FILE_REGEX.reset(san).matches();
+			return VALID_DISAMBIG_RANK_FILE_REGEX.matcher(san).matches();
 //			return PIECES.indexOf(san.charAt(0)) != -1
 //					&& FILES.indexOf(san.charAt(1)) != -1
 //					&& RANKS.indexOf(san.charAt(2)) != -1
@@ -350,7 +436,7 @@ public class SanUtils {
 	 */
 	public static boolean isValidDisambigRankStrict(String san) {
 		if (san.length() == 4) {
-			return VALID_DISAMBIG_RANK_REGEX.reset(san).matches();
+			return VALID_DISAMBIG_RANK_REGEX.matcher(san).matches();
 //			return PIECES.indexOf(san.charAt(0)) != -1
 //					&& RANKS.indexOf(san.charAt(1)) != -1
 //					&& FILES.indexOf(san.charAt(2)) != -1
@@ -366,7 +452,7 @@ public class SanUtils {
 	 */
 	public static boolean isValidDropStrict(String san) {
 		if (san.length() == 4) {
-			return VALID_PIECE_DROP_REGEX.reset(san).matches();
+			return VALID_PIECE_DROP_REGEX.matcher(san).matches();
 //			return DROPS.indexOf(san.charAt(0)) != -1 && san.charAt(1) == '@'
 //					&& FILES.indexOf(san.charAt(2)) != -1
 //					&& RANKS.indexOf(san.charAt(3)) != -1;
@@ -380,7 +466,7 @@ public class SanUtils {
 	 */
 	public static boolean isValidEpOrAmbigPCaptureStrict(String san) {
 		if (san.length() == 3) {
-			return VALID_EP_OR_AMBIG_P_CAPTURE_REGEX.reset(san).matches();
+			return VALID_EP_OR_AMBIG_P_CAPTURE_REGEX.matcher(san).matches();
 //			return FILES.indexOf(san.charAt(0)) != -1
 //					&& FILES.indexOf(san.charAt(1)) != -1
 //					&& RANKS.indexOf(san.charAt(2)) != -1;
@@ -393,7 +479,7 @@ public class SanUtils {
 	 * VALID_CASTLE_KSIDE_REGEX = [O][-][O]
 	 */
 	public static boolean isValidKSideCastle(String san) {
-		return VALID_CASTLE_KSIDE_REGEX.reset(san).matches();
+		return VALID_CASTLE_KSIDE_REGEX.matcher(san).matches();
 		//return san.equals("O-O");
 	}
 
@@ -402,7 +488,7 @@ public class SanUtils {
 	 */
 	public static boolean isValidPMoveStrict(String san) {
 		if (san.length() == 2) {
-			return VALID_P_MOVE_REGEX.reset(san).matches();
+			return VALID_P_MOVE_REGEX.matcher(san).matches();
 //			return FILES.indexOf(san.charAt(0)) != -1
 //					&& RANKS.indexOf(san.charAt(1)) != -1;
 		} else {
@@ -415,7 +501,7 @@ public class SanUtils {
 	 */
 	public static boolean isValidPPromotionStrict(String san) {
 		if (san.length() == 3) {
-			return VALID_P_PROMOTION_REGEX.reset(san).matches();
+			return VALID_P_PROMOTION_REGEX.matcher(san).matches();
 //			return FILES.indexOf(san.charAt(0)) != -1
 //					&& RANKS.indexOf(san.charAt(1)) != -1
 //					&& PROMOTIONS.indexOf(san.charAt(2)) != -1;
@@ -429,7 +515,7 @@ public class SanUtils {
 	 */
 	public static boolean isValidPxPromotionStrict(String san) {
 		if (san.length() == 3) {
-			return VALID_PXP_PROMOTION_REGEX.reset(san).matches();
+			return VALID_PXP_PROMOTION_REGEX.matcher(san).matches();
 //			return FILES.indexOf(san.charAt(0)) != -1
 //					&& FILES.indexOf(san.charAt(1)) != -1
 //					&& PROMOTIONS.indexOf(san.charAt(2)) != -1;
@@ -443,7 +529,7 @@ public class SanUtils {
 	 */
 	public static boolean isValidPxStrict(String san) {
 		if (san.length() == 2) {
-			return VALID_P_X_REGEX.reset(san).matches();
+			return VALID_P_X_REGEX.matcher(san).matches();
 //			return FILES.indexOf(san.charAt(0)) != -1
 //					&& FILES.indexOf(san.charAt(1)) != -1;
 		} else {
@@ -455,7 +541,7 @@ public class SanUtils {
 	 * VALID_CASTLE_QSIDE_REGEX = [O][-][O][-][O]
 	 */
 	public static boolean isValidQSideCastle(String san) {
-		return VALID_CASTLE_QSIDE_REGEX.reset(san).matches();
+		return VALID_CASTLE_QSIDE_REGEX.matcher(san).matches();
 		//return san.equals("O-O-O");
 	}
 
@@ -504,7 +590,7 @@ public class SanUtils {
 	 */
 	public static boolean isValidUnambigPieceStrict(String san) {
 		if (san.length() == 3) {
-			return VALID_UNAMBIG_REGEX.reset(san).matches();
+			return VALID_UNAMBIG_REGEX.matcher(san).matches();
 //			return PIECES.indexOf(san.charAt(0)) != -1
 //					&& FILES.indexOf(san.charAt(1)) != -1
 //					&& RANKS.indexOf(san.charAt(2)) != -1;
@@ -513,6 +599,132 @@ public class SanUtils {
 		}
 	}
 
+	/**
+	 * Decodes san in a single pass over its characters, ignoring the same
+	 * characters {@link #toStrictSan(String)} removes. Returns null if san is
+	 * not valid. Promotions to a king are accepted for suicide. Unlike
+	 * {@link #getValidations(String)} this creates no regular expression
+	 * matchers or intermediate strings.
+	 */
+	public static SanMove parseSan(String san) {
+		char[] chars = new char[5];
+		int length = 0;
+		int sanLength = san.length();
+		for (int i = 0; i < sanLength; i++) {
+			char c = san.charAt(i);
+			switch (c) {
+			case ',':
+			case '+':
+			case '#':
+			case '=':
+			case 'x':
+			case ':':
+			case 'X':
+				continue;
+			case 'e':
+				if (san.startsWith("e.p.", i)) {
+					i += 3;
+					continue;
+				}
+				break;
+			case 'A':
+			case 'C':
+			case 'D':
+			case 'E':
+			case 'F':
+			case 'G':
+			case 'H':
+				c = Character.toLowerCase(c);
+				break;
+			}
+			if (length == chars.length) {
+				return null;
+			}
+			chars[length++] = c;
+		}
+
+		SanMove result = new SanMove();
+		if (length == 0) {
+			return null;
+		} else if (chars[0] == 'O') {
+			if (length == 3 && chars[1] == '-' && chars[2] == 'O') {
+				result.isCastleShort = true;
+			} else if (length == 5 && chars[1] == '-' && chars[2] == 'O'
+					&& chars[3] == '-' && chars[4] == 'O') {
+				result.isCastleLong = true;
+			} else {
+				return null;
+			}
+		} else if (length == 4 && chars[1] == '@') {
+			if (DROPS.indexOf(chars[0]) == -1 || !isFile(chars[2])
+					|| !isRank(chars[3])) {
+				return null;
+			}
+			result.isDrop = true;
+			result.piece = sanToPiece(chars[0]);
+			result.toFile = chars[2] - 'a';
+			result.toRank = chars[3] - '1';
+		} else if (PIECES.indexOf(chars[0]) != -1) {
+			// Ne3, N5e3, Nfe3, Nf1e3
+			if (length < 3 || !isFile(chars[length - 2])
+					|| !isRank(chars[length - 1])) {
+				return null;
+			}
+			result.piece = sanToPiece(chars[0]);
+			result.toFile = chars[length - 2] - 'a';
+			result.toRank = chars[length - 1] - '1';
+			if (length == 4) {
+				if (isFile(chars[1])) {
+					result.fromFile = chars[1] - 'a';
+				} else if (isRank(chars[1])) {
+					result.fromRank = chars[1] - '1';
+				} else {
+					return null;
+				}
+			} else if (length == 5) {
+				if (!isFile(chars[1]) || !isRank(chars[2])) {
+					return null;
+				}
+				result.fromFile = chars[1] - 'a';
+				result.fromRank = chars[2] - '1';
+			}
+		} else if (isFile(chars[0]) && length >= 2) {
+			// e4, e8Q, ed, edQ, ed5, ed8Q
+			result.piece = GameConstants.PieceType.PAWN;
+			int promotionIndex;
+			if (isRank(chars[1])) {
+				result.toFile = chars[0] - 'a';
+				result.toRank = chars[1] - '1';
+				promotionIndex = 2;
+			} else if (isFile(chars[1])) {
+				result.isPawnCapture = true;
+				result.fromFile = chars[0] - 'a';
+				result.toFile = chars[1] - 'a';
+				promotionIndex = 2;
+				if (length > 2 && isRank(chars[2])) {
+					result.toRank = chars[2] - '1';
+					promotionIndex = 3;
+				}
+			} else {
+				return null;
+			}
+
+			if (length == promotionIndex + 1) {
+				if (SUICIDE_PROMOTIONS.indexOf(chars[promotionIndex]) == -1
+						|| result.toRank != -1 && result.toRank != 0
+						&& result.toRank != 7) {
+					return null;
+				}
+				result.piecePromotedTo = sanToPiece(chars[promotionIndex]);
+			} else if (length != promotionIndex) {
+				return null;
+			}
+		} else {
+			return null;
+		}
+		return result;
+	}
+
 	/**
 	 * Returns the short alg piece representing shortAlgebraic.
 	 * 
@@ -527,6 +739,14 @@ public class SanUtils {
 		return GameConstants.PieceType.EMPTY;
 	}
 
+	private static boolean isFile(char c) {
+		return c >= 'a' && c <= 'h';
+	}
+
+	private static boolean isRank(char c) {
+		return c >= '1' && c <= '8';
+	}
+
 	public static char squareToFileSan(GameConstants.Square square) {
 		return GameConstants.FILE_FROM_SAN.charAt(square.file);
 	}
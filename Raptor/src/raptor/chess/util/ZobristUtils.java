@@ -26,6 +26,7 @@ public final class ZobristUtils extends GameUtils implements GameConstants {
 	private static final long[] ZOBRIST_EP = new long[65];
 	private static final long[][][] ZOBRIST_POSITION = new long[2][7][64];
 	private static final long[] ZOBRIST_TO_MOVE = new long[2];
+	private static final long ZOBRIST_SEED = 0x52617074L;
 
 	static {
 		initZobrist();
@@ -90,7 +91,9 @@ public final class ZobristUtils extends GameUtils implements GameConstants {
 	}
 
 	private static void initZobrist() {
-		Random random = new Random();
+		// A fixed seed keeps hashes the same from run to run, so they can be
+		// stored on disk (see GameDatabase).
+		Random random = new Random(ZOBRIST_SEED);
 
 		for (int i = 0; i < ZOBRIST_DROP_COUNT.length; i++) {
 			for (int j = 0; j < ZOBRIST_DROP_COUNT[i].length; j++) {
@@ -124,7 +127,7 @@ public final class ZobristUtils extends GameUtils implements GameConstants {
 	}
 
 	private static long zobristPiece(Piece piece, Game game) {
-		int result = 0;
+		long result = 0L;
 		long current = game.getPieceBB(piece.color, piece.type);
 		while (current != 0L) {
 			result ^= zobrist(piece, bitscanForward(current));
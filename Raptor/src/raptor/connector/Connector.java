@@ -485,8 +485,7 @@ public interface Connector {
 
 	/**
 	 * Publishes the specified event to the chat service maintained by the
-	 * connector. Currently all messages are published on separate threads via
-	 * ThreadService.
+	 * connector on the calling thread.
 	 */
 	public void publishEvent(final ChatEvent event);
 
@@ -55,6 +55,7 @@ import raptor.pref.page.ActionContainerPage;
 import raptor.pref.page.ConnectorMessageBlockPage;
 import raptor.pref.page.ConnectorQuadrantsPage;
 import raptor.service.ActionScriptService;
+import raptor.service.SeekService.SeekType;
 import raptor.service.ThreadService;
 import raptor.swt.BugButtonsWindowItem;
 import raptor.swt.FicsSeekDialog;
@@ -958,6 +959,14 @@ public class FicsConnector extends IcsConnector implements PreferenceKeys,
 				sendMessage("iset startpos 1", true);
 				sendMessage("iset pendinfo 1", true);
 
+				// The server pushes seeks you can accept with seekinfo, so
+				// only poll sought when all of the seeks are wanted.
+				if (SeekType.valueOf(getPreferences().getString(
+						SEEK_OUTPUT_TYPE)) == SeekType.FormulaFiltered) {
+					seekService.setSeekInfoEnabled(true);
+					sendMessage("iset seekinfo 1", true);
+				}
+
 				if (getPreferences().getBoolean(PreferenceKeys.FICS_NO_WRAP_ENABLED)) {
 					sendMessage("iset nowrap 1", true);
 				}
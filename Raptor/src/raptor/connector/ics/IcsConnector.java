@@ -23,6 +23,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.regex.Pattern;
 
 import org.apache.commons.lang.StringUtils;
@@ -88,6 +90,8 @@ import raptor.swt.chat.controller.MainController;
 import raptor.swt.chat.controller.RegExController;
 import raptor.swt.chess.ChessBoardUtils;
 import raptor.util.Logger;
+import raptor.util.OrderedEventPipeline;
+import raptor.util.PatternSet;
 import raptor.util.RaptorStringUtils;
 import raptor.util.RegExUtils;
 
@@ -125,6 +129,32 @@ public abstract class IcsConnector implements Connector, MessageListener {
 
 	protected String currentProfileName;
 
+	/**
+	 * Delivers the ChatEvents parsed from inbound messages to publishEvent in
+	 * arrival order on a single ThreadService thread at a time.
+	 */
+	protected OrderedEventPipeline<ChatEvent> eventPipeline = new OrderedEventPipeline<ChatEvent>(
+			getClass().getSimpleName(), new Executor() {
+				public void execute(Runnable runnable) {
+					if (!ThreadService.getInstance().run(runnable)) {
+						throw new RejectedExecutionException(
+								"ThreadService vetoed " + runnable);
+					}
+				}
+			}, new OrderedEventPipeline.BatchHandler<ChatEvent>() {
+				public void handleBatch(List<ChatEvent> events) {
+					for (ChatEvent event : events) {
+						try {
+							event.setMessage(IcsUtils
+									.maciejgFormatToUnicode(event.getMessage()));
+							publishEvent(event);
+						} catch (Throwable t) {
+							onError("Error publishing event " + event, t);
+						}
+					}
+				}
+			});
+
 	protected GameService gameService;
 	protected Map<String, Object> scriptHash = new HashMap<String, Object>();
 	protected Set<String> peopleToSpeakTellsFrom = new HashSet<String>();
@@ -134,6 +164,7 @@ public abstract class IcsConnector implements Connector, MessageListener {
 	protected boolean isSpeakingAllPersonTells = false;
 	protected List<String> autoCompleteList = new ArrayList<String>(1000);
 	protected List<Pattern> patternsToBlock = new ArrayList<Pattern>(20);
+	protected PatternSet patternSetToBlock = PatternSet.EMPTY;
 	protected MessageProducer messageProducer;
 
 	/**
@@ -232,7 +263,8 @@ public abstract class IcsConnector implements Connector, MessageListener {
 	protected List<String> extendedCensorList = new ArrayList<String>(300);
 	protected String[] bughouseSounds = SoundService.getInstance()
 			.getBughouseSoundKeys();
-	protected ChatEventScript[] chatEventScripts = null;
+	protected Map<ChatType, ChatEventScript[]> chatEventScripts = Collections
+			.emptyMap();
 
 	protected List<MessageCallbackEntry> messageCallbackEntries = new ArrayList<MessageCallbackEntry>(
 			20);
@@ -307,6 +339,7 @@ public abstract class IcsConnector implements Connector, MessageListener {
 				}
 			}
 		}
+		patternSetToBlock = new PatternSet(patternsToBlock);
 	}
 
 	public void acceptSeek(String adId) {
@@ -498,6 +531,8 @@ public abstract class IcsConnector implements Connector, MessageListener {
 					isSpeakingAllPersonTells = false;
 					messageCallbackEntries.clear();
 					extendedCensorList.clear();
+					seekService.setSeekInfoEnabled(false);
+					seekService.clearSeeks();
 				}
 			}
 
@@ -521,6 +556,7 @@ public abstract class IcsConnector implements Connector, MessageListener {
 			connectorListeners = null;
 		}
 
+		eventPipeline.dispose();
 		if (chatService != null) {
 			chatService.dispose();
 			chatService = null;
@@ -588,6 +624,14 @@ public abstract class IcsConnector implements Connector, MessageListener {
 		return context.getDescription();
 	}
 
+	/**
+	 * Returns the pipeline inbound ChatEvents are published through. Useful
+	 * for monitoring its queue depth.
+	 */
+	public OrderedEventPipeline<ChatEvent> getEventPipeline() {
+		return eventPipeline;
+	}
+
 	/**
 	 * Returns the prefix to use when the user sends tells about a game. On fics
 	 * this is 'whisper '. e.g. ('whisper ')
@@ -979,50 +1023,38 @@ public abstract class IcsConnector implements Connector, MessageListener {
 		return IcsUtils.stripWord(word);
 	}
 
+	/**
+	 * Invokes the message callbacks matching the event on the calling thread,
+	 * which is the event pipeline thread for inbound messages.
+	 */
 	public void processMessageCallbacks(final ChatEvent event) {
-		ThreadService.getInstance().run(new Runnable() {
-			public void run() {
-				synchronized (messageCallbackEntries) {
-					for (int i = 0; i < messageCallbackEntries.size(); i++) {
-						MessageCallbackEntry entry = messageCallbackEntries
-								.get(i);
-						if (RegExUtils.matches(entry.regularExpression,
-								event.getMessage())) {
-							if (LOG.isDebugEnabled()) {
-								LOG.debug("Invoking callback " + entry.callback);
-							}
-							if (!entry.callback.matchReceived(event)) {
-								messageCallbackEntries.remove(i);
-								i--;
-							}
-						} else {
-							entry.missCount++;
-						}
+		synchronized (messageCallbackEntries) {
+			for (int i = 0; i < messageCallbackEntries.size(); i++) {
+				MessageCallbackEntry entry = messageCallbackEntries.get(i);
+				if (RegExUtils.matches(entry.regularExpression,
+						event.getMessage())) {
+					if (LOG.isDebugEnabled()) {
+						LOG.debug("Invoking callback " + entry.callback);
+					}
+					if (!entry.callback.matchReceived(event)) {
+						messageCallbackEntries.remove(i);
+						i--;
 					}
+				} else {
+					entry.missCount++;
 				}
 			}
-
-			public String toString() {
-				return "IcsConnector.ProcessMessageCallbacks Runnable";
-			}
-		});
+		}
 	}
 
 	protected boolean isBlockedByRegularExpressionBlocks(ChatEvent event) {
-		String message = event.getMessage().trim();
-		boolean result = false;
-		for (Pattern pattern : patternsToBlock) {
-			if (RegExUtils.matches(pattern, message)) {
-				result = true;
-				break;
-			}
-		}
-		return result;
+		return patternSetToBlock.matchesAny(event.getMessage().trim());
 	}
 
 	/**
-	 * Publishes the specified event to the chat service. Currently all messages
-	 * are published on separate threads via ThreadService.
+	 * Publishes the specified event to the chat service on the calling thread.
+	 * Events parsed from inbound messages arrive here in order from the
+	 * eventPipeline.
 	 */
 	public void publishEvent(final ChatEvent event) {
 		// System.err.println("In publish event: " + event);
@@ -1109,9 +1141,8 @@ public abstract class IcsConnector implements Connector, MessageListener {
 					// Eat it there could be a synchronization problem.�
 				}
 			} else {
-				// It is interesting to note messages are handled sequentially
-				// up to this point. chatService will publish the event
-				// asynchronously.
+				// Messages are handled sequentially, chatService publishes the
+				// event on this thread as well.
 				chatService.publishChatEvent(event);
 				processMessageCallbacks(event);
 			}
@@ -1728,6 +1759,21 @@ public abstract class IcsConnector implements Connector, MessageListener {
 			return;
 		}
 
+		// Most tells are for tabs which are already open. Those are found in
+		// the chat service's routes without scanning the window's tabs.
+		String routeKey = null;
+		if (event.getType() == ChatType.TELL) {
+			routeKey = ChatService.getRouteKey(ChatType.TELL, event.getSource());
+		} else if (event.getType() == ChatType.CHANNEL_TELL) {
+			routeKey = ChatService.getRouteKey(ChatType.CHANNEL_TELL, event
+					.getChannel());
+		} else if (event.getType() == ChatType.PARTNER_TELL) {
+			routeKey = ChatService.getRouteKey(ChatType.PARTNER_TELL, null);
+		}
+		if (routeKey == null || chatService.hasRoute(routeKey)) {
+			return;
+		}
+
 		ThreadService.getInstance().run(new Runnable() {
 			public void run() {
 				if (getPreferences().getBoolean(
@@ -2025,19 +2071,11 @@ public abstract class IcsConnector implements Connector, MessageListener {
 
 			// This call will handle all game events, and return back a list of
 			// ChatEvents to process.
-			final ChatEvent[] events = context.getParser().parse(
-					filteredMessage);
-
-			ThreadService.getInstance().run(new Runnable() {
-				public void run() {
+			ChatEvent[] events = context.getParser().parse(filteredMessage);
 
-					for (ChatEvent event : events) {
-						event.setMessage(IcsUtils.maciejgFormatToUnicode(event
-								.getMessage()));
-						publishEvent(event);
-					}
-				}
-			});
+			if (events.length > 0) {
+				eventPipeline.addAll(Arrays.asList(events));
+			}
 		} catch (RuntimeException re) {
 			throw new RuntimeException("Error occured parsing message: "
 					+ message, re);
@@ -2154,26 +2192,16 @@ public abstract class IcsConnector implements Connector, MessageListener {
 	}
 
 	/**
-	 * Processes the scripts for the specified chat event. Script processing is
-	 * kicked off on a different thread.
+	 * Processes the scripts for the specified chat event on the calling
+	 * thread, so scripts see events in the order they arrived. Only the active
+	 * scripts indexed under the event's type are run.
 	 */
 	protected void processChatEventScripts(final ChatEvent event) {
-		if (chatEventScripts != null && chatEventScripts.length > 0) {
-			ThreadService.getInstance().run(new Runnable() {
-				public void run() {
-					for (ChatEventScript script : chatEventScripts) {
-						if (script.isActive()
-								&& script.getChatType() == event.getType()
-								|| script.getChatType() == ChatType.ALL) {
-							script.execute(getChatScriptContext(event));
-						}
-					}
-				}
-
-				public String toString() {
-					return "IcsConnector.processChatEventScripts runnable";
-				}
-			});
+		ChatEventScript[] scripts = chatEventScripts.get(event.getType());
+		if (scripts != null) {
+			for (ChatEventScript script : scripts) {
+				script.execute(getChatScriptContext(event));
+			}
 		}
 	}
 
@@ -2315,8 +2343,8 @@ public abstract class IcsConnector implements Connector, MessageListener {
 	}
 
 	protected void refreshChatScripts() {
-		chatEventScripts = ScriptService.getInstance().getChatEventScripts(
-				getScriptConnectorType());
+		chatEventScripts = ScriptService.getInstance()
+				.getChatEventScriptIndex(getScriptConnectorType());
 	}
 
 	/**
@@ -103,6 +103,7 @@ public class IcsParser implements GameConstants {
 	protected FollowingEventParser followingParser;
 	protected Style12Parser style12Parser;
 	protected SoughtParser soughtParser;
+	protected SeekInfoParser seekInfoParser;
 
 	protected BugWhoGParser bugWhoGParser;
 	protected BugWhoPParser bugWhoPParser;
@@ -168,6 +169,7 @@ public class IcsParser implements GameConstants {
 
 		if (!isBicsParser) {
 			soughtParser = new SoughtParser();
+			seekInfoParser = new SeekInfoParser();
 			bugWhoGParser = new BugWhoGParser();
 			bugWhoPParser = new BugWhoPParser();
 			bugWhoUParser = new BugWhoUParser();
@@ -214,6 +216,10 @@ public class IcsParser implements GameConstants {
 		}
 		List<ChatEvent> events = new ArrayList<ChatEvent>(5);
 
+		// Seekinfo lines can arrive in large bursts, so they are removed
+		// before anything else looks at the message.
+		inboundMessage = parseSeekInfo(inboundMessage);
+
 		// First handle the Moves message.
 		String afterMovesMessage = parseMovesMessage(inboundMessage, events);
 
@@ -634,6 +640,60 @@ public class IcsParser implements GameConstants {
 		}
 	}
 
+	/**
+	 * Applies and removes all of the seekinfo lines in inboundMessage. Returns
+	 * what is left of the message.
+	 */
+	protected String parseSeekInfo(String inboundMessage) {
+		if (seekInfoParser == null || inboundMessage.indexOf("<s") == -1) {
+			return inboundMessage;
+		}
+
+		List<String> lines = new ArrayList<String>();
+		String result = seekInfoParser.removeSeekInfo(inboundMessage, lines);
+		if (lines.isEmpty()) {
+			return inboundMessage;
+		}
+
+		List<Seek> added = new ArrayList<Seek>();
+		List<String> removed = new ArrayList<String>();
+		boolean isCleared = false;
+		for (String line : lines) {
+			if (seekInfoParser.isClear(line)) {
+				added.clear();
+				removed.clear();
+				isCleared = true;
+			} else {
+				Seek seek = seekInfoParser.parseAdd(line);
+				if (seek != null) {
+					added.add(seek);
+				} else {
+					String[] ads = seekInfoParser.parseRemove(line);
+					if (ads != null) {
+						for (String ad : ads) {
+							for (int i = added.size() - 1; i >= 0; i--) {
+								if (added.get(i).getAd().equals(ad)) {
+									added.remove(i);
+								}
+							}
+							removed.add(ad);
+						}
+					}
+				}
+			}
+		}
+
+		if (isCleared) {
+			connector.getSeekService().setSeeks(
+					added.toArray(new Seek[added.size()]));
+		} else {
+			connector.getSeekService().updateSeeks(
+					added.toArray(new Seek[added.size()]),
+					removed.toArray(new String[removed.size()]));
+		}
+		return result;
+	}
+
 	protected void process(B1Message message, GameService service) {
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("Processing b1: " + message);
@@ -0,0 +1,194 @@
+/**
+ * New BSD License
+ * http://www.opensource.org/licenses/bsd-license.php
+ * Copyright 2009-2011 RaptorProject (http://code.google.com/p/raptor-chess-interface/)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the RaptorProject nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package raptor.connector.ics;
+
+import java.util.List;
+import java.util.StringTokenizer;
+
+import raptor.chat.Seek;
+import raptor.util.Logger;
+
+/**
+ * Parses the lines FICS sends when the seekinfo ivariable is set. Instead of
+ * having to poll sought, the server then pushes every seek change as it
+ * happens:
+ * 
+ * <pre>
+ * &lt;s&gt; 8 w=GuestXYZZ ti=01 rt=0P t=2 i=12 r=u tp=blitz c=? rr=0-9999 a=t f=f
+ * &lt;sr&gt; 8 12
+ * &lt;sc&gt;
+ * </pre>
+ * 
+ * &lt;s&gt; adds a seek, &lt;sr&gt; removes one or more seeks by ad number and
+ * &lt;sc&gt; clears all seeks.
+ */
+public class SeekInfoParser {
+	private static final Logger LOG = Logger.getLogger(SeekInfoParser.class);
+
+	public static final String ADD = "<s> ";
+	public static final String CLEAR = "<sc>";
+	public static final String REMOVE = "<sr> ";
+
+	public static final int UNREGISTERED_TITLE = 0x1;
+	public static final int COMPUTER_TITLE = 0x2;
+
+	public SeekInfoParser() {
+	}
+
+	/**
+	 * Returns true if line is a seekinfo clear message.
+	 */
+	public boolean isClear(String line) {
+		return line.startsWith(CLEAR);
+	}
+
+	/**
+	 * Returns true if line is any kind of seekinfo message.
+	 */
+	public boolean isSeekInfo(String line) {
+		return line.startsWith(ADD) || line.startsWith(REMOVE) || isClear(line);
+	}
+
+	/**
+	 * Returns the seek in a seekinfo add message, or null if line is not one
+	 * or could not be parsed.
+	 */
+	public Seek parseAdd(String line) {
+		if (!line.startsWith(ADD)) {
+			return null;
+		}
+		try {
+			StringTokenizer tok = new StringTokenizer(line.substring(ADD
+					.length()), " \r");
+			Seek seek = new Seek();
+			seek.setAd(tok.nextToken());
+			seek.setColor(null);
+			seek.setManual(true);
+
+			int titles = 0;
+			String rating = "";
+			while (tok.hasMoreTokens()) {
+				String token = tok.nextToken();
+				int equalsIndex = token.indexOf('=');
+				if (equalsIndex == -1) {
+					continue;
+				}
+				String name = token.substring(0, equalsIndex);
+				String value = token.substring(equalsIndex + 1);
+
+				if (name.equals("w")) {
+					seek.setName(value);
+				} else if (name.equals("ti")) {
+					titles = Integer.parseInt(value, 16);
+				} else if (name.equals("rt")) {
+					rating = value;
+				} else if (name.equals("t")) {
+					seek.setMinutes(Integer.parseInt(value));
+				} else if (name.equals("i")) {
+					seek.setIncrement(Integer.parseInt(value));
+				} else if (name.equals("r")) {
+					seek.setRated(value.equals("r"));
+				} else if (name.equals("tp")) {
+					seek.setTypeDescription(value);
+					seek.setType(SoughtParser.getGameType(value));
+				} else if (name.equals("c")) {
+					if (value.equals("W")) {
+						seek.setColor(Seek.GameColor.white);
+					} else if (value.equals("B")) {
+						seek.setColor(Seek.GameColor.black);
+					}
+				} else if (name.equals("rr")) {
+					int dashIndex = value.indexOf('-');
+					seek.setMinRating(Integer.parseInt(value.substring(0,
+							dashIndex)));
+					seek.setMaxRating(Integer.parseInt(value
+							.substring(dashIndex + 1)));
+				} else if (name.equals("a")) {
+					seek.setManual(!value.equals("t"));
+				} else if (name.equals("f")) {
+					seek.setFormula(value.equals("t"));
+				}
+			}
+
+			if (seek.getName() == null || seek.getTypeDescription() == null) {
+				return null;
+			}
+
+			// Keep the name and rating the way sought displays them.
+			if ((titles & UNREGISTERED_TITLE) != 0) {
+				seek.setName(seek.getName() + "(U)");
+			}
+			if ((titles & COMPUTER_TITLE) != 0) {
+				seek.setName(seek.getName() + "(C)");
+			}
+			if (rating.length() == 0 || rating.charAt(0) == '0') {
+				rating = (titles & UNREGISTERED_TITLE) != 0 ? "++++" : "----";
+			}
+			seek.setRating(rating);
+			return seek;
+		} catch (RuntimeException re) {
+			LOG.warn("Error parsing seekinfo line: " + line, re);
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the ad numbers in a seekinfo remove message, or null if line is
+	 * not one.
+	 */
+	public String[] parseRemove(String line) {
+		if (!line.startsWith(REMOVE)) {
+			return null;
+		}
+		StringTokenizer tok = new StringTokenizer(line.substring(REMOVE
+				.length()), " \r");
+		String[] result = new String[tok.countTokens()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = tok.nextToken();
+		}
+		return result;
+	}
+
+	/**
+	 * Moves the seekinfo lines in message to seekInfoLines, in order, and
+	 * returns the rest of the message. The other lines keep their line
+	 * separators, so blank lines and a trailing newline are preserved. Returns
+	 * message itself if it contains no seekinfo lines.
+	 */
+	public String removeSeekInfo(String message, List<String> seekInfoLines) {
+		StringBuilder result = null;
+		int start = 0;
+		while (start < message.length()) {
+			int end = message.indexOf('\n', start);
+			int next = end == -1 ? message.length() : end + 1;
+			if (message.startsWith("<s", start)) {
+				String line = message.substring(start, end == -1 ? next : end);
+				if (isSeekInfo(line)) {
+					if (result == null) {
+						result = new StringBuilder(message.length());
+						result.append(message, 0, start);
+					}
+					seekInfoLines.add(line);
+					start = next;
+					continue;
+				}
+			}
+			if (result != null) {
+				result.append(message, start, next);
+			}
+			start = next;
+		}
+		return result == null ? message : result.toString();
+	}
+}
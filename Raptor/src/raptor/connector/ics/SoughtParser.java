@@ -32,6 +32,36 @@ public class SoughtParser {
 	private static final String AD_DISPLAYED = "ad displayed.";
 	private static final String ADS_DISPLAYED = "ads displayed.";
 
+	/**
+	 * Returns the GameType for a sought or seekinfo type description, e.g.
+	 * "blitz" or "wild/fr".
+	 */
+	public static GameType getGameType(String typeDescription) {
+		if (typeDescription.contains("blitz")) {
+			return GameType.blitz;
+		} else if (typeDescription.contains("lightning")) {
+			return GameType.lightning;
+		} else if (typeDescription.contains("standard")) {
+			return GameType.standard;
+		} else if (typeDescription.contains("suicide")) {
+			return GameType.suicide;
+		} else if (typeDescription.contains("losers")) {
+			return GameType.losers;
+		} else if (typeDescription.contains("atomic")) {
+			return GameType.atomic;
+		} else if (typeDescription.contains("fr")) {
+			return GameType.fischerRandom;
+		} else if (typeDescription.contains("crazyhouse")) {
+			return GameType.crazyhouse;
+		} else if (typeDescription.contains("wild")) {
+			return GameType.wild;
+		} else if (typeDescription.contains("untimed")) {
+			return GameType.untimed;
+		} else {
+			return GameType.other;
+		}
+	}
+
 	public SoughtParser() {
 	}
 
@@ -108,29 +138,7 @@ public class SoughtParser {
 					}
 				}
 
-				if (seek.getTypeDescription().contains("blitz")) {
-					seek.setType(GameType.blitz);
-				} else if (seek.getTypeDescription().contains("lightning")) {
-					seek.setType(GameType.lightning);
-				} else if (seek.getTypeDescription().contains("standard")) {
-					seek.setType(GameType.standard);
-				} else if (seek.getTypeDescription().contains("suicide")) {
-					seek.setType(GameType.suicide);
-				} else if (seek.getTypeDescription().contains("losers")) {
-					seek.setType(GameType.losers);
-				} else if (seek.getTypeDescription().contains("atomic")) {
-					seek.setType(GameType.atomic);
-				} else if (seek.getTypeDescription().contains("fr")) {
-					seek.setType(GameType.fischerRandom);
-				} else if (seek.getTypeDescription().contains("crazyhouse")) {
-					seek.setType(GameType.crazyhouse);
-				} else if (seek.getTypeDescription().contains("wild")) {
-					seek.setType(GameType.wild);
-				} else if (seek.getTypeDescription().contains("untimed")) {
-					seek.setType(GameType.untimed);
-				} else {
-					seek.setType(GameType.other);
-				}
+				seek.setType(getGameType(seek.getTypeDescription()));
 				seeks.add(seek);
 			}
 			return seeks.toArray(new Seek[0]);
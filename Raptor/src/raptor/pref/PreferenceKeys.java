@@ -174,6 +174,7 @@ public interface PreferenceKeys {
 	public static final String BOARD_IS_SHOW_COORDINATES = "board-show-coordinates";
 	public static final String BOARD_IS_SHOWING_PIECE_JAIL = "board-is-showing-piece-jail";
 	public static final String BOARD_IS_USING_CROSSHAIRS_CURSOR = "board-is-using-crosshairs-cursor";
+	public static final String BOARD_IS_USING_SINGLE_CANVAS = "board-is-using-single-canvas";
 	public static final String BOARD_LAG_FONT = "board-lag-font";
 	public static final String BOARD_LAG_OVER_20_SEC_COLOR = "board-over-20-sec-lag-color";
 	public static final String BOARD_LAYOUT = "board-layout";
@@ -557,6 +557,7 @@ public class RaptorPreferenceStore extends PreferenceStore implements Preference
 		setDefault(BOARD_PLAY_MOVE_SOUND_WHEN_OBSERVING, true);
 		setDefault(BOARD_QUEUED_PREMOVE_ENABLED, false);
 		setDefault(BOARD_IS_USING_CROSSHAIRS_CURSOR, false);
+		setDefault(BOARD_IS_USING_SINGLE_CANVAS, false);
 		setDefault(BOARD_LAYOUT,
 				raptor.swt.chess.layout.RightOrientedLayout.class.getName());
 		setDefault(BOARD_TAKEOVER_INACTIVE_GAMES, true);
@@ -215,6 +215,7 @@ public class ActionContainerPage extends PreferencePage {
 				if (selectedScript > 0) {
 					TableItem[] items = currentActionsTable.getTable()
 							.getItems();
+					RaptorAction[] actions = new RaptorAction[items.length];
 					for (int i = 0; i < items.length; i++) {
 						RaptorAction action = ActionScriptService.getInstance()
 								.getAction(items[i].getText());
@@ -225,8 +226,9 @@ public class ActionContainerPage extends PreferencePage {
 						} else {
 							action.setContainerOrder(container, i);
 						}
-						ActionScriptService.getInstance().saveAction(action);
+						actions[i] = action;
 					}
+					ActionScriptService.getInstance().saveActions(actions);
 					String selectedText = items[selectedScript].getText();
 					items[selectedScript].setText(items[selectedScript - 1]
 							.getText());
@@ -248,6 +250,7 @@ public class ActionContainerPage extends PreferencePage {
 						.getItemCount() - 1) {
 					TableItem[] items = currentActionsTable.getTable()
 							.getItems();
+					RaptorAction[] actions = new RaptorAction[items.length];
 					for (int i = 0; i < items.length; i++) {
 						RaptorAction action = ActionScriptService.getInstance()
 								.getAction(items[i].getText());
@@ -258,8 +261,9 @@ public class ActionContainerPage extends PreferencePage {
 						} else {
 							action.setContainerOrder(container, i);
 						}
-						ActionScriptService.getInstance().saveAction(action);
+						actions[i] = action;
 					}
+					ActionScriptService.getInstance().saveActions(actions);
 					String selectedText = items[selectedScript].getText();
 					items[selectedScript].setText(items[selectedScript + 1]
 							.getText());
@@ -40,6 +40,7 @@ import raptor.script.ChatEventScript;
 import raptor.service.ScriptService;
 import raptor.swt.RaptorTable;
 import raptor.swt.ScriptEditorDialog;
+import raptor.util.IntegerComparator;
 
 public class ChatEventScripts extends PreferencePage {
 
@@ -97,8 +98,12 @@ public class ChatEventScripts extends PreferencePage {
 				| SWT.V_SCROLL | SWT.SINGLE | SWT.FULL_SELECTION);
 		activeScriptsTable.setLayoutData(new GridData(SWT.FILL, SWT.FILL, true,
 				true));
-		activeScriptsTable.addColumn(local.getString("actScrName"), SWT.LEFT, 100, true,
+		activeScriptsTable.addColumn(local.getString("actScrName"), SWT.LEFT, 60, true,
 				null);
+		activeScriptsTable.addColumn(local.getString("scrRuns"), SWT.RIGHT, 20,
+				true, new IntegerComparator());
+		activeScriptsTable.addColumn(local.getString("scrAvgTime"), SWT.RIGHT,
+				20, true, new IntegerComparator());
 		activeScriptsTable.getTable().addSelectionListener(
 				new SelectionAdapter() {
 					@Override
@@ -374,7 +379,9 @@ public class ChatEventScripts extends PreferencePage {
 		List<String[]> inactiveScripts = new ArrayList<String[]>(10);
 		for (ChatEventScript script : allScripts) {
 			if (script.isActive()) {
-				activeScripts.add(new String[] { script.getName() });
+				activeScripts.add(new String[] { script.getName(),
+						String.valueOf(script.getExecutionCount()),
+						String.valueOf(script.getAverageExecutionMicros()) });
 			} else {
 				inactiveScripts.add(new String[] { script.getName() });
 			}
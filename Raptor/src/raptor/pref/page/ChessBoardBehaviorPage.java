@@ -157,5 +157,10 @@ public class ChessBoardBehaviorPage extends FieldEditorPreferencePage {
 				PreferenceKeys.BOARD_SPEAK_WHEN_OBSERVING,
 				local.getString("chesBBehP33"),
 				getFieldEditorParent()));
+
+		addField(new BooleanFieldEditor(
+				PreferenceKeys.BOARD_IS_USING_SINGLE_CANVAS,
+				local.getString("chesBBehP34"),
+				getFieldEditorParent()));
 	}
 }
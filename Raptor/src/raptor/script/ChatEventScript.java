@@ -14,15 +14,18 @@
 package raptor.script;
 
 import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
 
-import raptor.Raptor;
 import raptor.chat.ChatType;
+import raptor.service.ScriptService;
 import raptor.util.Logger;
-import bsh.Interpreter;
 
 /**
- * The chat script class. Currently uses BeanShell to execute scripts.
+ * The chat script class. Currently uses BeanShell to execute scripts. The
+ * script is compiled and cached by the ScriptService, which also keeps track
+ * of how often and how long it runs.
  */
 public class ChatEventScript implements
 		Comparable<ChatEventScript> {
@@ -36,6 +39,7 @@ public class ChatEventScript implements
 
 	@SuppressWarnings("unused")
 	private static final Logger LOG = Logger.getLogger(ChatEventScript.class);
+	private static final AtomicInteger NEXT_VERSION = new AtomicInteger();
 
 	protected ChatType chatType;
 	protected String name = "";
@@ -45,6 +49,9 @@ public class ChatEventScript implements
 	protected boolean isSystemScript = true;
 	protected ScriptConnectorType connectorType = ScriptConnectorType.ICS;
 	protected Pattern pattern = null;
+	protected volatile int version = NEXT_VERSION.incrementAndGet();
+	protected AtomicLong executionCount = new AtomicLong();
+	protected AtomicLong executionNanos = new AtomicLong();
 
 	public int compareTo(ChatEventScript arg0) {
 		return name.compareTo(arg0.name);
@@ -70,14 +77,16 @@ public class ChatEventScript implements
 	 * @param context
 	 */
 	public void execute(ChatScriptContext context) {
-		try {
-			Interpreter interpeter = new Interpreter();
-			interpeter.set("context", context);
-			interpeter.eval("import raptor.chat.*;\n" + script);
-		} catch (Throwable t) {
-			Raptor.getInstance().onError("Error executing script " + name,
-					t);
-		}
+		ScriptService.getInstance().execute(this, context);
+	}
+
+	/**
+	 * Returns the average execution time in microseconds, 0 if the script has
+	 * not run.
+	 */
+	public long getAverageExecutionMicros() {
+		long count = executionCount.get();
+		return count == 0 ? 0 : executionNanos.get() / count / 1000L;
 	}
 
 	public ScriptConnectorType getConnectorType() {
@@ -88,6 +97,20 @@ public class ChatEventScript implements
 		return description;
 	}
 
+	/**
+	 * Returns the number of times the script has been executed.
+	 */
+	public long getExecutionCount() {
+		return executionCount.get();
+	}
+
+	/**
+	 * Returns the total time spent executing the script in nanoseconds.
+	 */
+	public long getExecutionNanos() {
+		return executionNanos.get();
+	}
+
 	public String getName() {
 		return name;
 	}
@@ -100,6 +123,14 @@ public class ChatEventScript implements
 		return script;
 	}
 
+	/**
+	 * Returns a number which changes whenever the script source changes. It is
+	 * unique across all ChatEventScript instances.
+	 */
+	public int getVersion() {
+		return version;
+	}
+
 	public boolean isActive() {
 		return isActive;
 	}
@@ -108,6 +139,15 @@ public class ChatEventScript implements
 		return isSystemScript;
 	}
 
+	/**
+	 * Adds an execution which took the specified number of nanoseconds to the
+	 * execution counters.
+	 */
+	public void recordExecution(long nanos) {
+		executionCount.incrementAndGet();
+		executionNanos.addAndGet(nanos);
+	}
+
 	public void setActive(boolean isActive) {
 		this.isActive = isActive;
 	}
@@ -130,6 +170,7 @@ public class ChatEventScript implements
 
 	public void setScript(String script) {
 		this.script = script;
+		version = NEXT_VERSION.incrementAndGet();
 	}
 
 	public void setSystemScript(boolean isSystemScript) {
@@ -20,6 +20,7 @@ import java.io.FilenameFilter;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -46,6 +47,8 @@ public class ActionScriptService {
 	}
 
 	private static final Logger LOG = Logger.getLogger(ActionScriptService.class);
+
+	private static final RaptorAction[] EMPTY_ACTIONS = new RaptorAction[0];
 	
 	public static boolean serviceCreated = false;
 
@@ -64,11 +67,34 @@ public class ActionScriptService {
 	public List<ActionServiceListener> listeners = Collections
 			.synchronizedList(new ArrayList<ActionServiceListener>(5));
 
+	/**
+	 * Lookup indexes built from nameToActionMap by rebuildIndexes() whenever
+	 * the action set changes. Each map and array is replaced, never modified.
+	 * Callers are handed copies of the arrays.
+	 */
+	private volatile Map<Long, RaptorAction> keyBindingToActionMap = Collections
+			.emptyMap();
+	private volatile Map<Category, RaptorAction[]> categoryToActionsMap = Collections
+			.emptyMap();
+	private volatile Map<RaptorActionContainer, RaptorAction[]> containerToActionsMap = Collections
+			.emptyMap();
+
 	private ActionScriptService() {
 		reload();
 		serviceCreated = true;
 	}
 
+	/**
+	 * Constructs a service holding the specified actions instead of the ones
+	 * on disk.
+	 */
+	protected ActionScriptService(RaptorAction[] actions) {
+		for (RaptorAction action : actions) {
+			nameToActionMap.put(action.getName(), action);
+		}
+		rebuildIndexes();
+	}
+
 	public void addActionServiceListener(ActionServiceListener listener) {
 		listeners.add(listener);
 	}
@@ -79,26 +105,24 @@ public class ActionScriptService {
 	 */
 	public boolean deleteAction(String actionName) {
 		nameToActionMap.remove(actionName);
+		rebuildIndexes();
 		fireActionsChanged();
-		return new File(Raptor.USER_RAPTOR_HOME_PATH + "/scripts/action/"
-				+ actionName + ".properties").delete();
+		return deleteActionFile(actionName);
 	}
 
 	public void dispose() {
 		listeners.clear();
 		nameToActionMap.clear();
+		rebuildIndexes();
 	}
 
+	/**
+	 * Returns the action bound to the specified modifier and key code, or null
+	 * if there is none.
+	 */
 	public RaptorAction getAction(int modifierKey, int keyCode) {
-		RaptorAction result = null;
-		for (RaptorAction action : nameToActionMap.values()) {
-			if (action.getKeyCode() == keyCode
-					&& action.getModifierKey() == modifierKey) {
-				result = action;
-				break;
-			}
-		}
-		return result;
+		return keyBindingToActionMap.get(getKeyBindingKey(modifierKey,
+				keyCode));
 	}
 
 	/**
@@ -112,34 +136,16 @@ public class ActionScriptService {
 	 * Returns all actions in the specified category sorted alphabetically.
 	 */
 	public RaptorAction[] getActions(Category category) {
-		ArrayList<RaptorAction> actions = new ArrayList<RaptorAction>(20);
-		for (RaptorAction action : nameToActionMap.values()) {
-			if (action.getCategory() == category) {
-				actions.add(action);
-			}
-		}
-		Collections.sort(actions, new NameComparator());
-		return actions.toArray(new RaptorAction[0]);
+		RaptorAction[] result = categoryToActionsMap.get(category);
+		return result == null ? EMPTY_ACTIONS : result.clone();
 	}
 
 	/**
-	 * Returns all actions in the specified container.
+	 * Returns all actions in the specified container in container order.
 	 */
 	public RaptorAction[] getActions(RaptorActionContainer container) {
-		ArrayList<RaptorAction> actions = new ArrayList<RaptorAction>(20);		
-		
-//		// currently hardcoded to allow speak whispers and tells
-//		if (container == RaptorAction.RaptorActionContainer.GameChatConsole) {			
-//			actions.add(nameToActionMap.get("Speak Whispers and Kibs"));
-//		}
-		
-		for (RaptorAction action : nameToActionMap.values()) {
-			if (action.isIn(container)) {
-				actions.add(action);
-			}
-		}
-		Collections.sort(actions, new ContainerOrderComparator(container));
-		return actions.toArray(new RaptorAction[0]);
+		RaptorAction[] result = containerToActionsMap.get(container);
+		return result == null ? EMPTY_ACTIONS : result.clone();
 	}
 
 	/**
@@ -185,6 +191,7 @@ public class ActionScriptService {
 	public void reload() {
 		nameToActionMap.clear();
 		loadActions();
+		rebuildIndexes();
 	}
 
 	public void removeActionServiceListener(ActionServiceListener listener) {
@@ -197,27 +204,105 @@ public class ActionScriptService {
 	 * touched.
 	 */
 	public void saveAction(RaptorAction action) {
-		String fileName = Raptor.USER_RAPTOR_HOME_PATH + "/scripts/action/"
-				+ action.getName() + ".properties";
-		FileOutputStream fileOut = null;
-		try {
-			RaptorActionFactory.save(action).store(
-					fileOut = new FileOutputStream(fileName),
-					"Saved in Raptor by ActionScriptService.");
-		} catch (IOException ioe) {
-			Raptor.getInstance().onError(
-					"Error saving action: " + action.getName(), ioe);
-		} finally {
-			try {
-				fileOut.flush();
-				fileOut.close();
-			} catch (Throwable t) {
-			}
+		saveActions(new RaptorAction[] { action });
+	}
+
+	/**
+	 * Saves the actions like saveAction, but rebuilds the lookup indexes and
+	 * notifies the listeners once for all of them. Use it when several actions
+	 * change together, e.g. when a container is reordered.
+	 */
+	public void saveActions(RaptorAction[] actions) {
+		for (RaptorAction action : actions) {
+			storeAction(action);
+			nameToActionMap.put(action.getName(), action);
 		}
-		nameToActionMap.put(action.getName(), action);
+		rebuildIndexes();
 		fireActionsChanged();
 	}
 
+	/**
+	 * Returns the key used in keyBindingToActionMap for the specified modifier
+	 * and key code.
+	 */
+	protected static Long getKeyBindingKey(int modifierKey, int keyCode) {
+		return ((long) modifierKey << 32) | (keyCode & 0xffffffffL);
+	}
+
+	/**
+	 * Rebuilds the key binding, category, and container indexes from
+	 * nameToActionMap. Invoked whenever the action set changes, so lookups
+	 * and toolbar construction never have to scan or sort the actions.
+	 */
+	protected synchronized void rebuildIndexes() {
+		Map<Long, RaptorAction> keyBindings = new HashMap<Long, RaptorAction>();
+		Map<Category, List<RaptorAction>> categoryLists = new EnumMap<Category, List<RaptorAction>>(
+				Category.class);
+		Map<RaptorActionContainer, List<RaptorAction>> containerLists = new EnumMap<RaptorActionContainer, List<RaptorAction>>(
+				RaptorActionContainer.class);
+		RaptorActionContainer[] containers = RaptorActionContainer.values();
+
+		for (RaptorAction action : nameToActionMap.values()) {
+			Long key = getKeyBindingKey(action.getModifierKey(), action
+					.getKeyCode());
+			if (!keyBindings.containsKey(key)) {
+				keyBindings.put(key, action);
+			}
+
+			List<RaptorAction> categoryList = categoryLists.get(action
+					.getCategory());
+			if (categoryList == null) {
+				categoryList = new ArrayList<RaptorAction>(20);
+				categoryLists.put(action.getCategory(), categoryList);
+			}
+			categoryList.add(action);
+
+			for (RaptorActionContainer container : containers) {
+				if (action.isIn(container)) {
+					List<RaptorAction> containerList = containerLists
+							.get(container);
+					if (containerList == null) {
+						containerList = new ArrayList<RaptorAction>(20);
+						containerLists.put(container, containerList);
+					}
+					containerList.add(action);
+				}
+			}
+		}
+
+		Map<Category, RaptorAction[]> categoryArrays = new EnumMap<Category, RaptorAction[]>(
+				Category.class);
+		NameComparator nameComparator = new NameComparator();
+		for (Map.Entry<Category, List<RaptorAction>> entry : categoryLists
+				.entrySet()) {
+			Collections.sort(entry.getValue(), nameComparator);
+			categoryArrays.put(entry.getKey(), entry.getValue().toArray(
+					EMPTY_ACTIONS));
+		}
+
+		Map<RaptorActionContainer, RaptorAction[]> containerArrays = new EnumMap<RaptorActionContainer, RaptorAction[]>(
+				RaptorActionContainer.class);
+		for (Map.Entry<RaptorActionContainer, List<RaptorAction>> entry : containerLists
+				.entrySet()) {
+			Collections.sort(entry.getValue(), new ContainerOrderComparator(
+					entry.getKey()));
+			containerArrays.put(entry.getKey(), entry.getValue().toArray(
+					EMPTY_ACTIONS));
+		}
+
+		keyBindingToActionMap = keyBindings;
+		categoryToActionsMap = categoryArrays;
+		containerToActionsMap = containerArrays;
+	}
+
+	/**
+	 * Deletes the users file for the action. Returns true if it was deleted.
+	 */
+	protected boolean deleteActionFile(String actionName) {
+		return new File(Raptor.USER_RAPTOR_HOME_PATH + "/scripts/action/"
+				+ actionName + ".properties").delete();
+	}
+
 	protected void fireActionsChanged() {
 		synchronized (listeners) {
 			for (ActionServiceListener listener : listeners) {
@@ -305,4 +390,27 @@ public class ActionScriptService {
 					+ (System.currentTimeMillis() - startTime) + "ms");
 		}
 	}
+
+	/**
+	 * Writes the action to its file in the users home directory.
+	 */
+	protected void storeAction(RaptorAction action) {
+		String fileName = Raptor.USER_RAPTOR_HOME_PATH + "/scripts/action/"
+				+ action.getName() + ".properties";
+		FileOutputStream fileOut = null;
+		try {
+			RaptorActionFactory.save(action).store(
+					fileOut = new FileOutputStream(fileName),
+					"Saved in Raptor by ActionScriptService.");
+		} catch (IOException ioe) {
+			Raptor.getInstance().onError(
+					"Error saving action: " + action.getName(), ioe);
+		} finally {
+			try {
+				fileOut.flush();
+				fileOut.close();
+			} catch (Throwable t) {
+			}
+		}
+	}
 }
@@ -14,17 +14,32 @@
 package raptor.service;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Pattern;
 
 import raptor.Raptor;
 import raptor.chat.ChatEvent;
 import raptor.chat.ChatLogger;
+import raptor.chat.ChatType;
 import raptor.connector.Connector;
 import raptor.pref.PreferenceKeys;
+import raptor.util.PatternSet;
 
 /**
  * A service which invokes chatEventOccured on added ChatListeners when a
  * ChatEvents arrive on a connector.
+ * 
+ * Listeners which only want certain events, e.g. a channel or person tab, are
+ * added with the route keys of those events. Each event is then only offered
+ * to the listeners registered under its keys, so the cost of publishing does
+ * not grow with the number of open tabs. Listeners added without keys see
+ * every event.
  */
 public class ChatService {
 
@@ -35,10 +50,23 @@ public class ChatService {
 	}
 
 	protected Connector connector = null;
-	protected List<ChatListener> listeners = new ArrayList<ChatListener>(5);
-	protected List<ChatListener> mainConsoleListeners = new ArrayList<ChatListener>(
-			5);
+	protected List<ChatListener> listeners = new CopyOnWriteArrayList<ChatListener>();
+	protected List<ChatListener> mainConsoleListeners = new CopyOnWriteArrayList<ChatListener>();
+
+	/**
+	 * Route key to the listeners registered under it. The map and its arrays
+	 * are replaced, never modified, when listeners are added or removed.
+	 */
+	protected volatile Map<String, ChatListener[]> routes = Collections
+			.emptyMap();
+	protected volatile String sourceOfLastTellReceived;
 	protected ChatLogger logger = null;
+	protected List<Pattern> routePatternList = new ArrayList<Pattern>(5);
+	protected PatternSet routePatterns = PatternSet.EMPTY;
+	protected ChatEvent lastRoutedEvent;
+	protected String lastRoutedMessage;
+	protected BitSet lastRouteMatches;
+	protected PatternSet lastRoutePatterns;
 
 	/**
 	 * Constructs a chat service for the specified connector.
@@ -51,6 +79,12 @@ public class ChatService {
 				+ "/chatcache/" + connector.getShortName() + ".txt");
 	}
 
+	/**
+	 * Constructs a chat service without a connector or a chat logger.
+	 */
+	protected ChatService() {
+	}
+
 	/**
 	 * Adds a ChatServiceListener to the chat service. Please remove the
 	 * listener when you no longer need the ChatService to avoid memory leaks.
@@ -59,19 +93,60 @@ public class ChatService {
 		listeners.add(listener);
 	}
 
+	/**
+	 * Adds a listener which is only offered the events with one of the
+	 * specified route keys, see getRouteKey. isHandling is still called before
+	 * an event is delivered. If routeKeys is null the listener sees every
+	 * event.
+	 */
+	public synchronized void addChatServiceListener(ChatListener listener,
+			String[] routeKeys) {
+		if (routeKeys == null) {
+			addChatServiceListener(listener);
+			return;
+		}
+
+		Map<String, ChatListener[]> newRoutes = new HashMap<String, ChatListener[]>(
+				routes);
+		for (String routeKey : routeKeys) {
+			ChatListener[] routed = newRoutes.get(routeKey);
+			if (routed == null) {
+				newRoutes.put(routeKey, new ChatListener[] { listener });
+			} else {
+				ChatListener[] newRouted = new ChatListener[routed.length + 1];
+				System.arraycopy(routed, 0, newRouted, 0, routed.length);
+				newRouted[routed.length] = listener;
+				newRoutes.put(routeKey, newRouted);
+			}
+		}
+		routes = newRoutes;
+	}
+
 	public void addMainConsoleListener(ChatListener listener) {
 		mainConsoleListeners.add(listener);
 	}
 
+	/**
+	 * Registers a pattern listeners route events with, e.g. a regular
+	 * expression tab. Registered patterns are matched against each event
+	 * together in one pass. Remove the pattern when it is no longer used.
+	 */
+	public synchronized void addRoutePattern(Pattern pattern) {
+		routePatternList.add(pattern);
+		routePatterns = new PatternSet(routePatternList);
+	}
+
 	/**
 	 * Disposes all resources the ChatService is using.
 	 */
 	public void dispose() {
 		listeners.clear();
 		if (logger != null) {
+			logger.close();
 			logger.delete();
 		}
 		listeners = null;
+		routes = Collections.emptyMap();
 		logger = null;
 		connector = null;
 	}
@@ -83,6 +158,16 @@ public class ChatService {
 		return logger;
 	}
 
+	/**
+	 * Returns the route key for events of the specified type, or of any type
+	 * if type is null, with the specified channel, source or game id. If value
+	 * is null the key matches every event of the type.
+	 */
+	public static String getRouteKey(ChatType type, String value) {
+		String typeKey = type == null ? "*" : type.name();
+		return value == null ? typeKey : typeKey + ' ' + value.toLowerCase();
+	}
+
 	/**
 	 * Returns the Connector backing this ChatService.
 	 */
@@ -91,46 +176,178 @@ public class ChatService {
 	}
 
 	/**
-	 * Chat events are published asynchronously.
+	 * Returns the source of the last tell published, null if there hasn't
+	 * been one.
+	 */
+	public String getSourceOfLastTellReceived() {
+		return sourceOfLastTellReceived;
+	}
+
+	/**
+	 * Returns true if a listener is registered under the route key. This is a
+	 * cheap way to tell if, e.g., a channel tab is already open.
+	 */
+	public boolean hasRoute(String routeKey) {
+		return routes.containsKey(routeKey);
+	}
+
+	/**
+	 * Returns true if the pattern matches the entire message of the event. If
+	 * the pattern was registered with addRoutePattern, all registered patterns
+	 * are matched the first time any of them is tested against an event and
+	 * the results are reused for the others.
+	 */
+	public synchronized boolean matchesRoutePattern(ChatEvent event,
+			Pattern pattern) {
+		String message = event.getMessage();
+		int index = routePatterns.indexOf(pattern);
+		if (index == -1) {
+			return pattern.matcher(message).matches();
+		}
+		if (lastRoutedEvent != event || lastRoutePatterns != routePatterns
+				|| !message.equals(lastRoutedMessage)) {
+			lastRoutedEvent = event;
+			lastRoutedMessage = message;
+			lastRoutePatterns = routePatterns;
+			lastRouteMatches = routePatterns.getMatches(message);
+		}
+		return lastRouteMatches.get(index);
+	}
+
+	/**
+	 * Chat events are published on the calling thread, which is the
+	 * connector's event pipeline thread for inbound messages, so listeners
+	 * receive them in order. Listeners should hand any UI work off to the
+	 * display thread.
 	 */
 	public void publishChatEvent(final ChatEvent event) {
-		ThreadService.getInstance().run(new Runnable() {
-			public void run() {
-				if (listeners == null) {
-					return;
-				}
-				boolean wasHandled = false;
-				for (ChatListener listener : listeners) {
-					if (listener.isHandling(event)) {
-						listener.chatEventOccured(event);
-						wasHandled = true;
-					}
+		List<ChatListener> listeners = this.listeners;
+		ChatLogger logger = this.logger;
+		if (listeners == null) {
+			return;
+		}
+		if (event.getType() == ChatType.TELL) {
+			sourceOfLastTellReceived = event.getSource();
+		}
+
+		boolean wasHandled = false;
+		for (ChatListener listener : listeners) {
+			if (listener.isHandling(event)) {
+				listener.chatEventOccured(event);
+				wasHandled = true;
+			}
+		}
+		for (ChatListener listener : getRoutedListeners(event)) {
+			if (listener.isHandling(event)) {
+				listener.chatEventOccured(event);
+				wasHandled = true;
+			}
+		}
+
+		if (!wasHandled || !isRemovingSubTabMessagesFromMainTab()) {
+			for (ChatListener listener : mainConsoleListeners) {
+				if (listener.isHandling(event)) {
+					listener.chatEventOccured(event);
+					wasHandled = true;
 				}
+			}
+		}
+		if (logger != null) {
+			logger.write(event);
+		}
+	}
+
+	/**
+	 * Returns the listeners registered under any of the event's route keys,
+	 * each one once.
+	 */
+	protected List<ChatListener> getRoutedListeners(ChatEvent event) {
+		Map<String, ChatListener[]> routes = this.routes;
+		if (routes.isEmpty()) {
+			return Collections.emptyList();
+		}
 
-				if (!wasHandled
-						|| !Raptor
-								.getInstance()
-								.getPreferences()
-								.getBoolean(
-										PreferenceKeys.CHAT_REMOVE_SUB_TAB_MESSAGES_FROM_MAIN_TAB)) {
-					for (ChatListener listener : mainConsoleListeners) {
-						if (listener.isHandling(event)) {
-							listener.chatEventOccured(event);
-							wasHandled = true;
-						}
-					}
+		ChatType type = event.getType();
+		List<ChatListener> result = addRoutedListeners(routes, getRouteKey(
+				type, null), null);
+		if (event.getChannel() != null) {
+			result = addRoutedListeners(routes, getRouteKey(type, event
+					.getChannel()), result);
+		}
+		if (event.getSource() != null) {
+			result = addRoutedListeners(routes, getRouteKey(type, event
+					.getSource()), result);
+		}
+		if (event.getGameId() != null && event.getGameId().length() > 0) {
+			result = addRoutedListeners(routes, getRouteKey(null, event
+					.getGameId()), result);
+		}
+		return result == null ? Collections.<ChatListener> emptyList()
+				: result;
+	}
+
+	/**
+	 * Returns true if events handled by a sub tab should not also be shown in
+	 * the main console.
+	 */
+	protected boolean isRemovingSubTabMessagesFromMainTab() {
+		return Raptor.getInstance().getPreferences().getBoolean(
+				PreferenceKeys.CHAT_REMOVE_SUB_TAB_MESSAGES_FROM_MAIN_TAB);
+	}
+
+	/**
+	 * Adds the listeners under routeKey to result, which is created if it is
+	 * null and there are any, skipping listeners already in it.
+	 */
+	protected List<ChatListener> addRoutedListeners(
+			Map<String, ChatListener[]> routes, String routeKey,
+			List<ChatListener> result) {
+		ChatListener[] routed = routes.get(routeKey);
+		if (routed != null) {
+			if (result == null) {
+				result = new ArrayList<ChatListener>(routed.length + 1);
+			}
+			for (ChatListener listener : routed) {
+				if (!result.contains(listener)) {
+					result.add(listener);
 				}
-				logger.write(event);
 			}
-		});
+		}
+		return result;
+	}
+
+	/**
+	 * Unregisters a pattern added with addRoutePattern.
+	 */
+	public synchronized void removeRoutePattern(Pattern pattern) {
+		if (routePatternList.remove(pattern)) {
+			routePatterns = new PatternSet(routePatternList);
+		}
+	}
+
+	public void setSourceOfLastTellReceived(String sourceOfLastTellReceived) {
+		this.sourceOfLastTellReceived = sourceOfLastTellReceived;
 	}
 
 	/**
 	 * Removes a listener from the ChatService.
 	 */
-	public void removeChatServiceListener(ChatListener listener) {
+	public synchronized void removeChatServiceListener(ChatListener listener) {
 		listeners.remove(listener);
 		mainConsoleListeners.remove(listener);
+
+		Map<String, ChatListener[]> newRoutes = new HashMap<String, ChatListener[]>(
+				routes.size());
+		for (Map.Entry<String, ChatListener[]> entry : routes.entrySet()) {
+			List<ChatListener> routed = new ArrayList<ChatListener>(Arrays
+					.asList(entry.getValue()));
+			routed.remove(listener);
+			if (!routed.isEmpty()) {
+				newRoutes.put(entry.getKey(), routed
+						.toArray(new ChatListener[routed.size()]));
+			}
+		}
+		routes = newRoutes;
 	}
 
 }
@@ -18,9 +18,6 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.TreeSet;
@@ -30,8 +27,14 @@ import org.apache.commons.lang.StringUtils;
 
 import raptor.Raptor;
 import raptor.util.Logger;
+import raptor.util.PackedWordList;
 import raptor.util.RegExUtils;
 
+/**
+ * Spell checks and completes words. The system dictionary is loaded once into
+ * a PackedWordList, and the FICS or user dictionary into a set, so lookups
+ * never touch the disk.
+ */
 public class DictionaryService {
 	private static final Logger LOG = Logger.getLogger(DictionaryService.class);
 	public static boolean serviceCreated = false;
@@ -48,6 +51,8 @@ public class DictionaryService {
 
 	public Set<String> customDictionary = new TreeSet<String>();
 
+	protected PackedWordList dictionary = new PackedWordList(new byte[0]);
+
 	private DictionaryService() {
 		init();
 		serviceCreated = true;
@@ -61,13 +66,23 @@ public class DictionaryService {
 		return singletonInstance;
 	}
 
-	public void addWord(String word) {
-		if (!customDictionary.contains(word.toLowerCase())) {
-			customDictionary.add(word);
-			try (FileWriter writer = new FileWriter(Raptor.USER_RAPTOR_HOME_PATH
-						+ "/customDictionary.txt", false)) {
-				for (String currentWord : customDictionary) {
-					writer.write(currentWord + "\n");
+	/**
+	 * Adds a word to the user dictionary. Once the user dictionary exists the
+	 * word is appended to it. The first time, the whole custom dictionary is
+	 * written so the FICS words it was started from are kept.
+	 */
+	public synchronized void addWord(String word) {
+		word = word.toLowerCase();
+		if (customDictionary.add(word)) {
+			File userFile = new File(USER_DICTIONARY_PATH);
+			boolean isAppending = userFile.exists();
+			try (FileWriter writer = new FileWriter(userFile, isAppending)) {
+				if (isAppending) {
+					writer.write(word + "\n");
+				} else {
+					for (String currentWord : customDictionary) {
+						writer.write(currentWord + "\n");
+					}
 				}
 				writer.flush();
 			} catch (Throwable t) {
@@ -79,155 +94,13 @@ public class DictionaryService {
 	}
 
 	public String[] getWordsThatStartWith(String string) {
-		List<String> result = new ArrayList<String>(10);
-
-		string = string.toLowerCase();
-		long startTime = System.currentTimeMillis();
-		File file = new File(DICTIONARY_PATH);
-		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
-			long low = 0;
-			long high = file.length();
-
-			long p = -1;
-			while (low < high) {
-				long mid = (low + high) / 2;
-				p = mid;
-				while (p >= 0) {
-					raf.seek(p);
-
-					char c = (char) raf.readByte();
-					if (c == '\n')
-						break;
-					p--;
-				}
-				if (p < 0)
-					raf.seek(0);
-				String line = raf.readLine();
-				// Useful for debugging
-				// System.out.println("-- " + mid + " " + line);
-				if (line == null) {
-					low = high;
-				} else {
-					int compare = line.compareTo(string);
-					if (compare < 0) {
-						low = mid + 1;
-					} else if (compare == 0) {
-						low = p;
-						break;
-					} else {
-						high = mid;
-					}
-				}
-			}
-
-			p = low;
-			while (p >= 0 && p < high) {
-				raf.seek(p);
-				if (((char) raf.readByte()) == '\n')
-					break;
-				p--;
-			}
-
-			if (p < 0)
-				raf.seek(0);
-
-			String line = raf.readLine();
-			while (line != null && line.startsWith(string)) {
-				result.add(line);
-				line = raf.readLine();
-			}
-		} catch (Throwable t) {
-			Raptor.getInstance().onError(
-					"Error reading dictionary file: " + DICTIONARY_PATH, t);
-		} finally {
-			if (LOG.isDebugEnabled()) {
-				LOG.debug("Searched " + string + " ("
-						+ (System.currentTimeMillis() - startTime) + ") "
-						+ result);
-			}
-		}
-		return result.toArray(new String[0]);
-	}
-
-	/**
-	 * This method started out as code from
-	 * http://stackoverflow.com/questions/736556/binary
-	 * -search-in-a-sorted-memory-mapped-file-in-java
-	 * 
-	 * It has been altered to fix some bugs.
-	 */
-	protected boolean binarySearch(File file, String word) {
-		word = word.toLowerCase();
 		long startTime = LOG.isDebugEnabled() ? System.currentTimeMillis() : 0;
-		boolean result = false;
-		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
-			long low = 0;
-			long high = file.length();
-
-			long p = -1;
-			while (low < high) {
-				long mid = (low + high) / 2;
-				p = mid;
-				while (p >= 0) {
-					raf.seek(p);
-
-					char c = (char) raf.readByte();
-					if (c == '\n')
-						break;
-					p--;
-				}
-				if (p < 0)
-					raf.seek(0);
-				String line = raf.readLine();
-				// Useful for debugging
-				// System.out.println("-- " + mid + " " + line);
-				if (line == null) {
-					low = high;
-				} else {
-					int compare = line.compareTo(word);
-					if (compare < 0) {
-						low = mid + 1;
-					} else if (compare == 0) {
-						return true;
-					} else {
-						high = mid;
-					}
-				}
-			}
-
-			p = low;
-			while (p >= 0 && p < high) {
-				raf.seek(p);
-				if (((char) raf.readByte()) == '\n')
-					break;
-				p--;
-			}
-
-			if (p < 0)
-				raf.seek(0);
-
-			String line;
-			do {
-				line = raf.readLine();
-				// Useful for debugging.
-				// System.out.println("searching forwards " + line);
-				if (line == null) {
-					result = false;
-					break;
-				} else if (line.equals(word)) {
-					result = true;
-					break;
-				}
-			} while (line.startsWith(word));
-		} catch (Throwable t) {
-			Raptor.getInstance().onError(
-					"Error reading dictionary file: " + DICTIONARY_PATH, t);
-		} finally {
-			if (LOG.isDebugEnabled()) {
-				LOG.debug("Searched " + word + " ("
-						+ (System.currentTimeMillis() - startTime) + "ms) "
-						+ result);
-			}
+		String[] result = dictionary.getWordsThatStartWith(string
+				.toLowerCase());
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("Searched " + string + " ("
+					+ (System.currentTimeMillis() - startTime) + "ms) "
+					+ result.length + " words");
 		}
 		return result;
 	}
@@ -235,6 +108,13 @@ public class DictionaryService {
 	protected void init() {
 		long startTime = System.currentTimeMillis();
 		customDictionary.clear();
+		try {
+			dictionary = PackedWordList.load(new File(DICTIONARY_PATH));
+		} catch (Throwable t) {
+			Raptor.getInstance().onError(
+					"Error reading dictionary file: " + DICTIONARY_PATH, t);
+		}
+
 		BufferedReader reader = null;
 		try {
 			File userFile = new File(USER_DICTIONARY_PATH);
@@ -248,7 +128,7 @@ public class DictionaryService {
 				if (StringUtils.isNotBlank(currentLine)
 						&& !currentLine.startsWith("#")) {
 					StringTokenizer tok = new StringTokenizer(currentLine, " /");
-					customDictionary.add(tok.nextToken());
+					customDictionary.add(tok.nextToken().toLowerCase());
 				}
 			}
 		} catch (Throwable t) {
@@ -262,22 +142,24 @@ public class DictionaryService {
 				}
 			}
 		}
-		LOG.info("Initialized Dictionary Service " + customDictionary.size()
-				+ " words in " + (System.currentTimeMillis() - startTime)
-				+ "ms");
+		LOG.info("Initialized Dictionary Service " + dictionary.size()
+				+ " words and " + customDictionary.size()
+				+ " custom words in "
+				+ (System.currentTimeMillis() - startTime) + "ms");
 	}
 
-	public void dispose() {
+	public synchronized void dispose() {
 		customDictionary.clear();
 		customDictionary = null;
+		dictionary = null;
 	}
 
-	public boolean isValidWord(String word) {
-		if (!RegExUtils.matches(VALID_WORD_PATTERN, word)
-				|| customDictionary.contains(word.toLowerCase())) {
+	public synchronized boolean isValidWord(String word) {
+		if (!RegExUtils.matches(VALID_WORD_PATTERN, word)) {
 			return true;
 		} else {
-			return binarySearch(new File(DICTIONARY_PATH), word);
+			word = word.toLowerCase();
+			return customDictionary.contains(word) || dictionary.contains(word);
 		}
 	}
 
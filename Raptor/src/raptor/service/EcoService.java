@@ -13,29 +13,49 @@
  */
 package raptor.service;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
-import java.util.regex.MatchResult;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import raptor.Raptor;
 import raptor.chess.EcoInfo;
 import raptor.chess.Game;
 import raptor.chess.GameConstants;
+import raptor.chess.GameConstants.PieceColor;
+import raptor.chess.GameConstants.PieceType;
+import raptor.chess.GameFactory;
 import raptor.chess.Variant;
-import raptor.chess.util.GameUtils;
+import raptor.chess.util.ZobristUtils;
+import raptor.util.LongObjectMap;
 import raptor.util.Logger;
 
 /**
  * A singleton service which can be used to lookup the opening description and
  * ECO code of the current position in a game.  Caches the 400KB code table.
  * 
+ * Positions are keyed by their Zobrist hash, so a lookup is a probe of a long
+ * keyed map using the hash the game already maintains. Games which have
+ * fewer pieces than any position in the book, or have moved pawns every
+ * position in it still has on their starting squares, are not looked up at
+ * all. The keys are cached on disk, so the book file is only parsed again
+ * when it changes.
+ * 
  * Currently this service only supports Classic but hopefully others will
  * contribute files to match other variants (bug,zh,suicide,losers,etc).
  */
@@ -43,30 +63,49 @@ public class EcoService {
 
 	private static final Logger LOG = Logger.getLogger(EcoService.class);
 
-	private static EcoService singletonInstance;
+	protected static final int CACHE_MAGIC = 0x5245434f;
+	protected static final int CACHE_VERSION = 1;
+
+	private static volatile EcoService singletonInstance;
 	
 	public static boolean serviceCreated = false;
 
+	/**
+	 * Returns the singleton, creating it on first use. Games look up their
+	 * ECO code on every move, possibly from several parsing threads at once.
+	 */
 	public static EcoService getInstance() {
-		if (singletonInstance != null)
-			return singletonInstance;
-
-		singletonInstance = new EcoService();
-		return singletonInstance;
+		EcoService result = singletonInstance;
+		if (result == null) {
+			synchronized (EcoService.class) {
+				result = singletonInstance;
+				if (result == null) {
+					singletonInstance = result = new EcoService();
+				}
+			}
+		}
+		return result;
 	}
 
-	private Map<Variant, Map<String, EcoInfo>> typeToFenToEco = new HashMap<Variant, Map<String, EcoInfo>>();
+	private Map<Variant, EcoBook> typeToBook = new HashMap<Variant, EcoBook>();
 
 	private EcoService() {
-		initClassic();
+		this(new File(Raptor.USER_RAPTOR_HOME_PATH + "/ecocache/classic.bin"));
 		serviceCreated = true;
 	}
 
+	/**
+	 * Constructs a service which caches the classic book in cacheFile.
+	 */
+	protected EcoService(File cacheFile) {
+		initClassic(cacheFile);
+	}
+
 	/**
 	 * Disposes the EcoService.
 	 */
 	public void dispose() {
-		typeToFenToEco.clear();
+		typeToBook.clear();
 	}
 
 	/**
@@ -76,11 +115,7 @@ public class EcoService {
 	public EcoInfo getEcoInfo(Game game) {
 		// Don't add debug messages in here. It gets called so often they are
 		// annoying and really slow it down.
-		Map<String, EcoInfo> map = typeToFenToEco.get(getAdjustedVariant(game));
-		if (map == null) {
-			return null;
-		}
-		return map.get(getFenKey(game, true));
+		return getEcoInfo(game, true);
 	}
 
 	/**
@@ -90,13 +125,8 @@ public class EcoService {
 	public String getEco(Game game) {
 		// Don't add debug messages in here. It gets called so often they are
 		// annoying and really slow it down.
-		Map<String, EcoInfo> map = typeToFenToEco.get(getAdjustedVariant(game));
-		if (map == null) {
-			return null;
-		} else {
-			EcoInfo info = map.get(getFenKey(game, true));
-			return info == null ? null : info.getEcoCode();
-		}
+		EcoInfo info = getEcoInfo(game, true);
+		return info == null ? null : info.getEcoCode();
 	}
 
 	/**
@@ -106,13 +136,19 @@ public class EcoService {
 	public String getLongDescription(Game game) {
 		// Don't add debug messages in here. It gets called so often they are
 		// annoying and really slow it down.
-		Map<String, EcoInfo> map = typeToFenToEco.get(getAdjustedVariant(game));
-		if (map == null) {
-			return null;
-		} else {
-			EcoInfo info = map.get(getFenKey(game, false));
-			return info == null ? null : info.getOpening();
-		}
+		EcoInfo info = getEcoInfo(game, false);
+		return info == null ? null : info.getOpening();
+	}
+
+	/**
+	 * Returns true if the game could still be in a position in the book for
+	 * its variant. Once this returns false the game can't get back into the
+	 * book, since captured pieces don't come back. The move number is not
+	 * used, a book position can be reached by transposition at any move.
+	 */
+	public boolean isInBookDepth(Game game) {
+		EcoBook book = typeToBook.get(getAdjustedVariant(game));
+		return book != null && book.isInBookDepth(game);
 	}
 
 	protected Variant getAdjustedVariant(Game game) {
@@ -123,41 +159,132 @@ public class EcoService {
 		}
 	}
 
-	protected String getFenKey(Game game, boolean includeEP) {
-		return game.toFenPosition()
-			+ " "
-			+ (game.isWhitesMove() ? 'w' : 'b')
-			+ " "
-			+ game.getFenCastle()
-			+ " "
-			+ (includeEP ? game.getEpSquare() == GameConstants.Square.EMPTY ? "-"
-				: GameUtils.getSan(game.getEpSquare())
-				: "-");
+	protected EcoInfo getEcoInfo(Game game, boolean includeEP) {
+		EcoBook book = typeToBook.get(getAdjustedVariant(game));
+		if (book == null || !book.isInBookDepth(game)) {
+			return null;
+		}
+		return book.positions.get(getKey(game, includeEP));
+	}
+
+	/**
+	 * Returns the Zobrist hash the game is looked up with. If includeEP is
+	 * false the hash is taken as if there was no en passant square.
+	 */
+	protected long getKey(Game game, boolean includeEP) {
+		if (includeEP || game.getEpSquare() == GameConstants.Square.EMPTY) {
+			return game.getZobristGameHash();
+		}
+		return game.getZobristPositionHash()
+				^ ZobristUtils.zobrist(game.getColorToMove(),
+						GameConstants.Square.EMPTY, game
+								.getCastling(PieceColor.WHITE), game
+								.getCastling(PieceColor.BLACK));
+	}
+
+	private void initClassic(File cacheFile) {
+		File file = new File(Raptor.RESOURCES_DIR + "scidECO.txt");
+		EcoBook book = readCache(file, cacheFile);
+		if (book == null) {
+			book = parse(file, Variant.classic, cacheFile);
+		}
+		typeToBook.put(Variant.classic, book);
+	}
+
+	/**
+	 * Returns the book stored in cacheFile, or null if there is none or it was
+	 * not written from the current bookFile.
+	 */
+	protected EcoBook readCache(File bookFile, File cacheFile) {
+		if (!cacheFile.isFile()) {
+			return null;
+		}
+		long startTime = System.currentTimeMillis();
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(cacheFile)))) {
+			if (in.readInt() != CACHE_MAGIC || in.readInt() != CACHE_VERSION
+					|| in.readLong() != bookFile.length()
+					|| in.readLong() != bookFile.lastModified()) {
+				return null;
+			}
+			EcoBook result = new EcoBook();
+			result.minPieceCount = in.readInt();
+			result.unmovedPawnMasks = new int[in.readInt()];
+			for (int i = 0; i < result.unmovedPawnMasks.length; i++) {
+				result.unmovedPawnMasks[i] = in.readInt();
+			}
+			int count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				long key = in.readLong();
+				String eco = in.readUTF();
+				result.positions.put(key, new EcoInfo(null, eco, in.readUTF()));
+			}
+			if (LOG.isDebugEnabled()) {
+				LOG.info("readCache( " + cacheFile.getAbsolutePath()
+						+ ") executed in "
+						+ (System.currentTimeMillis() - startTime) + "ms");
+			}
+			return result;
+		} catch (IOException ioe) {
+			LOG.warn("Error reading ECO cache " + cacheFile.getAbsolutePath(),
+					ioe);
+			return null;
+		}
 	}
 
-	private void initClassic() {
-		File file = new File(raptor.Raptor.RESOURCES_DIR + "scidECO.txt");
-		typeToFenToEco.put(Variant.classic, parse(file));
+	/**
+	 * Writes the book to cacheFile, stamped with the length and modification
+	 * time of bookFile. A cache which can't be written is deleted, the book is
+	 * then parsed again on the next start.
+	 */
+	protected void writeCache(File bookFile, File cacheFile, EcoBook book,
+			long[] keys, List<String[]> infos) {
+		cacheFile.getParentFile().mkdirs();
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(cacheFile)))) {
+			out.writeInt(CACHE_MAGIC);
+			out.writeInt(CACHE_VERSION);
+			out.writeLong(bookFile.length());
+			out.writeLong(bookFile.lastModified());
+			out.writeInt(book.minPieceCount);
+			out.writeInt(book.unmovedPawnMasks.length);
+			for (int mask : book.unmovedPawnMasks) {
+				out.writeInt(mask);
+			}
+			out.writeInt(infos.size());
+			for (int i = 0; i < infos.size(); i++) {
+				out.writeLong(keys[i]);
+				out.writeUTF(infos.get(i)[0]);
+				out.writeUTF(infos.get(i)[1]);
+			}
+		} catch (IOException ioe) {
+			LOG.warn("Error writing ECO cache " + cacheFile.getAbsolutePath(),
+					ioe);
+			cacheFile.delete();
+		}
 	}
 
 	/**
 	 * Parses information from an idx file. These files contain FEN on one line
 	 * followed by a string on another line. The string can be either eco or
-	 * description.
+	 * description. The parsed book is written to cacheFile.
 	 * 
 	 * @param file
 	 *            File containing the ECO information.
 	 * @throws IOException
 	 *             If something goes wrong during reading.
 	 */
-	private Map<String, EcoInfo> parse(File file) {
+	private EcoBook parse(File file, Variant variant, File cacheFile) {
 		if (LOG.isDebugEnabled()) {
 			LOG.info("parse(" + file.getAbsolutePath() + ")");
 		}
 		long startTime = System.currentTimeMillis();
-		Map<String, EcoInfo> result = new TreeMap<String, EcoInfo>();
+		EcoBook result = new EcoBook();
+		long[] keys = new long[16384];
+		List<String[]> infos = new ArrayList<String[]>(16384);
+		BitSet unmovedPawns = new BitSet(1 << 16);
 
-		Pattern pattern = Pattern.compile("(\\w+) (.*) (\\w+(?:\\/\\w+){7} [wb] (?:\\-|K?Q?k?q?) (?:\\-|[a-h][36])) \\d+ \\d+");
+		Pattern pattern = Pattern.compile("(\\w+) (.*) (\\w+(?:\\/\\w+){7} [wb] (?:\\-|K?Q?k?q?) (?:\\-|[a-h][36]) \\d+ \\d+)");
 		Matcher matcher = pattern.matcher("");
 		try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
 			String currentLine;
@@ -165,21 +292,100 @@ public class EcoService {
 				if (matcher.reset(currentLine).matches()) {
 					String eco = matcher.group(1);
 					String description = matcher.group(2);
-					String fen = matcher.group(3);
+					Game game = GameFactory.createFromFen(matcher.group(3),
+							variant);
 
 					// Decrease memory consumption of ECOService by 50%
 					//result.put(fen.toString(), new EcoInfo(fen.toString(), eco, description.toString()));
-					result.put(fen, new EcoInfo(null, eco, description));
+					result.add(game, new EcoInfo(null, eco, description));
+					unmovedPawns.set(EcoBook.getUnmovedPawns(game));
+					if (infos.size() == keys.length) {
+						keys = Arrays.copyOf(keys, keys.length * 2);
+					}
+					keys[infos.size()] = game.getZobristGameHash();
+					infos.add(new String[] { eco, description });
 				}
 				matcher.reset();
 			}
 		} catch (IOException ioe) {
 			throw new RuntimeException(ioe);
 		}
+		result.setUnmovedPawns(unmovedPawns);
+		writeCache(file, cacheFile, result, keys, infos);
 		if (LOG.isDebugEnabled()) {
 			LOG.info("parse( " + file.getAbsolutePath() + ") executed in "
 					+ (System.currentTimeMillis() - startTime) + "ms");
 		}
 		return result;
 	}
+
+	/**
+	 * The positions of a variant keyed by Zobrist game hash, and the bounds
+	 * used to tell when a game has left the book: the fewest pieces any
+	 * position has, and the pawns left on their starting squares. Captured
+	 * pieces don't come back and a pawn which has moved can't return to its
+	 * starting square, so a game can only reach a position with no more
+	 * pieces, and whose unmoved pawns are a subset of its own.
+	 */
+	protected static class EcoBook {
+		protected int minPieceCount = Integer.MAX_VALUE;
+		protected LongObjectMap<EcoInfo> positions = new LongObjectMap<EcoInfo>(
+				16384);
+		/**
+		 * The minimal sets of unmoved pawns of the positions, in the format of
+		 * getUnmovedPawns. Every position's set contains one of them.
+		 */
+		protected int[] unmovedPawnMasks = new int[0];
+
+		/**
+		 * Returns the white pawns on the second rank in bits 0-7 and the black
+		 * pawns on the seventh rank in bits 8-15.
+		 */
+		protected static int getUnmovedPawns(Game game) {
+			return (int) ((game.getPieceBB(PieceColor.WHITE, PieceType.PAWN) & GameConstants.RANK2) >>> 8)
+					| (int) ((game.getPieceBB(PieceColor.BLACK, PieceType.PAWN) & GameConstants.RANK7) >>> 40);
+		}
+
+		protected void add(Game game, EcoInfo info) {
+			positions.put(game.getZobristGameHash(), info);
+			minPieceCount = Math.min(minPieceCount, Long.bitCount(game
+					.getOccupiedBB()));
+		}
+
+		protected boolean isInBookDepth(Game game) {
+			if (Long.bitCount(game.getOccupiedBB()) < minPieceCount) {
+				return false;
+			}
+			int unmovedPawns = getUnmovedPawns(game);
+			for (int mask : unmovedPawnMasks) {
+				if ((mask & ~unmovedPawns) == 0) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Sets unmovedPawnMasks to the minimal sets among the unmoved pawns of
+		 * the positions.
+		 */
+		protected void setUnmovedPawns(BitSet unmovedPawns) {
+			List<Integer> masks = new ArrayList<Integer>();
+			for (int mask = unmovedPawns.nextSetBit(0); mask != -1; mask = unmovedPawns
+					.nextSetBit(mask + 1)) {
+				boolean isMinimal = true;
+				for (int other = unmovedPawns.nextSetBit(0); other != -1
+						&& isMinimal; other = unmovedPawns.nextSetBit(other + 1)) {
+					isMinimal = other == mask || (other & ~mask) != 0;
+				}
+				if (isMinimal) {
+					masks.add(mask);
+				}
+			}
+			unmovedPawnMasks = new int[masks.size()];
+			for (int i = 0; i < unmovedPawnMasks.length; i++) {
+				unmovedPawnMasks[i] = masks.get(i);
+			}
+		}
+	}
 }
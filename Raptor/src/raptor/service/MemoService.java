@@ -58,6 +58,7 @@ public class MemoService {
 	}
 
 	public void dispose() {
+		memoLogger.close();
 	}
 
 	public ChatEvent[] getMemos() {
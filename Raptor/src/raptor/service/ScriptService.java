@@ -20,17 +20,25 @@ import java.io.FilenameFilter;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import raptor.Raptor;
-import raptor.script.ParameterScript;
+import raptor.chat.ChatType;
 import raptor.script.ChatEventScript;
+import raptor.script.ChatScriptContext;
+import raptor.script.ParameterScript;
 import raptor.script.ScriptConnectorType;
 import raptor.script.ScriptUtils;
 import raptor.util.Logger;
+import bsh.Interpreter;
 
 /**
  * This service manages ChatEventScripts and ParamterScripts. Scripts
@@ -45,6 +53,12 @@ import raptor.util.Logger;
  * script. When a scripts are loaded, a user script will always take precedence
  * over a System script.
  * <p/>
+ * <p>
+ * Chat event scripts are compiled once per version into a BeanShell method
+ * which is defined in a per thread Interpreter the first time that thread runs
+ * it. Active scripts are indexed by ChatType so events no script handles never
+ * reach an Interpreter.
+ * </p>
  */
 public class ScriptService {
 	public static interface ScriptServiceListener {
@@ -53,6 +67,25 @@ public class ScriptService {
 		public void onChatEventScriptsChanged();
 	}
 
+	/**
+	 * A version of a chat event script wrapped in a BeanShell method.
+	 */
+	protected static class CompiledChatEventScript {
+		protected String methodName;
+		protected String source;
+		protected int version;
+	}
+
+	/**
+	 * The Interpreter used by one thread and the compiled script methods
+	 * defined in it.
+	 */
+	protected static class ThreadInterpreter {
+		protected Set<String> definedMethods = new HashSet<String>();
+		protected int generation;
+		protected Interpreter interpreter;
+	}
+
 	private static final Logger LOG = Logger.getLogger(ScriptService.class);
 	public static boolean serviceCreated = false;
 	private static ScriptService singletonInstance;
@@ -72,6 +105,13 @@ public class ScriptService {
 	public List<ScriptServiceListener> listeners = Collections
 			.synchronizedList(new ArrayList<ScriptServiceListener>(5));
 
+	protected volatile Map<ScriptConnectorType, Map<ChatType, ChatEventScript[]>> chatEventScriptIndex = Collections
+			.emptyMap();
+	protected Map<String, CompiledChatEventScript> compiledChatEventScripts = new ConcurrentHashMap<String, CompiledChatEventScript>();
+	protected volatile int interpreterGeneration;
+	protected AtomicInteger nextCompiledScriptId = new AtomicInteger();
+	protected ThreadLocal<ThreadInterpreter> threadInterpreters = new ThreadLocal<ThreadInterpreter>();
+
 	private ScriptService() {
 		reload();
 		serviceCreated = true;
@@ -81,6 +121,17 @@ public class ScriptService {
 		listeners.add(listener);
 	}
 
+	protected static void addToIndex(
+			Map<ChatType, List<ChatEventScript>> typeToScripts, ChatType type,
+			ChatEventScript script) {
+		List<ChatEventScript> scripts = typeToScripts.get(type);
+		if (scripts == null) {
+			scripts = new ArrayList<ChatEventScript>(2);
+			typeToScripts.put(type, scripts);
+		}
+		scripts.add(script);
+	}
+
 	/**
 	 * Deletes the specified script. System scripts , or the scripts in
 	 * resources/script are never touched.
@@ -108,6 +159,34 @@ public class ScriptService {
 		listeners.clear();
 		nameToChatEventScript.clear();
 		nameToParameterScript.clear();
+		compiledChatEventScripts.clear();
+		chatEventScriptIndex = Collections.emptyMap();
+		interpreterGeneration++;
+	}
+
+	/**
+	 * Executes the chat event script with the specified context on the
+	 * calling thread. The script is compiled on its first execution after it
+	 * changes, and the time it takes is added to its execution counters.
+	 */
+	public void execute(ChatEventScript script, ChatScriptContext context) {
+		try {
+			CompiledChatEventScript compiled = getCompiledChatEventScript(script);
+			ThreadInterpreter threadInterpreter = getThreadInterpreter();
+			if (!threadInterpreter.definedMethods.contains(compiled.methodName)) {
+				threadInterpreter.interpreter.eval(compiled.source);
+				threadInterpreter.definedMethods.add(compiled.methodName);
+			}
+
+			long startTime = System.nanoTime();
+			threadInterpreter.interpreter.getNameSpace().invokeMethod(
+					compiled.methodName, new Object[] { context },
+					threadInterpreter.interpreter);
+			script.recordExecution(System.nanoTime() - startTime);
+		} catch (Throwable t) {
+			Raptor.getInstance().onError(
+					"Error executing script " + script.getName(), t);
+		}
 	}
 
 	public ParameterScript getParameterScript(String shortName) {
@@ -155,6 +234,23 @@ public class ScriptService {
 		return result.toArray(new ChatEventScript[0]);
 	}
 
+	/**
+	 * Returns the active chat event scripts for the connector type keyed by
+	 * the ChatType they handle, each array sorted by name. Scripts handling
+	 * ChatType.ALL are included under every type. ChatTypes without scripts
+	 * have no entry. The returned map is a snapshot which is replaced, never
+	 * modified, when the scripts change.
+	 */
+	public Map<ChatType, ChatEventScript[]> getChatEventScriptIndex(
+			ScriptConnectorType connectorType) {
+		Map<ChatType, ChatEventScript[]> result = chatEventScriptIndex
+				.get(connectorType);
+		if (result == null) {
+			result = Collections.emptyMap();
+		}
+		return result;
+	}
+
 	/**
 	 * Returns all chat event scripts sorted by name.
 	 */
@@ -179,6 +275,7 @@ public class ScriptService {
 		nameToParameterScript.clear();
 		loadParameterScripts();
 		loadChatEventScripts();
+		indexChatEventScripts();
 	}
 
 	public void removeScriptServiceListener(ScriptServiceListener listener) {
@@ -257,6 +354,7 @@ public class ScriptService {
 	}
 
 	protected void fireChatEventScriptsChanged() {
+		indexChatEventScripts();
 		synchronized (listeners) {
 			for (ScriptServiceListener listener : listeners) {
 				listener.onChatEventScriptsChanged();
@@ -264,6 +362,92 @@ public class ScriptService {
 		}
 	}
 
+	/**
+	 * Returns the compiled form of the current version of the script,
+	 * compiling it if it changed since it was last compiled.
+	 */
+	protected CompiledChatEventScript getCompiledChatEventScript(
+			ChatEventScript script) {
+		String key = script.getName().toUpperCase();
+		CompiledChatEventScript result = compiledChatEventScripts.get(key);
+		int version = script.getVersion();
+		if (result == null || result.version != version) {
+			result = new CompiledChatEventScript();
+			result.version = version;
+			result.methodName = "chatEventScript"
+					+ nextCompiledScriptId.incrementAndGet();
+			result.source = "void " + result.methodName + "(context) {\n"
+					+ script.getScript() + "\n}";
+			compiledChatEventScripts.put(key, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the calling thread's Interpreter, creating a new one when the
+	 * scripts have changed since it was created so methods of old script
+	 * versions do not accumulate.
+	 */
+	protected ThreadInterpreter getThreadInterpreter() throws Exception {
+		int generation = interpreterGeneration;
+		ThreadInterpreter result = threadInterpreters.get();
+		if (result == null || result.generation != generation) {
+			result = new ThreadInterpreter();
+			result.generation = generation;
+			result.interpreter = new Interpreter();
+			result.interpreter.eval("import raptor.chat.*;");
+			threadInterpreters.set(result);
+		}
+		return result;
+	}
+
+	/**
+	 * Rebuilds the chat event script index and drops compiled scripts which no
+	 * longer exist.
+	 */
+	protected void indexChatEventScripts() {
+		Map<ScriptConnectorType, Map<ChatType, List<ChatEventScript>>> lists = new EnumMap<ScriptConnectorType, Map<ChatType, List<ChatEventScript>>>(
+				ScriptConnectorType.class);
+		for (ChatEventScript script : getChatEventScripts()) {
+			if (!script.isActive() || script.getChatType() == null) {
+				continue;
+			}
+			Map<ChatType, List<ChatEventScript>> typeToScripts = lists
+					.get(script.getConnectorType());
+			if (typeToScripts == null) {
+				typeToScripts = new EnumMap<ChatType, List<ChatEventScript>>(
+						ChatType.class);
+				lists.put(script.getConnectorType(), typeToScripts);
+			}
+			if (script.getChatType() == ChatType.ALL) {
+				for (ChatType type : ChatType.values()) {
+					addToIndex(typeToScripts, type, script);
+				}
+			} else {
+				addToIndex(typeToScripts, script.getChatType(), script);
+			}
+		}
+
+		Map<ScriptConnectorType, Map<ChatType, ChatEventScript[]>> index = new EnumMap<ScriptConnectorType, Map<ChatType, ChatEventScript[]>>(
+				ScriptConnectorType.class);
+		for (Map.Entry<ScriptConnectorType, Map<ChatType, List<ChatEventScript>>> entry : lists
+				.entrySet()) {
+			Map<ChatType, ChatEventScript[]> typeToScripts = new EnumMap<ChatType, ChatEventScript[]>(
+					ChatType.class);
+			for (Map.Entry<ChatType, List<ChatEventScript>> typeEntry : entry
+					.getValue().entrySet()) {
+				typeToScripts.put(typeEntry.getKey(), typeEntry.getValue()
+						.toArray(new ChatEventScript[0]));
+			}
+			index.put(entry.getKey(), Collections.unmodifiableMap(typeToScripts));
+		}
+		chatEventScriptIndex = index;
+
+		compiledChatEventScripts.keySet().retainAll(
+				nameToChatEventScript.keySet());
+		interpreterGeneration++;
+	}
+
 	protected void loadParameterScripts() {
 		int count = 0;
 		long startTime = System.currentTimeMillis();
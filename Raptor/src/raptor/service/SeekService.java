@@ -14,22 +14,47 @@
 package raptor.service;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.StringUtils;
 
 import raptor.chat.Seek;
 import raptor.connector.Connector;
 
+/**
+ * Keeps the seeks on a connector keyed by ad number. Seeks are either replaced
+ * wholesale from a sought poll or updated incrementally when the server pushes
+ * seek changes (FICS seekinfo). In both cases listeners are sent the seeks
+ * that were added and removed, so they do not have to rebuild their views.
+ */
 public class SeekService {
 	public static interface SeekServiceListener {
+		/**
+		 * Invoked when seeks are added. A seek whose ad number is reused is
+		 * removed before the new one is added.
+		 */
+		public void seeksAdded(Seek[] addedSeeks);
+
+		/**
+		 * Invoked when all of the seeks are replaced, i.e. on a clear.
+		 */
 		public void seeksChanged(Seek[] newSeeks);
+
+		/**
+		 * Invoked when seeks are removed.
+		 */
+		public void seeksRemoved(Seek[] removedSeeks);
 	}
 
 	public static enum SeekType {
 		FormulaFiltered, AllSeeks
 	}
 
-    private Seek[] seeks = new Seek[0];
+	private Map<String, Seek> seeks = new LinkedHashMap<String, Seek>();
 	private Connector connector;
+	private boolean isSeekInfoEnabled;
 	private List<SeekServiceListener> listeners = new ArrayList<SeekServiceListener>(
 			10);
 
@@ -41,30 +66,148 @@ public class SeekService {
 		listeners.add(listener);
 	}
 
+	/**
+	 * Removes all of the seeks.
+	 */
+	public void clearSeeks() {
+		synchronized (seeks) {
+			seeks.clear();
+		}
+		fireSeeksChanged();
+	}
+
 	public Connector getConnector() {
 		return connector;
 	}
 
+	/**
+	 * Returns the seek with the specified ad number, null if there is none.
+	 */
+	public Seek getSeek(String ad) {
+		synchronized (seeks) {
+			return seeks.get(ad);
+		}
+	}
+
 	public Seek[] getSeeks() {
-		return seeks;
+		synchronized (seeks) {
+			return seeks.values().toArray(new Seek[seeks.size()]);
+		}
+	}
+
+	/**
+	 * Returns true if the server pushes seek changes, in which case seeks do
+	 * not need to be polled.
+	 */
+	public boolean isSeekInfoEnabled() {
+		return isSeekInfoEnabled;
 	}
 
+	/**
+	 * Requests the seeks from the server. This does nothing when seekinfo is
+	 * enabled since the seeks are already kept current.
+	 */
 	public void refreshSeeks() {
-		connector.sendGetSeeksMessage();
+		if (!isSeekInfoEnabled) {
+			connector.sendGetSeeksMessage();
+		}
 	}
 
 	public void removeSeekServiceListener(SeekServiceListener listener) {
 		listeners.remove(listener);
 	}
 
-	public void setSeeks(Seek[] seeks) {
-		this.seeks = seeks;
-		fireSeeksChanged();
+	public void setSeekInfoEnabled(boolean isSeekInfoEnabled) {
+		this.isSeekInfoEnabled = isSeekInfoEnabled;
+	}
+
+	/**
+	 * Replaces the seeks. Listeners are only sent the seeks that are not the
+	 * same as before.
+	 */
+	public void setSeeks(Seek[] newSeeks) {
+		List<Seek> added = new ArrayList<Seek>();
+		List<Seek> removed = new ArrayList<Seek>();
+		synchronized (seeks) {
+			Map<String, Seek> previous = new LinkedHashMap<String, Seek>(
+					seeks);
+			seeks.clear();
+			for (Seek seek : newSeeks) {
+				Seek previousSeek = previous.remove(seek.getAd());
+				if (previousSeek != null && isSameSeek(previousSeek, seek)) {
+					seeks.put(seek.getAd(), previousSeek);
+				} else {
+					if (previousSeek != null) {
+						removed.add(previousSeek);
+					}
+					seeks.put(seek.getAd(), seek);
+					added.add(seek);
+				}
+			}
+			removed.addAll(previous.values());
+		}
+		fireSeeksRemovedAndAdded(removed, added);
+	}
+
+	/**
+	 * Removes the seeks with the specified ad numbers and then adds
+	 * addedSeeks, replacing any seeks with the same ad numbers.
+	 */
+	public void updateSeeks(Seek[] addedSeeks, String[] removedAds) {
+		List<Seek> added = new ArrayList<Seek>(addedSeeks.length);
+		List<Seek> removed = new ArrayList<Seek>(removedAds.length);
+		synchronized (seeks) {
+			for (String ad : removedAds) {
+				Seek seek = seeks.remove(ad);
+				if (seek != null) {
+					removed.add(seek);
+				}
+			}
+			for (Seek seek : addedSeeks) {
+				Seek previousSeek = seeks.put(seek.getAd(), seek);
+				if (previousSeek != null) {
+					removed.add(previousSeek);
+				}
+				added.add(seek);
+			}
+		}
+		fireSeeksRemovedAndAdded(removed, added);
 	}
 
 	protected void fireSeeksChanged() {
+		Seek[] newSeeks = getSeeks();
 		for (SeekServiceListener listener : listeners) {
-			listener.seeksChanged(seeks);
+			listener.seeksChanged(newSeeks);
+		}
+	}
+
+	protected void fireSeeksRemovedAndAdded(List<Seek> removed,
+			List<Seek> added) {
+		if (!removed.isEmpty()) {
+			Seek[] removedSeeks = removed.toArray(new Seek[removed.size()]);
+			for (SeekServiceListener listener : listeners) {
+				listener.seeksRemoved(removedSeeks);
+			}
 		}
+		if (!added.isEmpty()) {
+			Seek[] addedSeeks = added.toArray(new Seek[added.size()]);
+			for (SeekServiceListener listener : listeners) {
+				listener.seeksAdded(addedSeeks);
+			}
+		}
+	}
+
+	protected boolean isSameSeek(Seek seek1, Seek seek2) {
+		return StringUtils.equals(seek1.getName(), seek2.getName())
+				&& StringUtils.equals(seek1.getRating(), seek2.getRating())
+				&& seek1.getMinutes() == seek2.getMinutes()
+				&& seek1.getIncrement() == seek2.getIncrement()
+				&& seek1.isRated() == seek2.isRated()
+				&& StringUtils.equals(seek1.getTypeDescription(), seek2
+						.getTypeDescription())
+				&& seek1.getColor() == seek2.getColor()
+				&& seek1.getMinRating() == seek2.getMinRating()
+				&& seek1.getMaxRating() == seek2.getMaxRating()
+				&& seek1.getFlags().equals(seek2.getFlags());
 	}
 }
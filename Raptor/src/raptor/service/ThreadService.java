@@ -127,11 +127,15 @@ public class ThreadService {
 	/**
 	 * Executes a runnable asynch in a controlled way. Exceptions are monitored
 	 * and displayed if they occur.
+	 * 
+	 * @return true if the runnable was accepted, false if it was vetoed
+	 *         because Raptor is disposed or the pool rejected it.
 	 */
-	public void run(Runnable runnable) {
+	public boolean run(Runnable runnable) {
 		if (!Raptor.getInstance().isDisposed() && !isDisposed) {
 			try {
 				executor.execute(new RunnableExceptionDecorator(runnable));
+				return true;
 			} catch (RejectedExecutionException rej) {
 				if (!Raptor.getInstance().isDisposed()) {
 					LOG.error("Error executing runnable: ", rej);
@@ -140,9 +144,11 @@ public class ThreadService {
 							"ThreadServie has no more threads. A thread dump can be found at "
 									+ THREAD_DUMP_FILE_PATH, rej);
 				}
+				return false;
 			}
 		} else {
 			LOG.info("Vetoing runnable in ThreadService, raptor is disposed. " + runnable);
+			return false;
 		}
 	}
 
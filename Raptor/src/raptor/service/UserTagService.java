@@ -18,29 +18,60 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
-import java.util.TreeMap;
 import java.util.TreeSet;
 
 import org.apache.commons.lang.StringUtils;
+import org.eclipse.jface.util.IPropertyChangeListener;
+import org.eclipse.jface.util.PropertyChangeEvent;
 
 import raptor.Raptor;
 import raptor.pref.PreferenceKeys;
 import raptor.util.Logger;
+import raptor.util.TagIndex;
 
+/**
+ * Maintains the users in each tag. The users are kept in a TagIndex, which
+ * also indexes the tags of each user so getTags(user) is a single map lookup.
+ * Writes to the tag file are batched.
+ */
 public class UserTagService {
 	private static final Logger LOG = Logger.getLogger(UserTagService.class);
 	private static final String TAG_FILE = Raptor.USER_RAPTOR_HOME_PATH
 			+ "/logs/tags.txt";
+
+	/**
+	 * The number of milliseconds to wait after a change before the tag file is
+	 * written. Changes made in the meantime are saved in the same write.
+	 */
+	private static final long SAVE_DELAY = 2000;
+
 	private static UserTagService singletonInstance;
 	public static boolean serviceCreated = false;
-	protected Map<String, Set<String>> tagToUsersMap = new TreeMap<String, Set<String>>();
+	protected TagIndex index = new TagIndex();
+
+	protected boolean isSaveScheduled = false;
+
+	protected Runnable saveRunnable = new Runnable() {
+		public void run() {
+			synchronized (UserTagService.this) {
+				if (isSaveScheduled) {
+					isSaveScheduled = false;
+					saveFile();
+				}
+			}
+		}
+	};
+
+	protected IPropertyChangeListener propertyChangeListener = new IPropertyChangeListener() {
+		public void propertyChange(PropertyChangeEvent event) {
+			if (PreferenceKeys.APP_USER_TAGS.equals(event.getProperty())) {
+				loadSortedTags();
+			}
+		}
+	};
 
 	public static UserTagService getInstance() {
 		if (singletonInstance != null)
@@ -55,6 +86,7 @@ public class UserTagService {
 			File file = new File(TAG_FILE);
 			if (!file.exists()) {
 				file.createNewFile();
+				loadSortedTags();
 			} else {
 				loadFile();
 			}
@@ -62,11 +94,14 @@ public class UserTagService {
 			throw new RuntimeException("Error opening tags file: " + TAG_FILE,
 					ioe);
 		}
+		Raptor.getInstance().getPreferences().addPropertyChangeListener(
+				propertyChangeListener);
 		serviceCreated = true;
 	}
 
-	protected void loadFile() {
-		tagToUsersMap.clear();
+	protected synchronized void loadFile() {
+		index.clear();
+		loadSortedTags();
 		BufferedReader reader = null;
 		int counter = 0;
 		try {
@@ -75,13 +110,11 @@ public class UserTagService {
 			while ((line = reader.readLine()) != null) {
 				if (StringUtils.isNotBlank(line)) {
 					StringTokenizer tok = new StringTokenizer(line, "" + FIELD_SEPARATOR);
-					String tag = tok.nextToken().toLowerCase();
-					Set<String> users = new TreeSet<String>();
+					String tag = tok.nextToken();
 					while (tok.hasMoreTokens()) {
-						users.add(tok.nextToken().toLowerCase());
+						index.addUser(tag, tok.nextToken());
 						counter++;
 					}
-					tagToUsersMap.put(tag, users);
 				}
 			}
 		} catch (Throwable t) {
@@ -101,18 +134,14 @@ public class UserTagService {
 		}
 	}
 
-	protected void saveFile() {
+	protected synchronized void saveFile() {
 		FileWriter writer = null;
 		try {
 			writer = new FileWriter(TAG_FILE, false);
-			String[] tags = tagToUsersMap.keySet().toArray(new String[0]);
-			for (String tag : tags) {
-				Set<String> users = tagToUsersMap.get(tag);
-				if (users.size() > 0) {
-					String line = tag.toLowerCase() + FIELD_SEPARATOR
-							+ serializSet(users);
-					writer.write(line + "\n");
-				}
+			for (String tag : index.getUsedTags()) {
+				String line = tag + FIELD_SEPARATOR
+						+ serializSet(index.getUsersInTag(tag));
+				writer.write(line + "\n");
 			}
 		} catch (Throwable t) {
 			Raptor.getInstance().onError("Error saving tag file: " + TAG_FILE,
@@ -128,6 +157,30 @@ public class UserTagService {
 		}
 	}
 
+	/**
+	 * Schedules a write of the tag file SAVE_DELAY milliseconds from now, unless
+	 * one is already pending. If the ThreadService can't take the write it is
+	 * done immediately.
+	 */
+	protected synchronized void scheduleSave() {
+		if (!isSaveScheduled) {
+			isSaveScheduled = true;
+			if (ThreadService.getInstance().scheduleOneShot(SAVE_DELAY,
+					saveRunnable) == null) {
+				isSaveScheduled = false;
+				saveFile();
+			}
+		}
+	}
+
+	/**
+	 * Reloads the tag display names from the preferences.
+	 */
+	protected void loadSortedTags() {
+		index.setTags(Raptor.getInstance().getPreferences().getStringArray(
+				PreferenceKeys.APP_USER_TAGS));
+	}
+
 	public static final char FIELD_SEPARATOR = '\u0005';
 
 	protected static Set<String> deserializeSet(String lineOfText) {
@@ -139,43 +192,37 @@ public class UserTagService {
 		return result;
 	}
 
-	protected static String serializSet(Set<String> set) {
+	protected static String serializSet(String[] users) {
 		StringBuilder result = new StringBuilder(1000);
-		String[] users = set.toArray(new String[0]);
 		for (int i = 0; i < users.length; i++) {
             result.append(users[i]).append(i < users.length - 1 ? FIELD_SEPARATOR : "");
 		}
 		return result.toString();
 	}
 
-	public void dispose() {
-		tagToUsersMap.clear();
+	public synchronized void dispose() {
+		Raptor.getInstance().getPreferences().removePropertyChangeListener(
+				propertyChangeListener);
+		if (isSaveScheduled) {
+			isSaveScheduled = false;
+			saveFile();
+		}
+		index.clear();
 	}
 
+	/**
+	 * Returns the sorted tags the user is in. This is called for every shout,
+	 * so it is a lookup in the user to tags index.
+	 */
 	public String[] getTags(String user) {
-		user = user.toLowerCase();
-		List<String> result = new ArrayList<String>(10);
-		String[] tags = getTags();
-		for (String tag : tags) {
-			String lowerCaseTag = tag.toLowerCase();
-			Set<String> set = tagToUsersMap.get(lowerCaseTag);
-			if (set != null && set.contains(user)) {
-				result.add(tag);
-			}
-		}
-		Collections.sort(result);
-		return result.toArray(new String[0]);
+		return index.getTags(user);
 	}
 
 	public String[] getTags() {
-		String[] tags = Raptor.getInstance().getPreferences().getStringArray(
-				PreferenceKeys.APP_USER_TAGS);
-		Arrays.sort(tags);
-		return tags;
-
+		return index.getTags();
 	}
 
-	public void addTag(String tag) {
+	public synchronized void addTag(String tag) {
 		String[] oldTags = Raptor.getInstance().getPreferences()
 				.getStringArray(PreferenceKeys.APP_USER_TAGS);
 		boolean contains = false;
@@ -190,6 +237,7 @@ public class UserTagService {
 			System.arraycopy(oldTags, 0, newTags, 0, oldTags.length);
 			newTags[oldTags.length] = tag;
 			Arrays.sort(newTags);
+			// The property change listener reloads the tags and the index.
 			Raptor.getInstance().getPreferences().setValue(
 					PreferenceKeys.APP_USER_TAGS, newTags);
 			Raptor.getInstance().getPreferences().save();
@@ -197,72 +245,39 @@ public class UserTagService {
 	}
 
 	public String[] getUsersInTag(String tag) {
-		tag = tag.toLowerCase();
-		Set<String> tagList = tagToUsersMap.get(tag);
-		if (tagList == null) {
-			return new String[0];
-		} else {
-			String[] result = tagList.toArray(new String[0]);
-			Arrays.sort(result);
-			return result;
-		}
+		return index.getUsersInTag(tag);
 	}
 
-	public boolean clearTag(String tag, String user) {
-		boolean result = false;
-		tag = tag.toLowerCase();
-		user = user.toLowerCase();
-		Set<String> tagList = tagToUsersMap.get(tag);
-		if (tagList != null) {
-			result = tagList.remove(user);
-			result = true;
-		}
-
+	public synchronized boolean clearTag(String tag, String user) {
+		boolean result = index.removeUser(tag, user);
 		if (result) {
-			saveFile();
+			scheduleSave();
 		}
-
 		return result;
 	}
 
-	public void clear() {
-		for (String key : tagToUsersMap.keySet()) {
-			tagToUsersMap.remove(key);
-		}
-		saveFile();
+	public synchronized void clear() {
+		index.clear();
+		scheduleSave();
 	}
 
-	public void clear(String tag) {
-		tagToUsersMap.remove(tag.toLowerCase());
-		saveFile();
+	public synchronized void clear(String tag) {
+		index.clear(tag);
+		scheduleSave();
 	}
 
-	public boolean clearTags(String user) {
-		boolean result = false;
-		user = user.toLowerCase();
-		for (Set<String> set : tagToUsersMap.values()) {
-			boolean removed = set.remove(user);
-			if (removed) {
-				result = true;
-			}
-		}
+	public synchronized boolean clearTags(String user) {
+		boolean result = index.removeUser(user);
 		if (result) {
-			saveFile();
+			scheduleSave();
 		}
 		return result;
 	}
 
-	public void addUser(String tag, String user) {
-		String lowerCaseTag = tag.toLowerCase();
-		user = user.toLowerCase();
-		Set<String> tagList = tagToUsersMap.get(lowerCaseTag);
-		if (tagList == null) {
+	public synchronized void addUser(String tag, String user) {
+		if (index.addUser(tag, user)) {
 			addTag(tag);
-			tagToUsersMap.put(lowerCaseTag, tagList = new TreeSet<String>());
-		}
-		if (!tagList.contains(user)) {
-			tagList.add(user);
 		}
-		saveFile();
+		scheduleSave();
 	}
 }
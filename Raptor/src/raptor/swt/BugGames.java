@@ -96,7 +96,9 @@ public class BugGames extends Composite {
 		setLayout(new GridLayout(1, false));
 
 		bugGamesTable = new RaptorTable(this, SWT.BORDER | SWT.H_SCROLL
-				| SWT.V_SCROLL | SWT.SINGLE | SWT.FULL_SELECTION);
+				| SWT.V_SCROLL | SWT.SINGLE | SWT.FULL_SELECTION
+				| SWT.VIRTUAL);
+		bugGamesTable.setRowIdColumn(0);
 		bugGamesTable
 				.setLayoutData(new GridData(SWT.FILL, SWT.FILL, true, true));
 		bugGamesTable.addColumn(local.getString("bugGames1"), SWT.LEFT, 10, true,
@@ -215,7 +215,9 @@ public class GamesWindowItem implements RaptorConnectorWindowItem {
 		});
 
 		gamesTable = new RaptorTable(tableComposite, SWT.BORDER | SWT.H_SCROLL
-				| SWT.V_SCROLL | SWT.SINGLE | SWT.FULL_SELECTION);
+				| SWT.V_SCROLL | SWT.SINGLE | SWT.FULL_SELECTION
+				| SWT.VIRTUAL);
+		gamesTable.setRowIdColumn(0);
 		gamesTable.setLayoutData(new GridData(SWT.FILL, SWT.FILL, true, true));
 
 		gamesTable.addColumn(local.getString("gameWI5"), SWT.LEFT, 10, true, new IntegerComparator());
@@ -21,6 +21,7 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.List;
 
 import raptor.util.Logger;
  
@@ -42,10 +43,13 @@ import org.eclipse.swt.widgets.Shell;
 import raptor.Raptor;
 import raptor.chess.Game;
 import raptor.chess.pgn.AbstractPgnParser;
+import raptor.chess.pgn.GameDatabase;
 import raptor.chess.pgn.LenientPgnParserListener;
+import raptor.chess.pgn.ParallelPgnParser;
+import raptor.chess.pgn.PgnFileIndex;
+import raptor.chess.pgn.PgnHeader;
 import raptor.chess.pgn.PgnParserError;
 import raptor.chess.pgn.PgnUtils;
-import raptor.chess.pgn.StreamingPgnParser;
 import raptor.chess.pgn.chesspresso.ChesspressoPgnListener;
 import raptor.chess.pgn.chesspresso.ChesspressoPgnParser;
 import raptor.international.L10n;
@@ -130,8 +134,17 @@ public class PgnProcessingDialog extends Dialog {
 		}	
 	}
 
+	/**
+	 * Files larger than this are indexed on disk and their games are parsed
+	 * lazily instead of all being parsed up front.
+	 */
 	public static final int MAX_BYTES_IN_FILE = 1048576 * 15;
 
+	public static final String PGN_INDEX_DIR = Raptor.USER_RAPTOR_HOME_PATH
+			+ "/pgnindex";
+
+	private static final int INDEX_PROGRESS_MAXIMUM = 1000;
+
 	private static final Logger LOG = Logger.getLogger(PgnProcessingDialog.class);
 
 	private Button cancelButton;
@@ -155,14 +168,29 @@ public class PgnProcessingDialog extends Dialog {
 	public PgnProcessingDialog(Shell parent, String file) {
 		super(parent);
 		this.file = new File(file);
+	}
 
-		if (this.file.length() > MAX_BYTES_IN_FILE) {
-			Raptor
-					.getInstance()
-					.alert(L10n.getInstance().getString("pgnProcD1")
-							.replaceAll("MAX_BYTES_IN_FILE", Integer.toString(MAX_BYTES_IN_FILE)));
+	/**
+	 * Returns the file the game database of pgnFile is stored in.
+	 */
+	public static File getDatabaseFile(File pgnFile) {
+		return new File(PGN_INDEX_DIR, pgnFile.getName() + "."
+				+ Integer.toHexString(pgnFile.getAbsolutePath().hashCode())
+				+ ".rgdb");
+	}
 
-		}
+	/**
+	 * Returns the file the index of pgnFile is stored in. The name includes a
+	 * hash of the full path so equally named files don't share an index.
+	 */
+	public static File getIndexFile(File pgnFile) {
+		return new File(PGN_INDEX_DIR, pgnFile.getName() + "."
+				+ Integer.toHexString(pgnFile.getAbsolutePath().hashCode())
+				+ ".idx");
+	}
+
+	protected boolean isIndexed() {
+		return file.length() > MAX_BYTES_IN_FILE;
 	}
 
 	public void open() {
@@ -172,6 +200,17 @@ public class PgnProcessingDialog extends Dialog {
 
 		ThreadService.getInstance().scheduleOneShot(250, new Runnable() {
 			public void run() {
+				if (GameDatabase.isUpToDate(file, getDatabaseFile(file))
+						&& openDatabase()) {
+					return;
+				}
+				if (isIndexed()) {
+					// The index is kept on disk and reused, these files are
+					// too large to write a database of.
+					indexFile();
+					return;
+				}
+
 				FileInputStream reader = null;
 				LenientPgnParserListener listener;
 				try {					
@@ -183,8 +222,9 @@ public class PgnProcessingDialog extends Dialog {
 					}
 					else {
 						// start work
-						parser = new StreamingPgnParser(
-								reader = new FileInputStream(file), MAX_BYTES_IN_FILE);
+						parser = new ParallelPgnParser(
+								reader = new FileInputStream(file), Runtime
+										.getRuntime().availableProcessors());
 						listener = new ProfressPgnParserListener();
 					}	
 					parser.addPgnParserListener(listener);
@@ -197,7 +237,18 @@ public class PgnProcessingDialog extends Dialog {
 								+ (System.currentTimeMillis() - startTime)
 								+ "ms");
 					}
-					
+
+					// The games are written before the window item is
+					// created, it moves through and clears them.
+					if (!pgnContainsVariants) {
+						writeDatabase(null,
+								((ChesspressoPgnProgressListener) listener)
+										.getGames());
+					} else {
+						writeDatabase(((ProfressPgnParserListener) listener)
+								.getGames(), null);
+					}
+
 					shell.getDisplay().asyncExec(new RaptorRunnable() {
 						@Override
 						public void execute() {
@@ -234,6 +285,148 @@ public class PgnProcessingDialog extends Dialog {
 				}				
 			}
 
+			private void indexFile() {
+				try {
+					long startTime = System.currentTimeMillis();
+					final long length = file.length();
+					PgnFileIndex index = PgnFileIndex.open(file,
+							getIndexFile(file),
+							new PgnFileIndex.IndexingListener() {
+								public void gamesIndexed(final int gameCount,
+										final long bytesScanned) {
+									if (isClosed) {
+										throw new RuntimeException("Closed");
+									}
+									shell.getDisplay().asyncExec(
+											new RaptorRunnable() {
+												@Override
+												public void execute() {
+													processMessageLabel.setText(L10n
+															.getInstance()
+															.getString(
+																	"pgnParseWI3")
+															+ gameCount);
+													progressBar.setSelection((int) (bytesScanned
+															* INDEX_PROGRESS_MAXIMUM / length));
+												}
+											});
+								}
+							});
+
+					if (LOG.isDebugEnabled()) {
+						LOG.debug("Indexed in "
+								+ (System.currentTimeMillis() - startTime)
+								+ "ms");
+					}
+
+					shell.getDisplay().asyncExec(new RaptorRunnable() {
+						@Override
+						public void execute() {
+							shell.close();
+						}
+					});
+
+					Raptor.getInstance().getWindow().addRaptorWindowItem(
+							new PgnParseResultsWindowItem(file.getName(),
+									index, file.getAbsolutePath()));
+				} catch (Throwable t) {
+					if (!isClosed) {
+						LOG.error("Error indexing pgn file", t);
+						Raptor.getInstance().onError(
+								L10n.getInstance().getString("pgnProcD2") + file, t);
+					}
+				}
+			}
+
+			/**
+			 * Opens the game database written the last time the file was
+			 * opened. Returns false if it could not be opened.
+			 */
+			private boolean openDatabase() {
+				try {
+					GameDatabase database = GameDatabase
+							.open(getDatabaseFile(file));
+					shell.getDisplay().asyncExec(new RaptorRunnable() {
+						@Override
+						public void execute() {
+							shell.close();
+						}
+					});
+					Raptor.getInstance().getWindow().addRaptorWindowItem(
+							new PgnParseResultsWindowItem(file.getName(),
+									database, file.getAbsolutePath()));
+					return true;
+				} catch (IOException ioe) {
+					LOG.warn("Error opening game database of " + file, ioe);
+					return false;
+				}
+			}
+
+			/**
+			 * Writes the games parsed from the file, either games or
+			 * chesspressoGames, to its game database so the file opens
+			 * quickly next time. If the database can't be written the file is
+			 * parsed again the next time it is opened.
+			 */
+			private void writeDatabase(List<Game> games,
+					List<chesspresso.game.Game> chesspressoGames) {
+				if (isClosed) {
+					return;
+				}
+				long startTime = System.currentTimeMillis();
+				GameDatabase.DatabaseWriter writer = null;
+				try {
+					writer = new GameDatabase.DatabaseWriter(
+							getDatabaseFile(file), file);
+					if (games != null) {
+						for (Game game : games) {
+							writer.add(game);
+						}
+					} else {
+						for (chesspresso.game.Game game : chesspressoGames) {
+							Game raptorGame;
+							try {
+								raptorGame = toRaptorGame(game);
+							} catch (RuntimeException re) {
+								LOG.warn("Skipping game which could not be converted "
+										+ game, re);
+								continue;
+							}
+							writer.add(raptorGame, ChesspressoPgnParser
+									.toPgn(game));
+						}
+					}
+					writer.finish();
+					if (LOG.isDebugEnabled()) {
+						LOG.debug("Wrote game database in "
+								+ (System.currentTimeMillis() - startTime)
+								+ "ms");
+					}
+				} catch (Throwable t) {
+					LOG.warn("Error writing game database of " + file, t);
+					if (writer != null) {
+						writer.abort();
+					}
+				}
+			}
+
+			/**
+			 * Converts a Chesspresso game keeping all of its tags.
+			 */
+			private Game toRaptorGame(chesspresso.game.Game game) {
+				Game result = ChesspressoPgnParser.convertToRaptorGame(game);
+				for (String tag : game.getTags()) {
+					try {
+						result.setHeader(PgnHeader.valueOf(tag), game
+								.getTag(tag));
+					} catch (IllegalArgumentException iae) {
+						// Tags Raptor has no header for are only kept in
+						// the PGN.
+					}
+				}
+				return result;
+			}
+
 			private boolean pgnHasVariantGames(File fileName) {
 				BufferedReader reader = null;
 				try {
@@ -317,8 +510,8 @@ public class PgnProcessingDialog extends Dialog {
 		progressBarComposite.setLayout(new FillLayout());
 
 		progressBar = new ProgressBar(progressBarComposite, processBarStyle);
-		progressBar.setMaximum(PgnUtils.getApproximateGameCount(file
-				.getAbsolutePath()));
+		progressBar.setMaximum(isIndexed() ? INDEX_PROGRESS_MAXIMUM : PgnUtils
+				.getApproximateGameCount(file.getAbsolutePath()));
 
 		processMessageLabel = new Label(shell, SWT.NONE);
 		processMessageLabel.setLayoutData(new GridData(GridData.FILL,
@@ -15,6 +15,7 @@ package raptor.swt;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Comparator;
 import java.util.List;
 
@@ -55,6 +56,12 @@ import raptor.util.RaptorStringUtils;
  * You can also add a TableListener which informs you when double clicks and
  * right clicks occur. It also informs on table updates and when the table is
  * sorted.
+ * 
+ * If the table style contains SWT.VIRTUAL the rows are kept in a
+ * RaptorTableModel and items are only filled in when they are shown.
+ * refreshTable then only clears the items whose row changed, and sorting is
+ * done on the model. Set a row id column so rows keep their identity, and
+ * their selection, when their values change.
  */
 public class RaptorTable extends Composite {
 
@@ -176,6 +183,7 @@ public class RaptorTable extends Composite {
 	protected int fixedHeight;
 	protected TableCursor cursor;
 	protected boolean ignoreCursorSelection;
+	protected RaptorTableModel model;
 	
 	private static boolean useLinuxWorkaround = System.getProperty("os.name")
 			.startsWith("Linux");
@@ -218,6 +226,18 @@ public class RaptorTable extends Composite {
 		table = new Table(this, tableStyle);
 		table.setLocation(0, 0);
 		table.setHeaderVisible(showHeaders);
+		if ((tableStyle & SWT.VIRTUAL) != 0) {
+			model = new RaptorTableModel();
+			table.addListener(SWT.SetData, new Listener() {
+				public void handleEvent(Event event) {
+					TableItem item = (TableItem) event.item;
+					int index = table.indexOf(item);
+					if (index >= 0 && index < model.getRowCount()) {
+						item.setText(model.getRow(index));
+					}
+				}
+			});
+		}
 		addControlListener(new ControlAdapter() {
 			@Override
 			public void controlResized(ControlEvent e) {
@@ -374,8 +394,13 @@ public class RaptorTable extends Composite {
 		if (cursor != null) {
 			cursor.setVisible(true);
 		}
-		TableItem item = new TableItem(table, SWT.NONE);
-		item.setText(data);
+		if (model != null) {
+			model.addRow(data);
+			table.setItemCount(model.getRowCount());
+		} else {
+			TableItem item = new TableItem(table, SWT.NONE);
+			item.setText(data);
+		}
 
 		for (RaptorTableListener listener : tableListeners) {
 			listener.tableUpdated();
@@ -390,9 +415,14 @@ public class RaptorTable extends Composite {
 			if (cursor != null) {
 				cursor.setVisible(false);
 			}
-			TableItem[] items = table.getItems();
-			for (TableItem item : items) {
-				item.dispose();
+			if (model != null) {
+				model.clear();
+				table.removeAll();
+			} else {
+				TableItem[] items = table.getItems();
+				for (TableItem item : items) {
+					item.dispose();
+				}
 			}
 
 			for (RaptorTableListener listener : tableListeners) {
@@ -425,6 +455,13 @@ public class RaptorTable extends Composite {
 		return fixedWidth;
 	}
 
+	/**
+	 * Returns the row model if the table is virtual, otherwise null.
+	 */
+	public RaptorTableModel getModel() {
+		return model;
+	}
+
 	/**
 	 * Returns the number of rows in this table.
 	 */
@@ -470,14 +507,42 @@ public class RaptorTable extends Composite {
 	 * Returns the text in the specified cell.
 	 */
 	public String getText(int row, int column) {
+		if (model != null) {
+			return model.getText(row, column);
+		}
 		return table.getItem(row).getText(column);
 	}
 
+	/**
+	 * Inserts a row at its position in the last sort. Rows are appended if the
+	 * table is not virtual or has not been sorted.
+	 */
+	public void insertRow(String[] data) {
+		if (model == null) {
+			appendRow(data);
+			return;
+		}
+		if (cursor != null) {
+			cursor.setVisible(true);
+		}
+		int index = model.insertRow(data);
+		new TableItem(table, SWT.NONE, index);
+		table.clear(index);
+
+		for (RaptorTableListener listener : tableListeners) {
+			listener.tableUpdated();
+		}
+	}
+
 	/**
 	 * Refreshes the table with the specified data. Selections are preserved.
 	 * The table is also sorted by the last sort criteria.
 	 */
 	public void refreshTable(String[][] data) {
+		if (model != null) {
+			refreshVirtualTable(data);
+			return;
+		}
 		long startTime = System.currentTimeMillis();
 		synchronized (table) {
 			table.setRedraw(false);
@@ -547,6 +612,28 @@ public class RaptorTable extends Composite {
 		}
 	}
 
+	/**
+	 * Refreshes a virtual table with rowCount rows which are loaded by loader
+	 * as they are displayed. Selections are not preserved.
+	 */
+	public void refreshTable(int rowCount, RaptorTableModel.RowLoader loader) {
+		synchronized (table) {
+			table.deselectAll();
+			model.setRows(rowCount, loader);
+			table.setItemCount(rowCount);
+			table.clearAll();
+
+			if (cursor != null) {
+				cursor.setVisible(true);
+				cursor.redraw();
+			}
+
+			for (RaptorTableListener listener : tableListeners) {
+				listener.tableUpdated();
+			}
+		}
+	}
+
 	/**
 	 * Removes a TableListener from this table.
 	 */
@@ -558,7 +645,12 @@ public class RaptorTable extends Composite {
 	 * Removes the specified row.
 	 */
 	public void removeRow(int index) {
-		table.getItem(index).dispose();
+		if (model != null) {
+			model.removeRow(index);
+			table.remove(index);
+		} else {
+			table.getItem(index).dispose();
+		}
 
 		for (RaptorTableListener listener : tableListeners) {
 			listener.tableUpdated();
@@ -630,6 +722,17 @@ public class RaptorTable extends Composite {
 		return column;
 	}
 
+	/**
+	 * Sets the column which identifies rows of a virtual table, e.g. the game
+	 * or seek ad number. -1, the default, identifies rows by all of their
+	 * values.
+	 */
+	public void setRowIdColumn(int column) {
+		if (model != null) {
+			model.setRowIdColumn(column);
+		}
+	}
+
 	/**
 	 * Sets a fixed height for this table. It will always return the passed in
 	 * width in computeSize.
@@ -650,7 +753,12 @@ public class RaptorTable extends Composite {
 	 * Sets the text in the specified cell.
 	 */
 	public void setText(int row, int column, String text) {
-		table.getItem(row).setText(column, text);
+		if (model != null) {
+			model.setText(row, column, text);
+			table.clear(row);
+		} else {
+			table.getItem(row).setText(column, text);
+		}
 	}
 
 	/**
@@ -666,7 +774,12 @@ public class RaptorTable extends Composite {
 			lastStortedColumn = info.column;
 			lastComparator = new TableItemComparator(info.comparator,
 					info.index, wasLastSortAscending);
-			sort(lastComparator);
+			if (model != null) {
+				model.sort(info.index, info.comparator, wasLastSortAscending);
+				table.clearAll();
+			} else {
+				sort(lastComparator);
+			}
 
 			table.setRedraw(true);
 			table.layout(true);
@@ -684,6 +797,9 @@ public class RaptorTable extends Composite {
 	 */
 	protected String[] getData(TableItem item) {
 		Table table = item.getParent();
+		if (model != null) {
+			return model.getRow(table.indexOf(item)).clone();
+		}
 		int colCount = table.getColumnCount();
 		String[] result = new String[colCount];
 		for (int i = 0; i < colCount; i++) {
@@ -692,6 +808,52 @@ public class RaptorTable extends Composite {
 		return result;
 	}
 
+	/**
+	 * Replaces the rows of a virtual table, clearing only the items whose row
+	 * changed. Selections are preserved by row id.
+	 */
+	protected void refreshVirtualTable(String[][] data) {
+		long startTime = System.currentTimeMillis();
+		synchronized (table) {
+			int[] selectedIndexes = table.getSelectionIndices();
+			List<String[]> selectionsBeforeRefresh = new ArrayList<String[]>(
+					selectedIndexes.length);
+			for (int index : selectedIndexes) {
+				selectionsBeforeRefresh.add(model.getRow(index));
+			}
+			table.deselectAll();
+
+			BitSet changedRows = model.setRows(data);
+			table.setItemCount(model.getRowCount());
+			for (int i = changedRows.nextSetBit(0); i >= 0; i = changedRows
+					.nextSetBit(i + 1)) {
+				table.clear(i);
+			}
+
+			for (String[] selectedData : selectionsBeforeRefresh) {
+				int index = model.indexOf(selectedData);
+				if (index != -1) {
+					table.select(index);
+				}
+			}
+
+			if (cursor != null) {
+				cursor.setVisible(true);
+				cursor.redraw();
+			}
+
+			for (RaptorTableListener listener : tableListeners) {
+				listener.tableUpdated();
+			}
+
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("refreshVirtualTable " + changedRows.cardinality()
+						+ " of " + data.length + " rows changed in "
+						+ (System.currentTimeMillis() - startTime));
+			}
+		}
+	}
+
 	/**
 	 * Resizes the columns to the specified width according to their
 	 * percentages.
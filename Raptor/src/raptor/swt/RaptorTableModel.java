@@ -0,0 +1,334 @@
+/**
+ * New BSD License
+ * http://www.opensource.org/licenses/bsd-license.php
+ * Copyright 2009-2011 RaptorProject (http://code.google.com/p/raptor-chess-interface/)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the RaptorProject nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package raptor.swt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import raptor.util.SortKeyComparator;
+
+/**
+ * The rows of a virtual RaptorTable in the order they are displayed.
+ * 
+ * Rows are identified by the value in the row id column, e.g. a game number
+ * or a seek ad number. When the rows are replaced, unchanged rows are reused
+ * together with their sort keys, and the indexes whose displayed row changed
+ * are returned so only those items need to be cleared. Sorting is done on the
+ * rows, using the keys of a SortKeyComparator when the column has one.
+ * 
+ * Rows can also be set from a RowLoader, they are then only loaded when they
+ * are displayed or sorted.
+ */
+public class RaptorTableModel {
+
+	/**
+	 * Loads the rows of a table the first time they are needed, so large
+	 * tables don't have to hold every row up front.
+	 */
+	public static interface RowLoader {
+		/**
+		 * Returns the id of the row at the specified index, the value of its
+		 * row id column.
+		 */
+		public String getRowId(int index);
+
+		/**
+		 * Returns the data of the row at the specified index.
+		 */
+		public String[] loadRow(int index);
+	}
+
+	protected static class Row {
+		protected String id;
+		protected String[] data;
+		protected int keyColumn = -1;
+		protected long key;
+		protected int loadIndex = -1;
+
+		protected Row(String id, String[] data) {
+			this.id = id;
+			this.data = data;
+		}
+	}
+
+	protected class RowComparator implements Comparator<Row> {
+		public int compare(Row row1, Row row2) {
+			int result;
+			if (sortComparator instanceof SortKeyComparator) {
+				result = row1.key < row2.key ? -1 : row1.key == row2.key ? 0
+						: 1;
+			} else {
+				result = sortComparator.compare(getData(row1)[sortColumn],
+						getData(row2)[sortColumn]);
+			}
+			return isSortAscending ? result : -result;
+		}
+	}
+
+	protected List<Row> rows = new ArrayList<Row>();
+	protected int rowIdColumn = -1;
+	protected int sortColumn = -1;
+	protected Comparator<String> sortComparator;
+	protected boolean isSortAscending = true;
+	protected RowLoader rowLoader;
+
+	/**
+	 * Appends a row without sorting.
+	 */
+	public void addRow(String[] data) {
+		rows.add(new Row(getId(data), data));
+	}
+
+	public void clear() {
+		rows.clear();
+		rowLoader = null;
+	}
+
+	/**
+	 * Returns the row at the display index, loading it if needed. The array
+	 * must not be modified.
+	 */
+	public String[] getRow(int index) {
+		return getData(rows.get(index));
+	}
+
+	public int getRowCount() {
+		return rows.size();
+	}
+
+	/**
+	 * Returns the column rows are identified by, -1 if they are identified by
+	 * all of their values.
+	 */
+	public int getRowIdColumn() {
+		return rowIdColumn;
+	}
+
+	public int getSortColumn() {
+		return sortColumn;
+	}
+
+	/**
+	 * Returns the text of a cell. The row id column of rows which have not
+	 * been loaded is returned without loading them.
+	 */
+	public String getText(int index, int column) {
+		Row row = rows.get(index);
+		return row.data == null && column == rowIdColumn ? row.id
+				: getData(row)[column];
+	}
+
+	/**
+	 * Returns the display index of the row with the same id as data, or with
+	 * the same values if there is no row id column. Returns -1 if there is
+	 * none.
+	 */
+	public int indexOf(String[] data) {
+		String id = getId(data);
+		for (int i = 0; i < rows.size(); i++) {
+			Row row = rows.get(i);
+			if (id != null ? id.equals(row.id) : Arrays.equals(data,
+					getData(row))) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the display index of the row with the specified id, -1 if there
+	 * is none.
+	 */
+	public int indexOfId(String id) {
+		for (int i = 0; i < rows.size(); i++) {
+			if (id.equals(rows.get(i).id)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Inserts a row at its position in the current sort, after any rows that
+	 * compare equal to it. Returns the display index it was inserted at.
+	 */
+	public int insertRow(String[] data) {
+		Row row = new Row(getId(data), data);
+		if (sortComparator == null) {
+			rows.add(row);
+			return rows.size() - 1;
+		}
+
+		updateKey(row);
+		RowComparator comparator = new RowComparator();
+		int low = 0;
+		int high = rows.size();
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			Row middleRow = rows.get(middle);
+			updateKey(middleRow);
+			if (comparator.compare(middleRow, row) <= 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		rows.add(low, row);
+		return low;
+	}
+
+	public boolean isSortAscending() {
+		return isSortAscending;
+	}
+
+	public void removeRow(int index) {
+		rows.remove(index);
+	}
+
+	/**
+	 * Sets the column rows are identified by, -1 to identify them by all of
+	 * their values.
+	 */
+	public void setRowIdColumn(int rowIdColumn) {
+		this.rowIdColumn = rowIdColumn;
+		for (Row row : rows) {
+			if (row.data != null) {
+				row.id = getId(row.data);
+			}
+		}
+	}
+
+	/**
+	 * Replaces the rows with rowCount rows which are loaded by loader when
+	 * they are first needed. The rows are sorted by the current sort, which
+	 * loads all of them if there is one.
+	 */
+	public void setRows(int rowCount, RowLoader loader) {
+		rowLoader = loader;
+		List<Row> newRows = new ArrayList<Row>(rowCount);
+		for (int i = 0; i < rowCount; i++) {
+			Row row = new Row(loader.getRowId(i), null);
+			row.loadIndex = i;
+			newRows.add(row);
+		}
+		sort(newRows);
+		rows = newRows;
+	}
+
+	/**
+	 * Replaces the rows with data, sorted by the current sort. Returns the
+	 * display indexes whose row is not the same as before.
+	 */
+	public BitSet setRows(String[][] data) {
+		Map<String, Row> previousRows = null;
+		if (rowIdColumn != -1) {
+			previousRows = new HashMap<String, Row>(rows.size() * 2);
+			for (Row row : rows) {
+				previousRows.put(row.id, row);
+			}
+		}
+
+		List<Row> newRows = new ArrayList<Row>(data.length);
+		for (String[] rowData : data) {
+			String id = getId(rowData);
+			Row row = previousRows == null ? null : previousRows.get(id);
+			if (row == null || !Arrays.equals(row.data, rowData)) {
+				row = new Row(id, rowData);
+			}
+			newRows.add(row);
+		}
+		sort(newRows);
+		rowLoader = null;
+
+		BitSet result = new BitSet(newRows.size());
+		for (int i = 0; i < newRows.size(); i++) {
+			if (i >= rows.size() || rows.get(i) != newRows.get(i)
+					&& !Arrays.equals(rows.get(i).data, newRows.get(i).data)) {
+				result.set(i);
+			}
+		}
+		rows = newRows;
+		return result;
+	}
+
+	/**
+	 * Sets the text of a cell.
+	 */
+	public void setText(int index, int column, String text) {
+		Row row = rows.get(index);
+		String[] data = getData(row).clone();
+		data[column] = text;
+		rows.set(index, new Row(getId(data), data));
+	}
+
+	/**
+	 * Sorts the rows by the column. The sort is stable and is kept when rows
+	 * are replaced.
+	 */
+	public void sort(int column, Comparator<String> comparator,
+			boolean isAscending) {
+		if (comparator != sortComparator) {
+			for (Row row : rows) {
+				row.keyColumn = -1;
+			}
+		}
+		sortColumn = column;
+		sortComparator = comparator;
+		isSortAscending = isAscending;
+		sort(rows);
+	}
+
+	/**
+	 * Returns the data of the row, loading it if it has not been loaded.
+	 */
+	protected String[] getData(Row row) {
+		if (row.data == null) {
+			row.data = rowLoader.loadRow(row.loadIndex);
+		}
+		return row.data;
+	}
+
+	protected String getId(String[] data) {
+		return rowIdColumn == -1 || rowIdColumn >= data.length ? null
+				: data[rowIdColumn];
+	}
+
+	protected void sort(List<Row> rowsToSort) {
+		if (sortComparator == null) {
+			return;
+		}
+		for (Row row : rowsToSort) {
+			updateKey(row);
+		}
+		Collections.sort(rowsToSort, new RowComparator());
+	}
+
+	/**
+	 * Caches the sort key of the row if the sort comparator has them.
+	 */
+	protected void updateKey(Row row) {
+		if (sortComparator instanceof SortKeyComparator
+				&& row.keyColumn != sortColumn) {
+			row.key = ((SortKeyComparator) sortComparator)
+					.getSortKey(getData(row)[sortColumn]);
+			row.keyColumn = sortColumn;
+		}
+	}
+}
@@ -14,6 +14,7 @@
 package raptor.swt;
 
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -204,10 +205,43 @@ public class SeekGraph extends Canvas {
 		});
 	}
 
+	/**
+	 * Adds seeks to the graph, only redrawing the points they are drawn at.
+	 */
+	public void addSeeks(final Seek[] added) {
+		Raptor.getInstance().getDisplay().asyncExec(new Runnable() {
+			public void run() {
+				if (isDisposed()) {
+					return;
+				}
+				for (Seek seek : added) {
+					addSeek(seek, false);
+				}
+			}
+		});
+	}
+
 	public void redoLegend() {
 		legendImage = null;
 	}
 
+	/**
+	 * Removes seeks from the graph, only redrawing the points they were drawn
+	 * at.
+	 */
+	public void removeSeeks(final Seek[] removed) {
+		Raptor.getInstance().getDisplay().asyncExec(new Runnable() {
+			public void run() {
+				if (isDisposed()) {
+					return;
+				}
+				for (Seek seek : removed) {
+					removeSeek(seek);
+				}
+			}
+		});
+	}
+
 	/**
 	 * This is empirically faster then replace by one, as it just does one
 	 * repaint call
@@ -428,15 +462,8 @@ public class SeekGraph extends Canvas {
 		if (!already) {
 			existing.add(seek);
 
-			if (!fullRepaint && isVisible()) {
-
-				int width = getClientArea().width;
-				int height = getClientArea().height;
-				Point where = scale(loc, width - 2 * inset, height - 2 * inset);
-				where.y = height - inset - where.y;
-                where.x += inset;
-				redraw(where.x - SEEK_SIZE / 2, where.y - SEEK_SIZE / 2,
-						SEEK_SIZE, SEEK_SIZE, false);
+			if (!fullRepaint) {
+				redrawPoint(loc);
 			}
 		}
 	}
@@ -591,6 +618,41 @@ public class SeekGraph extends Canvas {
 		gc.fillOval(p.x, p.y, SEEK_SIZE, SEEK_SIZE);
 	}
 
+	private void redrawPoint(Point loc) {
+		if (isVisible()) {
+			int width = getClientArea().width;
+			int height = getClientArea().height;
+			Point where = scale(loc, width - 2 * inset, height - 2 * inset);
+			where.y = height - inset - where.y;
+			where.x += inset;
+			// One pixel larger so antialiased edges are redrawn as well.
+			redraw(where.x - SEEK_SIZE / 2 - 1, where.y - SEEK_SIZE / 2 - 1,
+					SEEK_SIZE + 2, SEEK_SIZE + 2, false);
+		}
+	}
+
+	private void removeSeek(Seek seek) {
+		Point loc = new Point(getX(seek), getY(seek));
+		List<Seek> existing = seeks.get(loc);
+		if (existing == null) {
+			return;
+		}
+
+		for (Iterator<Seek> i = existing.iterator(); i.hasNext();) {
+			if (i.next().getAd().equals(seek.getAd())) {
+				i.remove();
+				if (existing.isEmpty()) {
+					seeks.remove(loc);
+					screen.values().remove(loc);
+				}
+				lastPopupRect = null;
+				tooltip.setVisible(false);
+				redrawPoint(loc);
+				break;
+			}
+		}
+	}
+
 	private void showAcceptPopup(Point clickLoc, Point loc, Rectangle rect) {
 		// are we're already showing for this?
 		if (lastPopupRect == null || !rect.equals(lastPopupRect)) {
@@ -85,7 +85,8 @@ public class SeekTableWindowItem implements RaptorConnectorWindowItem {
 
 	protected Runnable timer = new Runnable() {
 		public void run() {
-			if (isActive && !composite.isDisposed()) {
+			if (isActive && !composite.isDisposed()
+					&& !service.isSeekInfoEnabled()) {
 				service.refreshSeeks();
 				ThreadService
 						.getInstance()
@@ -101,9 +102,17 @@ public class SeekTableWindowItem implements RaptorConnectorWindowItem {
 	};
 
 	protected SeekServiceListener listener = new SeekServiceListener() {
+		public void seeksAdded(Seek[] addedSeeks) {
+			addSeeksToView(addedSeeks);
+		}
+
 		public void seeksChanged(Seek[] seeks) {
 			refreshSeekView();
 		}
+
+		public void seeksRemoved(Seek[] removedSeeks) {
+			removeSeeksFromView(removedSeeks);
+		}
 	};
 
 	public SeekTableWindowItem(SeekService service) {
@@ -186,7 +195,9 @@ public class SeekTableWindowItem implements RaptorConnectorWindowItem {
 		tableTab.setControl(tableComposite);
 
 		seeksTable = new RaptorTable(tableComposite, SWT.BORDER | SWT.H_SCROLL
-				| SWT.V_SCROLL | SWT.SINGLE | SWT.FULL_SELECTION);
+				| SWT.V_SCROLL | SWT.SINGLE | SWT.FULL_SELECTION
+				| SWT.VIRTUAL);
+		seeksTable.setRowIdColumn(0);
 		seeksTable.setLayoutData(new GridData(SWT.FILL, SWT.FILL, true, true));
 
 		seeksTable.addColumn(local.getString("seekTabWI4"), SWT.LEFT, 8, true, new IntegerComparator());
@@ -251,6 +262,10 @@ public class SeekTableWindowItem implements RaptorConnectorWindowItem {
 	public void onActivate() {
 		if (!isActive) {
 			isActive = true;
+			// Seeks are pushed by the server when seekinfo is enabled.
+			if (service.isSeekInfoEnabled()) {
+				return;
+			}
 			service.refreshSeeks();
 			ThreadService
 					.getInstance()
@@ -540,6 +555,33 @@ public class SeekTableWindowItem implements RaptorConnectorWindowItem {
 		});
 	}
 
+	/**
+	 * Adds the seeks passing the filters to the table and graph, without
+	 * rebuilding either of them.
+	 */
+	protected void addSeeksToView(final Seek[] addedSeeks) {
+		Raptor.getInstance().getDisplay().asyncExec(new RaptorRunnable() {
+			@Override
+			public void execute() {
+				if (seeksTable == null || seeksTable.isDisposed()) {
+					return;
+				}
+				synchronized (seeksTable.getTable()) {
+					List<Seek> filteredSeeks = new ArrayList<Seek>(
+							addedSeeks.length);
+					for (Seek seek : addedSeeks) {
+						if (passesFilterCriteria(seek)) {
+							filteredSeeks.add(seek);
+							seeksTable.insertRow(getRowData(seek));
+						}
+					}
+					seekGraph.addSeeks(filteredSeeks
+							.toArray(new Seek[filteredSeeks.size()]));
+				}
+			}
+		});
+	}
+
 	protected Seek[] getFilteredSeeks() {
 		Seek[] currentSeeks = service.getSeeks();
 		if (currentSeeks == null) {
@@ -615,6 +657,12 @@ public class SeekTableWindowItem implements RaptorConnectorWindowItem {
 		return result;
 	}
 
+	protected String[] getRowData(Seek seek) {
+		return new String[] { seek.getAd(), seek.getRating(),
+				seek.getTimeControl(), seek.getTypeDescription(),
+				seek.getName(), seek.getRatingRange(), seek.getFlags() };
+	}
+
 	protected void refreshSeekView() {
 		Raptor.getInstance().getDisplay().asyncExec(new RaptorRunnable() {
 			@Override
@@ -626,20 +674,38 @@ public class SeekTableWindowItem implements RaptorConnectorWindowItem {
 					Seek[] seeks = getFilteredSeeks();
 					seekGraph.replaceBy(seeks);
 
-					String[][] data = new String[seeks.length][7];
+					String[][] data = new String[seeks.length][];
 					for (int i = 0; i < data.length; i++) {
-						Seek seek = seeks[i];
-						data[i][0] = seek.getAd();
-						data[i][1] = seek.getRating();
-						data[i][2] = seek.getTimeControl();
-						data[i][3] = seek.getTypeDescription();
-						data[i][4] = seek.getName();
-						data[i][5] = seek.getRatingRange();
-						data[i][6] = seek.getFlags();
+						data[i] = getRowData(seeks[i]);
 					}
 					seeksTable.refreshTable(data);
 				}
 			}
 		});
 	}
+
+	/**
+	 * Removes the seeks from the table and graph, without rebuilding either
+	 * of them.
+	 */
+	protected void removeSeeksFromView(final Seek[] removedSeeks) {
+		Raptor.getInstance().getDisplay().asyncExec(new RaptorRunnable() {
+			@Override
+			public void execute() {
+				if (seeksTable == null || seeksTable.isDisposed()) {
+					return;
+				}
+				synchronized (seeksTable.getTable()) {
+					for (Seek seek : removedSeeks) {
+						int index = seeksTable.getModel().indexOfId(
+								seek.getAd());
+						if (index != -1) {
+							seeksTable.removeRow(index);
+						}
+					}
+					seekGraph.removeSeeks(removedSeeks);
+				}
+			}
+		});
+	}
 }
\ No newline at end of file
@@ -0,0 +1,227 @@
+/**
+ * New BSD License
+ * http://www.opensource.org/licenses/bsd-license.php
+ * Copyright 2009-2011 RaptorProject (http://code.google.com/p/raptor-chess-interface/)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the RaptorProject nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package raptor.swt;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.swt.widgets.Display;
+
+import raptor.Raptor;
+import raptor.util.Logger;
+
+/**
+ * Coalesces UI updates into frames. Producers on any thread schedule an update
+ * under a key, usually the widget or controller being updated. Updates for a
+ * key which is already pending are merged: the newest runnable replaces the
+ * pending one and runs once in the next frame. A frame runs every pending
+ * update in the order the keys were first scheduled, at most once every
+ * FRAME_MILLIS, so a burst of events costs one asyncExec and one repaint per
+ * widget instead of one per event.
+ * 
+ * Updates should be idempotent, e.g. "append whatever is queued" or "refresh
+ * the board", since intermediate ones are skipped.
+ */
+public class UIUpdateScheduler {
+	private static final Logger LOG = Logger.getLogger(UIUpdateScheduler.class);
+
+	/**
+	 * The minimum number of milliseconds between frames.
+	 */
+	public static final int FRAME_MILLIS = 30;
+
+	/**
+	 * Creates the singleton the first time getInstance is called, after
+	 * Raptor has a display.
+	 */
+	private static class SingletonHolder {
+		private static final UIUpdateScheduler INSTANCE = new UIUpdateScheduler(
+				Raptor.getInstance().getDisplay());
+	}
+
+	protected Display display;
+	protected AtomicLong droppedCount = new AtomicLong();
+	protected boolean isFrameScheduled;
+	protected long lastFrameTime;
+	protected AtomicLong mergedCount = new AtomicLong();
+	protected Map<Object, Runnable> pending = new LinkedHashMap<Object, Runnable>();
+	protected AtomicLong queuedCount = new AtomicLong();
+
+	protected Runnable frameRunnable = new Runnable() {
+		public void run() {
+			long wait = lastFrameTime + FRAME_MILLIS
+					- System.currentTimeMillis();
+			if (wait > 0 && wait <= FRAME_MILLIS) {
+				timerExec((int) wait, this);
+			} else {
+				runFrame();
+			}
+		}
+	};
+
+	public static UIUpdateScheduler getInstance() {
+		return SingletonHolder.INSTANCE;
+	}
+
+	public UIUpdateScheduler(Display display) {
+		this.display = display;
+	}
+
+	/**
+	 * Removes the pending update for key without running it. Returns true if
+	 * there was one.
+	 */
+	public boolean cancel(Object key) {
+		boolean result;
+		synchronized (this) {
+			result = pending.remove(key) != null;
+		}
+		if (result) {
+			droppedCount.incrementAndGet();
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the number of updates which were never run, because they were
+	 * cancelled or the display was disposed.
+	 */
+	public long getDroppedCount() {
+		return droppedCount.get();
+	}
+
+	/**
+	 * Returns the number of updates which replaced one already pending for the
+	 * same key.
+	 */
+	public long getMergedCount() {
+		return mergedCount.get();
+	}
+
+	/**
+	 * Returns the number of updates scheduled.
+	 */
+	public long getQueuedCount() {
+		return queuedCount.get();
+	}
+
+	public synchronized boolean isPending(Object key) {
+		return pending.containsKey(key);
+	}
+
+	/**
+	 * Runs the pending update for key now instead of in the next frame. Must
+	 * be called on the UI thread. Use it before an update which has to see the
+	 * effects of the pending one, e.g. swapping a board's controller.
+	 */
+	public void runPending(Object key) {
+		Runnable runnable;
+		synchronized (this) {
+			runnable = pending.remove(key);
+		}
+		if (runnable != null) {
+			run(runnable);
+		}
+	}
+
+	/**
+	 * Schedules runnable to run on the UI thread in the next frame, replacing
+	 * any update still pending for key.
+	 */
+	public void schedule(Object key, Runnable runnable) {
+		queuedCount.incrementAndGet();
+		boolean isSchedulingFrame = false;
+		synchronized (this) {
+			if (pending.containsKey(key)) {
+				mergedCount.incrementAndGet();
+			}
+			pending.put(key, runnable);
+			if (!isFrameScheduled) {
+				isFrameScheduled = isSchedulingFrame = true;
+			}
+		}
+
+		if (isSchedulingFrame) {
+			if (isDisplayDisposed()) {
+				dropPending();
+			} else {
+				asyncExec(frameRunnable);
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "UIUpdateScheduler queued=" + getQueuedCount() + " merged="
+				+ getMergedCount() + " dropped=" + getDroppedCount();
+	}
+
+	/**
+	 * Runs runnable on the UI thread. Display.asyncExec by default.
+	 */
+	protected void asyncExec(Runnable runnable) {
+		display.asyncExec(runnable);
+	}
+
+	protected synchronized void dropPending() {
+		droppedCount.addAndGet(pending.size());
+		pending.clear();
+		isFrameScheduled = false;
+	}
+
+	protected boolean isDisplayDisposed() {
+		return display.isDisposed();
+	}
+
+	protected void run(Runnable runnable) {
+		try {
+			runnable.run();
+		} catch (Throwable t) {
+			LOG.error("Error running UI update " + runnable, t);
+		}
+	}
+
+	/**
+	 * Runs every pending update. Updates scheduled while the frame runs go in
+	 * the next frame.
+	 */
+	protected void runFrame() {
+		if (isDisplayDisposed()) {
+			dropPending();
+			return;
+		}
+
+		List<Runnable> runnables;
+		synchronized (this) {
+			runnables = new ArrayList<Runnable>(pending.values());
+			pending.clear();
+			isFrameScheduled = false;
+		}
+		lastFrameTime = System.currentTimeMillis();
+		for (Runnable runnable : runnables) {
+			run(runnable);
+		}
+	}
+
+	/**
+	 * Runs runnable on the UI thread after delay milliseconds.
+	 * Display.timerExec by default.
+	 */
+	protected void timerExec(int delay, Runnable runnable) {
+		display.timerExec(delay, runnable);
+	}
+}
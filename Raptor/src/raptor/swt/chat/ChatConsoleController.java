@@ -19,6 +19,7 @@ import java.io.IOException;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
@@ -64,6 +65,7 @@ import raptor.Raptor;
 import raptor.RaptorWindowItem;
 import raptor.alias.RaptorAliasResult;
 import raptor.chat.ChatEvent;
+import raptor.chat.ChatLogger;
 import raptor.chat.ChatLogger.ChatEventParseListener;
 import raptor.chat.ChatType;
 import raptor.chess.Game;
@@ -82,14 +84,17 @@ import raptor.service.SoundService;
 import raptor.service.ThreadService;
 import raptor.swt.ItemChangedListener;
 import raptor.swt.SWTUtils;
+import raptor.swt.UIUpdateScheduler;
 import raptor.swt.chat.controller.ChannelController;
 import raptor.swt.chat.controller.MainController;
 import raptor.swt.chat.controller.ToolBarItemKey;
 import raptor.swt.chess.ChessBoardWindowItem;
+import raptor.swt.chess.ChessBoardCanvas;
 import raptor.swt.chess.ChessSquare;
 import raptor.swt.chess.controller.PlayingController;
 import raptor.util.BrowserUtils;
 import raptor.util.OSUtils;
+import raptor.util.LiteralScanner;
 import raptor.util.Logger;
 import raptor.util.RaptorRunnable;
 
@@ -98,6 +103,34 @@ public abstract class ChatConsoleController implements PreferenceKeys {
 	public static final long SPELL_CHECK_DELAY = 1000;
 	private static final Logger LOG = Logger.getLogger(ChatConsoleController.class);
 	public static final int TEXT_CHUNK_SIZE = 1000;
+
+	/**
+	 * The literals the decorations look for. A message is scanned for all of
+	 * them once and each decoration uses the hits.
+	 */
+	protected static final LiteralScanner DECORATION_SCANNER;
+	protected static final int NEXT_LITERAL = 0;
+	protected static final int HTTP_LITERAL = 1;
+	protected static final int HTTPS_LITERAL = 2;
+	protected static final int WWW_LITERAL = 3;
+	protected static final int NEWLINE_LITERAL = 4;
+	protected static final int DOUBLE_QUOTE_LITERAL = 5;
+	protected static final int SINGLE_QUOTE_LITERAL = 6;
+	protected static final int FIRST_DOMAIN_LITERAL = 7;
+	static {
+		String[] literals = new String[FIRST_DOMAIN_LITERAL
+				+ ChatUtils.TOP_LEVEL_DOMAINS.length];
+		literals[NEXT_LITERAL] = "[next]";
+		literals[HTTP_LITERAL] = "http://";
+		literals[HTTPS_LITERAL] = "https://";
+		literals[WWW_LITERAL] = "www.";
+		literals[NEWLINE_LITERAL] = "\n";
+		literals[DOUBLE_QUOTE_LITERAL] = "\"";
+		literals[SINGLE_QUOTE_LITERAL] = "'";
+		System.arraycopy(ChatUtils.TOP_LEVEL_DOMAINS, 0, literals,
+				FIRST_DOMAIN_LITERAL, ChatUtils.TOP_LEVEL_DOMAINS.length);
+		DECORATION_SCANNER = new LiteralScanner(literals, false);
+	}
 	public static int[] DONT_FORWARD_KEYSTROKES = { SWT.PAGE_UP, SWT.PAGE_DOWN,
 			SWT.HOME, SWT.END };
 	public static int[] DONT_FORWARD_KEYMASKS = { SWT.COMMAND, SWT.CONTROL };
@@ -106,19 +139,26 @@ public abstract class ChatConsoleController implements PreferenceKeys {
 	protected List<ChatEvent> awayList = new ArrayList<ChatEvent>(100);
 	protected ChatConsole chatConsole;
 	protected Queue<ChatEvent> chatEventQueue = new ConcurrentLinkedQueue<ChatEvent>();
+	protected Queue<ChatEvent> pendingChatEvents = new ConcurrentLinkedQueue<ChatEvent>();
+
+	/**
+	 * Appends the pending chat events. Scheduled with the UIUpdateScheduler so
+	 * bursts of events are appended together. Created in the constructor once
+	 * the connector is set.
+	 */
+	protected Runnable chatEventUpdate;
 	protected ChatListener chatServiceListener = new ChatListener() {
 		public void chatEventOccured(final ChatEvent event) {			
 			if (!isDisposed && chatConsole != null && !chatConsole.isDisposed()) {
 				if (event.getType() == ChatType.CHANNEL_TELL)
 					chatEventQueue.add(event);
-				
-				chatConsole.getDisplay().asyncExec(
-						new RaptorRunnable(getConnector()) {
-							@Override
-							public void execute() {
-								onChatEvent(event);
-							}
-						});
+
+				// Events arriving while an update is already pending are
+				// appended by that update, so a burst of events costs a single
+				// append and repaint in the next frame.
+				pendingChatEvents.add(event);
+				UIUpdateScheduler.getInstance().schedule(
+						ChatConsoleController.this, chatEventUpdate);
 			} else {
 				eventsWhileBeingReparented.add(event);
 			}
@@ -126,10 +166,6 @@ public abstract class ChatConsoleController implements PreferenceKeys {
 		}
 
 		public boolean isHandling(final ChatEvent event) {
-			if (event.getType() == ChatType.TELL) {
-				sourceOfLastTellReceived = event.getSource();
-			}
-
 			return isAcceptingChatEvent(event);
 		}
 	};
@@ -211,6 +247,11 @@ public abstract class ChatConsoleController implements PreferenceKeys {
 					((ChessSquare) cursorControl).getChessBoard()
 							.getController().userMouseWheeled(e.count);
 				}
+			} else if (cursorControl instanceof ChessBoardCanvas) {
+				if (System.currentTimeMillis() - lastWheel > 100) {
+					((ChessBoardCanvas) cursorControl).getChessBoard()
+							.getController().userMouseWheeled(e.count);
+				}
 			}
 		}
 	};
@@ -249,13 +290,18 @@ public abstract class ChatConsoleController implements PreferenceKeys {
 	protected boolean isDirty;
 	protected boolean isSoundDisabled = false;
 	protected boolean isAutoScrolling = true;
+
+	/**
+	 * Collects the input text style ranges while a batch of chat events is
+	 * appended, null otherwise.
+	 */
+	protected StyleRangeBuffer batchStyleRanges;
 	protected List<ItemChangedListener> itemChangedListeners = new ArrayList<ItemChangedListener>(
 			5);
 	protected List<String> sentText = new ArrayList<String>(50);
 
 	protected int sentTextIndex = 0;
 
-	protected String sourceOfLastTellReceived;
 
 	protected ToolBar toolbar;
 
@@ -263,6 +309,22 @@ public abstract class ChatConsoleController implements PreferenceKeys {
 
 	public ChatConsoleController(Connector connector) {
 		this.connector = connector;
+		chatEventUpdate = new RaptorRunnable(connector) {
+			@Override
+			public void execute() {
+				if (isDisposed) {
+					pendingChatEvents.clear();
+					return;
+				}
+				List<ChatEvent> events = new ArrayList<ChatEvent>(
+						pendingChatEvents.size());
+				ChatEvent event;
+				while ((event = pendingChatEvents.poll()) != null) {
+					events.add(event);
+				}
+				onChatEvents(events);
+			}
+		};
 		connector.addConnectorListener(connectorListener);
 	}
 
@@ -370,6 +432,7 @@ public abstract class ChatConsoleController implements PreferenceKeys {
 
 	public void dispose() {
 		isDisposed = true;
+		UIUpdateScheduler.getInstance().cancel(this);
 		if (connector != null) {
 			connector.getChatService().removeChatServiceListener(
 					chatServiceListener);
@@ -424,10 +487,28 @@ public abstract class ChatConsoleController implements PreferenceKeys {
 		return chatConsole;
 	}
 
+	/**
+	 * Returns the ChatService route keys of the events this controller
+	 * accepts, see ChatService.getRouteKey. Events with other keys are never
+	 * offered to isAcceptingChatEvent. The default, null, offers every event.
+	 */
+	public String[] getChatRouteKeys() {
+		return null;
+	}
+
 	public Connector getConnector() {
 		return connector;
 	}
 
+	/**
+	 * Returns the query selecting the logged chat events this controller may
+	 * accept when its previous chats are appended, or null to read all of
+	 * them. isAcceptingChatEvent is still applied to the events read.
+	 */
+	public ChatLogger.Query getPreviousChatsQuery() {
+		return null;
+	}
+
 	/**
 	 * Returns an Image icon that can be used to represent this controller.
 	 */
@@ -458,7 +539,8 @@ public abstract class ChatConsoleController implements PreferenceKeys {
 	public abstract String getPrompt();
 
 	public String getSourceOfLastTellReceived() {
-		return sourceOfLastTellReceived;
+		return connector == null ? null : connector.getChatService()
+				.getSourceOfLastTellReceived();
 	}
 
 	/**
@@ -582,22 +664,8 @@ public abstract class ChatConsoleController implements PreferenceKeys {
 			if (event.getType() == ChatType.CHANNEL_TELL && !chatEventQueue.isEmpty())
 				event = chatEventQueue.poll();
 
-			String messageText = filterText(event.getMessage());
-			String date = "";
-			RaptorPreferenceStore preferences = Raptor.getInstance().getPreferences();
-			if (preferences.getBoolean(CHAT_TIMESTAMP_CONSOLE)) {
-				DateFormat format = new SimpleDateFormat(
-					preferences.getString(CHAT_TIMESTAMP_CONSOLE_FORMAT));
-				date = format.format(new Date(event.getTime()));
-			} else if (messageText != null) {
-				messageText = messageText.replaceFirst("^\\n+", "");
-			}
-			// There use to be an else {messageText = messateText.trim();} here.
-			// It was removed to fix Issue 48 (ASCII art missing leading spaces).
-			// This comment is here just in case someone ever adds it back.
-
 			appendText = (chatConsole.inputText.getCharCount() == 0 ? "" : "\n")
-					+ date + messageText;
+					+ formatChatEvent(event, getTimestampFormat());
 			
 			chatConsole.inputText.append(appendText);
 
@@ -641,6 +709,42 @@ public abstract class ChatConsoleController implements PreferenceKeys {
 		}
 	}
 
+	/**
+	 * Handles a burst of chat events the same way as calling onChatEvent for
+	 * each one, except their text is appended and decorated in one update.
+	 */
+	public void onChatEvents(List<ChatEvent> events) {
+		if (events.isEmpty() || isIgnoringActions()) {
+			return;
+		}
+
+		List<ChatEvent> appendedEvents = new ArrayList<ChatEvent>(events
+				.size());
+		boolean isAwayListChanged = false;
+		for (ChatEvent event : events) {
+			if (!ignoreAwayList && event.getType() == ChatType.TELL
+					|| event.getType() == ChatType.PARTNER_TELL) {
+				awayList.add(event);
+				isAwayListChanged = true;
+			}
+			if (event.getType() == ChatType.CHANNEL_TELL
+					&& !chatEventQueue.isEmpty()) {
+				event = chatEventQueue.poll();
+			}
+			appendedEvents.add(event);
+		}
+		if (isAwayListChanged) {
+			adjustAwayButtonEnabled();
+		}
+
+		appendChatEventsToInputText(appendedEvents);
+
+		for (ChatEvent event : events) {
+			playSounds(event);
+			updateImageIcon(event);
+		}
+	}
+
 	public void onForceAutoScroll() {
 		if (isIgnoringActions()) {
 			return;
@@ -658,6 +762,27 @@ public abstract class ChatConsoleController implements PreferenceKeys {
 		}
 	}
 
+	/**
+	 * Appends chat events which were logged before this console was opened,
+	 * e.g. the history of a new channel tab, in one update. The events have
+	 * already been seen, so no sounds are played and tells are not added to
+	 * the away list.
+	 */
+	public void onReplayChatEvents(List<ChatEvent> events) {
+		if (isIgnoringActions() || events.isEmpty()) {
+			return;
+		}
+
+		long startTime = System.currentTimeMillis();
+		appendChatEventsToInputText(events);
+		updateImageIcon(events.get(events.size() - 1));
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("Replayed " + events.size() + " chat events in "
+					+ (System.currentTimeMillis() - startTime) + "ms");
+		}
+	}
+
 	public void onSave() {
 		if (isIgnoringActions()) {
 			return;
@@ -984,6 +1109,35 @@ public abstract class ChatConsoleController implements PreferenceKeys {
 		return false;
 	}
 
+	/**
+	 * Returns the text appended to the console for an event, the time stamp
+	 * if there is a format for one followed by the filtered message.
+	 */
+	protected String formatChatEvent(ChatEvent event, DateFormat timestampFormat) {
+		String messageText = filterText(event.getMessage());
+		String date = "";
+		if (timestampFormat != null) {
+			date = timestampFormat.format(new Date(event.getTime()));
+		} else if (messageText != null) {
+			messageText = messageText.replaceFirst("^\\n+", "");
+		}
+		// There use to be an else {messageText = messateText.trim();} here.
+		// It was removed to fix Issue 48 (ASCII art missing leading spaces).
+		// This comment is here just in case someone ever adds it back.
+		return date + messageText;
+	}
+
+	/**
+	 * Returns the format for console time stamps, null if they are turned
+	 * off.
+	 */
+	protected DateFormat getTimestampFormat() {
+		RaptorPreferenceStore preferences = Raptor.getInstance().getPreferences();
+		return preferences.getBoolean(CHAT_TIMESTAMP_CONSOLE) ? new SimpleDateFormat(
+				preferences.getString(CHAT_TIMESTAMP_CONSOLE_FORMAT))
+				: null;
+	}
+
 	protected boolean isAutoCompleteTrigger(Event keyEvent) {
 		return isMaskedKey(keyEvent)
 				&& (keyEvent.character == ' ' || keyEvent.keyCode == ' ');
@@ -1033,6 +1187,7 @@ public abstract class ChatConsoleController implements PreferenceKeys {
 	}
 
 	public void setInputToLastTell() {
+		String sourceOfLastTellReceived = getSourceOfLastTellReceived();
 		if (sourceOfLastTellReceived != null) {
 			chatConsole.outputText.setText(connector
 					.getTellToString(sourceOfLastTellReceived));
@@ -1051,7 +1206,10 @@ public abstract class ChatConsoleController implements PreferenceKeys {
 	}
 
 	public void setSourceOfLastTellReceived(String sourceOfLastTellReceived) {
-		this.sourceOfLastTellReceived = sourceOfLastTellReceived;
+		if (connector != null) {
+			connector.getChatService().setSourceOfLastTellReceived(
+					sourceOfLastTellReceived);
+		}
 	}
 
 	public void setToolItemEnabled(ToolBarItemKey key, boolean isEnabled) {
@@ -1278,12 +1436,59 @@ public abstract class ChatConsoleController implements PreferenceKeys {
 		ChatUtils.addPersonMenuItems(menu, connector, word);
 	}
 
+	/**
+	 * Appends the text of the events to the input text at once. Their
+	 * decorations are collected and applied with a single replaceStyleRanges,
+	 * and the console is scrolled and trimmed once, instead of once per event.
+	 */
+	protected void appendChatEventsToInputText(List<ChatEvent> events) {
+		DateFormat timestampFormat = getTimestampFormat();
+		String[] appendTexts = new String[events.size()];
+		int[] startIndexes = new int[events.size()];
+		StringBuilder text = new StringBuilder(events.size() * 80);
+		int appendStart;
+
+		// synchronize on chatConsole so the scrolling will be handled
+		// appropriately if there are multiple events being
+		// published at the same time.
+		synchronized (chatConsole) {
+			if (chatConsole.isDisposed()) {
+				return;
+			}
+			appendStart = chatConsole.inputText.getCharCount();
+			for (int i = 0; i < events.size(); i++) {
+				startIndexes[i] = appendStart + text.length();
+				appendTexts[i] = (startIndexes[i] == 0 ? "" : "\n")
+						+ formatChatEvent(events.get(i), timestampFormat);
+				text.append(appendTexts[i]);
+			}
+			chatConsole.inputText.append(text.toString());
+		}
+
+		batchStyleRanges = new StyleRangeBuffer();
+		try {
+			for (int i = 0; i < events.size(); i++) {
+				onDecorateInputText(events.get(i), appendTexts[i],
+						startIndexes[i]);
+			}
+			chatConsole.inputText.replaceStyleRanges(appendStart, text
+					.length(), batchStyleRanges.toArray());
+		} finally {
+			batchStyleRanges = null;
+		}
+
+		if (isAutoScrolling) {
+			onForceAutoScroll();
+		}
+		reduceInputTextIfNeeded();
+	}
+
 	protected void adjustAwayButtonEnabled() {
 		setToolItemEnabled(ToolBarItemKey.AWAY_BUTTON, !awayList.isEmpty());
 	}
 
 	protected void decorateBugWhoLinks(ChatEvent event, String message,
-			int textStartPosition) {
+			int textStartPosition, LiteralScanner.Hits hits) {
 		if ((event.getType() == ChatType.BUGWHO_ALL || event.getType() == ChatType.BUGWHO_GAMES)
 				&& getPreferences().getBoolean(
 						PreferenceKeys.CHAT_UNDERLINE_COMMANDS)) {
@@ -1291,9 +1496,10 @@ public abstract class ChatConsoleController implements PreferenceKeys {
 			// in bugwho games format.
 			List<int[]> linkRanges = new ArrayList<int[]>(5);
 
+			int[] newLines = hits.getStarts(NEWLINE_LITERAL);
 			int lastNewlineIndex = 0;
 			int newLineIndex = 0;
-			while ((newLineIndex = message.indexOf('\n', lastNewlineIndex + 1)) != -1) {
+			while ((newLineIndex = indexOf(newLines, lastNewlineIndex + 1)) != -1) {
 				String line = message.substring(lastNewlineIndex + 1,
 						newLineIndex).trim();
 				if (StringUtils.isNotBlank(line)
@@ -1319,7 +1525,7 @@ public abstract class ChatConsoleController implements PreferenceKeys {
 						getPreferences().getColor(event),
 						chatConsole.inputText.getBackground());
 				range.underline = true;
-				chatConsole.inputText.setStyleRange(range);
+				setInputTextStyleRange(range);
 			}
 		}
 	}
@@ -1336,9 +1542,8 @@ public abstract class ChatConsoleController implements PreferenceKeys {
 			message = message.substring(0, message.length() - prompt.length());
 		}
 
-		chatConsole.inputText
-				.setStyleRange(new StyleRange(textStartPosition, message
-						.length(), color, chatConsole.inputText.getBackground()));
+		setInputTextStyleRange(new StyleRange(textStartPosition, message
+				.length(), color, chatConsole.inputText.getBackground()));
 	}
 
 	protected void decorateGameNotifyLinks(ChatEvent event, String message,
@@ -1368,13 +1573,13 @@ public abstract class ChatConsoleController implements PreferenceKeys {
 						getPreferences().getColor(event),
 						chatConsole.inputText.getBackground());
 				range.underline = true;
-				chatConsole.inputText.setStyleRange(range);
+				setInputTextStyleRange(range);
 			}
 		}
 	}
 
 	protected void decorateGamesLinks(ChatEvent event, String message,
-			int textStartPosition) {
+			int textStartPosition, LiteralScanner.Hits hits) {
 		if (event.getType() == ChatType.GAMES
 				&& getPreferences().getBoolean(
 						PreferenceKeys.CHAT_UNDERLINE_COMMANDS)) {
@@ -1415,9 +1620,10 @@ public abstract class ChatConsoleController implements PreferenceKeys {
 
 			List<int[]> linkRanges = new ArrayList<int[]>(5);
 
+			int[] newLines = hits.getStarts(NEWLINE_LITERAL);
 			int lastNewlineIndex = 0;
 			int newLineIndex = 0;
-			while ((newLineIndex = message.indexOf('\n', lastNewlineIndex + 1)) != -1) {
+			while ((newLineIndex = indexOf(newLines, lastNewlineIndex + 1)) != -1) {
 				String line = message.substring(lastNewlineIndex + 1,
 						newLineIndex).trim();
 				if (StringUtils.isNotBlank(line)
@@ -1443,13 +1649,13 @@ public abstract class ChatConsoleController implements PreferenceKeys {
 						getPreferences().getColor(event),
 						chatConsole.inputText.getBackground());
 				range.underline = true;
-				chatConsole.inputText.setStyleRange(range);
+				setInputTextStyleRange(range);
 			}
 		}
 	}
 
 	protected void decorateHistoryLinks(ChatEvent event, String message,
-			int textStartPosition) {
+			int textStartPosition, LiteralScanner.Hits hits) {
 		if (event.getType() == ChatType.HISTORY
 				&& getPreferences().getBoolean(
 						PreferenceKeys.CHAT_UNDERLINE_COMMANDS)) {
@@ -1481,9 +1687,10 @@ public abstract class ChatConsoleController implements PreferenceKeys {
 
 			List<int[]> linkRanges = new ArrayList<int[]>(5);
 
+			int[] newLines = hits.getStarts(NEWLINE_LITERAL);
 			int lastNewlineIndex = 0;
 			int newLineIndex = 0;
-			while ((newLineIndex = message.indexOf('\n', lastNewlineIndex + 1)) != -1) {
+			while ((newLineIndex = indexOf(newLines, lastNewlineIndex + 1)) != -1) {
 				String line = message.substring(lastNewlineIndex + 1,
 						newLineIndex).trim();
 				if (StringUtils.isNotBlank(line)) {
@@ -1535,13 +1742,13 @@ public abstract class ChatConsoleController implements PreferenceKeys {
 						quoteColor, //getPreferences().getColor(event),
 						chatConsole.inputText.getBackground());
 				range.underline = true;
-				chatConsole.inputText.setStyleRange(range);
+				setInputTextStyleRange(range);
 			}
 		}
 	}
 
 	protected void decorateJournalLinks(ChatEvent event, String message,
-			int textStartPosition) {
+			int textStartPosition, LiteralScanner.Hits hits) {
 		if (event.getType() == ChatType.JOURNAL
 				&& getPreferences().getBoolean(
 						PreferenceKeys.CHAT_UNDERLINE_COMMANDS)) {
@@ -1565,9 +1772,10 @@ public abstract class ChatConsoleController implements PreferenceKeys {
 
 			List<int[]> linkRanges = new ArrayList<int[]>(5);
 
+			int[] newLines = hits.getStarts(NEWLINE_LITERAL);
 			int lastNewlineIndex = 0;
 			int newLineIndex = 0;
-			while ((newLineIndex = message.indexOf('\n', lastNewlineIndex + 1)) != -1) {
+			while ((newLineIndex = indexOf(newLines, lastNewlineIndex + 1)) != -1) {
 				String line = message.substring(lastNewlineIndex + 1,
 						newLineIndex);
 				if (StringUtils.isNotBlank(line)) {
@@ -1631,13 +1839,13 @@ public abstract class ChatConsoleController implements PreferenceKeys {
 						getPreferences().getColor(event),
 						chatConsole.inputText.getBackground());
 				range.underline = true;
-				chatConsole.inputText.setStyleRange(range);
+				setInputTextStyleRange(range);
 			}
 		}
 	}
 
 	protected void decorateLinks(ChatEvent event, String message,
-			int textStartPosition) {
+			int textStartPosition, LiteralScanner.Hits hits) {
 		if (event.getType() != ChatType.OUTBOUND
 				&& getPreferences().getBoolean(CHAT_UNDERLINE_URLS)
 				&& event.getType() != ChatType.GAMES
@@ -1649,11 +1857,11 @@ public abstract class ChatConsoleController implements PreferenceKeys {
 			List<int[]> linkRanges = new ArrayList<int[]>(5);
 			
 			// First check http://,https://,www.
-			int startIndex = message.indexOf("http://");
+			int startIndex = hits.indexOf(HTTP_LITERAL, 0);
 			if (startIndex == -1) {
-				startIndex = message.indexOf("https://");
+				startIndex = hits.indexOf(HTTPS_LITERAL, 0);
 				if (startIndex == -1) {
-					startIndex = message.indexOf("www.");
+					startIndex = hits.indexOf(WWW_LITERAL, 0);
 				}
 			}
 			while (startIndex != -1 && startIndex < message.length()) {
@@ -1690,15 +1898,26 @@ public abstract class ChatConsoleController implements PreferenceKeys {
 
 				linkRanges.add(new int[] { startIndex, endIndex });
 
-				startIndex = message.indexOf("http://", endIndex + 1);
+				startIndex = hits.indexOf(HTTP_LITERAL, endIndex + 1);
 				if (startIndex == -1) {
-					startIndex = message.indexOf("https://", endIndex + 1);
+					startIndex = hits.indexOf(HTTPS_LITERAL, endIndex + 1);
 					if (startIndex == -1) {
-						startIndex = message.indexOf("www.", endIndex + 1);
+						startIndex = hits.indexOf(WWW_LITERAL, endIndex + 1);
 					}
 				}
 			}
 
+			// Without a top level domain in the message there is nothing left
+			// to find.
+			boolean hasDomain = false;
+			for (int i = 0; i < hits.size() && !hasDomain; i++) {
+				hasDomain = hits.getLiteral(i) >= FIRST_DOMAIN_LITERAL;
+			}
+			if (!hasDomain) {
+				addLinkRanges(linkRanges, textStartPosition);
+				return;
+			}
+
 			// this string builder is used in order to get the matched domain from getEndIndexOfUrl()
 			StringBuilder dom = new StringBuilder();
 			
@@ -1735,20 +1954,26 @@ public abstract class ChatConsoleController implements PreferenceKeys {
 				linkEnd = endIndex + dom.length()-1;
 			}
 
-			// add all the ranges that were found.
-			Color underlineColor = chatConsole.getPreferences().getColor(CHAT_LINK_UNDERLINE_COLOR);
-			for (int[] linkRange : linkRanges) {
-				StyleRange range = new StyleRange(textStartPosition
-						+ linkRange[0], linkRange[1] - linkRange[0],
-						underlineColor, chatConsole.inputText.getBackground());
-				range.underline = true;
-				chatConsole.inputText.setStyleRange(range);
-			}
+			addLinkRanges(linkRanges, textStartPosition);
+		}
+	}
+
+	/**
+	 * Underlines the link ranges found by decorateLinks.
+	 */
+	protected void addLinkRanges(List<int[]> linkRanges, int textStartPosition) {
+		Color underlineColor = chatConsole.getPreferences().getColor(CHAT_LINK_UNDERLINE_COLOR);
+		for (int[] linkRange : linkRanges) {
+			StyleRange range = new StyleRange(textStartPosition
+					+ linkRange[0], linkRange[1] - linkRange[0],
+					underlineColor, chatConsole.inputText.getBackground());
+			range.underline = true;
+			setInputTextStyleRange(range);
 		}
 	}
 
 	protected void decorateNewsLinks(ChatEvent event, String message,
-			int textStartPosition) {
+			int textStartPosition, LiteralScanner.Hits hits) {
 		if (event.getType() == ChatType.UNKNOWN
 				&& isPossibleNewsMessage(message)
 				&& getPreferences().getBoolean(
@@ -1769,9 +1994,10 @@ public abstract class ChatConsoleController implements PreferenceKeys {
 
 			List<int[]> linkRanges = new ArrayList<int[]>(5);
 
+			int[] newLines = hits.getStarts(NEWLINE_LITERAL);
 			int lastNewlineIndex = 0;
 			int newLineIndex = 0;
-			while ((newLineIndex = message.indexOf('\n', lastNewlineIndex + 1)) != -1) {
+			while ((newLineIndex = indexOf(newLines, lastNewlineIndex + 1)) != -1) {
 				String line = message.substring(lastNewlineIndex + 1,
 						newLineIndex).trim();
 				if (StringUtils.isNotBlank(line)
@@ -1819,13 +2045,13 @@ public abstract class ChatConsoleController implements PreferenceKeys {
 						quoteColor, //getPreferences().getColor(event),
 						chatConsole.inputText.getBackground());
 				range.underline = true;
-				chatConsole.inputText.setStyleRange(range);
+				setInputTextStyleRange(range);
 			}
 		}
 	}
 
 	protected void decorateQuotes(ChatEvent event, String message,
-			int textStartPosition) {
+			int textStartPosition, LiteralScanner.Hits hits) {
 		if (event.getType() != ChatType.OUTBOUND) {
 			boolean isUnderliningSingleQuotes = getPreferences().getBoolean(
 					CHAT_UNDERLINE_SINGLE_QUOTES);
@@ -1837,18 +2063,21 @@ public abstract class ChatConsoleController implements PreferenceKeys {
 			}
 
 			List<int[]> quotedRanges = new ArrayList<int[]>(5);
+			int[] doubleQuotes = hits.getStarts(DOUBLE_QUOTE_LITERAL);
+			int[] singleQuotes = hits.getStarts(SINGLE_QUOTE_LITERAL);
+			int[] newLines = hits.getStarts(NEWLINE_LITERAL);
 
-			int quoteIndex = !isUnderliningDoubleQuotes ? -1 : message
-					.indexOf('\"');
+			int quoteIndex = !isUnderliningDoubleQuotes ? -1 : indexOf(
+					doubleQuotes, 0);
 			if (quoteIndex == -1 && isUnderliningSingleQuotes) {
-				quoteIndex = message.indexOf('\'');
+				quoteIndex = indexOf(singleQuotes, 0);
 			}
 
 			while (quoteIndex != -1) {
-				int endQuote = !isUnderliningDoubleQuotes ? -1 : message
-						.indexOf('\"', quoteIndex + 1);
+				int endQuote = !isUnderliningDoubleQuotes ? -1 : indexOf(
+						doubleQuotes, quoteIndex + 1);
 				if (endQuote == -1 && isUnderliningSingleQuotes) {
-					endQuote = message.indexOf('\'', quoteIndex + 1);
+					endQuote = indexOf(singleQuotes, quoteIndex + 1);
 				}
 
 				if (endQuote == -1) {
@@ -1858,7 +2087,7 @@ public abstract class ChatConsoleController implements PreferenceKeys {
 
 						// If there is a newline between the quotes ignore
 						// it.
-						int newLine = message.indexOf('\n', quoteIndex);
+						int newLine = indexOf(newLines, quoteIndex);
 
 						// If there is just one character and the a space
 						// after
@@ -1880,10 +2109,10 @@ public abstract class ChatConsoleController implements PreferenceKeys {
 					}
 				}
 
-				quoteIndex = !isUnderliningDoubleQuotes ? -1 : message.indexOf(
-                        '\"', endQuote + 1);
+				quoteIndex = !isUnderliningDoubleQuotes ? -1 : indexOf(
+						doubleQuotes, endQuote + 1);
 				if (quoteIndex == -1 && isUnderliningSingleQuotes) {
-					quoteIndex = message.indexOf('\'', endQuote + 1);
+					quoteIndex = indexOf(singleQuotes, endQuote + 1);
 				}
 			}
 
@@ -1894,22 +2123,23 @@ public abstract class ChatConsoleController implements PreferenceKeys {
 						+ quotedRange[0], quotedRange[1] - quotedRange[0],
 						underlineColor, chatConsole.inputText.getBackground());
 				range.underline = true;
-				chatConsole.inputText.setStyleRange(range);
+				setInputTextStyleRange(range);
 			}
 		}
 	}
 
 	protected void decoreateNext(ChatEvent event, String message,
-			int textStartPosition) {
+			int textStartPosition, LiteralScanner.Hits hits) {
 		if (event.getType() != ChatType.OUTBOUND
 				&& getPreferences().getBoolean(
 						PreferenceKeys.CHAT_UNDERLINE_COMMANDS)) {
 			List<int[]> nextRanges = new ArrayList<int[]>(5);
 
-			int nextIndex = message.indexOf("[next]");
-			while (nextIndex != -1) {
-				nextRanges.add(new int[] { nextIndex, nextIndex + 6 });
-				nextIndex = message.indexOf("[next]", nextIndex + 1);
+			for (int i = 0; i < hits.size(); i++) {
+				if (hits.getLiteral(i) == NEXT_LITERAL) {
+					nextRanges.add(new int[] { hits.getStart(i),
+							hits.getStart(i) + 6 });
+				}
 			}
 
 			for (int[] nextRange : nextRanges) {
@@ -1918,7 +2148,7 @@ public abstract class ChatConsoleController implements PreferenceKeys {
 				StyleRange range = new StyleRange(textStartPosition
 						+ nextRange[0], nextRange[1] - nextRange[0],
 						underlineColor, chatConsole.inputText.getBackground());
-				chatConsole.inputText.setStyleRange(range);
+				setInputTextStyleRange(range);
 			}
 		}
 	}
@@ -1934,6 +2164,19 @@ public abstract class ChatConsoleController implements PreferenceKeys {
 		}
 	}
 
+	/**
+	 * Returns the first of the ascending indexes at or after fromIndex, -1 if
+	 * there is none. Used to look up the literals found by the decoration
+	 * scan the way String.indexOf would.
+	 */
+	protected static int indexOf(int[] starts, int fromIndex) {
+		int index = Arrays.binarySearch(starts, fromIndex);
+		if (index < 0) {
+			index = -index - 1;
+		}
+		return index < starts.length ? starts[index] : -1;
+	}
+
 	protected boolean isExaminingAGame() {
 		Game[] games = connector.getGameService().getAllActiveGames();
 		boolean result = false;
@@ -1953,18 +2196,19 @@ public abstract class ChatConsoleController implements PreferenceKeys {
 
 	protected void onDecorateInputText(final ChatEvent event,
 			final String message, final int textStartPosition) {
+		LiteralScanner.Hits hits = DECORATION_SCANNER.scan(message);
 		decorateForegroundColor(event, message, textStartPosition);
-		decoreateNext(event, message, textStartPosition);
-		decorateHistoryLinks(event, message, textStartPosition);
-		decorateGamesLinks(event, message, textStartPosition);
-		decorateJournalLinks(event, message, textStartPosition);
-		decorateBugWhoLinks(event, message, textStartPosition);
-		decorateNewsLinks(event, message, textStartPosition);
+		decoreateNext(event, message, textStartPosition, hits);
+		decorateHistoryLinks(event, message, textStartPosition, hits);
+		decorateGamesLinks(event, message, textStartPosition, hits);
+		decorateJournalLinks(event, message, textStartPosition, hits);
+		decorateBugWhoLinks(event, message, textStartPosition, hits);
+		decorateNewsLinks(event, message, textStartPosition, hits);
 		decorateGameNotifyLinks(event, message, textStartPosition);
 
 		// Decorate these last. They might override others.
-		decorateQuotes(event, message, textStartPosition);
-		decorateLinks(event, message, textStartPosition);
+		decorateQuotes(event, message, textStartPosition, hits);
+		decorateLinks(event, message, textStartPosition, hits);
 
 	}
 
@@ -2354,7 +2598,7 @@ public abstract class ChatConsoleController implements PreferenceKeys {
 					chatServiceListener);
 		} else {
 			connector.getChatService().addChatServiceListener(
-					chatServiceListener);
+					chatServiceListener, getChatRouteKeys());
 		}
 	}
 
@@ -2416,6 +2660,19 @@ public abstract class ChatConsoleController implements PreferenceKeys {
 		smartScroll(false);
 	}
 
+	/**
+	 * Sets a style range on the input text. While a batch of chat events is
+	 * appended the range is collected instead, and applied with the others
+	 * afterwards.
+	 */
+	protected void setInputTextStyleRange(StyleRange range) {
+		if (batchStyleRanges != null) {
+			batchStyleRanges.add(range);
+		} else {
+			chatConsole.inputText.setStyleRange(range);
+		}
+	}
+
 	protected void updateImageIcon(ChatEvent event) {
 		if (!isActive && !hasUnseenText) {
 			hasUnseenText = true;
@@ -14,6 +14,7 @@
 package raptor.swt.chat;
 
 import java.util.Arrays;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.regex.Pattern;
 
@@ -51,6 +52,7 @@ import raptor.connector.Connector;
 import raptor.connector.fics.FicsConnector;
 import raptor.connector.ics.IcsConnector;
 import raptor.international.L10n;
+import raptor.pref.PreferenceKeys;
 import raptor.service.ActionScriptService;
 import raptor.service.ThreadService;
 import raptor.service.UserTagService;
@@ -96,39 +98,66 @@ public class ChatUtils {
 
 	/**
 	 * Appends all of the previous chat events to the controller. This method
-	 * executes asynchronously.
+	 * executes asynchronously. The log is read and filtered off the UI thread,
+	 * only the most recent events which fit in the console are kept, and they
+	 * are replayed into the console with a single asyncExec.
 	 */
 	public static void appendPreviousChatsToController(final ChatConsole console) {
 		ThreadService.getInstance().run(new Runnable() {
 			final ChatConsoleController consoleController = console.getController();
 			public void run() {
+				final int maxChars = Raptor.getInstance().getPreferences()
+						.getInt(PreferenceKeys.CHAT_MAX_CONSOLE_CHARS);
+				final LinkedList<ChatEvent> events = new LinkedList<ChatEvent>();
 				consoleController.setSoundDisabled(true);
 				consoleController.getConnector().getChatService()
 						.getChatLogger().parseFile(
+								consoleController.getPreviousChatsQuery(),
 								new ChatEventParseListener() {
+									int chars;
+
 									public boolean onNewEventParsed(final ChatEvent event) {
-										console.getDisplay().syncExec(
+										if (consoleController.isAcceptingChatEvent(event)) {
+											events.add(event);
+											chars += getReplayLength(event);
+											while (chars > maxChars && events.size() > 1) {
+												chars -= getReplayLength(events.removeFirst());
+											}
+										}
+										return true;
+									}
+
+									public void onParseCompleted() {
+										if (console.isDisposed()) {
+											consoleController.setSoundDisabled(false);
+											return;
+										}
+										console.getDisplay().asyncExec(
 											new RaptorRunnable(consoleController.getConnector()) {
 												@Override
 												public void execute() {
-													if (!console.isDisposed()) {
-														if (consoleController.isAcceptingChatEvent(event)) {
-															consoleController.onChatEvent(event);
+													try {
+														if (!console.isDisposed()) {
+															consoleController.onReplayChatEvents(events);
 														}
+													} finally {
+														consoleController.setSoundDisabled(false);
 													}
 												}
 											});
-										return true;
-									}
-
-									public void onParseCompleted() {
-										consoleController.setSoundDisabled(false);
 									}
 								});
 			}
 		});
 	}
 
+	/**
+	 * Returns roughly the number of characters an event adds to a console.
+	 */
+	protected static int getReplayLength(ChatEvent event) {
+		return event.getMessage() == null ? 1 : event.getMessage().length() + 1;
+	}
+
 	/**
 	 * Returns the character at the specified position in the StyledText.
 	 * @deprecated Encourages numerous calls to getTextRange(int, int)
@@ -662,7 +691,7 @@ public class ChatUtils {
 		return result;
 	}
 	
-	private static final String[] TOP_LEVEL_DOMAINS = {".com ", ".org ", ".edu ", ".gov ", ".uk ", ".net ", ".ca ", ".de ", ".jp ", ".fr ",
+	static final String[] TOP_LEVEL_DOMAINS = {".com ", ".org ", ".edu ", ".gov ", ".uk ", ".net ", ".ca ", ".de ", ".jp ", ".fr ",
 		".ru ", ".au ", ".us ", ".ch ", ".it ", ".nl ", ".se ",".no ", ".es ", ".mil ",
 		".com\n", ".org\n", ".edu\n", ".gov\n", ".uk\n", ".net\n", ".ca\n", ".de\n", ".jp\n", ".fr\n",
 		".ru\n", ".au\n", ".us\n", ".ch\n", ".it\n", ".nl\n", ".se\n",".no\n", ".es\n", ".mil\n",
@@ -0,0 +1,99 @@
+/**
+ * New BSD License
+ * http://www.opensource.org/licenses/bsd-license.php
+ * Copyright 2009-2011 RaptorProject (http://code.google.com/p/raptor-chess-interface/)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the RaptorProject nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package raptor.swt.chat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.swt.custom.StyleRange;
+
+/**
+ * Collects style ranges with the same semantics as successive calls to
+ * StyledText.setStyleRange, where a later range replaces the style of any
+ * earlier range it overlaps. The result is a sorted list of non overlapping
+ * ranges which can be applied with a single StyledText.replaceStyleRanges.
+ * 
+ * This class is not thread safe.
+ */
+public class StyleRangeBuffer {
+	protected List<StyleRange> ranges = new ArrayList<StyleRange>(100);
+
+	/**
+	 * Adds a range, trimming or splitting the ranges it overlaps. Empty
+	 * ranges are ignored.
+	 */
+	public void add(StyleRange range) {
+		if (range.length <= 0) {
+			return;
+		}
+		int start = range.start;
+		int end = range.start + range.length;
+
+		// Ranges are usually added in text order, so search from the end for
+		// the first range which ends after start.
+		int first = ranges.size();
+		while (first > 0 && end(ranges.get(first - 1)) > start) {
+			first--;
+		}
+		int last = first;
+		while (last < ranges.size() && ranges.get(last).start < end) {
+			last++;
+		}
+
+		List<StyleRange> replacement = new ArrayList<StyleRange>(3);
+		if (first < last && ranges.get(first).start < start) {
+			replacement.add(slice(ranges.get(first), ranges.get(first).start,
+					start));
+		}
+		replacement.add(range);
+		if (first < last && end(ranges.get(last - 1)) > end) {
+			replacement.add(slice(ranges.get(last - 1), end, end(ranges
+					.get(last - 1))));
+		}
+
+		List<StyleRange> replaced = ranges.subList(first, last);
+		replaced.clear();
+		replaced.addAll(replacement);
+	}
+
+	public void clear() {
+		ranges.clear();
+	}
+
+	public boolean isEmpty() {
+		return ranges.isEmpty();
+	}
+
+	public int size() {
+		return ranges.size();
+	}
+
+	/**
+	 * Returns the ranges sorted by start. They don't overlap.
+	 */
+	public StyleRange[] toArray() {
+		return ranges.toArray(new StyleRange[ranges.size()]);
+	}
+
+	protected int end(StyleRange range) {
+		return range.start + range.length;
+	}
+
+	protected StyleRange slice(StyleRange range, int start, int end) {
+		StyleRange result = (StyleRange) range.clone();
+		result.start = start;
+		result.length = end - start;
+		return result;
+	}
+}
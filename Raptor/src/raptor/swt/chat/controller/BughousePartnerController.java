@@ -22,9 +22,11 @@ import raptor.Quadrant;
 import raptor.Raptor;
 import raptor.action.RaptorAction.RaptorActionContainer;
 import raptor.chat.ChatEvent;
+import raptor.chat.ChatLogger;
 import raptor.chat.ChatType;
 import raptor.connector.Connector;
 import raptor.international.L10n;
+import raptor.service.ChatService;
 import raptor.swt.SWTUtils;
 import raptor.swt.chat.ChatConsoleController;
 import raptor.swt.chat.ChatUtils;
@@ -35,6 +37,13 @@ public class BughousePartnerController extends ChatConsoleController {
 		super(connector);
 	}
 
+	@Override
+	public String[] getChatRouteKeys() {
+		return new String[] {
+				ChatService.getRouteKey(ChatType.PARTNER_TELL, null),
+				ChatService.getRouteKey(ChatType.OUTBOUND, null) };
+	}
+
 	@Override
 	public String getName() {
 		return L10n.getInstance().getString("bugPartCont0");
@@ -84,6 +93,12 @@ public class BughousePartnerController extends ChatConsoleController {
 		return toolbar;
 	}
 
+	@Override
+	public ChatLogger.Query getPreviousChatsQuery() {
+		return new ChatLogger.Query().add(ChatType.PARTNER_TELL).add(
+				ChatType.OUTBOUND);
+	}
+
 	@Override
 	public boolean isAcceptingChatEvent(ChatEvent inboundEvent) {
 		return inboundEvent.getType() == ChatType.PARTNER_TELL
@@ -21,8 +21,10 @@ import raptor.Quadrant;
 import raptor.Raptor;
 import raptor.action.RaptorAction.RaptorActionContainer;
 import raptor.chat.ChatEvent;
+import raptor.chat.ChatLogger;
 import raptor.chat.ChatType;
 import raptor.connector.Connector;
+import raptor.service.ChatService;
 import raptor.swt.SWTUtils;
 import raptor.swt.chat.ChatConsoleController;
 import raptor.swt.chat.ChatUtils;
@@ -42,6 +44,13 @@ public class ChannelController extends ChatConsoleController {
 		super.dispose();
 	}
 
+	@Override
+	public String[] getChatRouteKeys() {
+		return new String[] {
+				ChatService.getRouteKey(ChatType.CHANNEL_TELL, channel),
+				ChatService.getRouteKey(ChatType.OUTBOUND, null) };
+	}
+
 	public String getChannel() {
 		return channel;
 	}
@@ -92,6 +101,12 @@ public class ChannelController extends ChatConsoleController {
 		return toolbar;
 	}
 
+	@Override
+	public ChatLogger.Query getPreviousChatsQuery() {
+		return new ChatLogger.Query().add(ChatType.CHANNEL_TELL, channel,
+				null, null).add(ChatType.OUTBOUND);
+	}
+
 	@Override
 	public boolean isAcceptingChatEvent(ChatEvent inboundEvent) {
 		return inboundEvent.getType() == ChatType.CHANNEL_TELL
@@ -21,8 +21,10 @@ import raptor.Quadrant;
 import raptor.Raptor;
 import raptor.action.RaptorAction.RaptorActionContainer;
 import raptor.chat.ChatEvent;
+import raptor.chat.ChatLogger;
 import raptor.connector.Connector;
 import raptor.international.L10n;
+import raptor.service.ChatService;
 import raptor.swt.SWTUtils;
 import raptor.swt.chat.ChatConsoleController;
 import raptor.swt.chat.ChatUtils;
@@ -42,6 +44,11 @@ public class GameChatController extends ChatConsoleController {
 		super.dispose();
 	}
 	
+	@Override
+	public String[] getChatRouteKeys() {
+		return new String[] { ChatService.getRouteKey(null, gameId) };
+	}
+
 	public String getGameId() {
 		return gameId;
 	}
@@ -91,6 +98,11 @@ public class GameChatController extends ChatConsoleController {
 		return toolbar;
 	}
 
+	@Override
+	public ChatLogger.Query getPreviousChatsQuery() {
+		return new ChatLogger.Query().add(null, null, null, gameId);
+	}
+
 	@Override
 	public boolean isAcceptingChatEvent(ChatEvent inboundEvent) {
 		return StringUtils.isNotEmpty(inboundEvent.getGameId())
@@ -21,8 +21,10 @@ import raptor.Quadrant;
 import raptor.Raptor;
 import raptor.action.RaptorAction.RaptorActionContainer;
 import raptor.chat.ChatEvent;
+import raptor.chat.ChatLogger;
 import raptor.chat.ChatType;
 import raptor.connector.Connector;
+import raptor.service.ChatService;
 import raptor.swt.SWTUtils;
 import raptor.swt.chat.ChatConsoleController;
 import raptor.swt.chat.ChatUtils;
@@ -42,6 +44,16 @@ public class PersonController extends ChatConsoleController {
 		super.dispose();
 	}
 
+	@Override
+	public String[] getChatRouteKeys() {
+		return new String[] {
+				ChatService.getRouteKey(ChatType.TELL, person),
+				ChatService.getRouteKey(ChatType.PARTNER_TELL, person),
+				ChatService.getRouteKey(ChatType.TOLD, person),
+				ChatService.getRouteKey(ChatType.OUTBOUND, null),
+				ChatService.getRouteKey(ChatType.UNKNOWN, null) };
+	}
+
 	@Override
 	public String getName() {
 		return person;
@@ -92,6 +104,14 @@ public class PersonController extends ChatConsoleController {
 		return toolbar;
 	}
 
+	@Override
+	public ChatLogger.Query getPreviousChatsQuery() {
+		return new ChatLogger.Query().add(ChatType.TELL, null, person, null)
+				.add(ChatType.PARTNER_TELL, null, person, null)
+				.add(ChatType.TOLD, null, person, null)
+				.add(ChatType.OUTBOUND).add(ChatType.UNKNOWN);
+	}
+
 	@Override
 	public boolean isAcceptingChatEvent(ChatEvent event) {
 		return isDirectTellFromPerson(event)
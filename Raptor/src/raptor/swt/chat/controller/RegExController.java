@@ -37,6 +37,15 @@ public class RegExController extends ChatConsoleController {
 	public RegExController(Connector connector, String regularExpression) {
 		super(connector);
 		pattern = RegExUtils.getPattern(regularExpression);
+		connector.getChatService().addRoutePattern(pattern);
+	}
+
+	@Override
+	public void dispose() {
+		if (connector != null && connector.getChatService() != null) {
+			connector.getChatService().removeRoutePattern(pattern);
+		}
+		super.dispose();
 	}
 
 	@Override
@@ -75,7 +84,7 @@ public class RegExController extends ChatConsoleController {
 
 	@Override
 	public boolean isAcceptingChatEvent(ChatEvent event) {
-		return RegExUtils.matches(pattern, event.getMessage());
+		return connector.getChatService().matchesRoutePattern(event, pattern);
 	}
 
 	@Override
@@ -108,7 +117,9 @@ public class RegExController extends ChatConsoleController {
 		String regEx = regExDialog.open();
 		if (StringUtils.isNotBlank(regEx)) {
 			chatConsole.getInputText().setText(""); 
+			connector.getChatService().removeRoutePattern(pattern);
 			pattern = RegExUtils.getPattern(regEx);
+			connector.getChatService().addRoutePattern(pattern);
 			fireItemChanged();
 			ChatUtils.appendPreviousChatsToController(chatConsole);
 		}
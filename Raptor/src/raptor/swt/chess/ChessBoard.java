@@ -64,6 +64,7 @@ public class ChessBoard implements GameConstants, PreferenceKeys {
 	protected RaptorLabel blackNameRatingLabel;
 	protected Composite boardComposite;
 	protected Composite gameComposite;
+	protected ChessBoardCanvas boardCanvas;
 	protected ChessBoardLayout chessBoardLayout;
 	protected ChessBoardController controller;
 	protected RaptorLabel currentPremovesLabel;
@@ -141,7 +142,12 @@ public class ChessBoard implements GameConstants, PreferenceKeys {
 			}
 
 			boardMoveListSash = new SashForm(analysisSash, SWT.HORIZONTAL);
-			gameComposite = new Composite(boardMoveListSash, SWT.NONE);
+			if (preferences.getBoolean(BOARD_IS_USING_SINGLE_CANVAS)) {
+				boardCanvas = new ChessBoardCanvas(boardMoveListSash, this);
+				gameComposite = boardCanvas;
+			} else {
+				gameComposite = new Composite(boardMoveListSash, SWT.NONE);
+			}
 			adjustMoveList();
 
 			createEngineAnalysisWidget();
@@ -191,6 +197,9 @@ public class ChessBoard implements GameConstants, PreferenceKeys {
 
 			createSquares();
 			createPieceJailControls();
+			if (boardCanvas != null) {
+				boardCanvas.attachSquares();
+			}
 
 			whiteNameRatingLabel = new RaptorLabel(gameComposite, SWT.NONE);
 			whiteNameRatingLabel.addMouseListener(new MouseAdapter() {
@@ -259,6 +268,15 @@ public class ChessBoard implements GameConstants, PreferenceKeys {
 		return blackNameRatingLabel;
 	}
 
+	/**
+	 * Returns the canvas the squares are drawn on if
+	 * BOARD_IS_USING_SINGLE_CANVAS was set when the board was created,
+	 * otherwise null.
+	 */
+	public synchronized ChessBoardCanvas getBoardCanvas() {
+		return boardCanvas;
+	}
+
 	/**
 	 * Returns the panel containing the chess board. Should really be not be
 	 * used by anything outside of the swt.chess package.
@@ -505,8 +523,12 @@ public class ChessBoard implements GameConstants, PreferenceKeys {
 	 * Shows the index jail.
 	 */
 	public void setPieceJailVisible(boolean visible) {
-		whitePieceJailComposite.setVisible(visible);
-		blackPieceJailComposite.setVisible(visible);
+		if (boardCanvas != null) {
+			boardCanvas.setPieceJailVisible(visible);
+		} else {
+			whitePieceJailComposite.setVisible(visible);
+			blackPieceJailComposite.setVisible(visible);
+		}
 	}
 
 	/**
@@ -591,6 +613,9 @@ public class ChessBoard implements GameConstants, PreferenceKeys {
 
 		gameComposite.setBackground(preferences
 				.getColor(BOARD_BACKGROUND_COLOR));
+		if (boardCanvas != null) {
+			boardCanvas.invalidateAll();
+		}
 		controller.refresh();
 		boardMoveListSash.layout(true, true);
 		boardMoveListSash.redraw();
@@ -0,0 +1,332 @@
+/**
+ * New BSD License
+ * http://www.opensource.org/licenses/bsd-license.php
+ * Copyright 2009-2011 RaptorProject (http://code.google.com/p/raptor-chess-interface/)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the RaptorProject nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package raptor.swt.chess;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.GC;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.graphics.Rectangle;
+import org.eclipse.swt.graphics.Transform;
+import org.eclipse.swt.widgets.Canvas;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.Listener;
+
+import raptor.util.Logger;
+
+/**
+ * The game composite of a ChessBoard which draws the board and the piece jails
+ * itself, used when BOARD_IS_USING_SINGLE_CANVAS is set.
+ * 
+ * The ChessSquares and their composites are still created and laid out by
+ * the ChessBoardLayout, but they are hidden. Each square is drawn into one
+ * offscreen image, at its laid out bounds, by sending it the paint event its
+ * own paint listener, the SquareHighlighter, ArrowDecorator and
+ * ResultDecorator listen to. ChessSquare.redraw marks the square dirty and
+ * damages only its rectangle of this canvas, and a paint redraws the dirty
+ * squares and copies the damaged area from the image. Mouse events are
+ * forwarded to the square under the pointer.
+ */
+public class ChessBoardCanvas extends Canvas {
+	private static final Logger LOG = Logger.getLogger(ChessBoardCanvas.class);
+
+	protected ChessBoard board;
+	protected Image buffer;
+	protected Set<ChessSquare> dirtySquares = new LinkedHashSet<ChessSquare>();
+	protected boolean isBufferValid;
+	protected boolean isPieceJailVisible = true;
+	protected Rectangle[] paintedBounds;
+
+	/**
+	 * Invalidates the whole buffer when a square or one of the composites
+	 * holding them is moved, resized, shown or hidden.
+	 */
+	protected Listener geometryListener = new Listener() {
+		public void handleEvent(Event event) {
+			invalidateAll();
+		}
+	};
+
+	protected Listener mouseListener = new Listener() {
+		public void handleEvent(Event event) {
+			ChessSquare square = getSquareAt(event.x, event.y);
+			if (square != null) {
+				Rectangle bounds = getSquareBounds(square);
+				Event squareEvent = new Event();
+				squareEvent.button = event.button;
+				squareEvent.count = event.count;
+				squareEvent.detail = event.detail;
+				squareEvent.stateMask = event.stateMask;
+				squareEvent.time = event.time;
+				squareEvent.x = event.x - bounds.x;
+				squareEvent.y = event.y - bounds.y;
+				square.notifyListeners(event.type, squareEvent);
+			}
+		}
+	};
+
+	public ChessBoardCanvas(Composite parent, ChessBoard board) {
+		super(parent, SWT.NO_BACKGROUND);
+		this.board = board;
+		addListener(SWT.Paint, new Listener() {
+			public void handleEvent(Event event) {
+				paint(event);
+			}
+		});
+		addListener(SWT.Resize, geometryListener);
+		addListener(SWT.MouseDown, mouseListener);
+		addListener(SWT.MouseUp, mouseListener);
+		addListener(SWT.MouseDoubleClick, mouseListener);
+		addListener(SWT.MouseWheel, mouseListener);
+	}
+
+	/**
+	 * Hides the composites holding the squares and starts tracking their
+	 * geometry. Invoked once the squares have been created.
+	 */
+	public void attachSquares() {
+		Composite[] composites = getSquareComposites();
+		for (Composite composite : composites) {
+			composite.setVisible(false);
+			composite.addListener(SWT.Move, geometryListener);
+			composite.addListener(SWT.Resize, geometryListener);
+		}
+		for (ChessSquare square : getAllSquares()) {
+			square.addListener(SWT.Move, geometryListener);
+			square.addListener(SWT.Resize, geometryListener);
+			square.addListener(SWT.Show, geometryListener);
+			square.addListener(SWT.Hide, geometryListener);
+		}
+	}
+
+	@Override
+	public void dispose() {
+		if (buffer != null) {
+			buffer.dispose();
+			buffer = null;
+		}
+		super.dispose();
+	}
+
+	public ChessBoard getChessBoard() {
+		return board;
+	}
+
+	/**
+	 * Returns the visible square at the point in this canvas, null if there
+	 * is none.
+	 */
+	public ChessSquare getSquareAt(int x, int y) {
+		for (ChessSquare square : getAllSquares()) {
+			if (isShowing(square) && getSquareBounds(square).contains(x, y)) {
+				return square;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the bounds of the square in this canvas.
+	 */
+	public Rectangle getSquareBounds(ChessSquare square) {
+		Rectangle result = square.getBounds();
+		Rectangle parentBounds = square.getParent().getBounds();
+		result.x += parentBounds.x;
+		result.y += parentBounds.y;
+		return result;
+	}
+
+	/**
+	 * Marks the square dirty and damages its rectangle.
+	 */
+	public void invalidate(ChessSquare square) {
+		if (isDisposed()) {
+			return;
+		}
+		dirtySquares.add(square);
+		Rectangle bounds = getSquareBounds(square);
+		redraw(bounds.x, bounds.y, bounds.width, bounds.height, false);
+	}
+
+	/**
+	 * Redraws everything on the next paint.
+	 */
+	public void invalidateAll() {
+		if (isDisposed()) {
+			return;
+		}
+		isBufferValid = false;
+		redraw();
+	}
+
+	public boolean isPieceJailVisible() {
+		return isPieceJailVisible;
+	}
+
+	public void setPieceJailVisible(boolean isPieceJailVisible) {
+		if (this.isPieceJailVisible != isPieceJailVisible) {
+			this.isPieceJailVisible = isPieceJailVisible;
+			invalidateAll();
+		}
+	}
+
+	/**
+	 * Returns the board squares followed by the piece jail squares.
+	 */
+	protected List<ChessSquare> getAllSquares() {
+		List<ChessSquare> result = new ArrayList<ChessSquare>(77);
+		for (ChessSquare[] rank : board.getSquares()) {
+			for (ChessSquare square : rank) {
+				result.add(square);
+			}
+		}
+		for (PieceJailChessSquare square : board.getPieceJailSquares()) {
+			if (square != null) {
+				result.add(square);
+			}
+		}
+		return result;
+	}
+
+	protected Composite[] getSquareComposites() {
+		return new Composite[] { board.getBoardComposite(),
+				board.getWhitePieceJailComposite(),
+				board.getBlackPieceJailComposite() };
+	}
+
+	/**
+	 * Returns true if the square is drawn. The squares are hidden through
+	 * their composites, so only their own visibility is checked.
+	 */
+	protected boolean isShowing(ChessSquare square) {
+		return square.getVisible()
+				&& (isPieceJailVisible || !(square instanceof PieceJailChessSquare));
+	}
+
+	/**
+	 * Brings the buffer up to date and copies the damaged area to the screen.
+	 */
+	protected void paint(Event event) {
+		long startTime = LOG.isDebugEnabled() ? System.currentTimeMillis() : 0;
+		Point size = getSize();
+		if (size.x <= 0 || size.y <= 0) {
+			return;
+		}
+		if (buffer == null || buffer.getBounds().width != size.x
+				|| buffer.getBounds().height != size.y) {
+			if (buffer != null) {
+				buffer.dispose();
+			}
+			buffer = new Image(getDisplay(), size.x, size.y);
+			isBufferValid = false;
+		}
+
+		List<ChessSquare> squares = getAllSquares();
+		if (isBufferValid && paintedBounds != null) {
+			for (int i = 0; i < squares.size(); i++) {
+				Rectangle bounds = isShowing(squares.get(i)) ? getSquareBounds(squares
+						.get(i))
+						: null;
+				if (bounds == null ? paintedBounds[i] != null : !bounds
+						.equals(paintedBounds[i])) {
+					isBufferValid = false;
+					break;
+				}
+			}
+		}
+
+		int drawnSquares = 0;
+		GC gc = new GC(buffer);
+		try {
+			if (!isBufferValid) {
+				gc.setBackground(getBackground());
+				gc.fillRectangle(0, 0, size.x, size.y);
+				if (isPieceJailVisible) {
+					gc.setBackground(board.getWhitePieceJailComposite()
+							.getBackground());
+					gc.fillRectangle(board.getWhitePieceJailComposite()
+							.getBounds());
+					gc.setBackground(board.getBlackPieceJailComposite()
+							.getBackground());
+					gc.fillRectangle(board.getBlackPieceJailComposite()
+							.getBounds());
+				}
+				paintedBounds = new Rectangle[squares.size()];
+			}
+
+			for (int i = 0; i < squares.size(); i++) {
+				ChessSquare square = squares.get(i);
+				if (!isShowing(square)) {
+					continue;
+				}
+				if (!isBufferValid || dirtySquares.contains(square)) {
+					Rectangle bounds = getSquareBounds(square);
+					paintedBounds[i] = bounds;
+					paintSquare(gc, square, bounds);
+					drawnSquares++;
+				}
+			}
+			dirtySquares.clear();
+			isBufferValid = true;
+		} finally {
+			gc.dispose();
+		}
+
+		event.gc.drawImage(buffer, event.x, event.y, event.width,
+				event.height, event.x, event.y, event.width, event.height);
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("Painted " + drawnSquares + " squares in "
+					+ (System.currentTimeMillis() - startTime));
+		}
+	}
+
+	/**
+	 * Sends the square a paint event drawing into gc, translated and clipped
+	 * to the square's bounds.
+	 */
+	protected void paintSquare(GC gc, ChessSquare square, Rectangle bounds) {
+		Transform transform = new Transform(getDisplay());
+		try {
+			transform.translate(bounds.x, bounds.y);
+			gc.setTransform(transform);
+			gc.setClipping(0, 0, bounds.width, bounds.height);
+			gc.setAlpha(255);
+			gc.setLineWidth(0);
+			gc.setLineStyle(SWT.LINE_SOLID);
+			gc.setBackground(square.getBackground());
+			gc.setForeground(square.getForeground());
+			gc.setFont(square.getFont());
+
+			Event paintEvent = new Event();
+			paintEvent.gc = gc;
+			paintEvent.width = bounds.width;
+			paintEvent.height = bounds.height;
+			square.notifyListeners(SWT.Paint, paintEvent);
+		} catch (Throwable t) {
+			LOG.error("Error painting square " + square.getId(), t);
+		} finally {
+			gc.setClipping((Rectangle) null);
+			gc.setTransform(null);
+			transform.dispose();
+		}
+	}
+
+}
@@ -18,11 +18,12 @@ import java.io.File;
 import java.io.FilenameFilter;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang.StringUtils;
 import org.eclipse.swt.SWT;
@@ -97,8 +98,8 @@ public class ChessBoardUtils implements GameConstants, PreferenceKeys {
 
 	public static final Object PGN_PREPEND_SYNCH = new Object();
 	private static Random RANDOM = new Random();
-	private static HashMap<String, List<Short>> chessSetSizes = new HashMap<String, List<Short>>();
-	private static HashMap<String, List<Short>> squareBackgroundSizes = new HashMap<String, List<Short>>();
+	private static Map<String, List<Short>> chessSetSizes = new ConcurrentHashMap<String, List<Short>>();
+	private static Map<String, List<Short>> squareBackgroundSizes = new ConcurrentHashMap<String, List<Short>>();
 
 	public static void addActionsToToolbar(
 			final ChessBoardController controller,
@@ -260,7 +261,7 @@ public class ChessBoardUtils implements GameConstants, PreferenceKeys {
 
 	/**
 	 * Returns the image with the specified of the specified name,type,width and
-	 * height. If the image is in the localImageRegistry it is returned.
+	 * height. If the image is in the ChessImageCache it is returned.
 	 * Otherwise the closest size is loaded from the chess set and cached.
 	 */
 	public static Image getChessPieceImage(String name, Piece type, int size) {
@@ -271,40 +272,8 @@ public class ChessBoardUtils implements GameConstants, PreferenceKeys {
 				size = 8;
 			}
 
-			String key = name + "_" + type.ch + "_" + size + "x" + size;
-			Image image = Raptor.getInstance().getImageRegistry().get(key);
-
-			if (image == null) {
-				//This list is sorted ascending.
-				List<Short> supportedSizes = getSetPieceSizes(name);
-				
-				if (!supportedSizes.contains(size)) {
-					//TO DO: make this more of a binary search for speed.
-					int lastSize = supportedSizes.get(0);
-					boolean foundMatch = false;
-					
-					for (int currentSize : supportedSizes) {
-						if (currentSize > size) {
-							size = lastSize;
-							foundMatch = true;
-							break;
-						}
-						lastSize = currentSize;
-					}
-					
-					if (!foundMatch) {
-						//This will be the largest size found.
-						size = lastSize;
-					}
-				}
-
-				Image result = new Image(Display.getCurrent(), CHESS_SET_DIR
-						+ name + "/" + size + "/" + getPieceName(type));
-				Raptor.getInstance().getImageRegistry().put(key, result);
-				return result;
-			} else {
-				return image;
-			}
+			return ChessImageCache.getInstance().getPieceImage(name, type,
+					size);
 		}
 	}
 	
@@ -333,10 +302,8 @@ public class ChessBoardUtils implements GameConstants, PreferenceKeys {
 		//    No scaling or cropping is involved, and using the chess set creator you can create all
 		//     of the sizes from svg.
 
-		String key = name + "_" + effect + "_" + isLight + "_" + squareId.index + "_"
-				+ width + "x" + height;
-
-		Image result = Raptor.getInstance().getImageRegistry().get(key);
+		Image result = ChessImageCache.getInstance().getSquareBackgroundImage(
+				name, effect, isLight, squareId, width, height);
 		if (result != null) {
 			//The image is already cached so just return it.
 			return result;
@@ -378,30 +345,14 @@ public class ChessBoardUtils implements GameConstants, PreferenceKeys {
 			}
 		}
 		else { //Type 2
-			if (!supportedSizes.contains(width)) {
-				//TO DO: make this more of a binary search for speed.
-				int lastSize = supportedSizes.get(0);
-				boolean foundMatch = false;
-				
-				for (int currentSize : supportedSizes) {
-					if (currentSize > width) {
-						width = lastSize;
-						foundMatch = true;
-						break;
-					}
-					lastSize = currentSize;
-				}
-				
-				if (!foundMatch) {
-					//This will be the largest size found.
-					width = lastSize;
-				}
-			}
+			int supportedWidth = ChessImageCache.getNearestSize(
+					supportedSizes, width);
 			result = new Image(Display.getCurrent(), SQUARE_BACKGROUND_DIR
-					+ name + "/" + width + "/" + (isLight ? "light.png" : "dark.png"));
+					+ name + "/" + supportedWidth + "/" + (isLight ? "light.png" : "dark.png"));
 			
 		}
-		Raptor.getInstance().getImageRegistry().put(key, result);
+		ChessImageCache.getInstance().putSquareBackgroundImage(name, effect,
+				isLight, squareId, width, height, result);
 		return result;
 	}
 
@@ -910,37 +861,37 @@ public class ChessBoardUtils implements GameConstants, PreferenceKeys {
 			controller.addToolItem(ToolBarItemKey.AUTO_QUEEN, result);
 			int pieceSize = Raptor.getInstance().getPreferences()
 					.getInt(PreferenceKeys.APP_TOOLBAR_PIECE_SIZE);
-			result.setImage(getChessPieceImage("Portable", isUserWhite ? Piece.WQ
-					: Piece.BQ, pieceSize));
+			setPinnedPieceImage(result, isUserWhite ? Piece.WQ : Piece.BQ,
+					pieceSize);
 		} else if (action instanceof AutoKnightAction) {
 			result = new ToolItem(toolbar, SWT.RADIO);
 			controller.addToolItem(ToolBarItemKey.AUTO_KNIGHT, result);
 			int pieceSize = Raptor.getInstance().getPreferences()
 					.getInt(PreferenceKeys.APP_TOOLBAR_PIECE_SIZE);
-			result.setImage(getChessPieceImage("Portable", isUserWhite ? Piece.WN
-					: Piece.BN, pieceSize));
+			setPinnedPieceImage(result, isUserWhite ? Piece.WN : Piece.BN,
+					pieceSize);
 		} else if (action instanceof AutoBishopAction) {
 			result = new ToolItem(toolbar, SWT.RADIO);
 			controller.addToolItem(ToolBarItemKey.AUTO_BISHOP, result);
 			int pieceSize = Raptor.getInstance().getPreferences()
 					.getInt(PreferenceKeys.APP_TOOLBAR_PIECE_SIZE);
-			result.setImage(getChessPieceImage("Portable", isUserWhite ? Piece.WB
-					: Piece.BB, pieceSize));
+			setPinnedPieceImage(result, isUserWhite ? Piece.WB : Piece.BB,
+					pieceSize);
 		} else if (action instanceof AutoRookAction) {
 			result = new ToolItem(toolbar, SWT.RADIO);
 			controller.addToolItem(ToolBarItemKey.AUTO_ROOK, result);
 			int pieceSize = Raptor.getInstance().getPreferences()
 					.getInt(PreferenceKeys.APP_TOOLBAR_PIECE_SIZE);
-			result.setImage(getChessPieceImage("Portable", isUserWhite ? Piece.WR
-					: Piece.BR, pieceSize));
+			setPinnedPieceImage(result, isUserWhite ? Piece.WR : Piece.BR,
+					pieceSize);
 		} else if (action instanceof AutoKingAction
 				&& controller.getGame().getVariant() == Variant.suicide) {
 			result = new ToolItem(toolbar, SWT.RADIO);
 			controller.addToolItem(ToolBarItemKey.AUTO_KING, result);
 			int pieceSize = Raptor.getInstance().getPreferences()
 					.getInt(PreferenceKeys.APP_TOOLBAR_PIECE_SIZE);
-			result.setImage(getChessPieceImage("Portable", isUserWhite ? Piece.WK
-					: Piece.BK, pieceSize));
+			setPinnedPieceImage(result, isUserWhite ? Piece.WK : Piece.BK,
+					pieceSize);
 		} else if (action instanceof AutoKingAction) {
 			return null;
 		} else if (action instanceof CastleLongAction
@@ -983,4 +934,15 @@ public class ChessBoardUtils implements GameConstants, PreferenceKeys {
 		});
 		return result;
 	}
+
+	/**
+	 * Sets the image of the piece in the Portable set on the tool item. The
+	 * image is pinned in the ChessImageCache until the tool item is disposed.
+	 */
+	protected static void setPinnedPieceImage(ToolItem item, Piece piece,
+			int size) {
+		Image image = getChessPieceImage("Portable", piece, size);
+		ChessImageCache.getInstance().pin(item, image);
+		item.setImage(image);
+	}
 }
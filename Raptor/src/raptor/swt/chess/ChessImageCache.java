@@ -0,0 +1,415 @@
+/**
+ * New BSD License
+ * http://www.opensource.org/licenses/bsd-license.php
+ * Copyright 2009-2011 RaptorProject (http://code.google.com/p/raptor-chess-interface/)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the RaptorProject nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package raptor.swt.chess;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.swt.events.DisposeEvent;
+import org.eclipse.swt.events.DisposeListener;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.Rectangle;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Widget;
+
+import raptor.chess.GameConstants.Piece;
+import raptor.chess.GameConstants.Square;
+import raptor.service.ThreadService;
+import raptor.util.Logger;
+
+/**
+ * A least recently used cache of chess piece and square background images,
+ * bounded by the number of pixels it holds.
+ * 
+ * Piece images are keyed by set, piece and the set size they are loaded from,
+ * so every requested size which maps to the same set size shares one image.
+ * The set size is found with a binary search. When a piece of a set size is
+ * first requested the other pieces of that size and of the next smaller and
+ * larger set sizes are decoded on a background thread, so resizing a board
+ * finds their ImageData ready and only has to create the Image.
+ * 
+ * Images and ImageData are only created, used and disposed on the UI thread,
+ * except for the background decoding. Images evicted from the cache are
+ * disposed, so callers must not keep references to them across event loop
+ * iterations without checking isDisposed(). Images handed to a widget which
+ * keeps them, like a ToolItem, must be pinned to the widget. Pinned images are
+ * never evicted and are disposed after the last widget pinning them is
+ * disposed.
+ */
+public class ChessImageCache {
+	/**
+	 * A cache key. id is the piece ordinal for piece images and
+	 * getBackgroundId for square backgrounds.
+	 */
+	protected static class Key {
+		protected String name;
+		protected int id;
+		protected int width;
+		protected int height;
+		protected int hashCode;
+
+		protected Key(String name, int id, int width, int height) {
+			this.name = name;
+			this.id = id;
+			this.width = width;
+			this.height = height;
+			hashCode = ((name.hashCode() * 31 + id) * 31 + width) * 31
+					+ height;
+		}
+
+		@Override
+		public boolean equals(Object object) {
+			if (!(object instanceof Key)) {
+				return false;
+			}
+			Key key = (Key) object;
+			return key.id == id && key.width == width && key.height == height
+					&& key.name.equals(name);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public String toString() {
+			return name + "_" + id + "_" + width + "x" + height;
+		}
+	}
+
+	/**
+	 * The default maximum number of pixels held, 64MB of 32 bit images.
+	 */
+	public static final long DEFAULT_MAX_PIXELS = 16L * 1024 * 1024;
+
+	private static final Logger LOG = Logger.getLogger(ChessImageCache.class);
+
+	private static final ChessImageCache singletonInstance = new ChessImageCache();
+
+	protected Map<Key, ImageData> decodedData = new LinkedHashMap<Key, ImageData>(
+			64, 0.75f, true);
+	protected long decodedPixels;
+	protected Map<Key, Image> images = new LinkedHashMap<Key, Image>(256,
+			0.75f, true);
+	protected long imagePixels;
+	protected long maxPixels = DEFAULT_MAX_PIXELS;
+	protected Map<Image, Integer> pinCounts = new IdentityHashMap<Image, Integer>();
+	protected Set<Key> prewarmedSizes = Collections
+			.synchronizedSet(new HashSet<Key>());
+
+	public static ChessImageCache getInstance() {
+		return singletonInstance;
+	}
+
+	/**
+	 * Returns the id of the square background of the effect, shade and square
+	 * in keys.
+	 */
+	protected static int getBackgroundId(SquareBackgroundImageEffect effect,
+			boolean isLight, Square squareId) {
+		return -1 - ((effect.ordinal() * 2 + (isLight ? 1 : 0)) * 256 + squareId.ordinal());
+	}
+
+	/**
+	 * Returns the supported size to use for size: the largest supported size
+	 * not larger than size, or the smallest if they are all larger.
+	 * 
+	 * @param supportedSizes
+	 *            The supported sizes in ascending order. Must not be empty.
+	 */
+	public static int getNearestSize(List<Short> supportedSizes, int size) {
+		int low = 0;
+		int high = supportedSizes.size() - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int middleSize = supportedSizes.get(middle);
+			if (middleSize < size) {
+				low = middle + 1;
+			} else if (middleSize > size) {
+				high = middle - 1;
+			} else {
+				return middleSize;
+			}
+		}
+		return supportedSizes.get(high < 0 ? 0 : high);
+	}
+
+	protected static String getPiecePath(String setName, Piece piece, int size) {
+		return ChessBoardUtils.CHESS_SET_DIR + setName + "/" + size + "/"
+				+ ChessBoardUtils.getPieceName(piece);
+	}
+
+	protected static long getPixels(ImageData data) {
+		return (long) data.width * data.height;
+	}
+
+	/**
+	 * Disposes all of the cached images which are not pinned. Pinned images
+	 * are disposed when they are unpinned.
+	 */
+	public void clear() {
+		synchronized (this) {
+			for (Image image : images.values()) {
+				if (!pinCounts.containsKey(image)) {
+					image.dispose();
+				}
+			}
+			images.clear();
+			imagePixels = 0;
+			decodedData.clear();
+			decodedPixels = 0;
+			prewarmedSizes.clear();
+		}
+	}
+
+	public long getMaxPixels() {
+		return maxPixels;
+	}
+
+	/**
+	 * Returns the number of pixels in the cached images and decoded
+	 * ImageData.
+	 */
+	public long getPixels() {
+		synchronized (this) {
+			return imagePixels + decodedPixels;
+		}
+	}
+
+	/**
+	 * Returns the image of the piece in the set, loaded from the set size
+	 * nearest to size. Must be invoked on the UI thread.
+	 */
+	public Image getPieceImage(String setName, Piece piece, int size) {
+		int setSize = getNearestSize(ChessBoardUtils.getSetPieceSizes(setName),
+				size);
+		Key key = new Key(setName, piece.ordinal(), setSize, setSize);
+		Image result;
+		ImageData data;
+		synchronized (this) {
+			result = images.get(key);
+			if (result != null && !result.isDisposed()) {
+				return result;
+			}
+			data = decodedData.remove(key);
+			if (data != null) {
+				decodedPixels -= getPixels(data);
+			}
+		}
+		if (data == null) {
+			data = new ImageData(getPiecePath(setName, piece, setSize));
+		}
+		result = new Image(Display.getCurrent(), data);
+		put(key, result, data);
+		prewarm(setName, setSize);
+		return result;
+	}
+
+	/**
+	 * Returns the cached square background image, or null if there is none.
+	 */
+	public Image getSquareBackgroundImage(String name,
+			SquareBackgroundImageEffect effect, boolean isLight,
+			Square squareId, int width, int height) {
+		Key key = new Key(name, getBackgroundId(effect, isLight, squareId),
+				width, height);
+		synchronized (this) {
+			Image result = images.get(key);
+			return result == null || result.isDisposed() ? null : result;
+		}
+	}
+
+	/**
+	 * Pins the image until the widget is disposed, so it is not evicted while
+	 * the widget shows it. Must be invoked on the UI thread.
+	 */
+	public void pin(Widget widget, final Image image) {
+		if (image == null) {
+			return;
+		}
+		synchronized (this) {
+			Integer count = pinCounts.get(image);
+			pinCounts.put(image, count == null ? 1 : count + 1);
+		}
+		widget.addDisposeListener(new DisposeListener() {
+			public void widgetDisposed(DisposeEvent e) {
+				unpin(image);
+			}
+		});
+	}
+
+	/**
+	 * Decodes the pieces of the set size and of the next smaller and larger
+	 * set sizes on a background thread, unless that was already done.
+	 */
+	public void prewarm(final String setName, final int setSize) {
+		if (!prewarmedSizes.add(new Key(setName, 0, setSize, setSize))) {
+			return;
+		}
+		ThreadService.getInstance().run(new Runnable() {
+			public void run() {
+				List<Short> sizes = ChessBoardUtils.getSetPieceSizes(setName);
+				int index = Collections.binarySearch(sizes, (short) setSize);
+				if (index < 0) {
+					return;
+				}
+				for (int i = Math.max(0, index - 1); i <= index + 1
+						&& i < sizes.size(); i++) {
+					prewarmPieces(setName, sizes.get(i));
+				}
+			}
+
+			@Override
+			public String toString() {
+				return "ChessImageCache.prewarm " + setName + " " + setSize;
+			}
+		});
+	}
+
+	/**
+	 * Caches the square background image. Must be invoked on the UI thread.
+	 */
+	public void putSquareBackgroundImage(String name,
+			SquareBackgroundImageEffect effect, boolean isLight,
+			Square squareId, int width, int height, Image image) {
+		Rectangle bounds = image.getBounds();
+		put(new Key(name, getBackgroundId(effect, isLight, squareId), width,
+				height), image, bounds.width, bounds.height);
+	}
+
+	/**
+	 * Sets the maximum number of pixels held, evicting images if needed.
+	 */
+	public void setMaxPixels(long maxPixels) {
+		this.maxPixels = maxPixels;
+		synchronized (this) {
+			evict();
+		}
+	}
+
+	/**
+	 * Disposes least recently used images which are not pinned, then drops
+	 * least recently decoded ImageData, until the cache is within maxPixels.
+	 * The most recently used image is always kept.
+	 */
+	protected void evict() {
+		Iterator<Map.Entry<Key, Image>> imageIterator = images.entrySet()
+				.iterator();
+		int remaining = images.size();
+		while (imagePixels + decodedPixels > maxPixels && remaining > 1) {
+			Image image = imageIterator.next().getValue();
+			remaining--;
+			if (pinCounts.containsKey(image)) {
+				continue;
+			}
+			imageIterator.remove();
+			if (!image.isDisposed()) {
+				Rectangle bounds = image.getBounds();
+				imagePixels -= (long) bounds.width * bounds.height;
+				image.dispose();
+			}
+		}
+		Iterator<Map.Entry<Key, ImageData>> dataIterator = decodedData
+				.entrySet().iterator();
+		while (imagePixels + decodedPixels > maxPixels && dataIterator.hasNext()) {
+			decodedPixels -= getPixels(dataIterator.next().getValue());
+			dataIterator.remove();
+		}
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("ChessImageCache holds " + images.size() + " images "
+					+ decodedData.size() + " decoded " + getPixels()
+					+ " pixels");
+		}
+	}
+
+	/**
+	 * Decodes the pieces of the set size which are not cached yet. Runs on a
+	 * background thread, so it never creates or disposes images and stops
+	 * once the cache is full.
+	 */
+	protected void prewarmPieces(String setName, int setSize) {
+		for (Piece piece : Piece.values()) {
+			if (piece == Piece.EMPTY || piece.promoted) {
+				continue;
+			}
+			Key key = new Key(setName, piece.ordinal(), setSize, setSize);
+			synchronized (this) {
+				if (images.containsKey(key) || decodedData.containsKey(key)) {
+					continue;
+				}
+			}
+			try {
+				ImageData data = new ImageData(getPiecePath(setName, piece,
+						setSize));
+				synchronized (this) {
+					if (imagePixels + decodedPixels + getPixels(data) > maxPixels) {
+						return;
+					}
+					if (!images.containsKey(key)
+							&& !decodedData.containsKey(key)) {
+						decodedData.put(key, data);
+						decodedPixels += getPixels(data);
+					}
+				}
+			} catch (Throwable t) {
+				LOG.warn("Could not decode " + key, t);
+			}
+		}
+	}
+
+	protected void put(Key key, Image image, ImageData data) {
+		put(key, image, data.width, data.height);
+	}
+
+	protected void put(Key key, Image image, int width, int height) {
+		synchronized (this) {
+			Image previous = images.put(key, image);
+			if (previous != null && !previous.isDisposed()) {
+				Rectangle bounds = previous.getBounds();
+				imagePixels -= (long) bounds.width * bounds.height;
+				if (previous != image && !pinCounts.containsKey(previous)) {
+					previous.dispose();
+				}
+			}
+			imagePixels += (long) width * height;
+			evict();
+		}
+	}
+
+	/**
+	 * Releases a pin taken by pin(Widget, Image). The image is disposed once
+	 * it has no pins left, unless it is still cached.
+	 */
+	protected void unpin(Image image) {
+		synchronized (this) {
+			Integer count = pinCounts.remove(image);
+			if (count == null) {
+				return;
+			}
+			if (count > 1) {
+				pinCounts.put(image, count - 1);
+			} else if (!images.containsValue(image) && !image.isDisposed()) {
+				image.dispose();
+			}
+		}
+	}
+}
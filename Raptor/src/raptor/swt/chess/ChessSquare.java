@@ -238,7 +238,8 @@ public class ChessSquare extends Canvas implements GameConstants, PreferenceKeys
 			}
 
 			int imageSize = square.getImageSize();
-			if (square.pieceImage == null && square.piece != Piece.EMPTY) {
+			if ((square.pieceImage == null || square.pieceImage.isDisposed())
+					&& square.piece != Piece.EMPTY) {
 				square.pieceImage = square.getChessPieceImage(square.piece, imageSize);
 			}
 			if (square.pieceImage != null) {
@@ -536,6 +537,15 @@ public class ChessSquare extends Canvas implements GameConstants, PreferenceKeys
 	protected ChessSquare getSquareCursorIsAt() {
 		Control control = getDisplay().getCursorControl();
 
+		if (board != null && board.getBoardCanvas() != null) {
+			ChessBoardCanvas canvas = board.getBoardCanvas();
+			if (control != canvas) {
+				return null;
+			}
+			Point point = canvas.toControl(getDisplay().getCursorLocation());
+			return canvas.getSquareAt(point.x, point.y);
+		}
+
 		while (control != null && !(control instanceof ChessSquare)) {
 			control = control.getParent();
 		}
@@ -596,8 +606,15 @@ public class ChessSquare extends Canvas implements GameConstants, PreferenceKeys
 		this.isDirty = isDirty;
 	}
 
+	/**
+	 * Redraws the square, on the board's canvas if it has one.
+	 */
 	public void redraw() {
 		isDirty = false;
-		super.redraw();
+		if (board != null && board.getBoardCanvas() != null) {
+			board.getBoardCanvas().invalidate(this);
+		} else {
+			super.redraw();
+		}
 	}
 }
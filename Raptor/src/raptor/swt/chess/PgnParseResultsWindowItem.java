@@ -15,9 +15,12 @@ package raptor.swt.chess;
 
 import java.io.File;
 import java.io.FileWriter;
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.lang.StringUtils;
 import raptor.util.Logger;
@@ -49,14 +52,17 @@ import raptor.Raptor;
 import raptor.RaptorWindowItem;
 import raptor.chess.Game;
 import raptor.chess.Result;
+import raptor.chess.pgn.PgnGameCollection;
 import raptor.chess.pgn.PgnHeader;
 import raptor.chess.pgn.PgnParserError;
+import raptor.chess.pgn.PgnUtils;
 import raptor.chess.pgn.chesspresso.ChesspressoPgnParser;
 import raptor.international.L10n;
 import raptor.pref.PreferenceKeys;
 import raptor.swt.ItemChangedListener;
 import raptor.swt.RaptorTable;
 import raptor.swt.RaptorTable.RaptorTableListener;
+import raptor.swt.RaptorTableModel;
 import raptor.swt.chess.controller.InactiveController;
 import raptor.util.IntegerComparator;
 
@@ -80,6 +86,7 @@ public class PgnParseResultsWindowItem implements RaptorWindowItem {
 	protected List<PgnParserError> errors;
 	protected List<Game> games;
 	protected ArrayList<chesspresso.game.Game> chprsGames;
+	protected PgnGameCollection gameCollection;
 	protected String title;
 	protected boolean isPassive;
 	protected String pathToFile;
@@ -103,6 +110,18 @@ public class PgnParseResultsWindowItem implements RaptorWindowItem {
 		this.chprsErrors = chprsErrors;
 	}
 
+	/**
+	 * Creates a window item backed by games kept on disk. Only headers are
+	 * read up front, games are loaded when they are opened. The window item
+	 * closes the collection when it is disposed.
+	 */
+	public PgnParseResultsWindowItem(String title,
+			PgnGameCollection gameCollection, String pathToFile) {
+		this.gameCollection = gameCollection;
+		this.title = title;
+		this.pathToFile = pathToFile;
+	}
+
 	public void addItemChangedListener(ItemChangedListener listener) {
 	}
 
@@ -129,6 +148,14 @@ public class PgnParseResultsWindowItem implements RaptorWindowItem {
 			chprsGames.clear();
 			chprsGames = null;
 		}
+		if (gameCollection != null) {
+			try {
+				gameCollection.close();
+			} catch (IOException ioe) {
+				LOG.warn("Error closing games of " + pathToFile, ioe);
+			}
+			gameCollection = null;
+		}
 		if (composite != null && !composite.isDisposed()) {
 			composite.dispose();
 		}
@@ -199,6 +226,13 @@ public class PgnParseResultsWindowItem implements RaptorWindowItem {
 				}
 			}
 		}
+		else if (gameCollection != null) { // games are loaded from disk
+			// Counted when the collection was written.
+			whiteWins = gameCollection.getResultCount(Result.WHITE_WON);
+			blackWins = gameCollection.getResultCount(Result.BLACK_WON);
+			draws = gameCollection.getResultCount(Result.DRAW);
+			finishedGames = whiteWins + blackWins + draws;
+		}
 		else { // Chesspresso was used during parsing			
 			for (chesspresso.game.Game game: chprsGames) {
 				if (game.getResult() == Chess.RES_WHITE_WINS) {
@@ -216,7 +250,9 @@ public class PgnParseResultsWindowItem implements RaptorWindowItem {
 
 		Label gamesTotalLabel = new Label(composite, SWT.LEFT);
 
-		int size = (games == null) ? chprsGames.size() : games.size();
+		int size = games != null ? games.size()
+				: gameCollection != null ? gameCollection.getGameCount() : chprsGames
+						.size();
 		gamesTotalLabel.setText(local.getString("pgnParseWI3") + size + local.getString("pgnParseWI4")
 				+ getPercentage(whiteWins, finishedGames) + local.getString("pgnParseWI5")
 				+ getPercentage(blackWins, finishedGames) + local.getString("pgnParseWI6")
@@ -225,10 +261,12 @@ public class PgnParseResultsWindowItem implements RaptorWindowItem {
 				false));
 
 		gamesTable = new RaptorTable(composite, SWT.BORDER | SWT.H_SCROLL
-				| SWT.V_SCROLL | SWT.SINGLE | SWT.FULL_SELECTION);
+				| SWT.V_SCROLL | SWT.SINGLE | SWT.FULL_SELECTION
+				| SWT.VIRTUAL);
+		gamesTable.setRowIdColumn(0);
 		gamesTable.setLayoutData(new GridData(SWT.FILL, SWT.FILL, true, true));
 
-		if (games != null) { // used standard SimplePgnParser 
+		if (games != null || gameCollection != null) { // used standard SimplePgnParser 
 			gamesTable.addColumn(local.getString("pgnParseWI7"), SWT.LEFT, 3,
 					true, new IntegerComparator());
 			gamesTable.addColumn(local.getString("pgnParseWI8"), SWT.LEFT, 5,
@@ -339,7 +377,8 @@ public class PgnParseResultsWindowItem implements RaptorWindowItem {
 
 			@Override
 			public void widgetSelected(SelectionEvent e) {
-				if (games == null || games.size() == 0) {
+				if ((games == null || games.size() == 0)
+						&& (gameCollection == null || gameCollection.getGameCount() == 0)) {
 					Raptor.getInstance().alert(local.getString("pgnParseWI20"));
 					return;
 				}
@@ -355,11 +394,22 @@ public class PgnParseResultsWindowItem implements RaptorWindowItem {
 					FileWriter fileWriter = null;
 					try {
 						fileWriter = new FileWriter(new File(pathToFile), false);
-						for (int i = 0; i < gamesTable.getRowCount(); i++) {
-							int id = Integer.parseInt(gamesTable.getText(0, 0));
-							Game game = games.get(id);
-							fileWriter.write(game.toPgn() + "\n\n"); 
-							fileWriter.flush();
+						if (gameCollection != null) {
+							int[] indexes = new int[gamesTable.getRowCount()];
+							for (int i = 0; i < indexes.length; i++) {
+								indexes[i] = Integer.parseInt(gamesTable
+										.getText(i, 0)) - 1;
+							}
+							PgnUtils.writePgn(fileWriter, gameCollection,
+									indexes);
+						} else {
+							for (int i = 0; i < gamesTable.getRowCount(); i++) {
+								int id = Integer.parseInt(gamesTable
+										.getText(i, 0));
+								Game game = games.get(id);
+								fileWriter.write(game.toPgn() + "\n\n");
+								fileWriter.flush();
+							}
 						}
 						Raptor.getInstance().alert(
 								local.getString("pgnParseWI23") + gamesTable.getRowCount()
@@ -461,6 +511,27 @@ public class PgnParseResultsWindowItem implements RaptorWindowItem {
 									+ selectedGame.getHeader(PgnHeader.Black),
 							false)));
 		}
+		else if (gameCollection != null) { // games are loaded from disk
+			Game selectedGame = null;
+			try {
+				selectedGame = gameCollection.loadGame(index);
+			} catch (IOException ioe) {
+				LOG.error("Error loading game " + index + " from " + pathToFile,
+						ioe);
+			}
+			if (selectedGame == null) {
+				Raptor.getInstance().onError(
+						local.getString("pgnProcD2") + pathToFile);
+				return;
+			}
+			Raptor.getInstance().getWindow().addRaptorWindowItem(
+					new ChessBoardWindowItem(new InactiveController(
+							selectedGame, selectedGame
+									.getHeader(PgnHeader.White)
+									+ " vs "
+									+ selectedGame.getHeader(PgnHeader.Black),
+							false)));
+		}
 		else if (chprsGames != null) { // Chesspresso was used during parsing
 			chesspresso.game.Game selGame = chprsGames.get(index);
 			Game raptorGame = ChesspressoPgnParser.convertToRaptorGame(selGame);
@@ -474,8 +545,57 @@ public class PgnParseResultsWindowItem implements RaptorWindowItem {
 		}
 	}
 
+	/**
+	 * Returns the row of the game at index in the game collection. Rows are
+	 * loaded as they are displayed, so only the headers of games which are
+	 * seen or sorted on are read.
+	 */
+	protected String[] getCollectionRow(int index) {
+		Map<String, String> headers;
+		try {
+			headers = gameCollection.getHeaders(index);
+		} catch (IOException ioe) {
+			LOG.warn("Error reading games of " + pathToFile, ioe);
+			headers = Collections.emptyMap();
+		}
+		String[] result = new String[11];
+		result[0] = String.valueOf(index + 1);
+		result[1] = StringUtils.defaultString(headers.get(PgnHeader.Variant
+				.name()), "?");
+		result[2] = StringUtils.defaultString(headers.get(PgnHeader.Date
+				.name()), "?");
+		result[3] = StringUtils.defaultString(headers.get(PgnHeader.Event
+				.name()), "?");
+		result[4] = StringUtils.defaultString(headers.get(PgnHeader.White
+				.name()), "?");
+		result[5] = StringUtils.defaultString(headers.get(PgnHeader.WhiteElo
+				.name()), "?");
+		result[6] = StringUtils.defaultString(headers.get(PgnHeader.Black
+				.name()), "?");
+		result[7] = StringUtils.defaultString(headers.get(PgnHeader.BlackElo
+				.name()), "?");
+		result[8] = StringUtils.defaultString(headers.get(PgnHeader.Result
+				.name()), "?");
+		result[9] = StringUtils.defaultString(headers.get(PgnHeader.ECO
+				.name()), "");
+		result[10] = StringUtils.defaultString(headers.get(PgnHeader.Opening
+				.name()), "");
+		return result;
+	}
+
 	protected void populateGamesTable() {
-		if (games == null) { // Chesspresso was used during parsing
+		if (gameCollection != null) { // games are loaded from disk
+			gamesTable.refreshTable(gameCollection.getGameCount(),
+					new RaptorTableModel.RowLoader() {
+						public String getRowId(int index) {
+							return String.valueOf(index + 1);
+						}
+
+						public String[] loadRow(int index) {
+							return getCollectionRow(index);
+						}
+					});
+		} else if (games == null) { // Chesspresso was used during parsing
 			String[][] gamesData = new String[chprsGames.size()][10];
 			for (int i = 0; i < chprsGames.size(); i++) {
 				chesspresso.game.Game game = chprsGames.get(i);
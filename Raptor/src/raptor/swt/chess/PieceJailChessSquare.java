@@ -35,7 +35,7 @@ public class PieceJailChessSquare extends ChessSquare {
 	protected static PaintListener paintListener = new PaintListener() {
 		public void paintControl(PaintEvent e) {
 			PieceJailChessSquare square = (PieceJailChessSquare)e.getSource();
-			if (!square.isVisible()) {
+			if (!square.getVisible()) {
 				return;
 			}
 			long startTime = LOG.isDebugEnabled() ? System.currentTimeMillis() : 0;
@@ -43,7 +43,7 @@ public class PieceJailChessSquare extends ChessSquare {
 			e.gc.fillRectangle(0, 0, size.x, size.y);
 
 			int imageSize = square.getImageSize();
-			if (square.pieceImage == null) {
+			if (square.pieceImage == null || square.pieceImage.isDisposed()) {
 				square.pieceImage = square.getChessPieceImage(square.pieceJailPiece, imageSize);
 			}
 
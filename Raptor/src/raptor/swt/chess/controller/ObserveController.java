@@ -13,6 +13,8 @@
  */
 package raptor.swt.chess.controller;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
 import org.eclipse.swt.widgets.ToolBar;
@@ -29,6 +31,7 @@ import raptor.service.GameService.GameServiceAdapter;
 import raptor.service.GameService.GameServiceListener;
 import raptor.service.SoundService;
 import raptor.swt.SWTUtils;
+import raptor.swt.UIUpdateScheduler;
 import raptor.swt.chat.ChatUtils;
 import raptor.swt.chess.ChessBoardUtils;
 import raptor.swt.chess.MouseButtonAction;
@@ -46,25 +49,71 @@ public class ObserveController extends ChessBoardController {
 	static final Logger LOG = Logger.getLogger(ObserveController.class);
 
 	protected GameCursor cursor = null;
+
+	/**
+	 * The board updates are scheduled with the UIUpdateScheduler, so a burst
+	 * of moves, e.g. a bughouse time scramble, redraws the board once per
+	 * frame instead of once per move.
+	 */
+	protected AtomicBoolean isNewMovePending = new AtomicBoolean();
+	protected Runnable droppablePiecesUpdate = new RaptorRunnable(getConnector()) {
+		@Override
+		public void execute() {
+			if (isDisposed()) {
+				return;
+			}
+
+			adjustPieceJail();
+			board.redrawPiecesAndArtifacts();
+		}
+	};
+	protected Runnable gameMovesUpdate = new RaptorRunnable(getConnector()) {
+		@Override
+		public void execute() {
+			if (isDisposed()) {
+				return;
+			}
+
+			cursor.setCursorMasterLast();
+			refresh();
+		}
+	};
+	protected Runnable gameStateUpdate = new RaptorRunnable(getConnector()) {
+		@Override
+		public void execute() {
+			if (isDisposed()) {
+				return;
+			}
+
+			if (isNewMovePending.getAndSet(false)) {
+				if (!handleSpeakMove(getGame().getLastMove())) {
+					onPlayMoveSound(getGame().getLastMove());
+				}
+			}
+
+			if (isForceUpdate()) {
+
+				cursor.setCursorMasterLast();
+
+				board.getSquareHighlighter().removeAllHighlights();
+				board.getArrowDecorator().removeAllArrows();
+
+				Move lastMove = getGame().getLastMove();
+
+				if (lastMove != null) {
+					addDecorationsForMove(lastMove, false);
+				}
+				refresh();
+			}
+		}
+	};
+
 	protected GameServiceListener listener = new GameServiceAdapter() {
 		@Override
 		public void droppablePiecesChanged(Game game) {
 			if (!isDisposed() && game.getId().equals(getGame().getId())) {
-				//final long startTime = System.currentTimeMillis();
-					board.getControl().getDisplay()
-							.asyncExec(new RaptorRunnable(getConnector()) {
-								@Override
-								public void execute() {
-									if (isDisposed()) {
-										return;
-									}
-
-									adjustPieceJail();
-									board.redrawPiecesAndArtifacts();
-									
-									//System.err.println("Handled obs drop changesmove in " + (System.currentTimeMillis() - startTime));
-								}
-							});
+				UIUpdateScheduler.getInstance().schedule(droppablePiecesUpdate,
+						droppablePiecesUpdate);
 			}
 		}
 
@@ -78,6 +127,7 @@ public class ObserveController extends ChessBoardController {
 									if (isDisposed()) {
 										return;
 									}
+									runPendingUpdates();
 									onMatchWinner();
 									board.getResultDecorator()
 											.setDecorationFromResult(
@@ -116,64 +166,20 @@ public class ObserveController extends ChessBoardController {
 		@Override
 		public void gameMovesAdded(Game game) {
 			if (!isDisposed() && game.getId().equals(getGame().getId())) {
-				board.getControl().getDisplay()
-						.asyncExec(new RaptorRunnable(getConnector()) {
-							@Override
-							public void execute() {
-									if (isDisposed()) {
-										return;
-									}
-
-									cursor.setCursorMasterLast();
-									refresh();
-							}
-						});
+				UIUpdateScheduler.getInstance().schedule(gameMovesUpdate,
+						gameMovesUpdate);
 			}
 		}
 
 		@Override
 		public void gameStateChanged(final Game game, final boolean isNewMove) {
 			if (!isDisposed() && game.getId().equals(getGame().getId())) {
-				//final long startTime = System.currentTimeMillis();
-
-				
-				board.getControl().getDisplay()
-						.asyncExec(new RaptorRunnable(getConnector()) {
-							@Override
-							public void execute() {
-									if (isDisposed()) {
-										return;
-									}
-
-									if (isNewMove) {
-										if (!handleSpeakMove(game.getLastMove())) {
-											onPlayMoveSound(game.getLastMove());
-										}
-									}
-
-									if (isForceUpdate()) {
-
-										cursor.setCursorMasterLast();
-
-										board.getSquareHighlighter()
-												.removeAllHighlights();
-										board.getArrowDecorator()
-												.removeAllArrows();
-
-										Move lastMove = getGame().getLastMove();
-
-										if (lastMove != null) {
-											addDecorationsForMove(lastMove,
-													false);
-										}
-										refresh();
-									}
-									
-									//System.err.println("Handled obs move in move in " + (System.currentTimeMillis() - startTime));
-								}
-						});
+				if (isNewMove) {
+					isNewMovePending.set(true);
+				}
+				UIUpdateScheduler.getInstance().schedule(gameStateUpdate,
+						gameStateUpdate);
 			}
-
 		}
 
 		@Override
@@ -186,6 +192,7 @@ public class ObserveController extends ChessBoardController {
 									if (isDisposed()) {
 										return;
 									}
+									runPendingUpdates();
 									ExamineController examineController = new ExamineController(
 											game, board.isWhiteOnTop(),
 											connector);
@@ -258,6 +265,10 @@ public class ObserveController extends ChessBoardController {
 	public void dispose() {
 		try {
 			getConnector().getGameService().removeGameServiceListener(listener);
+			UIUpdateScheduler scheduler = UIUpdateScheduler.getInstance();
+			scheduler.cancel(gameMovesUpdate);
+			scheduler.cancel(gameStateUpdate);
+			scheduler.cancel(droppablePiecesUpdate);
 			if (unobserveOnDispose && getConnector().isConnected()
 					&& getGame().isInState(Game.ACTIVE_STATE)) {
 				getConnector().onUnobserve(getGame());
@@ -279,6 +290,17 @@ public class ObserveController extends ChessBoardController {
 		setToolItemEnabled(ToolBarItemKey.LAST_NAV, cursor.hasLast());
 	}
 
+	/**
+	 * Runs the board updates which are still waiting for the next frame, so
+	 * the board is current before another controller takes it over.
+	 */
+	protected void runPendingUpdates() {
+		UIUpdateScheduler scheduler = UIUpdateScheduler.getInstance();
+		scheduler.runPending(gameMovesUpdate);
+		scheduler.runPending(gameStateUpdate);
+		scheduler.runPending(droppablePiecesUpdate);
+	}
+
 	public GameCursor getCursor() {
 		return cursor;
 	}
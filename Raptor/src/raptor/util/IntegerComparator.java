@@ -13,10 +13,9 @@
  */
 package raptor.util;
 
-import java.util.Comparator;
 import org.apache.commons.lang.StringUtils;
 
-public class IntegerComparator implements Comparator<String> {
+public class IntegerComparator implements SortKeyComparator {
 
 	public static int getInteger(String string) {
 		int result = 0;
@@ -34,4 +33,11 @@ public class IntegerComparator implements Comparator<String> {
 		int value2 = getInteger(string2);
 		return value1 < value2 ? 1 : value1 == value2 ? 0 : -1;
 	}
+
+	/**
+	 * Larger integers sort first.
+	 */
+	public long getSortKey(String string) {
+		return -(long) getInteger(string);
+	}
 }
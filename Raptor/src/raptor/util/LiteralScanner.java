@@ -0,0 +1,295 @@
+/**
+ * New BSD License
+ * http://www.opensource.org/licenses/bsd-license.php
+ * Copyright 2009-2011 RaptorProject (http://code.google.com/p/raptor-chess-interface/)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the RaptorProject nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package raptor.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Finds every occurrence of a fixed set of literal strings in a single pass
+ * over the text using an Aho-Corasick automaton. The cost of a scan depends on
+ * the length of the text and the number of hits, not on the number of
+ * literals.
+ * 
+ * When ignoring case only the ASCII letters are folded, which is how
+ * java.util.regex.Pattern.CASE_INSENSITIVE behaves without UNICODE_CASE.
+ * 
+ * Instances are immutable and thread safe.
+ */
+public class LiteralScanner {
+
+	/**
+	 * The occurrences found by a scan, ordered by the index they end at.
+	 */
+	public static class Hits {
+		protected int size;
+		protected int[] literals = new int[8];
+		protected int[] starts = new int[8];
+
+		/**
+		 * Returns true if the literal occurs in the text.
+		 */
+		public boolean contains(int literal) {
+			for (int i = 0; i < size; i++) {
+				if (literals[i] == literal) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Returns the index of the literal in hit i.
+		 */
+		public int getLiteral(int i) {
+			return literals[i];
+		}
+
+		/**
+		 * Returns the index in the text hit i starts at.
+		 */
+		public int getStart(int i) {
+			return starts[i];
+		}
+
+		/**
+		 * Returns the indexes in the text the literal starts at, in ascending
+		 * order.
+		 */
+		public int[] getStarts(int literal) {
+			int count = 0;
+			for (int i = 0; i < size; i++) {
+				if (literals[i] == literal) {
+					count++;
+				}
+			}
+			int[] result = new int[count];
+			count = 0;
+			for (int i = 0; i < size; i++) {
+				if (literals[i] == literal) {
+					result[count++] = starts[i];
+				}
+			}
+			return result;
+		}
+
+		/**
+		 * Returns the first index at or after fromIndex the literal starts at,
+		 * -1 if there is none. This is the same result as String.indexOf
+		 * would return for the literal.
+		 */
+		public int indexOf(int literal, int fromIndex) {
+			int result = -1;
+			for (int i = 0; i < size; i++) {
+				if (literals[i] == literal && starts[i] >= fromIndex
+						&& (result == -1 || starts[i] < result)) {
+					result = starts[i];
+				}
+			}
+			return result;
+		}
+
+		public boolean isEmpty() {
+			return size == 0;
+		}
+
+		public int size() {
+			return size;
+		}
+
+		protected void add(int literal, int start) {
+			if (size == literals.length) {
+				literals = Arrays.copyOf(literals, size * 2);
+				starts = Arrays.copyOf(starts, size * 2);
+			}
+			literals[size] = literal;
+			starts[size] = start;
+			size++;
+		}
+	}
+
+	protected static final int[] NO_OUTPUTS = new int[0];
+
+	protected char[][] childChars;
+	protected int[][] childStates;
+	protected int[] failures;
+	protected boolean isIgnoringCase;
+	protected int[] lengths;
+	protected int[][] outputs;
+
+	/**
+	 * Constructs a scanner for the literals. Hits report a literal by its
+	 * index in the array. Empty literals are never reported.
+	 */
+	public LiteralScanner(String[] literals, boolean isIgnoringCase) {
+		this.isIgnoringCase = isIgnoringCase;
+		lengths = new int[literals.length];
+		build(literals);
+	}
+
+	/**
+	 * Folds the ASCII upper case letters to lower case.
+	 */
+	public static char fold(char c) {
+		return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+	}
+
+	/**
+	 * Returns the indexes of the literals occurring in the text.
+	 */
+	public BitSet findLiterals(CharSequence text) {
+		BitSet result = new BitSet(lengths.length);
+		int state = 0;
+		for (int i = 0; i < text.length(); i++) {
+			state = nextState(state, text.charAt(i));
+			for (int literal : outputs[state]) {
+				result.set(literal);
+			}
+		}
+		return result;
+	}
+
+	public int getLiteralCount() {
+		return lengths.length;
+	}
+
+	/**
+	 * Returns every occurrence of every literal in the text.
+	 */
+	public Hits scan(CharSequence text) {
+		Hits result = new Hits();
+		int state = 0;
+		for (int i = 0; i < text.length(); i++) {
+			state = nextState(state, text.charAt(i));
+			for (int literal : outputs[state]) {
+				result.add(literal, i - lengths[literal] + 1);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Builds the trie, then the failure links and merged outputs breadth
+	 * first.
+	 */
+	protected void build(String[] literals) {
+		List<TreeMap<Character, Integer>> nodeChildren = new ArrayList<TreeMap<Character, Integer>>();
+		List<List<Integer>> nodeOutputs = new ArrayList<List<Integer>>();
+		nodeChildren.add(new TreeMap<Character, Integer>());
+		nodeOutputs.add(new ArrayList<Integer>());
+
+		for (int i = 0; i < literals.length; i++) {
+			String literal = literals[i];
+			lengths[i] = literal.length();
+			if (literal.length() == 0) {
+				continue;
+			}
+			int state = 0;
+			for (int j = 0; j < literal.length(); j++) {
+				char c = isIgnoringCase ? fold(literal.charAt(j)) : literal
+						.charAt(j);
+				Integer child = nodeChildren.get(state).get(c);
+				if (child == null) {
+					child = nodeChildren.size();
+					nodeChildren.get(state).put(c, child);
+					nodeChildren.add(new TreeMap<Character, Integer>());
+					nodeOutputs.add(new ArrayList<Integer>());
+				}
+				state = child;
+			}
+			nodeOutputs.get(state).add(i);
+		}
+
+		int stateCount = nodeChildren.size();
+		childChars = new char[stateCount][];
+		childStates = new int[stateCount][];
+		for (int state = 0; state < stateCount; state++) {
+			TreeMap<Character, Integer> children = nodeChildren.get(state);
+			childChars[state] = new char[children.size()];
+			childStates[state] = new int[children.size()];
+			int i = 0;
+			for (Map.Entry<Character, Integer> entry : children.entrySet()) {
+				childChars[state][i] = entry.getKey();
+				childStates[state][i] = entry.getValue();
+				i++;
+			}
+		}
+
+		failures = new int[stateCount];
+		outputs = new int[stateCount][];
+		outputs[0] = NO_OUTPUTS;
+		LinkedList<Integer> queue = new LinkedList<Integer>();
+		for (int child : childStates[0]) {
+			failures[child] = 0;
+			outputs[child] = toArray(nodeOutputs.get(child), NO_OUTPUTS);
+			queue.add(child);
+		}
+		while (!queue.isEmpty()) {
+			int state = queue.removeFirst();
+			for (int i = 0; i < childChars[state].length; i++) {
+				char c = childChars[state][i];
+				int child = childStates[state][i];
+				int failure = failures[state];
+				while (failure != 0 && getChild(failure, c) == -1) {
+					failure = failures[failure];
+				}
+				int failureChild = getChild(failure, c);
+				failures[child] = failureChild == -1 ? 0 : failureChild;
+				outputs[child] = toArray(nodeOutputs.get(child),
+						outputs[failures[child]]);
+				queue.add(child);
+			}
+		}
+	}
+
+	/**
+	 * Returns the child of state on c, -1 if there is none.
+	 */
+	protected int getChild(int state, char c) {
+		int index = Arrays.binarySearch(childChars[state], c);
+		return index < 0 ? -1 : childStates[state][index];
+	}
+
+	protected int nextState(int state, char c) {
+		if (isIgnoringCase) {
+			c = fold(c);
+		}
+		while (true) {
+			int child = getChild(state, c);
+			if (child != -1) {
+				return child;
+			} else if (state == 0) {
+				return 0;
+			}
+			state = failures[state];
+		}
+	}
+
+	protected static int[] toArray(List<Integer> own, int[] inherited) {
+		if (own.isEmpty()) {
+			return inherited;
+		}
+		int[] result = new int[own.size() + inherited.length];
+		for (int i = 0; i < own.size(); i++) {
+			result[i] = own.get(i);
+		}
+		System.arraycopy(inherited, 0, result, own.size(), inherited.length);
+		return result;
+	}
+}
@@ -0,0 +1,142 @@
+/**
+ * New BSD License
+ * http://www.opensource.org/licenses/bsd-license.php
+ * Copyright 2009-2011 RaptorProject (http://code.google.com/p/raptor-chess-interface/)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the RaptorProject nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package raptor.util;
+
+import java.util.Arrays;
+
+/**
+ * A map from primitive long keys to objects using open addressing with linear
+ * probing. Keys are not boxed and there is no entry object per mapping, which
+ * makes it much smaller and faster than a HashMap<Long, V> for large tables
+ * keyed by hashes, e.g. Zobrist keys. Null values are not supported.
+ * 
+ * This class is not thread safe.
+ */
+public class LongObjectMap<V> {
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private long[] keys;
+	private int mask;
+	private int size;
+	private Object[] values;
+
+	public LongObjectMap() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a map which can hold expectedSize mappings without growing.
+	 */
+	public LongObjectMap(int expectedSize) {
+		allocate(tableSizeFor(expectedSize));
+	}
+
+	public void clear() {
+		Arrays.fill(keys, 0L);
+		Arrays.fill(values, null);
+		size = 0;
+	}
+
+	public boolean containsKey(long key) {
+		return get(key) != null;
+	}
+
+	/**
+	 * Returns the value mapped to key, null if there is none.
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(long key) {
+		int index = indexOf(key);
+		while (values[index] != null) {
+			if (keys[index] == key) {
+				return (V) values[index];
+			}
+			index = index + 1 & mask;
+		}
+		return null;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Maps key to value and returns the previous value, null if there was
+	 * none.
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(long key, V value) {
+		if (value == null) {
+			throw new IllegalArgumentException("value can not be null");
+		}
+		int index = indexOf(key);
+		while (values[index] != null) {
+			if (keys[index] == key) {
+				V result = (V) values[index];
+				values[index] = value;
+				return result;
+			}
+			index = index + 1 & mask;
+		}
+		keys[index] = key;
+		values[index] = value;
+		if (++size > keys.length / 2) {
+			rehash(keys.length * 2);
+		}
+		return null;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		values = new Object[capacity];
+		mask = capacity - 1;
+	}
+
+	private int indexOf(long key) {
+		long hash = key * 0x9E3779B97F4A7C15L;
+		return (int) (hash ^ hash >>> 32) & mask;
+	}
+
+	private void rehash(int capacity) {
+		long[] oldKeys = keys;
+		Object[] oldValues = values;
+		allocate(capacity);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldValues[i] != null) {
+				int index = indexOf(oldKeys[i]);
+				while (values[index] != null) {
+					index = index + 1 & mask;
+				}
+				keys[index] = oldKeys[i];
+				values[index] = oldValues[i];
+			}
+		}
+	}
+
+	/**
+	 * Returns the smallest power of two table size which keeps expectedSize
+	 * mappings at or below half full.
+	 */
+	private static int tableSizeFor(int expectedSize) {
+		int result = DEFAULT_CAPACITY;
+		while (result / 2 < expectedSize) {
+			result <<= 1;
+		}
+		return result;
+	}
+}
@@ -0,0 +1,298 @@
+/**
+ * New BSD License
+ * http://www.opensource.org/licenses/bsd-license.php
+ * Copyright 2009-2011 RaptorProject (http://code.google.com/p/raptor-chess-interface/)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the RaptorProject nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package raptor.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A single consumer queue which delivers events to a BatchHandler in the
+ * order they were added. Events are held in a growable ring buffer and drained
+ * in batches by one runnable at a time on the supplied Executor, so a burst of
+ * events costs one executor hop instead of one per event and no two events are
+ * ever handled concurrently.
+ * 
+ * Adding events never blocks, which makes it safe to add events from inside
+ * the handler. If the executor rejects the drain runnable by throwing a
+ * RejectedExecutionException, the events stay queued and the drain is
+ * submitted again on the next add. Queue depth and throughput counters are exposed for
+ * monitoring.
+ * 
+ * This class is thread safe.
+ */
+public class OrderedEventPipeline<T> {
+
+	/**
+	 * Handles a batch of events. Batches are delivered in order, one at a
+	 * time.
+	 */
+	public static interface BatchHandler<T> {
+		public void handleBatch(List<T> events);
+	}
+
+	public static final int DEFAULT_MAX_BATCH_SIZE = 256;
+	private static final int INITIAL_CAPACITY = 64;
+	private static final Logger LOG = Logger
+			.getLogger(OrderedEventPipeline.class);
+
+	protected long batchesProcessed;
+	protected Object[] buffer = new Object[INITIAL_CAPACITY];
+	protected long eventsAdded;
+	protected long eventsProcessed;
+	protected Executor executor;
+	protected BatchHandler<T> handler;
+	protected int head;
+	protected boolean isDisposed;
+	protected boolean isDrainScheduled;
+	protected int largestBatch;
+	protected final Object lock = new Object();
+	protected int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+	protected int maxQueueDepth;
+	protected String name;
+	protected int size;
+
+	protected Runnable drainRunnable = new Runnable() {
+		public void run() {
+			drain();
+		}
+
+		@Override
+		public String toString() {
+			return "OrderedEventPipeline.drain " + name;
+		}
+	};
+
+	/**
+	 * Constructs a pipeline which drains its events on executor.
+	 * 
+	 * @param name
+	 *            A name used in logging.
+	 * @param executor
+	 *            The executor the drain runnable is submitted to.
+	 * @param handler
+	 *            Receives the events in batches.
+	 */
+	public OrderedEventPipeline(String name, Executor executor,
+			BatchHandler<T> handler) {
+		this.name = name;
+		this.executor = executor;
+		this.handler = handler;
+	}
+
+	/**
+	 * Adds an event to the end of the queue.
+	 */
+	public void add(T event) {
+		synchronized (lock) {
+			if (isDisposed) {
+				return;
+			}
+			enqueue(event);
+		}
+		scheduleDrain();
+	}
+
+	/**
+	 * Adds all of the events to the end of the queue, in iteration order, with
+	 * no other event in between.
+	 */
+	public void addAll(Collection<? extends T> events) {
+		synchronized (lock) {
+			if (isDisposed) {
+				return;
+			}
+			for (T event : events) {
+				enqueue(event);
+			}
+		}
+		scheduleDrain();
+	}
+
+	/**
+	 * Discards any queued events and stops accepting new ones.
+	 */
+	public void dispose() {
+		synchronized (lock) {
+			isDisposed = true;
+			buffer = new Object[0];
+			head = 0;
+			size = 0;
+		}
+	}
+
+	/**
+	 * Returns the number of batches handed to the handler.
+	 */
+	public long getBatchesProcessed() {
+		synchronized (lock) {
+			return batchesProcessed;
+		}
+	}
+
+	/**
+	 * Returns the number of events added since construction.
+	 */
+	public long getEventsAdded() {
+		synchronized (lock) {
+			return eventsAdded;
+		}
+	}
+
+	/**
+	 * Returns the number of events handed to the handler.
+	 */
+	public long getEventsProcessed() {
+		synchronized (lock) {
+			return eventsProcessed;
+		}
+	}
+
+	/**
+	 * Returns the size of the largest batch handed to the handler.
+	 */
+	public int getLargestBatch() {
+		synchronized (lock) {
+			return largestBatch;
+		}
+	}
+
+	public int getMaxBatchSize() {
+		return maxBatchSize;
+	}
+
+	/**
+	 * Returns the largest number of events which were waiting at once.
+	 */
+	public int getMaxQueueDepth() {
+		synchronized (lock) {
+			return maxQueueDepth;
+		}
+	}
+
+	/**
+	 * Returns the number of events waiting to be handled.
+	 */
+	public int getQueueDepth() {
+		synchronized (lock) {
+			return size;
+		}
+	}
+
+	/**
+	 * Sets the maximum number of events handed to the handler at once.
+	 */
+	public void setMaxBatchSize(int maxBatchSize) {
+		if (maxBatchSize < 1) {
+			throw new IllegalArgumentException("maxBatchSize must be positive");
+		}
+		this.maxBatchSize = maxBatchSize;
+	}
+
+	@Override
+	public String toString() {
+		synchronized (lock) {
+			return "OrderedEventPipeline " + name + " depth=" + size
+					+ " maxDepth=" + maxQueueDepth + " events="
+					+ eventsProcessed + " batches=" + batchesProcessed
+					+ " largestBatch=" + largestBatch;
+		}
+	}
+
+	/**
+	 * Hands batches to the handler until the queue is empty. Only one drain
+	 * runs at a time.
+	 */
+	@SuppressWarnings("unchecked")
+	protected void drain() {
+		List<T> batch = new ArrayList<T>(Math.min(maxBatchSize,
+				INITIAL_CAPACITY));
+		while (true) {
+			batch.clear();
+			synchronized (lock) {
+				if (size == 0 || isDisposed) {
+					isDrainScheduled = false;
+					return;
+				}
+				int count = Math.min(size, maxBatchSize);
+				for (int i = 0; i < count; i++) {
+					batch.add((T) buffer[head]);
+					buffer[head] = null;
+					head = (head + 1) & (buffer.length - 1);
+				}
+				size -= count;
+				eventsProcessed += count;
+				batchesProcessed++;
+				if (count > largestBatch) {
+					largestBatch = count;
+				}
+			}
+			try {
+				handler.handleBatch(batch);
+			} catch (Throwable t) {
+				LOG.error("Error handling batch in " + name, t);
+			}
+		}
+	}
+
+	/**
+	 * Appends an event to the ring buffer, doubling it when full. The caller
+	 * must hold lock.
+	 */
+	protected void enqueue(T event) {
+		if (size == buffer.length) {
+			Object[] newBuffer = new Object[buffer.length << 1];
+			int firstPart = buffer.length - head;
+			System.arraycopy(buffer, head, newBuffer, 0, firstPart);
+			System.arraycopy(buffer, 0, newBuffer, firstPart, head);
+			buffer = newBuffer;
+			head = 0;
+		}
+		buffer[(head + size) & (buffer.length - 1)] = event;
+		size++;
+		eventsAdded++;
+		if (size > maxQueueDepth) {
+			maxQueueDepth = size;
+		}
+	}
+
+	/**
+	 * Submits the drain runnable unless one is already pending or running.
+	 */
+	protected void scheduleDrain() {
+		synchronized (lock) {
+			if (isDrainScheduled || size == 0) {
+				return;
+			}
+			isDrainScheduled = true;
+		}
+		try {
+			executor.execute(drainRunnable);
+		} catch (RejectedExecutionException ree) {
+			// The events stay queued and the next add tries again.
+			synchronized (lock) {
+				isDrainScheduled = false;
+			}
+			LOG.warn("Drain rejected in " + name + ", " + getQueueDepth()
+					+ " events waiting.");
+		} catch (RuntimeException re) {
+			synchronized (lock) {
+				isDrainScheduled = false;
+			}
+			throw re;
+		}
+	}
+}
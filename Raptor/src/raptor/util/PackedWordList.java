@@ -0,0 +1,164 @@
+/**
+ * New BSD License
+ * http://www.opensource.org/licenses/bsd-license.php
+ * Copyright 2009-2011 RaptorProject (http://code.google.com/p/raptor-chess-interface/)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the RaptorProject nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package raptor.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An immutable, sorted list of words held in memory as one packed byte array
+ * with an offset table. Each word costs its length in bytes plus one int, so a
+ * 100k word dictionary fits in about 1.5MB, and lookups are binary searches
+ * without any file I/O or per word objects.
+ * 
+ * Words are compared like String.compareTo on their ISO-8859-1 characters, so
+ * the source file must be sorted that way (e.g. LC_ALL=C sort).
+ */
+public class PackedWordList {
+	private static final String[] NO_WORDS = new String[0];
+
+	private final byte[] bytes;
+
+	/**
+	 * Word i is bytes[offsets[i]] up to bytes[offsets[i + 1]].
+	 */
+	private final int[] offsets;
+
+	/**
+	 * Loads the words in a sorted file with one word per line. Blank lines and
+	 * trailing carriage returns are ignored.
+	 */
+	public static PackedWordList load(File file) throws IOException {
+		return new PackedWordList(Files.readAllBytes(file.toPath()));
+	}
+
+	/**
+	 * Creates a list from the contents of a sorted file with one word per
+	 * line.
+	 */
+	public PackedWordList(byte[] lines) {
+		int lineCount = 1;
+		for (byte b : lines) {
+			if (b == '\n') {
+				lineCount++;
+			}
+		}
+
+		// The words are compacted in place, dropping the line separators.
+		int[] wordOffsets = new int[lineCount + 1];
+		int size = 0;
+		int length = 0;
+		int lineStart = 0;
+		for (int i = 0; i <= lines.length; i++) {
+			if (i == lines.length || lines[i] == '\n') {
+				int lineEnd = i;
+				if (lineEnd > lineStart && lines[lineEnd - 1] == '\r') {
+					lineEnd--;
+				}
+				if (lineEnd > lineStart) {
+					wordOffsets[size++] = length;
+					System.arraycopy(lines, lineStart, lines, length, lineEnd
+							- lineStart);
+					length += lineEnd - lineStart;
+				}
+				lineStart = i + 1;
+			}
+		}
+		wordOffsets[size] = length;
+
+		bytes = Arrays.copyOf(lines, length);
+		offsets = Arrays.copyOf(wordOffsets, size + 1);
+	}
+
+	public boolean contains(String word) {
+		int index = lowerBound(word);
+		return index < size() && compare(index, word) == 0;
+	}
+
+	public String get(int index) {
+		return new String(bytes, offsets[index], offsets[index + 1]
+				- offsets[index], StandardCharsets.ISO_8859_1);
+	}
+
+	/**
+	 * Returns the words which start with prefix in sorted order.
+	 */
+	public String[] getWordsThatStartWith(String prefix) {
+		int index = lowerBound(prefix);
+		if (index == size() || !startsWith(index, prefix)) {
+			return NO_WORDS;
+		}
+
+		List<String> result = new ArrayList<String>(10);
+		while (index < size() && startsWith(index, prefix)) {
+			result.add(get(index++));
+		}
+		return result.toArray(new String[result.size()]);
+	}
+
+	public int size() {
+		return offsets.length - 1;
+	}
+
+	/**
+	 * Compares word index with string the same way String.compareTo would.
+	 */
+	protected int compare(int index, String string) {
+		int start = offsets[index];
+		int length = offsets[index + 1] - start;
+		int commonLength = Math.min(length, string.length());
+		for (int i = 0; i < commonLength; i++) {
+			int difference = (bytes[start + i] & 0xff) - string.charAt(i);
+			if (difference != 0) {
+				return difference;
+			}
+		}
+		return length - string.length();
+	}
+
+	/**
+	 * Returns the index of the first word which is not less than string.
+	 */
+	protected int lowerBound(String string) {
+		int low = 0;
+		int high = size();
+		while (low < high) {
+			int mid = low + high >>> 1;
+			if (compare(mid, string) < 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	protected boolean startsWith(int index, String prefix) {
+		int start = offsets[index];
+		if (offsets[index + 1] - start < prefix.length()) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length(); i++) {
+			if ((bytes[start + i] & 0xff) != prefix.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
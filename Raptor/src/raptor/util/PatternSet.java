@@ -0,0 +1,317 @@
+/**
+ * New BSD License
+ * http://www.opensource.org/licenses/bsd-license.php
+ * Copyright 2009-2011 RaptorProject (http://code.google.com/p/raptor-chess-interface/)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the RaptorProject nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package raptor.util;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * A set of regular expressions which are all tested against a message at once
+ * with the same full match semantics as RegExUtils.matches.
+ * 
+ * Each pattern is reduced to the longest literal every match must contain.
+ * One LiteralScanner pass over the message finds which of those literals
+ * occur, and only the patterns whose literal occurs, or which have none, are
+ * run. Messages matching none of the literals never reach the regex engine, so
+ * the cost stays flat as patterns are added.
+ * 
+ * Instances are immutable and thread safe.
+ */
+public class PatternSet {
+	public static final PatternSet EMPTY = new PatternSet(new ArrayList<Pattern>(0));
+
+	protected int[] literalIndexes;
+	protected Pattern[] patterns;
+	protected LiteralScanner scanner;
+
+	/**
+	 * Constructs a set of the patterns. The index of a pattern in the
+	 * collection's iteration order is its index in the set.
+	 */
+	public PatternSet(Collection<Pattern> patterns) {
+		this.patterns = patterns.toArray(new Pattern[0]);
+		literalIndexes = new int[this.patterns.length];
+
+		Map<String, Integer> literalToIndex = new HashMap<String, Integer>();
+		List<String> literals = new ArrayList<String>();
+		for (int i = 0; i < this.patterns.length; i++) {
+			String literal = getRequiredLiteral(this.patterns[i]);
+			if (literal == null) {
+				literalIndexes[i] = -1;
+			} else {
+				literal = fold(literal);
+				Integer index = literalToIndex.get(literal);
+				if (index == null) {
+					index = literals.size();
+					literalToIndex.put(literal, index);
+					literals.add(literal);
+				}
+				literalIndexes[i] = index;
+			}
+		}
+		scanner = new LiteralScanner(literals.toArray(new String[0]), true);
+	}
+
+	/**
+	 * Returns a literal which every string matching the pattern contains,
+	 * ignoring ASCII case, or null if none could be determined. The longest
+	 * run of plain characters outside groups, classes and escapes is used,
+	 * dropping characters made optional by a quantifier. Patterns with a top
+	 * level alternation, inline flags, quoting or flags which change how
+	 * literals match have no required literal.
+	 */
+	public static String getRequiredLiteral(Pattern pattern) {
+		if ((pattern.flags() & (Pattern.COMMENTS | Pattern.LITERAL
+				| Pattern.UNICODE_CASE | Pattern.CANON_EQ)) != 0) {
+			return null;
+		}
+		String regex = pattern.pattern();
+		if (regex.contains("(?")) {
+			return null;
+		}
+
+		StringBuilder run = new StringBuilder();
+		String best = "";
+		int groupDepth = 0;
+		int i = 0;
+		while (i < regex.length()) {
+			char c = regex.charAt(i);
+			if (c == '\\') {
+				if (i + 1 >= regex.length()) {
+					return null;
+				}
+				char escaped = regex.charAt(i + 1);
+				if (!Character.isLetterOrDigit(escaped)) {
+					if (groupDepth == 0 && escaped < 128) {
+						run.append(escaped);
+					} else {
+						best = endRun(run, best);
+					}
+					i += 2;
+					continue;
+				}
+				if (escaped == 'Q') {
+					return null;
+				}
+				best = endRun(run, best);
+				i = skipEscape(regex, i);
+				continue;
+			}
+
+			switch (c) {
+			case '[':
+				best = endRun(run, best);
+				i = skipClass(regex, i);
+				continue;
+			case '(':
+				best = endRun(run, best);
+				groupDepth++;
+				break;
+			case ')':
+				groupDepth--;
+				break;
+			case '|':
+				if (groupDepth == 0) {
+					return null;
+				}
+				break;
+			case '?':
+			case '*':
+			case '{':
+				// The preceding atom is optional. If it was a plain character
+				// it is the last one in the run.
+				if (run.length() > 0) {
+					run.setLength(run.length() - 1);
+				}
+				best = endRun(run, best);
+				if (c == '{') {
+					int close = regex.indexOf('}', i);
+					if (close == -1) {
+						return null;
+					}
+					i = close;
+				}
+				break;
+			case '+':
+				best = endRun(run, best);
+				break;
+			case '.':
+			case '^':
+			case '$':
+				best = endRun(run, best);
+				break;
+			default:
+				if (groupDepth == 0 && c < 128) {
+					run.append(c);
+				} else {
+					best = endRun(run, best);
+				}
+			}
+			i++;
+		}
+		best = endRun(run, best);
+		return best.length() == 0 ? null : best;
+	}
+
+	protected static String endRun(StringBuilder run, String best) {
+		String result = run.length() > best.length() ? run.toString() : best;
+		run.setLength(0);
+		return result;
+	}
+
+	protected static String fold(String string) {
+		StringBuilder result = new StringBuilder(string.length());
+		for (int i = 0; i < string.length(); i++) {
+			result.append(LiteralScanner.fold(string.charAt(i)));
+		}
+		return result.toString();
+	}
+
+	/**
+	 * Returns the index just past the character class starting at index,
+	 * including nested classes.
+	 */
+	protected static int skipClass(String regex, int index) {
+		int depth = 0;
+		int i = index;
+		while (i < regex.length()) {
+			char c = regex.charAt(i);
+			if (c == '\\') {
+				i += 2;
+				continue;
+			} else if (c == '[') {
+				depth++;
+				i++;
+				// A ] right after the opening [ or [^ is a literal.
+				if (i < regex.length() && regex.charAt(i) == '^') {
+					i++;
+				}
+				if (i < regex.length() && regex.charAt(i) == ']') {
+					i++;
+				}
+				continue;
+			} else if (c == ']') {
+				depth--;
+				if (depth == 0) {
+					return i + 1;
+				}
+			}
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * Returns the index just past the escape sequence starting at index, which
+	 * is a backslash followed by a letter or digit, including its argument.
+	 */
+	protected static int skipEscape(String regex, int index) {
+		char escaped = regex.charAt(index + 1);
+		int i = index + 2;
+		switch (escaped) {
+		case 'p':
+		case 'P':
+		case 'N':
+		case 'x':
+			if (i < regex.length() && regex.charAt(i) == '{') {
+				int close = regex.indexOf('}', i);
+				return close == -1 ? regex.length() : close + 1;
+			}
+			return escaped == 'x' ? i + 2 : i + 1;
+		case 'u':
+			return i + 4;
+		case 'c':
+			return i + 1;
+		case 'k':
+			int close = regex.indexOf('>', i);
+			return close == -1 ? regex.length() : close + 1;
+		default:
+			if (Character.isDigit(escaped)) {
+				while (i < regex.length() && Character.isDigit(regex.charAt(i))) {
+					i++;
+				}
+			}
+			return i;
+		}
+	}
+
+	public Pattern get(int index) {
+		return patterns[index];
+	}
+
+	/**
+	 * Returns the indexes of the patterns matching the entire message.
+	 */
+	public BitSet getMatches(String message) {
+		BitSet result = new BitSet(patterns.length);
+		BitSet literals = scanner.findLiterals(message);
+		for (int i = 0; i < patterns.length; i++) {
+			if (isCandidate(i, literals)
+					&& patterns[i].matcher(message).matches()) {
+				result.set(i);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the index of the first pattern in the set with the same
+	 * expression and flags, -1 if there is none.
+	 */
+	public int indexOf(Pattern pattern) {
+		for (int i = 0; i < patterns.length; i++) {
+			if (patterns[i] == pattern
+					|| patterns[i].flags() == pattern.flags()
+					&& patterns[i].pattern().equals(pattern.pattern())) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	public boolean isEmpty() {
+		return patterns.length == 0;
+	}
+
+	/**
+	 * Returns true if any pattern matches the entire message.
+	 */
+	public boolean matchesAny(String message) {
+		if (patterns.length == 0) {
+			return false;
+		}
+		BitSet literals = scanner.findLiterals(message);
+		for (int i = 0; i < patterns.length; i++) {
+			if (isCandidate(i, literals)
+					&& patterns[i].matcher(message).matches()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public int size() {
+		return patterns.length;
+	}
+
+	protected boolean isCandidate(int index, BitSet literals) {
+		return literalIndexes[index] == -1
+				|| literals.get(literalIndexes[index]);
+	}
+}
@@ -13,11 +13,9 @@
  */
 package raptor.util;
 
-import java.util.Comparator;
-
 import org.apache.commons.lang.StringUtils;
 
-public class RatingComparator implements Comparator<String> {
+public class RatingComparator implements SortKeyComparator {
 
 	private static Short getRatingAsInt(String string) {
 		if (string.equals("----")) {
@@ -38,4 +36,8 @@ public class RatingComparator implements Comparator<String> {
 		Short rating2 = getRatingAsInt(string2);
                 return rating1.compareTo(rating2);
 	}
+
+	public long getSortKey(String string) {
+		return getRatingAsInt(string);
+	}
 }
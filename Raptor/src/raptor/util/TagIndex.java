@@ -0,0 +1,215 @@
+/**
+ * New BSD License
+ * http://www.opensource.org/licenses/bsd-license.php
+ * Copyright 2009-2011 RaptorProject (http://code.google.com/p/raptor-chess-interface/)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the RaptorProject nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package raptor.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The users in each tag, along with an inverted index of user to sorted tag
+ * names so getTags(user) is a single map lookup. Tag and user names are case
+ * insensitive. Tags are returned with the display names passed to setTags.
+ * 
+ * This class is thread safe.
+ */
+public class TagIndex {
+	private static final String[] NO_TAGS = new String[0];
+
+	/**
+	 * Lower case tag to the lower case users in it.
+	 */
+	protected Map<String, Set<String>> tagToUsersMap = new TreeMap<String, Set<String>>();
+
+	/**
+	 * Lower case user to the sorted display names of the tags the user is in.
+	 * The arrays are never modified once they are in the map.
+	 */
+	protected Map<String, String[]> userToTagsMap = new ConcurrentHashMap<String, String[]>();
+
+	/**
+	 * The sorted display names of the tags.
+	 */
+	protected volatile String[] sortedTags = NO_TAGS;
+
+	/**
+	 * Adds the user to the tag.
+	 * 
+	 * @return true if the tag had no users before.
+	 */
+	public synchronized boolean addUser(String tag, String user) {
+		String lowerCaseTag = tag.toLowerCase();
+		user = user.toLowerCase();
+		boolean isNewTag = false;
+		Set<String> users = tagToUsersMap.get(lowerCaseTag);
+		if (users == null) {
+			tagToUsersMap.put(lowerCaseTag, users = new TreeSet<String>());
+			isNewTag = true;
+		}
+		if (users.add(user)) {
+			reindexUser(user);
+		}
+		return isNewTag;
+	}
+
+	/**
+	 * Removes every user from every tag. The tag names are kept.
+	 */
+	public synchronized void clear() {
+		tagToUsersMap.clear();
+		userToTagsMap.clear();
+	}
+
+	/**
+	 * Removes every user from the tag.
+	 */
+	public synchronized void clear(String tag) {
+		tagToUsersMap.remove(tag.toLowerCase());
+		rebuildIndex();
+	}
+
+	/**
+	 * Returns the sorted display names of the tags.
+	 */
+	public String[] getTags() {
+		return sortedTags.clone();
+	}
+
+	/**
+	 * Returns the sorted display names of the tags the user is in. This is
+	 * called for every shout, so it is a lookup in the user to tags index.
+	 */
+	public String[] getTags(String user) {
+		String[] tags = userToTagsMap.get(user.toLowerCase());
+		return tags == null ? NO_TAGS : tags.clone();
+	}
+
+	/**
+	 * Returns the sorted lower case names of the tags with at least one user.
+	 */
+	public synchronized String[] getUsedTags() {
+		List<String> result = new ArrayList<String>(tagToUsersMap.size());
+		for (Map.Entry<String, Set<String>> entry : tagToUsersMap.entrySet()) {
+			if (!entry.getValue().isEmpty()) {
+				result.add(entry.getKey());
+			}
+		}
+		return result.toArray(new String[result.size()]);
+	}
+
+	/**
+	 * Returns the sorted lower case users in the tag.
+	 */
+	public synchronized String[] getUsersInTag(String tag) {
+		Set<String> users = tagToUsersMap.get(tag.toLowerCase());
+		return users == null ? NO_TAGS : users.toArray(new String[users
+				.size()]);
+	}
+
+	/**
+	 * Removes the user from every tag.
+	 * 
+	 * @return true if the user was in a tag.
+	 */
+	public synchronized boolean removeUser(String user) {
+		boolean result = false;
+		user = user.toLowerCase();
+		for (Set<String> users : tagToUsersMap.values()) {
+			if (users.remove(user)) {
+				result = true;
+			}
+		}
+		userToTagsMap.remove(user);
+		return result;
+	}
+
+	/**
+	 * Removes the user from the tag.
+	 * 
+	 * @return true if the tag has had users, whether or not the user was one
+	 *         of them.
+	 */
+	public synchronized boolean removeUser(String tag, String user) {
+		user = user.toLowerCase();
+		Set<String> users = tagToUsersMap.get(tag.toLowerCase());
+		if (users == null) {
+			return false;
+		}
+		if (users.remove(user)) {
+			reindexUser(user);
+		}
+		return true;
+	}
+
+	/**
+	 * Sets the display names of the tags and rebuilds the user to tags index.
+	 * Users in tags which are not in tags keep their membership but are not
+	 * indexed.
+	 */
+	public synchronized void setTags(String[] tags) {
+		tags = tags.clone();
+		Arrays.sort(tags);
+		sortedTags = tags;
+		rebuildIndex();
+	}
+
+	/**
+	 * Rebuilds the user to tags index from scratch.
+	 */
+	protected void rebuildIndex() {
+		Map<String, List<String>> userToTagLists = new HashMap<String, List<String>>();
+		for (String tag : sortedTags) {
+			Set<String> users = tagToUsersMap.get(tag.toLowerCase());
+			if (users != null) {
+				for (String user : users) {
+					List<String> tags = userToTagLists.get(user);
+					if (tags == null) {
+						userToTagLists.put(user, tags = new ArrayList<String>(4));
+					}
+					tags.add(tag);
+				}
+			}
+		}
+
+		userToTagsMap.clear();
+		for (Map.Entry<String, List<String>> entry : userToTagLists.entrySet()) {
+			userToTagsMap.put(entry.getKey(), entry.getValue().toArray(
+					new String[entry.getValue().size()]));
+		}
+	}
+
+	/**
+	 * Recomputes the index entry for a single lower case user.
+	 */
+	protected void reindexUser(String user) {
+		List<String> tags = new ArrayList<String>(4);
+		for (String tag : sortedTags) {
+			Set<String> users = tagToUsersMap.get(tag.toLowerCase());
+			if (users != null && users.contains(user)) {
+				tags.add(tag);
+			}
+		}
+		if (tags.isEmpty()) {
+			userToTagsMap.remove(user);
+		} else {
+			userToTagsMap.put(user, tags.toArray(new String[tags.size()]));
+		}
+	}
+}
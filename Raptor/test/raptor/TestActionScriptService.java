@@ -0,0 +1,191 @@
+/**
+ * New BSD License
+ * http://www.opensource.org/licenses/bsd-license.php
+ * Copyright 2009-2011 RaptorProject (http://code.google.com/p/raptor-chess-interface/)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the RaptorProject nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package raptor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import raptor.action.RaptorAction;
+import raptor.action.ScriptedAction;
+import raptor.action.RaptorAction.Category;
+import raptor.action.RaptorAction.RaptorActionContainer;
+import raptor.service.ActionScriptService;
+
+public class TestActionScriptService {
+
+	/**
+	 * Keeps actions in memory and records what would have been written to or
+	 * deleted from disk.
+	 */
+	protected static class TestableActionScriptService extends
+			ActionScriptService {
+		protected List<String> stored = new ArrayList<String>();
+		protected List<String> deleted = new ArrayList<String>();
+		protected int changes;
+
+		protected TestableActionScriptService(RaptorAction... actions) {
+			super(actions);
+			addActionServiceListener(new ActionServiceListener() {
+				public void onActionsChanged() {
+					changes++;
+				}
+			});
+		}
+
+		@Override
+		protected boolean deleteActionFile(String actionName) {
+			deleted.add(actionName);
+			return true;
+		}
+
+		@Override
+		protected void storeAction(RaptorAction action) {
+			stored.add(action.getName());
+		}
+	}
+
+	protected static void assertNames(RaptorAction[] actions,
+			String... expected) {
+		List<String> names = new ArrayList<String>();
+		for (RaptorAction action : actions) {
+			names.add(action.getName());
+		}
+		Assert.assertEquals(Arrays.asList(expected), names);
+	}
+
+	protected static RaptorAction createAction(String name,
+			Category category, int modifierKey, int keyCode) {
+		ScriptedAction action = new ScriptedAction();
+		action.setName(name);
+		action.setCategory(category);
+		action.setModifierKey(modifierKey);
+		action.setKeyCode(keyCode);
+		return action;
+	}
+
+	protected static TestableActionScriptService createService() {
+		RaptorAction draw = createAction("Draw", Category.GameCommands, 1, 'd');
+		RaptorAction resign = createAction("Resign", Category.GameCommands, 1,
+				'r');
+		RaptorAction seek = createAction("Seek", Category.IcsCommands, 2, 's');
+		draw.addContainer(RaptorActionContainer.PlayingChessBoard, 1);
+		resign.addContainer(RaptorActionContainer.PlayingChessBoard, 0);
+		seek.addContainer(RaptorActionContainer.MainChatConsole, 0);
+		return new TestableActionScriptService(seek, resign, draw);
+	}
+
+	@Test
+	public void testDeleteAction() {
+		TestableActionScriptService service = createService();
+
+		Assert.assertTrue(service.deleteAction("Resign"));
+		Assert.assertEquals("[Resign]", service.deleted.toString());
+		Assert.assertEquals(1, service.changes);
+
+		Assert.assertNull(service.getAction("Resign"));
+		Assert.assertNull(service.getAction(1, 'r'));
+		Assert.assertSame(service.getAction("Draw"), service.getAction(1, 'd'));
+		assertNames(service.getActions(Category.GameCommands), "Draw");
+		assertNames(service.getActions(RaptorActionContainer.PlayingChessBoard),
+				"Draw");
+
+		service.deleteAction("Draw");
+		assertNames(service.getActions(Category.GameCommands));
+		assertNames(service.getActions(RaptorActionContainer.PlayingChessBoard));
+		assertNames(service.getActions(RaptorActionContainer.MainChatConsole),
+				"Seek");
+	}
+
+	@Test
+	public void testLookups() {
+		TestableActionScriptService service = createService();
+
+		Assert.assertEquals("Draw", service.getAction(1, 'd').getName());
+		Assert.assertEquals("Seek", service.getAction(2, 's').getName());
+		Assert.assertNull(service.getAction(2, 'd'));
+		assertNames(service.getActions(Category.GameCommands), "Draw",
+				"Resign");
+		assertNames(service.getActions(Category.Urls));
+		assertNames(service.getActions(RaptorActionContainer.PlayingChessBoard),
+				"Resign", "Draw");
+		assertNames(service.getActions(RaptorActionContainer.BugButtons));
+	}
+
+	@Test
+	public void testReturnedArraysAreCopies() {
+		TestableActionScriptService service = createService();
+
+		RaptorAction[] actions = service
+				.getActions(RaptorActionContainer.PlayingChessBoard);
+		actions[0] = null;
+		service.getActions(Category.GameCommands)[1] = null;
+
+		assertNames(service.getActions(RaptorActionContainer.PlayingChessBoard),
+				"Resign", "Draw");
+		assertNames(service.getActions(Category.GameCommands), "Draw",
+				"Resign");
+	}
+
+	@Test
+	public void testSaveAction() {
+		TestableActionScriptService service = createService();
+
+		RaptorAction abort = createAction("Abort", Category.GameCommands, 1,
+				'a');
+		abort.addContainer(RaptorActionContainer.PlayingChessBoard, 2);
+		service.saveAction(abort);
+		Assert.assertEquals("[Abort]", service.stored.toString());
+		Assert.assertEquals(1, service.changes);
+
+		Assert.assertSame(abort, service.getAction("Abort"));
+		Assert.assertSame(abort, service.getAction(1, 'a'));
+		assertNames(service.getActions(Category.GameCommands), "Abort",
+				"Draw", "Resign");
+		assertNames(service.getActions(RaptorActionContainer.PlayingChessBoard),
+				"Resign", "Draw", "Abort");
+
+		// Changing the key binding and category of a saved action moves it in
+		// the indexes.
+		ScriptedAction draw = (ScriptedAction) service.getAction("Draw");
+		draw.setKeyCode('x');
+		draw.setCategory(Category.Misc);
+		service.saveAction(draw);
+		Assert.assertNull(service.getAction(1, 'd'));
+		Assert.assertSame(draw, service.getAction(1, 'x'));
+		assertNames(service.getActions(Category.GameCommands), "Abort",
+				"Resign");
+		assertNames(service.getActions(Category.Misc), "Draw");
+	}
+
+	@Test
+	public void testSaveActions() {
+		TestableActionScriptService service = createService();
+
+		RaptorAction draw = service.getAction("Draw");
+		RaptorAction resign = service.getAction("Resign");
+		draw.setContainerOrder(RaptorActionContainer.PlayingChessBoard, 0);
+		resign.setContainerOrder(RaptorActionContainer.PlayingChessBoard, 1);
+		service.saveActions(new RaptorAction[] { draw, resign });
+
+		Assert.assertEquals("[Draw, Resign]", service.stored.toString());
+		Assert.assertEquals(1, service.changes);
+		assertNames(service.getActions(RaptorActionContainer.PlayingChessBoard),
+				"Draw", "Resign");
+	}
+}
@@ -0,0 +1,60 @@
+/**
+ * New BSD License
+ * http://www.opensource.org/licenses/bsd-license.php
+ * Copyright 2009-2011 RaptorProject (http://code.google.com/p/raptor-chess-interface/)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the RaptorProject nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package raptor;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import raptor.chat.ChatEvent;
+import raptor.chat.ChatType;
+import raptor.script.ChatEventScript;
+import raptor.script.RaptorChatScriptContext;
+
+public class TestChatEventScript {
+
+	protected static ChatEvent execute(ChatEventScript script, String message) {
+		ChatEvent event = new ChatEvent("someone", ChatType.TELL, message);
+		script.execute(new RaptorChatScriptContext(null, event));
+		return event;
+	}
+
+	/**
+	 * A compiled script is reused until its source changes, local variables
+	 * do not leak between executions and every execution is counted.
+	 */
+	@Test
+	public void testCompiledScriptIsReusedUntilChanged() {
+		ChatEventScript script = new ChatEventScript();
+		script.setName("TestChatEventScript");
+		script.setChatType(ChatType.TELL);
+		script.setScript("if (seen != void) { context.getChatEvent().setMessage(\"leaked\"); return; }\n"
+				+ "seen = true;\n"
+				+ "context.getChatEvent().setMessage(context.getChatEvent().getMessage() + \"!\");");
+
+		for (int i = 0; i < 3; i++) {
+			Assert.assertEquals("hi" + i + "!", execute(script, "hi" + i)
+					.getMessage());
+		}
+		Assert.assertEquals(3, script.getExecutionCount());
+		Assert.assertTrue(script.getExecutionNanos() > 0);
+
+		int version = script.getVersion();
+		script.setScript("context.getChatEvent().setMessage(ChatType.TELL + \" \" + context.getChatEvent().getSource());");
+		Assert.assertTrue(script.getVersion() != version);
+		Assert.assertEquals("TELL someone", execute(script, "hi")
+				.getMessage());
+		Assert.assertEquals(4, script.getExecutionCount());
+	}
+}
@@ -0,0 +1,230 @@
+/**
+ * New BSD License
+ * http://www.opensource.org/licenses/bsd-license.php
+ * Copyright 2009-2011 RaptorProject (http://code.google.com/p/raptor-chess-interface/)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the RaptorProject nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package raptor;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import raptor.chat.ChatEvent;
+import raptor.chat.ChatEventUtils;
+import raptor.chat.ChatLogger;
+import raptor.chat.ChatLogger.ChatEventParseListener;
+import raptor.chat.ChatType;
+
+public class TestChatLogger {
+
+	/**
+	 * A ChatLogger which only flushes when asked to and writes no user logs.
+	 */
+	public static class TestLogger extends ChatLogger {
+		int scheduledFlushes;
+
+		public TestLogger(String pathToFile, boolean isDeleting) {
+			super(pathToFile, isDeleting);
+		}
+
+		@Override
+		protected void scheduleFlush(long delay) {
+			scheduledFlushes++;
+		}
+
+		@Override
+		protected void writeToLogFiles(ChatEvent event) {
+		}
+	}
+
+	public static class CollectingListener implements ChatEventParseListener {
+		boolean isCompleted;
+		List<ChatEvent> events = new ArrayList<ChatEvent>();
+
+		public boolean onNewEventParsed(ChatEvent event) {
+			events.add(event);
+			return true;
+		}
+
+		public void onParseCompleted() {
+			isCompleted = true;
+		}
+	}
+
+	protected static ChatEvent channelTell(String source, String channel,
+			String message) {
+		ChatEvent event = new ChatEvent(source, ChatType.CHANNEL_TELL, message);
+		event.setChannel(channel);
+		return event;
+	}
+
+	protected static File createTempFile() throws IOException {
+		File file = File.createTempFile("chatlogger", ".txt");
+		file.delete();
+		return file;
+	}
+
+	protected static void deleteAll(File file) {
+		new File(file.getPath() + ".idx").delete();
+		new File(file.getPath() + ".1").delete();
+		new File(file.getPath() + ".1.idx").delete();
+		file.delete();
+	}
+
+	protected static List<ChatEvent> parse(ChatLogger logger,
+			ChatLogger.Query query) {
+		CollectingListener listener = new CollectingListener();
+		logger.parseFile(query, listener);
+		Assert.assertTrue(listener.isCompleted);
+		return listener.events;
+	}
+
+	@Test
+	public void testQuery() throws IOException {
+		File file = createTempFile();
+		TestLogger logger = new TestLogger(file.getPath(), true);
+		try {
+			logger.write(new ChatEvent("Raptor", ChatType.TELL, "Hi"));
+			logger.write(channelTell("raptor", "24", "In 24"));
+			logger.write(channelTell("other", "1", "In 1"));
+			logger.write(new ChatEvent("Other", ChatType.TELL, "Hello"));
+			logger.write(new ChatEvent(null, ChatType.OUTBOUND, "tell 24 hey"));
+			logger.write(new ChatEvent(null, ChatType.GAMES, "vetoed"));
+			Assert.assertEquals(1, logger.scheduledFlushes);
+
+			Assert.assertEquals(5, parse(logger, null).size());
+			Assert.assertFalse(new File(file.getPath() + ".1").exists());
+
+			List<ChatEvent> events = parse(logger, new ChatLogger.Query().add(
+					ChatType.TELL, null, "RAPTOR", null));
+			Assert.assertEquals(1, events.size());
+			Assert.assertEquals("Hi", events.get(0).getMessage());
+
+			events = parse(logger, new ChatLogger.Query().add(
+					ChatType.CHANNEL_TELL, "24", null, null).add(
+					ChatType.OUTBOUND));
+			Assert.assertEquals(2, events.size());
+			Assert.assertEquals("In 24", events.get(0).getMessage());
+			Assert.assertEquals("tell 24 hey", events.get(1).getMessage());
+
+			Assert.assertEquals(0, parse(
+					logger,
+					new ChatLogger.Query().add(ChatType.TELL).setSince(
+							System.currentTimeMillis() + 60000)).size());
+
+			logger.write(new ChatEvent("Raptor", ChatType.TELL, "Again"));
+			Assert.assertEquals(2, parse(logger,
+					new ChatLogger.Query().add(ChatType.TELL, null, "raptor",
+							null)).size());
+		} finally {
+			logger.close();
+			deleteAll(file);
+		}
+	}
+
+	@Test
+	public void testFlushSurvivesUserLogErrors() throws IOException {
+		File file = createTempFile();
+		TestLogger logger = new TestLogger(file.getPath(), true) {
+			@Override
+			protected void writeToLogFiles(ChatEvent event) {
+				if (event.getMessage().equals("Fails")) {
+					throw new IllegalStateException();
+				}
+			}
+		};
+		try {
+			logger.write(new ChatEvent("Raptor", ChatType.TELL, "Before"));
+			logger.write(new ChatEvent("Raptor", ChatType.TELL, "Fails"));
+			logger.write(new ChatEvent("Raptor", ChatType.TELL, "After"));
+			logger.flush();
+
+			List<ChatEvent> events = parse(logger, null);
+			Assert.assertEquals(3, events.size());
+			Assert.assertEquals("After", events.get(2).getMessage());
+		} finally {
+			logger.close();
+			deleteAll(file);
+		}
+	}
+
+	@Test
+	public void testRebuildsMissingIndex() throws IOException {
+		File file = createTempFile();
+		try {
+			try (FileWriter writer = new FileWriter(file)) {
+				writer.write(ChatEventUtils.serializeChatEvent(new ChatEvent(
+						"Raptor", ChatType.TELL, "Written\nbefore the index"))
+						+ '\n');
+				writer.write("not an event\n");
+				writer.write(ChatEventUtils.serializeChatEvent(channelTell(
+						"other", "1", "In 1"))
+						+ '\n');
+			}
+
+			TestLogger logger = new TestLogger(file.getPath(), false);
+			List<ChatEvent> events = parse(logger, new ChatLogger.Query()
+					.add(ChatType.CHANNEL_TELL));
+			Assert.assertEquals(1, events.size());
+			Assert.assertEquals("In 1", events.get(0).getMessage());
+			Assert.assertTrue(new File(file.getPath() + ".idx").exists());
+
+			logger.write(new ChatEvent("Raptor", ChatType.TELL, "After"));
+			events = parse(logger, new ChatLogger.Query().add(ChatType.TELL));
+			Assert.assertEquals(2, events.size());
+			Assert.assertEquals("Written\nbefore the index", events.get(0)
+					.getMessage());
+			Assert.assertEquals("After", events.get(1).getMessage());
+			logger.close();
+		} finally {
+			deleteAll(file);
+		}
+	}
+
+	@Test
+	public void testRotation() throws IOException {
+		File file = createTempFile();
+		TestLogger logger = new TestLogger(file.getPath(), true);
+		logger.setMaxFileBytes(1000);
+		try {
+			for (int i = 0; i < 100; i++) {
+				logger.write(new ChatEvent("Raptor", ChatType.TELL,
+						"Message " + i));
+				logger.flush();
+			}
+			Assert.assertTrue(new File(file.getPath() + ".1").exists());
+			Assert.assertTrue(file.length() < 1000 + 100);
+
+			List<ChatEvent> events = parse(logger, null);
+			Assert.assertFalse(events.isEmpty());
+			Assert.assertTrue(events.size() < 100);
+			int first = 100 - events.size();
+			for (int i = 0; i < events.size(); i++) {
+				Assert.assertEquals("Message " + (first + i), events.get(i)
+						.getMessage());
+			}
+
+			logger.delete();
+			Assert.assertFalse(file.exists());
+			Assert.assertFalse(new File(file.getPath() + ".1").exists());
+			Assert.assertTrue(parse(logger, null).isEmpty());
+		} finally {
+			logger.close();
+			deleteAll(file);
+		}
+	}
+}
@@ -0,0 +1,189 @@
+/**
+ * New BSD License
+ * http://www.opensource.org/licenses/bsd-license.php
+ * Copyright 2009-2011 RaptorProject (http://code.google.com/p/raptor-chess-interface/)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the RaptorProject nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package raptor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import raptor.chat.ChatEvent;
+import raptor.chat.ChatType;
+import raptor.service.ChatService;
+import raptor.service.ChatService.ChatListener;
+
+public class TestChatService {
+
+	/**
+	 * A ChatService without a connector, logger or preferences.
+	 */
+	protected static class TestableChatService extends ChatService {
+		boolean isRemovingSubTabMessages;
+
+		@Override
+		protected boolean isRemovingSubTabMessagesFromMainTab() {
+			return isRemovingSubTabMessages;
+		}
+	}
+
+	/**
+	 * Records the messages of the events it is handed.
+	 */
+	protected static class RecordingListener implements ChatListener {
+		List<String> messages = new ArrayList<String>();
+
+		public void chatEventOccured(ChatEvent e) {
+			messages.add(e.getMessage());
+		}
+
+		public boolean isHandling(ChatEvent e) {
+			return true;
+		}
+	}
+
+	/**
+	 * Removes itself from the service when it is handed an event.
+	 */
+	protected static class UnregisteringListener extends RecordingListener {
+		ChatService service;
+
+		UnregisteringListener(ChatService service) {
+			this.service = service;
+		}
+
+		@Override
+		public void chatEventOccured(ChatEvent e) {
+			super.chatEventOccured(e);
+			service.removeChatServiceListener(this);
+		}
+	}
+
+	protected static ChatEvent channelTell(String source, String channel,
+			String message) {
+		ChatEvent result = new ChatEvent(source, ChatType.CHANNEL_TELL,
+				message);
+		result.setChannel(channel);
+		return result;
+	}
+
+	@Test
+	public void testAddAndRemoveRoutes() {
+		TestableChatService service = new TestableChatService();
+		RecordingListener first = new RecordingListener();
+		RecordingListener second = new RecordingListener();
+		String channelKey = ChatService.getRouteKey(ChatType.CHANNEL_TELL,
+				"50");
+		String tellKey = ChatService.getRouteKey(ChatType.TELL, "Bob");
+		Assert.assertEquals(tellKey, ChatService.getRouteKey(ChatType.TELL,
+				"bob"));
+
+		service.addChatServiceListener(first, new String[] { channelKey,
+				tellKey });
+		service.addChatServiceListener(second, new String[] { channelKey });
+		Assert.assertTrue(service.hasRoute(channelKey));
+		Assert.assertTrue(service.hasRoute(tellKey));
+		Assert.assertFalse(service.hasRoute(ChatService.getRouteKey(
+				ChatType.CHANNEL_TELL, "1")));
+
+		service.removeChatServiceListener(first);
+		Assert.assertTrue(service.hasRoute(channelKey));
+		Assert.assertFalse(service.hasRoute(tellKey));
+
+		service.publishChatEvent(channelTell("alice", "50", "hi"));
+		Assert.assertTrue(first.messages.isEmpty());
+		Assert.assertEquals(1, second.messages.size());
+
+		service.removeChatServiceListener(second);
+		Assert.assertFalse(service.hasRoute(channelKey));
+	}
+
+	@Test
+	public void testDispatch() {
+		TestableChatService service = new TestableChatService();
+		RecordingListener channel = new RecordingListener();
+		RecordingListener person = new RecordingListener();
+		RecordingListener shouts = new RecordingListener();
+		RecordingListener game = new RecordingListener();
+		RecordingListener everything = new RecordingListener();
+		RecordingListener mainConsole = new RecordingListener();
+
+		service.addChatServiceListener(channel, new String[] {
+				ChatService.getRouteKey(ChatType.CHANNEL_TELL, "50"),
+				ChatService.getRouteKey(ChatType.CHANNEL_TELL, "Alice") });
+		service.addChatServiceListener(person, new String[] { ChatService
+				.getRouteKey(ChatType.TELL, "bob") });
+		service.addChatServiceListener(shouts, new String[] { ChatService
+				.getRouteKey(ChatType.SHOUT, null) });
+		service.addChatServiceListener(game, new String[] { ChatService
+				.getRouteKey(null, "12") });
+		service.addChatServiceListener(everything, null);
+		service.addMainConsoleListener(mainConsole);
+
+		// Matches the channel listener by channel and by source, but it is
+		// only handed the event once.
+		service.publishChatEvent(channelTell("Alice", "50", "channel"));
+		service.publishChatEvent(channelTell("carol", "1", "other channel"));
+		service.publishChatEvent(new ChatEvent("BOB", ChatType.TELL, "tell"));
+		service.publishChatEvent(new ChatEvent("carol", ChatType.TELL,
+				"other tell"));
+		service.publishChatEvent(new ChatEvent("dave", ChatType.SHOUT,
+				"shout"));
+		service.publishChatEvent(new ChatEvent("erin", ChatType.KIBITZ,
+				"kibitz", "12"));
+
+		Assert.assertEquals("[channel]", channel.messages.toString());
+		Assert.assertEquals("[tell]", person.messages.toString());
+		Assert.assertEquals("[shout]", shouts.messages.toString());
+		Assert.assertEquals("[kibitz]", game.messages.toString());
+		Assert.assertEquals(6, everything.messages.size());
+		Assert.assertEquals(6, mainConsole.messages.size());
+
+		service.isRemovingSubTabMessages = true;
+		service.removeChatServiceListener(everything);
+		service.publishChatEvent(new ChatEvent("bob", ChatType.TELL, "tell 2"));
+		service.publishChatEvent(new ChatEvent("frank", ChatType.WHISPER,
+				"whisper"));
+		Assert.assertEquals("[tell, tell 2]", person.messages.toString());
+		Assert.assertEquals("whisper", mainConsole.messages
+				.get(mainConsole.messages.size() - 1));
+		Assert.assertEquals(7, mainConsole.messages.size());
+		Assert.assertEquals("bob", service.getSourceOfLastTellReceived());
+	}
+
+	@Test
+	public void testUnregisterDuringDispatch() {
+		TestableChatService service = new TestableChatService();
+		String key = ChatService.getRouteKey(ChatType.CHANNEL_TELL, "50");
+		RecordingListener other = new RecordingListener();
+		RecordingListener unregistering = new UnregisteringListener(service);
+		RecordingListener unregisteringAll = new UnregisteringListener(service);
+
+		service.addChatServiceListener(unregistering, new String[] { key });
+		service.addChatServiceListener(other, new String[] { key });
+		service.addChatServiceListener(unregisteringAll, null);
+
+		service.publishChatEvent(channelTell("alice", "50", "first"));
+		service.publishChatEvent(channelTell("alice", "50", "second"));
+
+		Assert.assertEquals("[first]", unregistering.messages.toString());
+		Assert.assertEquals("[first]", unregisteringAll.messages.toString());
+		Assert.assertEquals("[first, second]", other.messages.toString());
+		Assert.assertTrue(service.hasRoute(key));
+
+		service.removeChatServiceListener(other);
+		Assert.assertFalse(service.hasRoute(key));
+	}
+}
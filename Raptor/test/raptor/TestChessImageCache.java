@@ -0,0 +1,58 @@
+/**
+ * New BSD License
+ * http://www.opensource.org/licenses/bsd-license.php
+ * Copyright 2009-2011 RaptorProject (http://code.google.com/p/raptor-chess-interface/)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the RaptorProject nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package raptor;
+
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import raptor.swt.chess.ChessImageCache;
+
+public class TestChessImageCache {
+
+	/**
+	 * The linear scan ChessBoardUtils used before the binary search.
+	 */
+	protected static int linearNearestSize(List<Short> supportedSizes,
+			int size) {
+		if (supportedSizes.contains((short) size)) {
+			return size;
+		}
+		int lastSize = supportedSizes.get(0);
+		for (int currentSize : supportedSizes) {
+			if (currentSize > size) {
+				return lastSize;
+			}
+			lastSize = currentSize;
+		}
+		return lastSize;
+	}
+
+	@Test
+	public void testNearestSize() {
+		List<Short> sizes = Arrays.asList(new Short[] { 20, 24, 30, 36, 45,
+				60, 72, 96 });
+		for (int size = 0; size < 120; size++) {
+			Assert.assertEquals("size " + size, linearNearestSize(sizes, size),
+					ChessImageCache.getNearestSize(sizes, size));
+		}
+		List<Short> single = Arrays.asList(new Short[] { 40 });
+		Assert.assertEquals(40, ChessImageCache.getNearestSize(single, 10));
+		Assert.assertEquals(40, ChessImageCache.getNearestSize(single, 40));
+		Assert.assertEquals(40, ChessImageCache.getNearestSize(single, 100));
+	}
+}
@@ -27,8 +27,10 @@ import org.junit.Test;
 import raptor.chess.Game;
 import raptor.chess.GameConstants;
 import raptor.chess.Move;
+import raptor.chess.MoveBuffer;
 import raptor.chess.Variant;
 import raptor.chess.util.GameUtils;
+import raptor.chess.util.SanUtils;
 
 public class TestClassical implements GameConstants {
 
@@ -85,6 +87,15 @@ public class TestClassical implements GameConstants {
 
 	private static final String[] NOT_CHECKMATE_TESTS = new String[] { "k7/2K5/8/8/8/8/8/7R b - - 0 0" };
 
+	private static final int[] PERFT_DEPTHS = { 3, 2, 3 };
+
+	private static final String[] PERFT_FEN_TESTS = {
+			"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+			"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+			"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1" };
+
+	private static final long[] PERFT_NODES = { 8902L, 2039L, 2812L };
+
 	private static final String[] PROMOTION_TEST = { "k7/7P/2K5/8/8/8/8/8 w - - 0 0|h7-h8=R|a8-a7" };
 
 	private static final String[] PSEUDO_LEGAL_MOVE_TESTS = new String[] {
@@ -311,6 +322,41 @@ public class TestClassical implements GameConstants {
 		game.makeSanMove("Rf7");
 	}
 
+	@Test
+	public void testDisambiguityFromPin() throws Exception {
+		// The f1 knight is pinned by the h1 rook, so Nd2 can only be Nbd2.
+		Game game = createFromFen("4k3/8/8/8/8/8/8/1N2KN1r w - - 0 1",
+				Variant.classic);
+		game.addState(Game.UPDATING_SAN_STATE);
+		Move move = game.makeSanMove("Nd2");
+		assertTrue(move.toString(), move.getFrom() == Square.B1);
+		game.rollback();
+
+		// With the rook gone both knights can move and Nd2 is ambiguous.
+		game = createFromFen("4k3/8/8/8/8/8/8/1N2KN2 w - - 0 1",
+				Variant.classic);
+		game.addState(Game.UPDATING_SAN_STATE);
+		try {
+			game.makeSanMove("Nd2");
+			asserts(false, "Nd2 should be ambiguous\n" + game);
+		} catch (IllegalArgumentException iae) {
+		}
+		String fen = game.toFen();
+		game.makeSanMove("Nfd2");
+		game.rollback();
+		assertTrue(game.toFen(), fen.equals(game.toFen()));
+	}
+
+	@Test
+	public void testEncodedLegalMoveCounts() throws Exception {
+		for (int i = 0; i < PERFT_FEN_TESTS.length; i++) {
+			Game game = createFromFen(PERFT_FEN_TESTS[i], Variant.classic);
+			long nodes = countLeafNodes(game, PERFT_DEPTHS[i]);
+			asserts(nodes == PERFT_NODES[i], "Expected " + PERFT_NODES[i]
+					+ " leaf nodes but was " + nodes + "\n" + game);
+		}
+	}
+
 	@Test
 	public void testEP() throws Exception {
 		for (int i = 0; i < EP_FEN_TESTS.length; i++) {
@@ -522,6 +568,43 @@ public class TestClassical implements GameConstants {
 
 	}
 
+	@Test
+	public void testParseSan() {
+		SanUtils.SanMove san = SanUtils.parseSan("exd8=Q+");
+		asserts(san.getPiece() == PieceType.PAWN && san.isPawnCapture()
+				&& san.getFromFile() == 4 && san.getToSquare() == Square.D8
+				&& san.getPiecePromotedTo() == PieceType.QUEEN, "exd8=Q+");
+		san = SanUtils.parseSan("Nf1xe3#");
+		asserts(san.getPiece() == PieceType.KNIGHT && san.getFromFile() == 5
+				&& san.getFromRank() == 0 && san.getToSquare() == Square.E3,
+				"Nf1xe3#");
+		san = SanUtils.parseSan("exd6e.p.");
+		asserts(san.isPawnCapture() && san.getToSquare() == Square.D6,
+				"exd6e.p.");
+		san = SanUtils.parseSan("ed");
+		asserts(san.isPawnCapture() && san.getToFile() == 3
+				&& san.getToSquare() == Square.EMPTY, "ed");
+		san = SanUtils.parseSan("Bc4");
+		asserts(san.getPiece() == PieceType.BISHOP, "Bc4");
+		asserts(SanUtils.parseSan("O-O-O").isCastleLong(), "O-O-O");
+		asserts(SanUtils.parseSan("Q@h7").isDrop(), "Q@h7");
+
+		String[] invalids = { "", "e9", "Ni3", "O-O-O-O", "e7=Q", "Nf1e3e4",
+				"K@e4", "xx" };
+		for (String invalid : invalids) {
+			asserts(SanUtils.parseSan(invalid) == null, invalid
+					+ " was parsed");
+		}
+
+		Game game = createFromFen("8/1P6/8/8/8/8/6p1/8 w - - 0 1",
+				Variant.suicide);
+		game.makeSanMove("b8=K");
+		game.makeSanMove("g1K");
+		asserts(game.getPiece(Square.B8).type == PieceType.KING
+				&& game.getPiece(Square.G1).type == PieceType.KING, game
+				.toString());
+	}
+
 	@Test
 	public void testPawnCaptures() {
 		Game game = createStartingPosition(Variant.classic);
@@ -663,7 +746,7 @@ public class TestClassical implements GameConstants {
 			// System.out.println("Position hash: " + positionOnlyHash);
 			// System.out.println("Game hash: " + gameHash);
 
-			List<Move> legals = game.getLegalMoves().asList();
+			List<Move> legals = toList(game.getLegalMoves());
 			Move move = legals.get(random.nextInt(legals.size()));
 			game.move(move);
 			game.rollback();
@@ -679,6 +762,44 @@ public class TestClassical implements GameConstants {
 		}
 	}
 
+	@Test
+	public void testSanMatchesPseudoLegalScan() throws Exception {
+		List<String> fens = new ArrayList<String>(Arrays
+				.asList(PERFT_FEN_TESTS));
+		fens.addAll(Arrays.asList(AMBIG_FEN_TESTS));
+		fens.addAll(Arrays.asList(CHECKMATE_FEN_TESTS));
+		for (String fen : fens) {
+			Game game = createFromFen(fen, Variant.classic);
+			game.addState(Game.UPDATING_SAN_STATE);
+			assertSanMatchesPseudoLegalScan(game, 2);
+		}
+	}
+
+	@Test
+	public void testNoLegalMoveInVariants() throws Exception {
+		List<String> fens = new ArrayList<String>(Arrays
+				.asList(PERFT_FEN_TESTS));
+		fens.addAll(Arrays.asList(CHECKMATE_FEN_TESTS));
+		fens.addAll(Arrays.asList(STALEMATE_FEN_TESTS));
+		for (Variant variant : new Variant[] { Variant.classic,
+				Variant.atomic, Variant.losers, Variant.suicide }) {
+			if (variant == Variant.suicide) {
+				// Kings are optional in suicide, so a blocked pawn can leave
+				// a side without a move.
+				fens.add("8/8/8/8/8/1p6/1P6/8 w - - 0 50");
+			}
+			for (String fen : fens) {
+				Game game = createFromFen(fen, variant);
+				boolean isInCheck = game.isInCheck();
+				boolean isLegalsEmpty = game.getLegalMoves().isEmpty();
+				assertTrue(variant + " checkmate mismatch\n" + game, game
+						.isCheckmate() == (isLegalsEmpty && isInCheck));
+				assertTrue(variant + " stalemate mismatch\n" + game, game
+						.isStalemate() == (isLegalsEmpty && !isInCheck));
+			}
+		}
+	}
+
 	// @Test
 	public void testSpeed() throws Exception {
 		int numPositions = 200;
@@ -931,6 +1052,51 @@ public class TestClassical implements GameConstants {
 
 	}
 
+	private long countLeafNodes(Game game, int depth) {
+		MoveBuffer moves = new MoveBuffer();
+		game.generateLegalMoves(moves);
+		if (depth == 1) {
+			return moves.getSize();
+		}
+
+		long result = 0L;
+		for (int i = 0; i < moves.getSize(); i++) {
+			game.forceMove(game.createMove(moves.get(i)));
+			result += countLeafNodes(game, depth - 1);
+			game.rollback();
+		}
+		return result;
+	}
+
+	/**
+	 * Walks the game tree to the specified depth checking the san of every
+	 * legal move against one derived by scanning the pseudo legal moves, and
+	 * the checkmate and stalemate flags against the legal move count.
+	 */
+	private void assertSanMatchesPseudoLegalScan(Game game, int depth) {
+		List<Move> legals = game.getLegalMoves().asList();
+		boolean isInCheck = game.isInCheck();
+		assertTrue("Checkmate mismatch\n" + game,
+				game.isCheckmate() == (legals.isEmpty() && isInCheck));
+		assertTrue("Stalemate mismatch\n" + game,
+				game.isStalemate() == (legals.isEmpty() && !isInCheck));
+
+		List<Move> pseudoLegals = toList(game.getPseudoLegalMoves());
+		for (Move move : legals) {
+			String expected = getSanByPseudoLegalScan(move, pseudoLegals);
+			assertTrue("Expected " + expected + " but was " + move.getSan()
+					+ "\n" + game, expected.equals(move.getSan()));
+		}
+
+		if (depth > 1) {
+			for (Move move : legals) {
+				game.forceMove(move);
+				assertSanMatchesPseudoLegalScan(game, depth - 1);
+				game.rollback();
+			}
+		}
+	}
+
 	private void dumpGame(String message, Game position) {
 		if (DEBUG) {
 			System.out.println(message);
@@ -938,6 +1104,76 @@ public class TestClassical implements GameConstants {
 		}
 	}
 
+	/**
+	 * Builds the san of a non drop move by counting the pseudo legal moves
+	 * which share its piece type and destination.
+	 */
+	private String getSanByPseudoLegalScan(Move move, List<Move> pseudoLegals) {
+		if (move.isCastleShort()) {
+			return "O-O";
+		} else if (move.isCastleLong()) {
+			return "O-O-O";
+		}
+
+		String promotion = move.isPromotion() ? "="
+				+ move.getPiecePromotedTo().ch : "";
+		if (move.getPiece().type == PieceType.PAWN) {
+			if ((move.getMoveCharacteristic() & Move.EN_PASSANT_CHARACTERISTIC) != 0) {
+				return SanUtils.squareToFileSan(move.getFrom()) + "x"
+						+ SanUtils.squareToSan(move.getTo());
+			} else if (!move.isCapture()) {
+				return SanUtils.squareToSan(move.getTo()) + promotion;
+			}
+
+			List<String> captures = new ArrayList<String>();
+			for (Move pseudoLegal : pseudoLegals) {
+				String capture = pseudoLegal.getFrom() + "-" + pseudoLegal.getTo();
+				if (pseudoLegal.getPiece().type == PieceType.PAWN
+						&& pseudoLegal.isCapture()
+						&& (pseudoLegal.getMoveCharacteristic() & Move.EN_PASSANT_CHARACTERISTIC) == 0
+						&& pseudoLegal.getTo().file == move.getTo().file
+						&& !captures.contains(capture)) {
+					captures.add(capture);
+				}
+			}
+			return SanUtils.squareToFileSan(move.getFrom())
+					+ "x"
+					+ (captures.size() > 1 ? SanUtils.squareToSan(move.getTo())
+							: SanUtils.squareToFileSan(move.getTo())) + promotion;
+		}
+
+		int matches = 0;
+		int sameFiles = 0;
+		int sameRanks = 0;
+		if (move.getPiece().type != PieceType.KING) {
+			for (Move pseudoLegal : pseudoLegals) {
+				if (pseudoLegal.getPiece().type == move.getPiece().type
+						&& pseudoLegal.getTo() == move.getTo()) {
+					matches++;
+					if (pseudoLegal.getFrom().file == move.getFrom().file) {
+						sameFiles++;
+					}
+					if (pseudoLegal.getFrom().rank == move.getFrom().rank) {
+						sameRanks++;
+					}
+				}
+			}
+		}
+
+		String result = String.valueOf(move.getPiece().type.ch);
+		if (sameRanks > 1) {
+			result += SanUtils.squareToFileSan(move.getFrom());
+		}
+		if (sameFiles > 1) {
+			result += SanUtils.squareToRankSan(move.getFrom());
+		}
+		if (matches > 1 && sameRanks <= 1 && sameFiles <= 1) {
+			result += SanUtils.squareToFileSan(move.getFrom());
+		}
+		return result + (move.isCapture() ? "x" : "")
+				+ SanUtils.squareToSan(move.getTo());
+	}
+
 	private String getMoves(List<Move> moves) {
 		String result = "";
 		for (Move move : moves) {
@@ -946,4 +1182,12 @@ public class TestClassical implements GameConstants {
 		return result;
 
 	}
+
+	private List<Move> toList(Iterable<Move> moves) {
+		List<Move> result = new ArrayList<Move>();
+		for (Move move : moves) {
+			result.add(move);
+		}
+		return result;
+	}
 }
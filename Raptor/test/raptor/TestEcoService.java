@@ -0,0 +1,159 @@
+/**
+ * New BSD License
+ * http://www.opensource.org/licenses/bsd-license.php
+ * Copyright 2009-2011 RaptorProject (http://code.google.com/p/raptor-chess-interface/)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the RaptorProject nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package raptor;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import raptor.chess.Game;
+import raptor.chess.GameFactory;
+import raptor.chess.Variant;
+import raptor.chess.pgn.PgnHeader;
+import raptor.service.EcoService;
+
+public class TestEcoService {
+
+	/**
+	 * A service using its own cache file, which can tell if the cache is
+	 * current.
+	 */
+	private static class CachedEcoService extends EcoService {
+		public CachedEcoService(File cacheFile) {
+			super(cacheFile);
+		}
+
+		public boolean isCacheCurrent(File cacheFile) {
+			return readCache(new File(Raptor.RESOURCES_DIR + "scidECO.txt"),
+					cacheFile) != null;
+		}
+	}
+
+	@Test
+	public void testCache() throws IOException {
+		File cacheFile = File.createTempFile("eco", ".bin");
+		try {
+			Assert.assertTrue(cacheFile.delete());
+			CachedEcoService parsed = new CachedEcoService(cacheFile);
+			Assert.assertTrue(parsed.isCacheCurrent(cacheFile));
+
+			CachedEcoService cached = new CachedEcoService(cacheFile);
+			Game game = GameFactory.createStartingPosition(Variant.classic);
+			game.addState(Game.UPDATING_SAN_STATE);
+			game.makeSanMove("e4");
+			game.makeSanMove("c5");
+			Assert.assertEquals(parsed.getEco(game), cached.getEco(game));
+			Assert.assertEquals("B20", cached.getEco(game));
+			Assert.assertEquals(parsed.getLongDescription(game), cached
+					.getLongDescription(game));
+
+			// A cache written for another book file is parsed again.
+			FileOutputStream out = new FileOutputStream(cacheFile);
+			out.write(new byte[] { 0x52, 0x45, 0x43, 0x4f, 0, 0, 0, 1, 0, 0 });
+			out.close();
+			Assert.assertFalse(cached.isCacheCurrent(cacheFile));
+			CachedEcoService reparsed = new CachedEcoService(cacheFile);
+			Assert.assertTrue(reparsed.isCacheCurrent(cacheFile));
+			Assert.assertEquals("B20", reparsed.getEco(game));
+		} finally {
+			cacheFile.delete();
+		}
+	}
+
+	@Test
+	public void testBookDepth() {
+		EcoService service = EcoService.getInstance();
+		Game game = GameFactory.createFromFen(
+				"4k3/8/8/8/8/8/8/4K3 w - - 0 1", Variant.classic);
+		Assert.assertFalse(service.isInBookDepth(game));
+
+		game = GameFactory.createStartingPosition(Variant.crazyhouse);
+		Assert.assertFalse(service.isInBookDepth(game));
+
+		// Every piece is still on the board, but no position in the book has
+		// all the pawns moved.
+		game = GameFactory.createFromFen(
+				"rnbqkbnr/8/8/pppppppp/PPPPPPPP/8/8/RNBQKBNR w KQkq - 0 9",
+				Variant.classic);
+		Assert.assertFalse(service.isInBookDepth(game));
+	}
+
+	@Test
+	public void testLookups() {
+		EcoService service = EcoService.getInstance();
+		Game game = GameFactory.createStartingPosition(Variant.classic);
+		game.addState(Game.UPDATING_SAN_STATE);
+		game.addState(Game.UPDATING_ECO_HEADERS_STATE);
+		Assert.assertTrue(service.isInBookDepth(game));
+
+		game.makeSanMove("e4");
+		game.makeSanMove("c5");
+		Assert.assertEquals("B20", service.getEco(game));
+		Assert.assertEquals("B20", game.getHeader(PgnHeader.ECO));
+		Assert.assertEquals("Sicilian Defence", game
+				.getHeader(PgnHeader.Opening));
+
+		game.rollback();
+		game.makeSanMove("e5");
+		game.makeSanMove("Nf3");
+		Assert.assertEquals("C40A", service.getEco(game));
+		Assert.assertEquals("Open Game", service.getLongDescription(game));
+		Assert.assertEquals("C40A", game.getHeader(PgnHeader.ECO));
+
+		// Transpositions are found as well.
+		Game transposed = GameFactory.createStartingPosition(Variant.classic);
+		transposed.addState(Game.UPDATING_SAN_STATE);
+		transposed.makeSanMove("Nf3");
+		transposed.makeSanMove("e5");
+		transposed.makeSanMove("e4");
+		transposed.makeSanMove("Nc6");
+		game.makeSanMove("Nc6");
+		Assert.assertEquals(game.getZobristGameHash(), transposed
+				.getZobristGameHash());
+		Assert.assertEquals("C44A", service.getEco(transposed));
+	}
+
+	@Test
+	public void testTranspositionPastBookMoves() {
+		EcoService service = EcoService.getInstance();
+		Game game = GameFactory.createStartingPosition(Variant.classic);
+		game.addState(Game.UPDATING_SAN_STATE);
+
+		// Both sides shuffle their knights until the move number is past the
+		// end of every book line, then play into the Open Game.
+		for (int i = 0; i < 20; i++) {
+			game.makeSanMove("Nf3");
+			game.makeSanMove("Nf6");
+			game.makeSanMove("Ng1");
+			game.makeSanMove("Ng8");
+		}
+		game.makeSanMove("e4");
+		game.makeSanMove("e5");
+		game.makeSanMove("Nf3");
+		game.makeSanMove("Nc6");
+		Assert.assertTrue(service.isInBookDepth(game));
+		Assert.assertEquals("C44A", service.getEco(game));
+		Assert.assertEquals("Open Game", service.getLongDescription(game));
+
+		game = GameFactory.createFromFen(
+				"r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 2 40",
+				Variant.classic);
+		Assert.assertTrue(service.isInBookDepth(game));
+		Assert.assertEquals("C44A", service.getEco(game));
+	}
+}
@@ -0,0 +1,131 @@
+/**
+ * New BSD License
+ * http://www.opensource.org/licenses/bsd-license.php
+ * Copyright 2009-2011 RaptorProject (http://code.google.com/p/raptor-chess-interface/)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the RaptorProject nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package raptor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import raptor.chess.Game;
+import raptor.chess.GameCursor;
+import raptor.chess.GameFactory;
+import raptor.chess.Move;
+import raptor.chess.MoveBuffer;
+import raptor.chess.Variant;
+
+public class TestGameCursor {
+
+	@Test
+	public void testMasterLineChanges() {
+		Game master = createRandomGame(Variant.classic, 80, 7L);
+		GameCursor cursor = new GameCursor(master,
+				GameCursor.Mode.MakeMovesOnMaster);
+		cursor.setSnapshotInterval(8);
+		cursor.setCursor(70);
+		cursor.setCursor(75);
+
+		// Take back 10 moves and play a different line on the master.
+		for (int i = 0; i < 10; i++) {
+			master.rollback();
+		}
+		playRandomMoves(master, 10, new Random(11L));
+		List<String> fens = getFens(master);
+
+		for (int index : new int[] { 75, 72, 70, 64, 80, 3 }) {
+			cursor.setCursor(index);
+			Assert.assertEquals("Index " + index, fens.get(index), cursor
+					.toFen());
+		}
+	}
+
+	@Test
+	public void testRandomJumps() {
+		for (Variant variant : new Variant[] { Variant.classic,
+				Variant.crazyhouse, Variant.atomic, Variant.suicide }) {
+			Game master = createRandomGame(variant, 150, 3L);
+			List<String> fens = getFens(master);
+			GameCursor cursor = new GameCursor(master,
+					GameCursor.Mode.MakeMovesOnMasterSetCursorToLast);
+
+			Random random = new Random(5L);
+			for (int i = 0; i < 300; i++) {
+				int index = random.nextInt(fens.size());
+				cursor.setCursor(index);
+				Assert.assertEquals(variant + " index " + index, fens
+						.get(index), cursor.toFen());
+			}
+		}
+	}
+
+	@Test
+	public void testStepping() {
+		Game master = createRandomGame(Variant.classic, 120, 1L);
+		List<String> fens = getFens(master);
+		GameCursor cursor = new GameCursor(master,
+				GameCursor.Mode.MakeMovesOnMasterSetCursorToLast);
+
+		while (cursor.hasPrevious()) {
+			cursor.setCursorPrevious();
+		}
+		Assert.assertEquals(fens.get(0), cursor.toFen());
+
+		for (int i = 1; i < fens.size(); i++) {
+			cursor.setCursorNext();
+			Assert.assertEquals("Index " + i, fens.get(i), cursor.toFen());
+		}
+
+		cursor.setCursorMasterLast();
+		Assert.assertSame(master, cursor.getMasterGame());
+		Assert.assertEquals(fens.size() - 1, master.getMoveList().getSize());
+	}
+
+	private Game createRandomGame(Variant variant, int halfMoves, long seed) {
+		Game result = GameFactory.createStartingPosition(variant);
+		result.addState(Game.UPDATING_SAN_STATE);
+		playRandomMoves(result, halfMoves, new Random(seed));
+		return result;
+	}
+
+	/**
+	 * Returns the FEN of every position in the games move list by replaying
+	 * it from the start.
+	 */
+	private List<String> getFens(Game game) {
+		Game replay = GameFactory.createStartingPosition(game.getVariant());
+		replay.addState(Game.UPDATING_SAN_STATE);
+		List<String> result = new ArrayList<String>();
+		result.add(replay.toFen());
+		for (int i = 0; i < game.getMoveList().getSize(); i++) {
+			replay.makeLanMove(game.getMoveList().get(i).getLan());
+			result.add(replay.toFen());
+		}
+		return result;
+	}
+
+	private void playRandomMoves(Game game, int halfMoves, Random random) {
+		MoveBuffer moves = new MoveBuffer();
+		for (int i = 0; i < halfMoves; i++) {
+			if (game.generateLegalMoves(moves) == 0) {
+				break;
+			}
+			Move move = game.createMove(moves.get(random.nextInt(moves
+					.getSize())));
+			game.forceMove(move);
+		}
+	}
+}
@@ -0,0 +1,218 @@
+/**
+ * New BSD License
+ * http://www.opensource.org/licenses/bsd-license.php
+ * Copyright 2009-2011 RaptorProject (http://code.google.com/p/raptor-chess-interface/)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the RaptorProject nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package raptor;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import raptor.chess.EncodedMove;
+import raptor.chess.Game;
+import raptor.chess.GameFactory;
+import raptor.chess.Variant;
+import raptor.chess.Move;
+import raptor.chess.Result;
+import raptor.chess.pgn.GameDatabase;
+import raptor.chess.pgn.ListMaintainingPgnParserListener;
+import raptor.chess.pgn.Nag;
+import raptor.chess.pgn.PgnHeader;
+import raptor.chess.pgn.SimplePgnParser;
+import raptor.chess.pgn.StreamingPgnParser;
+
+public class TestGameDatabase {
+
+	@Test
+	public void testAnnotations() throws Exception {
+		String annotated = "[Event \"Annotated\"]\n[White \"a\"]\n[Black \"b\"]\n"
+				+ "[Result \"1-0\"]\n\n"
+				+ "1. e4 {Best by test} e5 2. Nf3 $1 Nc6 3. Bb5 {The Spanish} a6 1-0";
+		String plain = "[Event \"Plain\"]\n[White \"a\"]\n[Black \"b\"]\n"
+				+ "[Result \"0-1\"]\n\n1. f3 e5 2. g4 Qh4# 0-1";
+		ListMaintainingPgnParserListener listener = new ListMaintainingPgnParserListener();
+		SimplePgnParser parser = new SimplePgnParser(annotated + "\n\n"
+				+ plain);
+		parser.addPgnParserListener(listener);
+		parser.parse();
+		List<Game> games = listener.getGames();
+		Assert.assertEquals(2, games.size());
+
+		File file = File.createTempFile("raptor", ".rgdb");
+		try {
+			write(file, games, Integer.MAX_VALUE);
+			GameDatabase database = GameDatabase.open(file);
+			try {
+				Game game = database.loadGame(0);
+				Move e4 = game.getMoveList().get(0);
+				Assert.assertEquals(1, e4.getComments().length);
+				Assert.assertEquals("Best by test", e4.getComments()[0]
+						.getText());
+				Assert.assertEquals(Nag.get("$1"), game.getMoveList().get(2)
+						.getNags()[0]);
+				Assert.assertEquals("The Spanish", game.getMoveList().get(4)
+						.getComments()[0].getText());
+				Assert.assertEquals(games.get(0).toPgn(), database.getPgn(0));
+				Assert.assertEquals("Annotated", database.getHeader(0,
+						PgnHeader.Event));
+
+				// Games without annotations are replayed from their moves.
+				game = database.loadGame(1);
+				Assert.assertEquals(4, game.getMoveList().getSize());
+				Assert.assertEquals(0, game.getMoveList().get(0)
+						.getAnnotations().length);
+				Assert.assertEquals(games.get(1).toFen(), game.toFen());
+				Assert.assertTrue(database.getPgn(1).endsWith("Qh4# 0-1"));
+			} finally {
+				database.close();
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testPositionIndex() throws Exception {
+		List<Game> games = parse("test/pgn/crazyhouseGames.pgn");
+		File memoryFile = File.createTempFile("raptor", ".rgdb");
+		File spilledFile = File.createTempFile("raptor", ".rgdb");
+		try {
+			write(memoryFile, games, Integer.MAX_VALUE);
+			write(spilledFile, games, 1000);
+			GameDatabase inMemory = GameDatabase.open(memoryFile);
+			GameDatabase spilled = GameDatabase.open(spilledFile);
+			try {
+				Game start = GameFactory
+						.createStartingPosition(Variant.crazyhouse);
+				Assert.assertEquals(games.size(),
+						inMemory.findGames(start).length);
+
+				Game game = games.get(10);
+				Game position = GameFactory
+						.createStartingPosition(Variant.crazyhouse);
+				for (int i = 0; i < 6; i++) {
+					position.forceMove(position.createMove(EncodedMove.encode(game.getMoveList().get(i))));
+				}
+				int[] found = inMemory.findGames(position);
+				Assert.assertTrue(Arrays.binarySearch(found, 10) >= 0);
+				for (int index : found) {
+					Game candidate = inMemory.loadGame(index);
+					boolean isReached = false;
+					Game replay = GameFactory
+							.createStartingPosition(Variant.crazyhouse);
+					isReached |= replay.getZobristPositionHash() == position
+							.getZobristPositionHash();
+					for (int i = 0; i < candidate.getMoveList().getSize(); i++) {
+						replay.forceMove(replay.createMove(EncodedMove.encode(candidate.getMoveList().get(i))));
+						isReached |= replay.getZobristPositionHash() == position
+								.getZobristPositionHash();
+					}
+					Assert.assertTrue(isReached);
+				}
+
+				for (int i = 0; i < games.size(); i += 7) {
+					Game target = inMemory.loadGame(i);
+					Assert.assertTrue(Arrays.equals(inMemory
+							.findGames(target), spilled.findGames(target)));
+				}
+				Assert.assertEquals(0, inMemory.findGames(12345L).length);
+			} finally {
+				inMemory.close();
+				spilled.close();
+			}
+		} finally {
+			memoryFile.delete();
+			spilledFile.delete();
+		}
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		String[] files = { "test/pgn/atomic.pgn",
+				"test/pgn/crazyhouseGames.pgn", "test/pgn/wildFrGames.pgn",
+				"test/pgn/suicidegames.pgn" };
+		for (String fileName : files) {
+			List<Game> games = parse(fileName);
+			File databaseFile = File.createTempFile("raptor", ".rgdb");
+			try {
+				File pgnFile = new File(fileName);
+				Assert.assertEquals(fileName, games.size(), GameDatabase.write(
+						databaseFile, pgnFile, new StreamingPgnParser(pgnFile)));
+				Assert.assertTrue(GameDatabase.isUpToDate(pgnFile,
+						databaseFile));
+
+				GameDatabase database = GameDatabase.open(databaseFile);
+				try {
+					Assert.assertEquals(games.size(), database.getGameCount());
+					int[] resultCounts = new int[Result.values().length];
+					for (int i = 0; i < games.size(); i++) {
+						Game expected = games.get(i);
+						resultCounts[expected.getResult().ordinal()]++;
+						Game actual = database.loadGame(i);
+						String message = fileName + " " + i;
+						Assert.assertEquals(message, expected.toFen(), actual
+								.toFen());
+						Assert.assertEquals(message, expected.getMoveList()
+								.getSize(), actual.getMoveList().getSize());
+						Assert.assertEquals(message, expected.getResult(),
+								database.getResult(i));
+						Assert.assertEquals(message, expected.getVariant(),
+								database.getVariant(i));
+						for (PgnHeader header : expected.getAllHeaders()) {
+							Assert.assertEquals(message, expected
+									.getHeader(header), database.getHeader(i,
+									header));
+						}
+						for (int j = 0; j < actual.getMoveList().getSize(); j++) {
+							Assert.assertEquals(message, EncodedMove
+									.encode(expected.getMoveList().get(j)),
+									EncodedMove.encode(actual.getMoveList()
+											.get(j)));
+						}
+					}
+					for (Result result : Result.values()) {
+						Assert.assertEquals(fileName + " " + result,
+								resultCounts[result.ordinal()], database
+										.getResultCount(result));
+					}
+				} finally {
+					database.close();
+				}
+			} finally {
+				databaseFile.delete();
+			}
+		}
+	}
+
+	private List<Game> parse(String fileName) throws Exception {
+		ListMaintainingPgnParserListener listener = new ListMaintainingPgnParserListener();
+		StreamingPgnParser parser = new StreamingPgnParser(new File(fileName));
+		parser.addPgnParserListener(listener);
+		parser.parse();
+		return listener.getGames();
+	}
+
+	private void write(File file, List<Game> games, int maxPositionsInMemory)
+			throws Exception {
+		GameDatabase.DatabaseWriter writer = new GameDatabase.DatabaseWriter(
+				file, null);
+		writer.setMaxPositionsInMemory(maxPositionsInMemory);
+		for (Game game : games) {
+			Assert.assertTrue(writer.add(game));
+		}
+		writer.finish();
+	}
+}
@@ -0,0 +1,266 @@
+/**
+ * New BSD License
+ * http://www.opensource.org/licenses/bsd-license.php
+ * Copyright 2009-2011 RaptorProject (http://code.google.com/p/raptor-chess-interface/)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the RaptorProject nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package raptor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import raptor.chess.AtomicMove;
+import raptor.chess.Game;
+import raptor.chess.GameFactory;
+import raptor.chess.Move;
+import raptor.chess.MoveBuffer;
+import raptor.chess.MoveList;
+import raptor.chess.Variant;
+import raptor.chess.pgn.Comment;
+
+public class TestMoveList {
+
+	@Test
+	public void testAnnotationsAndSan() {
+		Game game = GameFactory.createStartingPosition(Variant.classic);
+		game.addState(Game.UPDATING_SAN_STATE);
+
+		Move e4 = game.makeSanMove("e4");
+		e4.addAnnotation(new Comment("made"));
+		game.getLastMove().addAnnotation(new Comment("viewed"));
+		Assert.assertEquals(2, e4.getComments().length);
+		Assert.assertEquals(2, game.getMoveList().get(0).getComments().length);
+
+		game.getMoveList().setSan(0, "e2e4");
+		Assert.assertEquals("e2e4", e4.getSan());
+
+		// A removed move keeps its san and annotations, the list doesn't.
+		Move removed = game.getMoveList().get(0);
+		game.rollback();
+		Assert.assertEquals("e2e4", removed.getSan());
+		Assert.assertEquals(2, removed.getComments().length);
+		Assert.assertEquals(2, e4.getComments().length);
+
+		game.makeSanMove("d4");
+		Assert.assertEquals("d4", game.getMoveList().get(0).getSan());
+		Assert.assertEquals(0, game.getMoveList().get(0).getComments().length);
+	}
+
+	@Test
+	public void testViewsAreNotCached() {
+		Game game = createRandomGame(Variant.classic, 20, 3L);
+		MoveList moves = game.getMoveList();
+		Move view = moves.get(4);
+		Assert.assertNotSame(view, moves.get(4));
+
+		// Every view of an entry reads and writes the same san.
+		view.setSan("changed");
+		Assert.assertEquals("changed", moves.get(4).getSan());
+		moves.get(4).addAnnotation(new Comment("comment"));
+		Assert.assertEquals(1, view.getComments().length);
+	}
+
+	@Test
+	public void testCopyAndPrepend() {
+		Game game = createRandomGame(Variant.crazyhouse, 120, 5L);
+		MoveList moves = game.getMoveList();
+		MoveList copy = moves.deepCopy();
+		Assert.assertEquals(moves.getSize(), copy.getSize());
+		for (int i = 0; i < moves.getSize(); i++) {
+			Assert.assertEquals(moves.getMoveId(i), copy.getMoveId(i));
+			Assert.assertEquals(moves.get(i).toString(), copy.get(i)
+					.toString());
+		}
+
+		Move[] first = new Move[40];
+		for (int i = 0; i < first.length; i++) {
+			first[i] = moves.get(i);
+		}
+		Move view = moves.get(100);
+		List<String> expected = new ArrayList<String>();
+		for (Move move : moves.asArray()) {
+			expected.add(move.toString());
+		}
+
+		MoveList prepended = new MoveList(4);
+		for (int i = first.length; i < moves.getSize(); i++) {
+			prepended.append(moves.get(i));
+		}
+		Move prependedView = prepended.get(60);
+		prepended.prepend(first);
+
+		Assert.assertEquals(expected.size(), prepended.getSize());
+		for (int i = 0; i < expected.size(); i++) {
+			Assert.assertEquals(expected.get(i), prepended.get(i).toString());
+			Assert.assertEquals(moves.getMoveId(i), prepended.getMoveId(i));
+		}
+		Assert.assertEquals(prependedView.toString(), prepended.get(100)
+				.toString());
+		Assert.assertEquals(view.toString(), prependedView.toString());
+	}
+
+	@Test
+	public void testCopyDoesNotShareMoves() {
+		Game game = createRandomGame(Variant.atomic, 200, 23L);
+		MoveList moves = game.getMoveList();
+		moves.get(2).addAnnotation(new Comment("original"));
+		MoveList copy = moves.deepCopy();
+
+		copy.get(2).addAnnotation(new Comment("copy"));
+		copy.get(4).addAnnotation(new Comment("copy"));
+		Assert.assertEquals(1, moves.get(2).getComments().length);
+		Assert.assertEquals(0, moves.get(4).getComments().length);
+		Assert.assertEquals(2, copy.get(2).getComments().length);
+
+		boolean hasAtomicMove = false;
+		for (int i = 0; i < moves.getSize(); i++) {
+			if (moves.get(i) instanceof AtomicMove) {
+				Move original = moves.get(i);
+				Move copied = copy.get(i);
+				Assert.assertNotSame(original, copied);
+				assertSameMove("atomic " + i, original, copied);
+				copied.setSan("copy");
+				copied.addAnnotation(new Comment("copy"));
+				Assert.assertFalse("copy".equals(original.getSan()));
+				Assert.assertEquals(0, original.getComments().length);
+				hasAtomicMove = true;
+			}
+		}
+		Assert.assertTrue(hasAtomicMove);
+	}
+
+	@Test
+	public void testPackedMoves() {
+		for (Variant variant : new Variant[] { Variant.classic,
+				Variant.crazyhouse, Variant.suicide, Variant.losers }) {
+			Game game = GameFactory.createStartingPosition(variant);
+			game.addState(Game.UPDATING_SAN_STATE);
+			List<Move> made = playRandomMoves(game, 200, new Random(17L));
+
+			MoveList moves = game.getMoveList();
+			Assert.assertEquals(made.size(), moves.getSize());
+			for (int i = 0; i < made.size(); i++) {
+				assertSameMove(variant + " " + i, made.get(i), moves.get(i));
+			}
+		}
+	}
+
+	@Test
+	public void testSetDoesNotShareMoves() {
+		Game master = createRandomGame(Variant.classic, 40, 11L);
+		MoveList masterMoves = master.getMoveList();
+		MoveList other = new MoveList(4);
+		for (int i = 0; i < masterMoves.getSize(); i++) {
+			other.append(masterMoves.get(i));
+		}
+
+		// A view of the master stays attached to the master.
+		Move masterView = masterMoves.get(3);
+		other.append(masterView);
+		masterView.setSan("master");
+		Assert.assertEquals("master", masterMoves.getSan(3));
+		Assert.assertFalse("master".equals(other.getSan(other.getSize() - 1)));
+
+		other.get(5).setSan("other");
+		Assert.assertFalse("other".equals(masterMoves.getSan(5)));
+		Assert.assertEquals(masterMoves.getMoveId(5), other.getMoveId(5));
+
+		// Moves kept as objects are copied.
+		Game atomic = createRandomGame(Variant.atomic, 200, 23L);
+		MoveList atomicMoves = atomic.getMoveList();
+		MoveList atomicCopy = new MoveList(4);
+		boolean hasAtomicMove = false;
+		for (int i = 0; i < atomicMoves.getSize(); i++) {
+			atomicCopy.append(atomicMoves.get(i));
+			if (atomicMoves.get(i) instanceof AtomicMove) {
+				AtomicMove expected = (AtomicMove) atomicMoves.get(i);
+				AtomicMove actual = (AtomicMove) atomicCopy.get(i);
+				Assert.assertNotSame(expected, actual);
+				Assert.assertEquals(expected.getAtomicExplosionInfo(), actual
+						.getAtomicExplosionInfo());
+				assertSameMove("atomic " + i, expected, actual);
+				hasAtomicMove = true;
+			}
+		}
+		Assert.assertTrue(hasAtomicMove);
+	}
+
+	@Test
+	public void testUnpackedMoves() {
+		Game game = GameFactory.createStartingPosition(Variant.atomic);
+		game.addState(Game.UPDATING_SAN_STATE);
+		List<Move> made = playRandomMoves(game, 200, new Random(23L));
+
+		boolean hasAtomicMove = false;
+		for (int i = 0; i < made.size(); i++) {
+			if (made.get(i) instanceof AtomicMove) {
+				Assert.assertSame(made.get(i), game.getMoveList().get(i));
+				hasAtomicMove = true;
+			} else {
+				assertSameMove("atomic " + i, made.get(i), game.getMoveList()
+						.get(i));
+			}
+		}
+		Assert.assertTrue(hasAtomicMove);
+	}
+
+	private void assertSameMove(String message, Move expected, Move actual) {
+		Assert.assertEquals(message, expected.getFrom(), actual.getFrom());
+		Assert.assertEquals(message, expected.getTo(), actual.getTo());
+		Assert.assertEquals(message, expected.getPiece(), actual.getPiece());
+		Assert.assertEquals(message, expected.getColor(), actual.getColor());
+		Assert.assertEquals(message, expected.getCapture(), actual
+				.getCapture());
+		Assert.assertEquals(message, expected.getPiecePromotedTo(), actual
+				.getPiecePromotedTo());
+		Assert.assertEquals(message, expected.getEpSquare(), actual
+				.getEpSquare());
+		Assert.assertEquals(message, expected.getMoveCharacteristic(), actual
+				.getMoveCharacteristic());
+		Assert.assertEquals(message, expected.getLastWhiteCastlingState(),
+				actual.getLastWhiteCastlingState());
+		Assert.assertEquals(message, expected.getLastBlackCastlingState(),
+				actual.getLastBlackCastlingState());
+		Assert.assertEquals(message, expected.getPrevious50MoveCount(), actual
+				.getPrevious50MoveCount());
+		Assert.assertEquals(message, expected.getHalfMoveCount(), actual
+				.getHalfMoveCount());
+		Assert.assertEquals(message, expected.getFullMoveCount(), actual
+				.getFullMoveCount());
+		Assert.assertEquals(message, expected.getSan(), actual.getSan());
+	}
+
+	private Game createRandomGame(Variant variant, int halfMoves, long seed) {
+		Game result = GameFactory.createStartingPosition(variant);
+		result.addState(Game.UPDATING_SAN_STATE);
+		playRandomMoves(result, halfMoves, new Random(seed));
+		return result;
+	}
+
+	private List<Move> playRandomMoves(Game game, int halfMoves, Random random) {
+		List<Move> result = new ArrayList<Move>();
+		MoveBuffer moves = new MoveBuffer();
+		for (int i = 0; i < halfMoves; i++) {
+			if (game.generateLegalMoves(moves) == 0) {
+				break;
+			}
+			Move move = game.createMove(moves.get(random.nextInt(moves
+					.getSize())));
+			game.forceMove(move);
+			result.add(move);
+		}
+		return result;
+	}
+}
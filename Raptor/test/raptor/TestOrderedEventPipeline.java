@@ -0,0 +1,187 @@
+/**
+ * New BSD License
+ * http://www.opensource.org/licenses/bsd-license.php
+ * Copyright 2009-2011 RaptorProject (http://code.google.com/p/raptor-chess-interface/)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the RaptorProject nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package raptor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import raptor.util.OrderedEventPipeline;
+
+public class TestOrderedEventPipeline {
+
+	/**
+	 * Records events and batch sizes and fails if two batches overlap.
+	 */
+	public static class RecordingHandler implements
+			OrderedEventPipeline.BatchHandler<Integer> {
+		List<Integer> batchSizes = new ArrayList<Integer>();
+		List<Integer> events = new ArrayList<Integer>();
+		boolean isHandling;
+		boolean wasConcurrent;
+
+		public synchronized void handleBatch(List<Integer> batch) {
+			if (isHandling) {
+				wasConcurrent = true;
+			}
+			isHandling = true;
+			batchSizes.add(batch.size());
+			events.addAll(batch);
+			isHandling = false;
+		}
+	}
+
+	/**
+	 * Events queued before the consumer runs are drained in batches no larger
+	 * than the maximum batch size, in order.
+	 */
+	@Test
+	public void testBatching() {
+		final List<Runnable> submitted = new ArrayList<Runnable>();
+		RecordingHandler handler = new RecordingHandler();
+		OrderedEventPipeline<Integer> pipeline = new OrderedEventPipeline<Integer>(
+				"test", new Executor() {
+					public void execute(Runnable runnable) {
+						submitted.add(runnable);
+					}
+				}, handler);
+		pipeline.setMaxBatchSize(100);
+
+		for (int i = 0; i < 250; i++) {
+			pipeline.add(i);
+		}
+		pipeline.addAll(Arrays.asList(250, 251));
+
+		Assert.assertEquals(1, submitted.size());
+		Assert.assertEquals(252, pipeline.getQueueDepth());
+		Assert.assertEquals(252, pipeline.getMaxQueueDepth());
+
+		submitted.get(0).run();
+
+		Assert.assertEquals(Arrays.asList(100, 100, 52), handler.batchSizes);
+		for (int i = 0; i < 252; i++) {
+			Assert.assertEquals(i, handler.events.get(i).intValue());
+		}
+		Assert.assertEquals(0, pipeline.getQueueDepth());
+		Assert.assertEquals(252, pipeline.getEventsProcessed());
+		Assert.assertEquals(3, pipeline.getBatchesProcessed());
+		Assert.assertEquals(100, pipeline.getLargestBatch());
+
+		pipeline.add(252);
+		Assert.assertEquals(2, submitted.size());
+		pipeline.dispose();
+		submitted.get(1).run();
+		Assert.assertEquals(252, handler.events.size());
+	}
+
+	/**
+	 * A rejected drain leaves the events queued and does not stop later adds
+	 * from scheduling a new drain.
+	 */
+	@Test
+	public void testRejectingExecutor() {
+		final List<Runnable> submitted = new ArrayList<Runnable>();
+		final boolean[] isRejecting = { true };
+		RecordingHandler handler = new RecordingHandler();
+		OrderedEventPipeline<Integer> pipeline = new OrderedEventPipeline<Integer>(
+				"test", new Executor() {
+					public void execute(Runnable runnable) {
+						if (isRejecting[0]) {
+							throw new RejectedExecutionException();
+						}
+						submitted.add(runnable);
+					}
+				}, handler);
+
+		pipeline.add(0);
+		pipeline.add(1);
+		Assert.assertEquals(0, submitted.size());
+		Assert.assertEquals(2, pipeline.getQueueDepth());
+
+		isRejecting[0] = false;
+		pipeline.add(2);
+		Assert.assertEquals(1, submitted.size());
+		submitted.get(0).run();
+		Assert.assertEquals(Arrays.asList(0, 1, 2), handler.events);
+		Assert.assertEquals(0, pipeline.getQueueDepth());
+
+		pipeline.add(3);
+		Assert.assertEquals(2, submitted.size());
+	}
+
+	/**
+	 * Several producers adding concurrently on a multi threaded executor: every
+	 * event is handled once, batches never overlap, and each producer's events
+	 * keep their order.
+	 */
+	@Test
+	public void testOrderWithConcurrentProducers() throws Exception {
+		final int producers = 4;
+		final int eventsPerProducer = 20000;
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			RecordingHandler handler = new RecordingHandler();
+			final OrderedEventPipeline<Integer> pipeline = new OrderedEventPipeline<Integer>(
+					"test", executor, handler);
+			final CountDownLatch done = new CountDownLatch(producers);
+			for (int p = 0; p < producers; p++) {
+				final int producer = p;
+				new Thread() {
+					@Override
+					public void run() {
+						for (int i = 0; i < eventsPerProducer; i++) {
+							pipeline.add(producer * eventsPerProducer + i);
+						}
+						done.countDown();
+					}
+				}.start();
+			}
+			Assert.assertTrue(done.await(30, TimeUnit.SECONDS));
+
+			long start = System.currentTimeMillis();
+			while (pipeline.getEventsProcessed() < producers
+					* eventsPerProducer
+					&& System.currentTimeMillis() - start < 30000) {
+				Thread.sleep(10);
+			}
+
+			synchronized (handler) {
+				Assert.assertFalse(handler.wasConcurrent);
+				Assert.assertEquals(producers * eventsPerProducer,
+						handler.events.size());
+				int[] last = new int[producers];
+				Arrays.fill(last, -1);
+				for (int event : handler.events) {
+					int producer = event / eventsPerProducer;
+					int index = event % eventsPerProducer;
+					Assert.assertEquals(last[producer] + 1, index);
+					last[producer] = index;
+				}
+			}
+			Assert.assertEquals(0, pipeline.getQueueDepth());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
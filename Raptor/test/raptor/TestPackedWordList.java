@@ -0,0 +1,108 @@
+/**
+ * New BSD License
+ * http://www.opensource.org/licenses/bsd-license.php
+ * Copyright 2009-2011 RaptorProject (http://code.google.com/p/raptor-chess-interface/)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the RaptorProject nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package raptor;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import raptor.util.PackedWordList;
+
+public class TestPackedWordList {
+
+	protected static PackedWordList create(String text) throws Exception {
+		return new PackedWordList(text.getBytes("ISO-8859-1"));
+	}
+
+	@Test
+	public void testContains() throws Exception {
+		PackedWordList words = create("a\naardvark\r\n\nab\nabc\nb\n");
+		Assert.assertEquals(5, words.size());
+		Assert.assertTrue(words.contains("a"));
+		Assert.assertTrue(words.contains("aardvark"));
+		Assert.assertTrue(words.contains("abc"));
+		Assert.assertTrue(words.contains("b"));
+		Assert.assertFalse(words.contains(""));
+		Assert.assertFalse(words.contains("aa"));
+		Assert.assertFalse(words.contains("abcd"));
+		Assert.assertFalse(words.contains("c"));
+		Assert.assertFalse(words.contains("\u4e2d"));
+		Assert.assertEquals("aardvark", words.get(1));
+
+		Assert.assertEquals(0, create("").size());
+		Assert.assertFalse(create("").contains("a"));
+	}
+
+	@Test
+	public void testPrefixes() throws Exception {
+		PackedWordList words = create("a\naardvark\nab\nabc\nb");
+		Assert.assertEquals("[a, aardvark, ab, abc]", toString(words
+				.getWordsThatStartWith("a")));
+		Assert.assertEquals("[ab, abc]", toString(words
+				.getWordsThatStartWith("ab")));
+		Assert.assertEquals("[b]", toString(words.getWordsThatStartWith("b")));
+		Assert.assertEquals("[]", toString(words.getWordsThatStartWith("abcd")));
+		Assert.assertEquals("[]", toString(words.getWordsThatStartWith("c")));
+		Assert.assertEquals(5, words.getWordsThatStartWith("").length);
+	}
+
+	/**
+	 * Every word in the shipped dictionary is found, and prefix queries return
+	 * the same words as a sorted set.
+	 */
+	@Test
+	public void testSystemDictionary() throws Exception {
+		File file = new File("resources/words.txt");
+		PackedWordList words = PackedWordList.load(file);
+		TreeSet<String> expected = new TreeSet<String>();
+		BufferedReader reader = new BufferedReader(new FileReader(file));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.length() > 0) {
+					expected.add(line);
+				}
+			}
+		} finally {
+			reader.close();
+		}
+
+		Assert.assertEquals(expected.size(), words.size());
+		for (String word : expected) {
+			Assert.assertTrue(word, words.contains(word));
+			Assert.assertFalse(word, words.contains(word + "qx"));
+		}
+		for (String prefix : new String[] { "chess", "kni", "zz", "q", "xyzzy" }) {
+			List<String> prefixed = new ArrayList<String>(expected.subSet(
+					prefix, prefix + Character.MAX_VALUE));
+			Assert.assertEquals(prefixed.toString(), toString(words
+					.getWordsThatStartWith(prefix)));
+		}
+	}
+
+	protected String toString(String[] words) {
+		StringBuilder result = new StringBuilder("[");
+		for (int i = 0; i < words.length; i++) {
+			result.append(i == 0 ? "" : ", ").append(words[i]);
+		}
+		return result.append("]").toString();
+	}
+}
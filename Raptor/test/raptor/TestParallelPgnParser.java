@@ -0,0 +1,159 @@
+/**
+ * New BSD License
+ * http://www.opensource.org/licenses/bsd-license.php
+ * Copyright 2009-2011 RaptorProject (http://code.google.com/p/raptor-chess-interface/)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the RaptorProject nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package raptor;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import raptor.chess.Result;
+import raptor.chess.pgn.ListMaintainingPgnParserListener;
+import raptor.chess.pgn.Nag;
+import raptor.chess.pgn.ParallelPgnParser;
+import raptor.chess.pgn.PgnParser;
+import raptor.chess.pgn.PgnParserError;
+import raptor.chess.pgn.PgnParserListener;
+import raptor.chess.pgn.StreamingPgnParser;
+
+public class TestParallelPgnParser {
+
+	/**
+	 * Records every event with its line number.
+	 */
+	public static class RecordingPgnParserListener implements
+			PgnParserListener {
+		List<String> events = new ArrayList<String>();
+
+		public void onAnnotation(PgnParser parser, String annotation) {
+			events.add(parser.getLineNumber() + " annotation " + annotation);
+		}
+
+		public void onGameEnd(PgnParser parser, Result result) {
+			events.add(parser.getLineNumber() + " end " + result);
+		}
+
+		public void onGameStart(PgnParser parser) {
+			events.add(parser.getLineNumber() + " start");
+		}
+
+		public void onHeader(PgnParser parser, String headerName,
+				String headerValue) {
+			events.add(parser.getLineNumber() + " header " + headerName + "="
+					+ headerValue);
+		}
+
+		public void onMoveNag(PgnParser parser, Nag nag) {
+			events.add(parser.getLineNumber() + " nag " + nag);
+		}
+
+		public void onMoveNumber(PgnParser parser, int moveNumber) {
+			events.add(parser.getLineNumber() + " number " + moveNumber);
+		}
+
+		public void onMoveSublineEnd(PgnParser parser) {
+			events.add(parser.getLineNumber() + " sublineEnd");
+		}
+
+		public void onMoveSublineStart(PgnParser parser) {
+			events.add(parser.getLineNumber() + " sublineStart");
+		}
+
+		public void onMoveWord(PgnParser parser, String word) {
+			events.add(parser.getLineNumber() + " word " + word);
+		}
+
+		public void onUnknown(PgnParser parser, String unknown) {
+			events.add(parser.getLineNumber() + " unknown " + unknown);
+		}
+	}
+
+	@Test
+	public void testMatchesStreamingParser() throws Exception {
+		String[] files = { "test/pgn/atomic.pgn",
+				"test/pgn/crazyhouseGames.pgn", "test/pgn/nestedsublines.pgn",
+				"test/pgn/wildFrGames.pgn", "test/pgn/enpassantfr.pgn" };
+		for (String fileName : files) {
+			ListMaintainingPgnParserListener expectedGames = new ListMaintainingPgnParserListener();
+			RecordingPgnParserListener expectedEvents = new RecordingPgnParserListener();
+			StreamingPgnParser streamingParser = new StreamingPgnParser(
+					new File(fileName));
+			streamingParser.addPgnParserListener(expectedGames);
+			streamingParser.addPgnParserListener(expectedEvents);
+			streamingParser.parse();
+
+			ListMaintainingPgnParserListener games = new ListMaintainingPgnParserListener();
+			RecordingPgnParserListener events = new RecordingPgnParserListener();
+			ParallelPgnParser parser = new ParallelPgnParser(
+					new FileInputStream(fileName), 4);
+			parser.setGamesPerChunk(3);
+			parser.addPgnParserListener(games);
+			parser.addPgnParserListener(events);
+			parser.parse();
+
+			Assert.assertEquals(fileName, expectedEvents.events, events.events);
+			Assert.assertEquals(fileName, expectedGames.getGames().size(),
+					games.getGames().size());
+			for (int i = 0; i < games.getGames().size(); i++) {
+				Assert.assertEquals(fileName + " " + i, expectedGames
+						.getGames().get(i).toPgn(), games.getGames().get(i)
+						.toPgn());
+			}
+			assertSameErrors(fileName, expectedGames.getErrors(), games
+					.getErrors());
+		}
+	}
+
+	@Test
+	public void testUnfinishedGameAtChunkBoundary() throws Exception {
+		String pgn = "[Event \"1\"]\n[White \"a\"]\n\n1. e4 e5 2. Nf3\n\n"
+				+ "[Event \"2\"]\n[White \"b\"]\n\n1. d4 d5 1-0\n";
+
+		ListMaintainingPgnParserListener expected = new ListMaintainingPgnParserListener();
+		StreamingPgnParser streamingParser = new StreamingPgnParser(
+				new java.io.ByteArrayInputStream(pgn.getBytes()),
+				Long.MAX_VALUE);
+		streamingParser.addPgnParserListener(expected);
+		streamingParser.parse();
+
+		ListMaintainingPgnParserListener actual = new ListMaintainingPgnParserListener();
+		ParallelPgnParser parser = new ParallelPgnParser(new StringReader(pgn),
+				2);
+		parser.setGamesPerChunk(1);
+		parser.addPgnParserListener(actual);
+		parser.parse();
+
+		Assert.assertEquals(1, actual.getGames().size());
+		Assert.assertEquals("b", actual.getGames().get(0).getHeader(
+				raptor.chess.pgn.PgnHeader.White));
+		assertSameErrors("unfinished", expected.getErrors(), actual
+				.getErrors());
+	}
+
+	private void assertSameErrors(String message,
+			List<PgnParserError> expected, List<PgnParserError> actual) {
+		Assert.assertEquals(message, expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			Assert.assertEquals(message, expected.get(i).getType(), actual
+					.get(i).getType());
+			Assert.assertEquals(message, expected.get(i).getLineNumber(),
+					actual.get(i).getLineNumber());
+		}
+	}
+}
@@ -0,0 +1,136 @@
+/**
+ * New BSD License
+ * http://www.opensource.org/licenses/bsd-license.php
+ * Copyright 2009-2011 RaptorProject (http://code.google.com/p/raptor-chess-interface/)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the RaptorProject nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package raptor;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import raptor.util.LiteralScanner;
+import raptor.util.PatternSet;
+import raptor.util.RegExUtils;
+
+public class TestPatternSet {
+
+	protected static String literal(String regex) {
+		return PatternSet.getRequiredLiteral(RegExUtils.getPattern(regex));
+	}
+
+	@Test
+	public void testRequiredLiteral() {
+		Assert.assertEquals("tells you:", literal(".*tells you:.*"));
+		Assert.assertEquals("abc", literal("abc"));
+		Assert.assertEquals("ab", literal("abc?"));
+		Assert.assertEquals("ab", literal("abc*d"));
+		Assert.assertEquals("ab", literal("ab+cd"));
+		Assert.assertEquals("ab", literal("abc{2}d"));
+		Assert.assertEquals("abcd", literal("x[xy]?abcd(ef)?"));
+		Assert.assertEquals("a.b", literal("a\\.b"));
+		Assert.assertEquals(" shouts", literal("\\w+ shouts\\d{1,3}"));
+		Assert.assertEquals("x", literal("\\x41x"));
+		Assert.assertEquals("zz", literal("[)(|]zz"));
+		Assert.assertNull(literal("abc|def"));
+		Assert.assertNull(literal("(?i)abc"));
+		Assert.assertNull(literal("\\Qabc\\E"));
+		Assert.assertNull(literal(".*"));
+		Assert.assertNull(literal("(abc)"));
+	}
+
+	/**
+	 * The scanner finds the same occurrences as String.indexOf, including
+	 * overlapping ones and literals which are prefixes or suffixes of others.
+	 */
+	@Test
+	public void testScannerMatchesIndexOf() {
+		String[] literals = { "he", "she", "his", "hers", "[next]", "www.",
+				"e", "ss" };
+		LiteralScanner scanner = new LiteralScanner(literals, false);
+		LiteralScanner foldingScanner = new LiteralScanner(literals, true);
+		Random random = new Random(7);
+		String alphabet = "hesirHSE[next]w. ";
+		for (int n = 0; n < 500; n++) {
+			StringBuilder text = new StringBuilder();
+			int length = random.nextInt(40);
+			for (int i = 0; i < length; i++) {
+				text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+			}
+			String string = text.toString();
+			LiteralScanner.Hits hits = scanner.scan(string);
+			BitSet found = foldingScanner.findLiterals(string);
+			for (int literal = 0; literal < literals.length; literal++) {
+				for (int from = 0; from <= string.length(); from++) {
+					Assert.assertEquals(string + " " + literals[literal],
+							string.indexOf(literals[literal], from),
+							hits.indexOf(literal, from));
+				}
+				int[] starts = hits.getStarts(literal);
+				int start = -1;
+				for (int i = 0; i <= starts.length; i++) {
+					start = string.indexOf(literals[literal], start + 1);
+					Assert.assertEquals(string + " " + literals[literal],
+							i < starts.length ? starts[i] : -1, start);
+				}
+				Assert.assertEquals(string.toLowerCase().contains(
+						literals[literal].toLowerCase()), found.get(literal));
+			}
+		}
+	}
+
+	/**
+	 * The set reports exactly the patterns which match on their own.
+	 */
+	@Test
+	public void testMatchesAgreeWithPatterns() {
+		String[] regexes = { ".*tells you:.*", ".*shouts:.*", "abc.*",
+				".*(x|y)z.*", ".*lo+l.*", ".*c[a-z]?t.*", "^\\d+ .*",
+				".*TELLS.*", "(?i).*Hello.*", "[^a]*" };
+		List<Pattern> patterns = new ArrayList<Pattern>();
+		for (String regex : regexes) {
+			patterns.add(RegExUtils.getPattern(regex));
+		}
+		PatternSet set = new PatternSet(patterns);
+
+		String[] words = { "tells", "you:", "shouts:", "abc", "xz", "yz",
+				"lol", "loool", "cat", "ct", "12", "hello", "HeLLo", "a",
+				"Tells", " ", "\n" };
+		Random random = new Random(11);
+		for (int n = 0; n < 2000; n++) {
+			StringBuilder message = new StringBuilder();
+			int count = random.nextInt(6);
+			for (int i = 0; i < count; i++) {
+				message.append(words[random.nextInt(words.length)]);
+				if (random.nextBoolean()) {
+					message.append(' ');
+				}
+			}
+			String string = message.toString();
+			BitSet matches = set.getMatches(string);
+			boolean any = false;
+			for (int i = 0; i < patterns.size(); i++) {
+				boolean expected = patterns.get(i).matcher(string).matches();
+				Assert.assertEquals(regexes[i] + " on " + string, expected,
+						matches.get(i));
+				any |= expected;
+			}
+			Assert.assertEquals(any, set.matchesAny(string));
+		}
+		Assert.assertFalse(PatternSet.EMPTY.matchesAny("anything"));
+	}
+}
@@ -0,0 +1,119 @@
+/**
+ * New BSD License
+ * http://www.opensource.org/licenses/bsd-license.php
+ * Copyright 2009-2011 RaptorProject (http://code.google.com/p/raptor-chess-interface/)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the RaptorProject nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package raptor;
+
+import java.util.Map;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import raptor.chess.Game;
+import raptor.chess.GameFactory;
+import raptor.chess.Variant;
+import raptor.chess.util.Perft;
+
+public class TestPerft {
+
+	private static final String KIWIPETE_FEN = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+	@Test
+	public void testDivideSumsToPerft() {
+		Game game = GameFactory.createFromFen(KIWIPETE_FEN, Variant.classic);
+		Perft perft = new Perft(2, 0);
+		try {
+			Map<String, Long> divide = perft.divide(game, 3);
+			Assert.assertEquals(48, divide.size());
+			Assert.assertEquals(Long.valueOf(1907L), divide.get("e2-a6"));
+
+			long total = 0L;
+			for (long count : divide.values()) {
+				total += count;
+			}
+			Assert.assertEquals(97862L, total);
+		} finally {
+			perft.shutdown();
+		}
+	}
+
+	@Test
+	public void testGameIsNotModified() {
+		Game game = GameFactory.createFromFen(KIWIPETE_FEN, Variant.classic);
+		Perft perft = new Perft(2, 1 << 12);
+		try {
+			perft.perft(game, 3);
+			Assert.assertEquals(KIWIPETE_FEN, game.toFen());
+			Assert.assertEquals(0, game.getMoveList().getSize());
+		} finally {
+			perft.shutdown();
+		}
+	}
+
+	@Test
+	public void testStartingPositions() {
+		assertPerft(Variant.classic, Perft.STARTING_FEN, 4, 197281L);
+		assertPerft(Variant.fischerRandom, Perft.STARTING_FEN, 4, 197281L);
+		assertPerft(Variant.crazyhouse, Perft.STARTING_FEN, 4, 197281L);
+		assertPerft(Variant.bughouse, Perft.STARTING_FEN, 4, 197281L);
+		assertPerft(Variant.atomic, Perft.STARTING_FEN, 4, 197326L);
+		assertPerft(Variant.suicide, Perft.STARTING_FEN, 4, 153299L);
+		assertPerft(Variant.losers, Perft.STARTING_FEN, 4, 152955L);
+	}
+
+	@Test
+	public void testTranspositionTableWithDrops() {
+		Game game = GameFactory.createStartingPosition(Variant.crazyhouse);
+		game.addState(Game.UPDATING_SAN_STATE);
+		for (String san : new String[] { "e4", "d5", "exd5", "Qxd5", "Nc3",
+				"Qxg2", "Bxg2" }) {
+			game.makeSanMove(san);
+		}
+
+		long expected = Perft.perftSingleThreaded(game, 3);
+		Perft perft = new Perft(2, 1 << 16);
+		try {
+			Assert.assertEquals(expected, perft.perft(game, 3));
+		} finally {
+			perft.shutdown();
+		}
+	}
+
+	@Test
+	public void testTricky() {
+		assertPerft(Variant.classic, KIWIPETE_FEN, 3, 97862L);
+		assertPerft(Variant.classic, "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+				4, 43238L);
+		assertPerft(Variant.classic,
+				"r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+				3, 9467L);
+		assertPerft(Variant.classic,
+				"rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8", 3,
+				62379L);
+	}
+
+	private void assertPerft(Variant variant, String fen, int depth,
+			long expected) {
+		Game game = GameFactory.createFromFen(fen, variant);
+		Assert.assertEquals(variant + " " + fen, expected, Perft
+				.perftSingleThreaded(game, depth));
+
+		Perft perft = new Perft(2, 1 << 16);
+		try {
+			Assert.assertEquals(variant + " " + fen, expected, perft.perft(
+					game, depth));
+		} finally {
+			perft.shutdown();
+		}
+	}
+}
@@ -0,0 +1,156 @@
+/**
+ * New BSD License
+ * http://www.opensource.org/licenses/bsd-license.php
+ * Copyright 2009-2011 RaptorProject (http://code.google.com/p/raptor-chess-interface/)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the RaptorProject nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package raptor;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import raptor.chess.Game;
+import raptor.chess.Result;
+import raptor.chess.pgn.ListMaintainingPgnParserListener;
+import raptor.chess.pgn.PgnFileIndex;
+import raptor.chess.pgn.PgnHeader;
+import raptor.chess.pgn.PgnUtils;
+import raptor.chess.pgn.StreamingPgnParser;
+
+public class TestPgnFileIndex {
+
+	@Test
+	public void testIndexMatchesParser() throws Exception {
+		String[] files = { "test/pgn/atomic.pgn",
+				"test/pgn/crazyhouseGames.pgn", "test/pgn/nestedsublines.pgn",
+				"test/pgn/wildFrGames.pgn" };
+		for (String fileName : files) {
+			File pgnFile = new File(fileName);
+			ListMaintainingPgnParserListener listener = new ListMaintainingPgnParserListener();
+			StreamingPgnParser parser = new StreamingPgnParser(pgnFile);
+			parser.addPgnParserListener(listener);
+			parser.parse();
+			List<Game> games = listener.getGames();
+
+			File indexFile = File.createTempFile("raptor", ".idx");
+			try {
+				PgnFileIndex index = PgnFileIndex.open(pgnFile, indexFile,
+						null);
+				try {
+					Assert.assertEquals(fileName, games.size(), index
+							.getGameCount());
+					int[] resultCounts = new int[Result.values().length];
+					for (int i = 0; i < games.size(); i++) {
+						Game game = games.get(i);
+						resultCounts[game.getResult().ordinal()]++;
+						Assert.assertEquals(fileName + " " + i, game
+								.getHeader(PgnHeader.White), index.getHeader(
+								i, PgnHeader.White));
+						Assert.assertEquals(fileName + " " + i, game
+								.getHeader(PgnHeader.Result), index.getHeader(
+								i, PgnHeader.Result));
+
+						Game loaded = index.loadGame(i);
+						Assert.assertEquals(fileName + " " + i, game
+								.getMoveList().getSize(), loaded.getMoveList()
+								.getSize());
+						Assert.assertEquals(fileName + " " + i, game.toFen(),
+								loaded.toFen());
+					}
+					for (Result result : Result.values()) {
+						Assert.assertEquals(fileName + " " + result,
+								resultCounts[result.ordinal()], index
+										.getResultCount(result));
+					}
+				} finally {
+					index.close();
+				}
+			} finally {
+				indexFile.delete();
+			}
+		}
+	}
+
+	@Test
+	public void testIndexReused() throws Exception {
+		File pgnFile = new File("test/pgn/afewgames.pgn");
+		File indexFile = File.createTempFile("raptor", ".idx");
+		try {
+			final int[] notifications = new int[1];
+			PgnFileIndex.IndexingListener listener = new PgnFileIndex.IndexingListener() {
+				public void gamesIndexed(int gameCount, long bytesScanned) {
+					notifications[0]++;
+				}
+			};
+
+			PgnFileIndex index = PgnFileIndex.open(pgnFile, indexFile,
+					listener);
+			int gameCount = index.getGameCount();
+			String text = index.getPgn(gameCount - 1);
+			index.close();
+			long lastModified = indexFile.lastModified();
+
+			index = PgnFileIndex.open(pgnFile, indexFile, listener);
+			Assert.assertEquals(gameCount, index.getGameCount());
+			Assert.assertEquals(text, index.getPgn(gameCount - 1));
+			Assert.assertTrue(text.startsWith("[Event"));
+			Assert.assertEquals(lastModified, indexFile.lastModified());
+			index.close();
+		} finally {
+			indexFile.delete();
+		}
+	}
+
+	@Test
+	public void testWritePgnRoundTrip() throws Exception {
+		File pgnFile = new File("test/pgn/afewgames.pgn");
+		File indexFile = File.createTempFile("raptor", ".idx");
+		File savedFile = File.createTempFile("raptor", ".pgn");
+		File savedIndexFile = File.createTempFile("raptor", ".idx");
+		try {
+			PgnFileIndex index = PgnFileIndex.open(pgnFile, indexFile, null);
+			int gameCount = index.getGameCount();
+			Assert.assertTrue(gameCount > 1);
+			int[] indexes = new int[gameCount];
+			for (int i = 0; i < gameCount; i++) {
+				indexes[i] = gameCount - 1 - i;
+			}
+
+			FileWriter writer = new FileWriter(savedFile);
+			try {
+				PgnUtils.writePgn(writer, index, indexes);
+			} finally {
+				writer.close();
+			}
+
+			PgnFileIndex saved = PgnFileIndex.open(savedFile, savedIndexFile,
+					null);
+			try {
+				Assert.assertEquals(gameCount, saved.getGameCount());
+				for (int i = 0; i < gameCount; i++) {
+					Assert.assertEquals(index.getPgn(indexes[i]).trim(), saved
+							.getPgn(i).trim());
+				}
+			} finally {
+				saved.close();
+				index.close();
+			}
+		} finally {
+			indexFile.delete();
+			savedFile.delete();
+			savedIndexFile.delete();
+		}
+	}
+}
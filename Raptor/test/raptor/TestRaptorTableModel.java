@@ -0,0 +1,153 @@
+/**
+ * New BSD License
+ * http://www.opensource.org/licenses/bsd-license.php
+ * Copyright 2009-2011 RaptorProject (http://code.google.com/p/raptor-chess-interface/)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the RaptorProject nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package raptor;
+
+import java.util.BitSet;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import raptor.swt.RaptorTableModel;
+import raptor.util.IntegerComparator;
+import raptor.util.RatingComparator;
+
+public class TestRaptorTableModel {
+
+	protected static String ids(RaptorTableModel model) {
+		StringBuilder result = new StringBuilder();
+		for (int i = 0; i < model.getRowCount(); i++) {
+			result.append(i == 0 ? "" : " ").append(model.getRow(i)[0]);
+		}
+		return result.toString();
+	}
+
+	@Test
+	public void testSortKeysAgreeWithComparators() {
+		String[] values = { "1500", "----", "++++", "1234E", "2100P", "x", "",
+				"15", "999" };
+		IntegerComparator integerComparator = new IntegerComparator();
+		RatingComparator ratingComparator = new RatingComparator();
+		for (String value1 : values) {
+			for (String value2 : values) {
+				Assert.assertEquals(Integer.signum(integerComparator.compare(
+						value1, value2)), Long.signum(integerComparator
+						.getSortKey(value1)
+						- integerComparator.getSortKey(value2)));
+				Assert.assertEquals(Integer.signum(ratingComparator.compare(
+						value1, value2)), Long.signum(ratingComparator
+						.getSortKey(value1)
+						- ratingComparator.getSortKey(value2)));
+			}
+		}
+	}
+
+	@Test
+	public void testInsertRowKeepsSort() {
+		RaptorTableModel model = new RaptorTableModel();
+		model.setRowIdColumn(0);
+		Assert.assertEquals(0, model.insertRow(new String[] { "a", "2" }));
+		Assert.assertEquals(1, model.insertRow(new String[] { "b", "1" }));
+
+		model.sort(1, new IntegerComparator(), true);
+		Assert.assertEquals("a b", ids(model));
+		Assert.assertEquals(0, model.insertRow(new String[] { "c", "10" }));
+		Assert.assertEquals(2, model.insertRow(new String[] { "d", "2" }));
+		Assert.assertEquals(4, model.insertRow(new String[] { "e", "0" }));
+		Assert.assertEquals("c a d b e", ids(model));
+		Assert.assertEquals(2, model.indexOfId("d"));
+		Assert.assertEquals(-1, model.indexOfId("f"));
+	}
+
+	@Test
+	public void testLoadedRows() {
+		final BitSet loaded = new BitSet();
+		RaptorTableModel model = new RaptorTableModel();
+		model.setRowIdColumn(0);
+		model.setRows(100, new RaptorTableModel.RowLoader() {
+			public String getRowId(int index) {
+				return String.valueOf(index + 1);
+			}
+
+			public String[] loadRow(int index) {
+				loaded.set(index);
+				return new String[] { String.valueOf(index + 1),
+						String.valueOf(index % 10) };
+			}
+		});
+		Assert.assertEquals(100, model.getRowCount());
+		Assert.assertEquals("100", model.getText(99, 0));
+		Assert.assertEquals(0, model.indexOfId("1"));
+		Assert.assertTrue(loaded.isEmpty());
+
+		Assert.assertEquals("7", model.getText(17, 1));
+		Assert.assertEquals("{17}", loaded.toString());
+
+		model.sort(1, new IntegerComparator(), true);
+		Assert.assertEquals(100, loaded.cardinality());
+		Assert.assertEquals("10", model.getText(0, 0));
+		Assert.assertEquals("9", model.getText(0, 1));
+	}
+
+	@Test
+	public void testSetRowsReportsChangedRows() {
+		RaptorTableModel model = new RaptorTableModel();
+		model.setRowIdColumn(0);
+		model.sort(1, new RatingComparator(), false);
+
+		BitSet changed = model.setRows(new String[][] { { "1", "1500" },
+				{ "2", "2100" }, { "3", "1800" } });
+		Assert.assertEquals("2 3 1", ids(model));
+		Assert.assertEquals(3, changed.cardinality());
+
+		changed = model.setRows(new String[][] { { "1", "1500" },
+				{ "2", "2100" }, { "3", "1800" } });
+		Assert.assertTrue(changed.isEmpty());
+
+		changed = model.setRows(new String[][] { { "1", "1500" },
+				{ "2", "2100" }, { "3", "1900" }, { "4", "1000" } });
+		Assert.assertEquals("2 3 1 4", ids(model));
+		Assert.assertEquals("{1, 3}", changed.toString());
+		Assert.assertEquals(1, model.indexOf(new String[] { "3", "1700" }));
+
+		changed = model.setRows(new String[][] { { "1", "1500" },
+				{ "3", "1900" }, { "4", "1000" } });
+		Assert.assertEquals("3 1 4", ids(model));
+		Assert.assertEquals("{0, 1, 2}", changed.toString());
+		Assert.assertEquals(-1, model.indexOf(new String[] { "2", "2100" }));
+	}
+
+	@Test
+	public void testStableSort() {
+		RaptorTableModel model = new RaptorTableModel();
+		model.setRows(new String[][] { { "a", "2" }, { "b", "1" },
+				{ "c", "2" }, { "d", "10" } });
+		Assert.assertEquals("a b c d", ids(model));
+
+		model.sort(1, new IntegerComparator(), true);
+		Assert.assertEquals("d a c b", ids(model));
+		model.sort(1, new IntegerComparator(), false);
+		Assert.assertEquals("b a c d", ids(model));
+		model.sort(1, null, true);
+		model.sort(0, String.CASE_INSENSITIVE_ORDER, false);
+		Assert.assertEquals("d c b a", ids(model));
+
+		model.setText(0, 0, "e");
+		model.addRow(new String[] { "f", "3" });
+		Assert.assertEquals("e c b a f", ids(model));
+		model.removeRow(1);
+		Assert.assertEquals("e b a f", ids(model));
+		Assert.assertEquals(0, model.indexOf(new String[] { "e", "10" }));
+	}
+}
@@ -0,0 +1,157 @@
+/**
+ * New BSD License
+ * http://www.opensource.org/licenses/bsd-license.php
+ * Copyright 2009-2011 RaptorProject (http://code.google.com/p/raptor-chess-interface/)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the RaptorProject nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package raptor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import raptor.chat.Seek;
+import raptor.chat.Seek.GameType;
+import raptor.connector.ics.SeekInfoParser;
+import raptor.service.SeekService;
+import raptor.service.SeekService.SeekServiceListener;
+
+public class TestSeekInfo {
+
+	protected static class RecordingListener implements SeekServiceListener {
+		protected List<String> events = new ArrayList<String>();
+
+		public void seeksAdded(Seek[] addedSeeks) {
+			events.add("+" + ads(addedSeeks));
+		}
+
+		public void seeksChanged(Seek[] newSeeks) {
+			events.add("=" + ads(newSeeks));
+		}
+
+		public void seeksRemoved(Seek[] removedSeeks) {
+			events.add("-" + ads(removedSeeks));
+		}
+	}
+
+	protected static String ads(Seek[] seeks) {
+		StringBuilder result = new StringBuilder();
+		for (int i = 0; i < seeks.length; i++) {
+			result.append(i == 0 ? "" : ",").append(seeks[i].getAd());
+		}
+		return result.toString();
+	}
+
+	protected static Seek seek(String ad, String name, int minutes) {
+		Seek seek = new Seek();
+		seek.setAd(ad);
+		seek.setName(name);
+		seek.setRating("1500");
+		seek.setMinutes(minutes);
+		seek.setTypeDescription("blitz");
+		return seek;
+	}
+
+	@Test
+	public void testParse() {
+		SeekInfoParser parser = new SeekInfoParser();
+
+		Seek seek = parser
+				.parseAdd("<s> 8 w=GuestXYZZ ti=01 rt=0P t=2 i=12 r=u tp=wild/fr c=W rr=0-9999 a=f f=t");
+		Assert.assertEquals("8", seek.getAd());
+		Assert.assertEquals("GuestXYZZ(U)", seek.getName());
+		Assert.assertEquals("++++", seek.getRating());
+		Assert.assertEquals(2, seek.getMinutes());
+		Assert.assertEquals(12, seek.getIncrement());
+		Assert.assertFalse(seek.isRated());
+		Assert.assertEquals(GameType.fischerRandom, seek.getType());
+		Assert.assertEquals(Seek.GameColor.white, seek.getColor());
+		Assert.assertEquals("0-9999", seek.getRatingRange());
+		Assert.assertEquals("mf", seek.getFlags());
+
+		seek = parser
+				.parseAdd("<s> 21 w=Bot ti=02 rt=2011E t=15 i=0 r=r tp=standard c=? rr=1200-2400 a=t f=f");
+		Assert.assertEquals("Bot(C)", seek.getName());
+		Assert.assertTrue(seek.isComputer());
+		Assert.assertEquals("2011E", seek.getRating());
+		Assert.assertEquals(2011, seek.getRatingAsShort());
+		Assert.assertTrue(seek.isRated());
+		Assert.assertNull(seek.getColor());
+		Assert.assertEquals("", seek.getFlags());
+
+		Assert.assertNull(parser.parseAdd("<sr> 8 21"));
+		Assert.assertNull(parser.parseAdd("<s> 8 garbage"));
+		String[] removed = parser.parseRemove("<sr> 8 21");
+		Assert.assertEquals(2, removed.length);
+		Assert.assertEquals("21", removed[1]);
+		Assert.assertTrue(parser.isClear("<sc>"));
+		Assert.assertFalse(parser.isSeekInfo("<12> rnbqkbnr"));
+	}
+
+	@Test
+	public void testRemoveSeekInfo() {
+		SeekInfoParser parser = new SeekInfoParser();
+		List<String> lines = new ArrayList<String>();
+
+		String message = "fics% \n<sc>\nGuestA tells you: hi\n\n"
+				+ "<s> 8 w=GuestXYZZ ti=01 rt=0P t=2 i=12 r=u tp=blitz c=? rr=0-9999 a=t f=f\n"
+				+ "<sr> 8\nfics% \n";
+		Assert.assertEquals("fics% \nGuestA tells you: hi\n\nfics% \n",
+				parser.removeSeekInfo(message, lines));
+		Assert.assertEquals(3, lines.size());
+		Assert.assertEquals("<sc>", lines.get(0));
+		Assert.assertEquals("<sr> 8", lines.get(2));
+
+		lines.clear();
+		Assert.assertEquals("\nabc\n", parser.removeSeekInfo(
+				"<sr> 1\n\nabc\n<sc>", lines));
+		Assert.assertEquals(2, lines.size());
+
+		lines.clear();
+		message = "<sort> is not seekinfo\n\n";
+		Assert.assertSame(message, parser.removeSeekInfo(message, lines));
+		Assert.assertTrue(lines.isEmpty());
+	}
+
+	@Test
+	public void testSetSeeksSendsDeltas() {
+		SeekService service = new SeekService(null);
+		RecordingListener listener = new RecordingListener();
+		service.adSeekServiceListener(listener);
+
+		service.setSeeks(new Seek[] { seek("1", "a", 1), seek("2", "b", 2),
+				seek("3", "c", 3) });
+		service.setSeeks(new Seek[] { seek("1", "a", 1), seek("3", "x", 3),
+				seek("4", "d", 4) });
+		Assert.assertEquals("[+1,2,3, -3,2, +3,4]", listener.events
+				.toString());
+		Assert.assertEquals("1,3,4", ads(service.getSeeks()));
+		Assert.assertEquals("x", service.getSeek("3").getName());
+	}
+
+	@Test
+	public void testUpdateSeeks() {
+		SeekService service = new SeekService(null);
+		RecordingListener listener = new RecordingListener();
+		service.adSeekServiceListener(listener);
+
+		service.updateSeeks(new Seek[] { seek("1", "a", 1),
+				seek("2", "b", 2) }, new String[0]);
+		service.updateSeeks(new Seek[] { seek("2", "c", 2) }, new String[] {
+				"1", "5" });
+		service.clearSeeks();
+		Assert.assertEquals("[+1,2, -1,2, +2, =]", listener.events
+				.toString());
+		Assert.assertEquals(0, service.getSeeks().length);
+	}
+}
@@ -0,0 +1,80 @@
+/**
+ * New BSD License
+ * http://www.opensource.org/licenses/bsd-license.php
+ * Copyright 2009-2011 RaptorProject (http://code.google.com/p/raptor-chess-interface/)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the RaptorProject nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package raptor;
+
+import junit.framework.Assert;
+
+import org.eclipse.swt.custom.StyleRange;
+import org.junit.Test;
+
+import raptor.swt.chat.StyleRangeBuffer;
+
+public class TestStyleRangeBuffer {
+
+	protected static StyleRange range(int start, int length, int fontStyle) {
+		StyleRange result = new StyleRange();
+		result.start = start;
+		result.length = length;
+		result.fontStyle = fontStyle;
+		return result;
+	}
+
+	/**
+	 * Formats the ranges as start-end:fontStyle.
+	 */
+	protected static String toString(StyleRangeBuffer buffer) {
+		StringBuilder result = new StringBuilder();
+		for (StyleRange range : buffer.toArray()) {
+			result.append(result.length() == 0 ? "" : " ").append(range.start)
+					.append('-').append(range.start + range.length).append(':')
+					.append(range.fontStyle);
+		}
+		return result.toString();
+	}
+
+	@Test
+	public void testDisjointRanges() {
+		StyleRangeBuffer buffer = new StyleRangeBuffer();
+		buffer.add(range(0, 5, 1));
+		buffer.add(range(5, 5, 2));
+		buffer.add(range(12, 0, 3));
+		buffer.add(range(20, 3, 3));
+		Assert.assertEquals("0-5:1 5-10:2 20-23:3", toString(buffer));
+	}
+
+	/**
+	 * Later ranges replace the overlapped parts of earlier ones, as successive
+	 * StyledText.setStyleRange calls would.
+	 */
+	@Test
+	public void testLaterRangesWin() {
+		StyleRangeBuffer buffer = new StyleRangeBuffer();
+		buffer.add(range(0, 20, 1));
+		buffer.add(range(5, 5, 2));
+		Assert.assertEquals("0-5:1 5-10:2 10-20:1", toString(buffer));
+
+		buffer.add(range(8, 4, 3));
+		Assert.assertEquals("0-5:1 5-8:2 8-12:3 12-20:1", toString(buffer));
+
+		buffer.add(range(3, 15, 4));
+		Assert.assertEquals("0-3:1 3-18:4 18-20:1", toString(buffer));
+
+		buffer.add(range(0, 20, 5));
+		Assert.assertEquals("0-20:5", toString(buffer));
+
+		buffer.add(range(30, 10, 6));
+		buffer.add(range(15, 20, 7));
+		Assert.assertEquals("0-15:5 15-35:7 35-40:6", toString(buffer));
+	}
+}
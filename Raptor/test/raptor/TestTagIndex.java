@@ -0,0 +1,107 @@
+/**
+ * New BSD License
+ * http://www.opensource.org/licenses/bsd-license.php
+ * Copyright 2009-2011 RaptorProject (http://code.google.com/p/raptor-chess-interface/)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the RaptorProject nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package raptor;
+
+import java.util.Arrays;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import raptor.util.TagIndex;
+
+public class TestTagIndex {
+
+	protected static void assertTags(TagIndex index, String user,
+			String... expected) {
+		Assert.assertEquals(user, Arrays.asList(expected), Arrays.asList(index
+				.getTags(user)));
+	}
+
+	protected static TagIndex createIndex() {
+		TagIndex index = new TagIndex();
+		index.setTags(new String[] { "Friends", "Cheaters", "Bots" });
+		return index;
+	}
+
+	@Test
+	public void testAddUser() {
+		TagIndex index = createIndex();
+		Assert.assertEquals("[Bots, Cheaters, Friends]", Arrays.asList(
+				index.getTags()).toString());
+
+		Assert.assertTrue(index.addUser("friends", "Alice"));
+		Assert.assertFalse(index.addUser("FRIENDS", "bob"));
+		Assert.assertTrue(index.addUser("Bots", "ALICE"));
+		Assert.assertFalse(index.addUser("bots", "alice"));
+
+		assertTags(index, "alice", "Bots", "Friends");
+		assertTags(index, "ALICE", "Bots", "Friends");
+		assertTags(index, "Bob", "Friends");
+		assertTags(index, "carol");
+		Assert.assertEquals("[alice, bob]", Arrays.asList(
+				index.getUsersInTag("Friends")).toString());
+		Assert.assertEquals("[bots, friends]", Arrays.asList(
+				index.getUsedTags()).toString());
+
+		// A user in a tag which is not a display name yet is indexed once the
+		// tag is added.
+		index.addUser("Newbies", "alice");
+		assertTags(index, "alice", "Bots", "Friends");
+		index.setTags(new String[] { "Friends", "Cheaters", "Bots", "Newbies" });
+		assertTags(index, "alice", "Bots", "Friends", "Newbies");
+	}
+
+	@Test
+	public void testClear() {
+		TagIndex index = createIndex();
+		index.addUser("Friends", "alice");
+		index.addUser("Friends", "bob");
+		index.addUser("Bots", "alice");
+
+		index.clear("FRIENDS");
+		assertTags(index, "alice", "Bots");
+		assertTags(index, "bob");
+		Assert.assertEquals(0, index.getUsersInTag("friends").length);
+
+		index.clear();
+		assertTags(index, "alice");
+		Assert.assertEquals(0, index.getUsedTags().length);
+		Assert.assertEquals(3, index.getTags().length);
+	}
+
+	@Test
+	public void testRemoveUser() {
+		TagIndex index = createIndex();
+		index.addUser("Friends", "alice");
+		index.addUser("Cheaters", "alice");
+		index.addUser("Bots", "Alice");
+		index.addUser("Friends", "bob");
+
+		Assert.assertTrue(index.removeUser("CHEATERS", "ALICE"));
+		assertTags(index, "alice", "Bots", "Friends");
+		Assert.assertFalse(index.removeUser("Newbies", "alice"));
+
+		Assert.assertTrue(index.removeUser("Alice"));
+		assertTags(index, "alice");
+		assertTags(index, "bob", "Friends");
+		Assert.assertFalse(index.removeUser("alice"));
+		Assert.assertEquals("[bob]", Arrays.asList(
+				index.getUsersInTag("friends")).toString());
+
+		// The returned arrays are copies.
+		index.getTags("bob")[0] = "Cheaters";
+		assertTags(index, "bob", "Friends");
+	}
+}
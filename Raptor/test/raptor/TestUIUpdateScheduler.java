@@ -0,0 +1,144 @@
+/**
+ * New BSD License
+ * http://www.opensource.org/licenses/bsd-license.php
+ * Copyright 2009-2011 RaptorProject (http://code.google.com/p/raptor-chess-interface/)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the RaptorProject nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package raptor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import raptor.swt.UIUpdateScheduler;
+
+public class TestUIUpdateScheduler {
+
+	/**
+	 * A scheduler without a display. Frames are queued until runFrames is
+	 * called.
+	 */
+	protected static class TestableScheduler extends UIUpdateScheduler {
+		List<Runnable> frames = new ArrayList<Runnable>();
+		boolean isDisposed;
+
+		TestableScheduler() {
+			super(null);
+		}
+
+		@Override
+		protected void asyncExec(Runnable runnable) {
+			frames.add(runnable);
+		}
+
+		@Override
+		protected boolean isDisplayDisposed() {
+			return isDisposed;
+		}
+
+		@Override
+		protected void timerExec(int delay, Runnable runnable) {
+			frames.add(runnable);
+		}
+
+		void runFrames() {
+			lastFrameTime = 0;
+			while (!frames.isEmpty()) {
+				frames.remove(0).run();
+			}
+		}
+	}
+
+	/**
+	 * Adds its name to a shared log when it runs.
+	 */
+	protected static class LoggingUpdate implements Runnable {
+		List<String> log;
+		String name;
+
+		LoggingUpdate(List<String> log, String name) {
+			this.log = log;
+			this.name = name;
+		}
+
+		public void run() {
+			log.add(name);
+		}
+	}
+
+	@Test
+	public void testCancelAndDispose() {
+		List<String> log = new ArrayList<String>();
+		TestableScheduler scheduler = new TestableScheduler();
+
+		scheduler.schedule("a", new LoggingUpdate(log, "a1"));
+		scheduler.schedule("b", new LoggingUpdate(log, "b1"));
+		Assert.assertTrue(scheduler.cancel("b"));
+		Assert.assertFalse(scheduler.cancel("b"));
+		Assert.assertFalse(scheduler.isPending("b"));
+		Assert.assertEquals(1, scheduler.getDroppedCount());
+
+		scheduler.runPending("a");
+		Assert.assertEquals("[a1]", log.toString());
+		scheduler.runFrames();
+		Assert.assertEquals("[a1]", log.toString());
+		Assert.assertEquals(1, scheduler.getDroppedCount());
+
+		scheduler.isDisposed = true;
+		scheduler.schedule("a", new LoggingUpdate(log, "a2"));
+		scheduler.schedule("b", new LoggingUpdate(log, "b2"));
+		Assert.assertTrue(scheduler.frames.isEmpty());
+		Assert.assertEquals(3, scheduler.getDroppedCount());
+		Assert.assertEquals(4, scheduler.getQueuedCount());
+		Assert.assertEquals(0, scheduler.getMergedCount());
+		Assert.assertEquals("[a1]", log.toString());
+	}
+
+	@Test
+	public void testCoalescing() {
+		List<String> log = new ArrayList<String>();
+		TestableScheduler scheduler = new TestableScheduler();
+
+		scheduler.schedule("a", new LoggingUpdate(log, "a1"));
+		scheduler.schedule("b", new LoggingUpdate(log, "b1"));
+		scheduler.schedule("a", new LoggingUpdate(log, "a2"));
+		scheduler.schedule("a", new LoggingUpdate(log, "a3"));
+		Assert.assertEquals(1, scheduler.frames.size());
+		Assert.assertTrue(scheduler.isPending("a"));
+		Assert.assertEquals(4, scheduler.getQueuedCount());
+		Assert.assertEquals(2, scheduler.getMergedCount());
+		Assert.assertEquals(0, scheduler.getDroppedCount());
+
+		// The newest update for a key runs in the order the key was first
+		// scheduled.
+		scheduler.runFrames();
+		Assert.assertEquals("[a3, b1]", log.toString());
+		Assert.assertFalse(scheduler.isPending("a"));
+
+		// An update which fails doesn't stop the rest of the frame.
+		scheduler.schedule("c", new Runnable() {
+			public void run() {
+				throw new IllegalStateException();
+			}
+		});
+		scheduler.schedule("b", new LoggingUpdate(log, "b2"));
+		Assert.assertEquals(1, scheduler.frames.size());
+		scheduler.runFrames();
+		Assert.assertEquals("[a3, b1, b2]", log.toString());
+		Assert.assertEquals(6, scheduler.getQueuedCount());
+		Assert.assertEquals(2, scheduler.getMergedCount());
+		Assert.assertEquals(
+				"UIUpdateScheduler queued=6 merged=2 dropped=0",
+				scheduler.toString());
+	}
+}